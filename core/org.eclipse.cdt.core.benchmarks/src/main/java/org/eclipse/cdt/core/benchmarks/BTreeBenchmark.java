@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeComparator;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures insertions into and lookups in a {@link BTree} of records holding an integer key,
+ * the keys are pseudo-random with a fixed seed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BTreeBenchmark {
+	private static final int RECORDS= 100000;
+	private static final int LOOKUPS= 10000;
+
+	@Param({ "8", "32" })
+	public int degree;
+
+	private File fFile;
+	private Database fDatabase;
+	private long[] fRecords;
+	private int[] fLookupKeys;
+	private BTree fTree;
+	private IBTreeComparator fComparator;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException, CoreException {
+		fFile= File.createTempFile("btree", ".db");
+		fDatabase= new Database(fFile, new ChunkCache(), 0, false);
+		fDatabase.setExclusiveLock();
+		fComparator= new IBTreeComparator() {
+			@Override
+			public int compare(long record1, long record2) throws CoreException {
+				return Integer.compare(fDatabase.getInt(record1), fDatabase.getInt(record2));
+			}
+		};
+		Random random= new Random(42);
+		fRecords= new long[RECORDS];
+		for (int i= 0; i < RECORDS; i++) {
+			fRecords[i]= fDatabase.malloc(Database.INT_SIZE);
+			fDatabase.putInt(fRecords[i], random.nextInt());
+		}
+		fLookupKeys= new int[LOOKUPS];
+		for (int i= 0; i < LOOKUPS; i++) {
+			fLookupKeys[i]= fDatabase.getInt(fRecords[random.nextInt(RECORDS)]);
+		}
+		fTree= createTree();
+		for (long record : fRecords) {
+			fTree.insert(record);
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws CoreException {
+		fDatabase.close();
+		fFile.delete();
+	}
+
+	private BTree createTree() throws CoreException {
+		return new BTree(fDatabase, fDatabase.malloc(Database.PTR_SIZE), degree, fComparator);
+	}
+
+	@Benchmark
+	public BTree insert() throws CoreException {
+		BTree tree= createTree();
+		for (long record : fRecords) {
+			tree.insert(record);
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public int lookup() throws CoreException {
+		int found= 0;
+		for (final int key : fLookupKeys) {
+			final long[] result= { 0 };
+			fTree.accept(new IBTreeVisitor() {
+				@Override
+				public int compare(long record) throws CoreException {
+					return Integer.compare(fDatabase.getInt(record), key);
+				}
+
+				@Override
+				public boolean visit(long record) throws CoreException {
+					result[0]= record;
+					return false;
+				}
+			});
+			if (result[0] != 0) {
+				found++;
+			}
+		}
+		return found;
+	}
+}
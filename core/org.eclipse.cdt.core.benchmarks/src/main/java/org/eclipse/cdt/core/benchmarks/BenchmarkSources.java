@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.parser.IScannerExtensionConfiguration;
+import org.eclipse.cdt.core.dom.parser.c.GCCParserExtensionConfiguration;
+import org.eclipse.cdt.core.dom.parser.c.GCCScannerExtensionConfiguration;
+import org.eclipse.cdt.core.dom.parser.cpp.GPPParserExtensionConfiguration;
+import org.eclipse.cdt.core.dom.parser.cpp.GPPScannerExtensionConfiguration;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IScanner;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.parser.NullLogService;
+import org.eclipse.cdt.core.parser.ParserLanguage;
+import org.eclipse.cdt.core.parser.ParserMode;
+import org.eclipse.cdt.core.parser.ScannerInfo;
+import org.eclipse.cdt.internal.core.dom.parser.AbstractGNUSourceCodeParser;
+import org.eclipse.cdt.internal.core.dom.parser.c.GNUCSourceParser;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.GNUCPPSourceParser;
+import org.eclipse.cdt.internal.core.parser.IMacroDictionary;
+import org.eclipse.cdt.internal.core.parser.scanner.CPreprocessor;
+import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
+import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContentProvider;
+
+/**
+ * The sources the benchmarks run on. There are synthetic sources generated with a fixed layout
+ * and real-world sources, the native parts of CDT bundled with the benchmarks. All sources are
+ * kept in memory, such that the benchmarks do not depend on the file system.
+ */
+public final class BenchmarkSources {
+	/** Generated C code with structs, functions and function-like macros. */
+	public static final String SYNTHETIC_C= "synthetic-c";
+	/** Generated C++ code with class hierarchies, templates and overloaded functions. */
+	public static final String SYNTHETIC_CPP= "synthetic-cpp";
+	/** The native C code of the Linux fragment. */
+	public static final String REAL_WORLD_C= "real-world-c";
+	/** The native C++ code of the Windows fragment. */
+	public static final String REAL_WORLD_CPP= "real-world-cpp";
+
+	private static final String ROOT= "/sources/";
+	private static final String[] REAL_WORLD_C_SOURCES= {
+		"linux/exec_pty.c", "linux/exec_unix.c", "linux/io.c", "linux/openpty.c",
+		"linux/pfind.c", "linux/pty.c", "linux/ptyio.c", "linux/spawner.c"
+	};
+	private static final String[] REAL_WORLD_CPP_SOURCES= {
+		"win32/starter/starter.cpp", "win32/serial/serial.cpp", "win32/winreg/winreg.cpp"
+	};
+	private static final String[] REAL_WORLD_HEADERS= {
+		"linux/exec0.h", "linux/openpty.h", "linux/PTY.h", "linux/PTYInputStream.h",
+		"linux/PTYOutputStream.h", "linux/Spawner.h", "linux/SpawnerInputStream.h",
+		"linux/SpawnerOutputStream.h", "win32/serial/stdafx.h", "win32/serial/targetver.h",
+		"win32/winreg/stdafx.h", "win32/winreg/targetver.h"
+	};
+	private static final String SYNTHETIC_HEADER= "synthetic/synthetic.h";
+	private static final int SYNTHETIC_SIZE= 200;
+
+	private static Map<String, char[]> sFiles;
+
+	private BenchmarkSources() {
+	}
+
+	/**
+	 * Returns the paths of the translation units of the given corpus.
+	 */
+	public static String[] getTranslationUnits(String corpus) throws IOException {
+		getFiles();
+		switch (corpus) {
+		case SYNTHETIC_C:
+			return new String[] { ROOT + "synthetic/synthetic.c" };
+		case SYNTHETIC_CPP:
+			return new String[] { ROOT + "synthetic/synthetic.cpp" };
+		case REAL_WORLD_C:
+			return prefix(REAL_WORLD_C_SOURCES);
+		case REAL_WORLD_CPP:
+			return prefix(REAL_WORLD_CPP_SOURCES);
+		}
+		throw new IllegalArgumentException(corpus);
+	}
+
+	/**
+	 * Returns the contents of a source file.
+	 */
+	public static char[] getContents(String path) throws IOException {
+		return getFiles().get(path);
+	}
+
+	public static ParserLanguage getLanguage(String path) {
+		return path.endsWith(".c") ? ParserLanguage.C : ParserLanguage.CPP;
+	}
+
+	/**
+	 * Creates the preprocessor for a translation unit. Headers are resolved among the sources,
+	 * system headers are not available.
+	 */
+	public static IScanner createScanner(String path) throws IOException {
+		ParserLanguage lang= getLanguage(path);
+		IScannerInfo info= createScannerInfo(path);
+		IScannerExtensionConfiguration configuration= lang == ParserLanguage.C ?
+				GCCScannerExtensionConfiguration.getInstance(info) :
+				GPPScannerExtensionConfiguration.getInstance(info);
+		return new CPreprocessor(FileContent.create(path, getContents(path)), info, lang,
+				new NullLogService(), configuration, new SourcesContentProvider());
+	}
+
+	/**
+	 * Parses a translation unit, the names of the AST are not resolved.
+	 */
+	public static IASTTranslationUnit parse(String path) throws IOException {
+		IScanner scanner= createScanner(path);
+		AbstractGNUSourceCodeParser parser;
+		if (getLanguage(path) == ParserLanguage.C) {
+			parser= new GNUCSourceParser(scanner, ParserMode.COMPLETE_PARSE, new NullLogService(),
+					new GCCParserExtensionConfiguration(), null);
+		} else {
+			parser= new GNUCPPSourceParser(scanner, ParserMode.COMPLETE_PARSE, new NullLogService(),
+					new GPPParserExtensionConfiguration(), null);
+		}
+		return parser.parse();
+	}
+
+	private static IScannerInfo createScannerInfo(String path) {
+		Map<String, String> definedSymbols= new HashMap<>();
+		definedSymbols.put("__GNUC__", "4");
+		definedSymbols.put("__STDC__", "1");
+		definedSymbols.put("__linux__", "1");
+		String directory= path.substring(0, path.lastIndexOf('/'));
+		return new ScannerInfo(definedSymbols, new String[] { directory });
+	}
+
+	private static String[] prefix(String[] paths) {
+		String[] result= new String[paths.length];
+		for (int i= 0; i < paths.length; i++) {
+			result[i]= ROOT + paths[i];
+		}
+		return result;
+	}
+
+	private static synchronized Map<String, char[]> getFiles() throws IOException {
+		if (sFiles == null) {
+			Map<String, char[]> files= new HashMap<>();
+			for (String[] paths : new String[][] { REAL_WORLD_C_SOURCES, REAL_WORLD_CPP_SOURCES, REAL_WORLD_HEADERS }) {
+				for (String path : paths) {
+					files.put(ROOT + path, readResource(ROOT + path));
+				}
+			}
+			files.put(ROOT + SYNTHETIC_HEADER, generateHeader().toCharArray());
+			files.put(ROOT + "synthetic/synthetic.c", generateC().toCharArray());
+			files.put(ROOT + "synthetic/synthetic.cpp", generateCPP().toCharArray());
+			sFiles= files;
+		}
+		return sFiles;
+	}
+
+	private static char[] readResource(String path) throws IOException {
+		InputStream in= BenchmarkSources.class.getResourceAsStream(path);
+		if (in == null)
+			throw new IOException("Missing benchmark source " + path);
+		try {
+			ByteArrayOutputStream out= new ByteArrayOutputStream();
+			byte[] buffer= new byte[8192];
+			int read;
+			while ((read= in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+			}
+			return new String(out.toByteArray(), StandardCharsets.ISO_8859_1).toCharArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String generateHeader() {
+		StringBuilder buf= new StringBuilder();
+		buf.append("#ifndef SYNTHETIC_H\n#define SYNTHETIC_H\n");
+		buf.append("#define MAX(a, b) ((a) > (b) ? (a) : (b))\n");
+		buf.append("#define FIELD(type, name) type name;\n");
+		buf.append("#define CHECK(x) do { if (!(x)) return -1; } while (0)\n");
+		for (int i= 0; i < SYNTHETIC_SIZE; i++) {
+			buf.append("#define CONSTANT_").append(i).append(' ').append(i * 7 % 100).append('\n');
+		}
+		buf.append("#endif\n");
+		return buf.toString();
+	}
+
+	private static String generateC() {
+		StringBuilder buf= new StringBuilder();
+		buf.append("#include \"synthetic.h\"\n");
+		for (int i= 0; i < SYNTHETIC_SIZE; i++) {
+			buf.append("struct s").append(i).append(" {\n");
+			buf.append("  FIELD(int, count)\n  FIELD(char*, name)\n");
+			if (i > 0) {
+				buf.append("  struct s").append(i - 1).append("* prev;\n");
+			}
+			buf.append("};\n");
+			buf.append("int f").append(i).append("(struct s").append(i).append("* p, int n) {\n");
+			buf.append("  int i, sum = CONSTANT_").append(i).append(";\n");
+			buf.append("  CHECK(p != 0);\n");
+			buf.append("  for (i = 0; i < n; i++) {\n    sum = MAX(sum, p->count + i);\n  }\n");
+			if (i > 0) {
+				buf.append("  sum += f").append(i - 1).append("(p->prev, n - 1);\n");
+			}
+			buf.append("  return sum;\n}\n");
+		}
+		return buf.toString();
+	}
+
+	private static String generateCPP() {
+		StringBuilder buf= new StringBuilder();
+		buf.append("#include \"synthetic.h\"\n");
+		buf.append("template<typename T> struct holder {\n  T value;\n  T get() const { return value; }\n};\n");
+		buf.append("template<typename T, typename U> struct pair {\n  T first;\n  U second;\n};\n");
+		for (int i= 0; i < SYNTHETIC_SIZE; i++) {
+			buf.append("namespace ns").append(i % 10).append(" {\n");
+			buf.append("class C").append(i);
+			if (i > 0) {
+				// Deep hierarchies exercise the lookup in base classes.
+				buf.append(" : public ::ns").append((i - 1) % 10).append("::C").append(i - 1);
+			}
+			buf.append(" {\npublic:\n");
+			buf.append("  int m").append(i).append("(int x) { return x + CONSTANT_").append(i).append("; }\n");
+			buf.append("  int m").append(i).append("(double x) { return (int) x; }\n");
+			buf.append("  holder<pair<int, C").append(i).append("*> > h;\n");
+			buf.append("};\n}\n");
+			buf.append("int use").append(i).append("(ns").append(i % 10).append("::C").append(i).append("& c) {\n");
+			buf.append("  int r = c.m").append(i).append("(1) + c.m").append(i).append("(2.0);\n");
+			if (i > 0) {
+				buf.append("  r += c.m").append(i / 2).append("(3);\n");
+			}
+			buf.append("  return MAX(r, c.h.get().first);\n}\n");
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Provides the headers among the sources.
+	 */
+	private static class SourcesContentProvider extends InternalFileContentProvider {
+		@Override
+		public boolean getInclusionExists(String path) {
+			return sFiles.containsKey(path);
+		}
+
+		@Override
+		public InternalFileContent getContentForInclusion(String path, IMacroDictionary macroDictionary) {
+			char[] contents= sFiles.get(path);
+			if (contents == null)
+				return null;
+			return (InternalFileContent) FileContent.create(path, contents);
+		}
+
+		@Override
+		public InternalFileContent getContentForInclusion(IIndexFileLocation ifl, String astPath) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.core.runtime.CoreException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the allocation of blocks in a {@link Database} and random reads of records spread
+ * over many chunks, with a chunk cache that holds either a small part or all of the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseBenchmark {
+	private static final int BLOCKS= 10000;
+	private static final int RECORDS= 20000;
+	private static final int READS= 100000;
+
+	/** Number of chunks the cache can hold. */
+	@Param({ "64", "16384" })
+	public int cacheChunks;
+
+	private File fFile;
+	private Database fDatabase;
+	private int[] fBlockSizes;
+	private long[] fReadOffsets;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException, CoreException {
+		fFile= File.createTempFile("database", ".db");
+		fDatabase= new Database(fFile, new ChunkCache((long) cacheChunks * Database.CHUNK_SIZE), 0, false);
+		fDatabase.setExclusiveLock();
+
+		Random random= new Random(42);
+		fBlockSizes= new int[BLOCKS];
+		for (int i= 0; i < BLOCKS; i++) {
+			// Most records of the index are small.
+			fBlockSizes[i]= random.nextInt(8) == 0 ?
+					1 + random.nextInt(Database.MAX_MALLOC_SIZE) : 4 + random.nextInt(60);
+		}
+		long[] records= new long[RECORDS];
+		for (int i= 0; i < RECORDS; i++) {
+			// Records of a third of a chunk, such that they are spread over many chunks.
+			records[i]= fDatabase.malloc(Database.MAX_MALLOC_SIZE / 3);
+			fDatabase.putInt(records[i], i);
+		}
+		fReadOffsets= new long[READS];
+		for (int i= 0; i < READS; i++) {
+			fReadOffsets[i]= records[random.nextInt(RECORDS)];
+		}
+		fDatabase.flush();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws CoreException {
+		fDatabase.close();
+		fFile.delete();
+	}
+
+	@Benchmark
+	public long mallocAndFree() throws CoreException {
+		long[] blocks= new long[BLOCKS];
+		for (int i= 0; i < BLOCKS; i++) {
+			blocks[i]= fDatabase.malloc(fBlockSizes[i]);
+		}
+		// Free every other block first to fragment the free lists.
+		for (int i= 0; i < BLOCKS; i += 2) {
+			fDatabase.free(blocks[i]);
+		}
+		for (int i= 1; i < BLOCKS; i += 2) {
+			fDatabase.free(blocks[i]);
+		}
+		return blocks[BLOCKS - 1];
+	}
+
+	@Benchmark
+	public long randomRead() throws CoreException {
+		long sum= 0;
+		for (long offset : fReadOffsets) {
+			sum += fDatabase.getInt(offset);
+		}
+		return sum;
+	}
+}
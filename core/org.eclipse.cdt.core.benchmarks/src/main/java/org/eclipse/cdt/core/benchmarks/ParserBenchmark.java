@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the time needed by {@link org.eclipse.cdt.internal.core.dom.parser.cpp.GNUCPPSourceParser}
+ * and {@link org.eclipse.cdt.internal.core.dom.parser.c.GNUCSourceParser} to create the ASTs of the
+ * translation units, including preprocessing. Names are not resolved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+	@Param({ BenchmarkSources.SYNTHETIC_C, BenchmarkSources.SYNTHETIC_CPP, BenchmarkSources.REAL_WORLD_C,
+		BenchmarkSources.REAL_WORLD_CPP })
+	public String corpus;
+
+	private String[] fTranslationUnits;
+
+	@Setup
+	public void setUp() throws IOException {
+		fTranslationUnits= BenchmarkSources.getTranslationUnits(corpus);
+	}
+
+	@Benchmark
+	public void parse(Blackhole blackhole) throws IOException {
+		for (String tu : fTranslationUnits) {
+			blackhole.consume(BenchmarkSources.parse(tu));
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.core.parser.EndOfFileException;
+import org.eclipse.cdt.core.parser.IScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed by {@link org.eclipse.cdt.internal.core.parser.scanner.CPreprocessor}
+ * to produce the tokens of the translation units.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PreprocessorBenchmark {
+	@Param({ BenchmarkSources.SYNTHETIC_C, BenchmarkSources.SYNTHETIC_CPP, BenchmarkSources.REAL_WORLD_C,
+		BenchmarkSources.REAL_WORLD_CPP })
+	public String corpus;
+
+	private String[] fTranslationUnits;
+
+	@Setup
+	public void setUp() throws IOException {
+		fTranslationUnits= BenchmarkSources.getTranslationUnits(corpus);
+	}
+
+	@Benchmark
+	public int preprocess() throws IOException {
+		int tokens= 0;
+		for (String tu : fTranslationUnits) {
+			IScanner scanner= BenchmarkSources.createScanner(tu);
+			try {
+				while (true) {
+					scanner.nextToken();
+					tokens++;
+				}
+			} catch (EndOfFileException e) {
+			}
+		}
+		return tokens;
+	}
+}
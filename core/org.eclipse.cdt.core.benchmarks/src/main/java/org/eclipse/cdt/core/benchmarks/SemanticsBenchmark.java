@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTName;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IProblemBinding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed to resolve all names of the ASTs of C++ translation units, which is
+ * dominated by {@link org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPSemantics}.
+ * Bindings are cached in the AST, therefore the translation units are parsed before every
+ * invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 5)
+@Measurement(iterations= 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SemanticsBenchmark {
+	@Param({ BenchmarkSources.SYNTHETIC_CPP, BenchmarkSources.REAL_WORLD_CPP })
+	public String corpus;
+
+	private IASTTranslationUnit[] fASTs;
+
+	@Setup(Level.Invocation)
+	public void setUp() throws IOException {
+		String[] tus= BenchmarkSources.getTranslationUnits(corpus);
+		fASTs= new IASTTranslationUnit[tus.length];
+		for (int i= 0; i < tus.length; i++) {
+			fASTs[i]= BenchmarkSources.parse(tus[i]);
+		}
+	}
+
+	@Benchmark
+	public int resolveNames() {
+		NameResolver resolver= new NameResolver();
+		for (IASTTranslationUnit ast : fASTs) {
+			ast.accept(resolver);
+		}
+		return resolver.fProblems;
+	}
+
+	private static class NameResolver extends ASTVisitor {
+		int fProblems;
+
+		NameResolver() {
+			shouldVisitNames= true;
+		}
+
+		@Override
+		public int visit(IASTName name) {
+			if (name.resolveBinding() instanceof IProblemBinding) {
+				fProblems++;
+			}
+			return PROCESS_CONTINUE;
+		}
+	}
+}
@@ -144,6 +144,73 @@ public class ASTCacheTests extends BaseTestCase {
 		checkAccessWithConcurrentReconciler();
 	}
 	
+	public void testInactiveASTs() throws Exception {
+		final ASTCache cache= new ASTCache();
+		final IASTTranslationUnit[] asts= new IASTTranslationUnit[2];
+		cache.setActiveElement(fTU1);
+		cache.runOnAST(fTU1, true, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException {
+				assertNotNull(ast);
+				asts[0]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+
+		// The AST of the previously active element is kept.
+		cache.setActiveElement(fTU2);
+		cache.runOnAST(fTU1, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException {
+				assertSame(asts[0], ast);
+				return Status.OK_STATUS;
+			}
+		});
+
+		// An AST created for an inactive element is kept, too.
+		cache.setActiveElement(fTU1);
+		cache.runOnAST(fTU1, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException {
+				assertSame(asts[0], ast);
+				return Status.OK_STATUS;
+			}
+		});
+		cache.runOnAST(fTU2, true, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException {
+				assertNotNull(ast);
+				asts[1]= ast;
+				return Status.OK_STATUS;
+			}
+		});
+		cache.runOnAST(fTU2, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException {
+				assertSame(asts[1], ast);
+				return Status.OK_STATUS;
+			}
+		});
+
+		// Without a memory budget only the AST of the active element is kept.
+		final ASTCache noInactiveCache= new ASTCache(0);
+		noInactiveCache.setActiveElement(fTU1);
+		noInactiveCache.runOnAST(fTU2, true, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException {
+				assertNotNull(ast);
+				return Status.OK_STATUS;
+			}
+		});
+		noInactiveCache.runOnAST(fTU2, false, null, new ASTRunnable() {
+			@Override
+			public IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException {
+				assertNull(ast);
+				return Status.OK_STATUS;
+			}
+		});
+	}
+
 	private void checkActiveElement() throws Exception {
 		ASTCache cache= new ASTCache();
 		assertFalse(cache.isActiveElement(fTU1));
@@ -214,6 +214,7 @@ public class AST2TestBase extends BaseTestCase {
             parser = new GNUCSourceParser(scanner, ParserMode.COMPLETE_PARSE, NULL_LOG, config, null);
         }
         parser.setMaximumTrivialExpressionsInAggregateInitializers(limitTrivialInitializers);
+        configureParser(parser);
 
         IASTTranslationUnit tu = parser.parse();
         assertTrue(tu.isFrozen());
@@ -245,6 +246,9 @@ public class AST2TestBase extends BaseTestCase {
 	protected void configureScanner(IScanner scanner) {
 	}
 
+	protected void configureParser(AbstractGNUSourceCodeParser parser) {
+	}
+
 	public static IScanner createScanner(FileContent codeReader, ParserLanguage lang, ParserMode mode,
 			IScannerInfo scannerInfo) {
 		IScannerExtensionConfiguration configuration = null;
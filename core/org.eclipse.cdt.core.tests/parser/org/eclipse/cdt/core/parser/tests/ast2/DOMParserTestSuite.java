@@ -56,6 +56,7 @@ public class DOMParserTestSuite extends TestCase {
 		suite.addTest(FaultToleranceTests.suite());
 		suite.addTest(LanguageExtensionsTest.suite());
 		suite.addTest(ASTInactiveCodeTests.suite());
+		suite.addTest(LazyFunctionBodyTests.suite());
 		suite.addTest(AccessControlTests.suite());
 		suite.addTest(VariableReadWriteFlagsTest.suite());
 		suite.addTest(AST2CPPAttributeTests.suite());
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.core.parser.tests.ast2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarationStatement;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTEqualsInitializer;
+import org.eclipse.cdt.core.dom.ast.IASTExpressionStatement;
+import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTInitializerList;
+import org.eclipse.cdt.core.dom.ast.IASTName;
+import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTStatement;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IProblemBinding;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPField;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPMethod;
+import org.eclipse.cdt.core.dom.parser.c.GCCParserExtensionConfiguration;
+import org.eclipse.cdt.core.dom.parser.cpp.GPPParserExtensionConfiguration;
+import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IScanner;
+import org.eclipse.cdt.core.parser.ParserLanguage;
+import org.eclipse.cdt.core.parser.ParserMode;
+import org.eclipse.cdt.internal.core.dom.parser.AbstractGNUSourceCodeParser;
+import org.eclipse.cdt.internal.core.dom.parser.FunctionBodyReparser;
+import org.eclipse.cdt.internal.core.dom.parser.c.CVisitor;
+import org.eclipse.cdt.internal.core.dom.parser.c.GNUCSourceParser;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.GNUCPPSourceParser;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPVisitor;
+
+/**
+ * Testcases for function bodies that are parsed on demand.
+ */
+public class LazyFunctionBodyTests extends AST2TestBase {
+	private boolean fLazy= true;
+
+	public static TestSuite suite() {
+		return suite(LazyFunctionBodyTests.class);
+	}
+
+	public LazyFunctionBodyTests() {
+		super();
+	}
+
+	public LazyFunctionBodyTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void configureParser(AbstractGNUSourceCodeParser parser) {
+		super.configureParser(parser);
+		parser.setParseFunctionBodiesLazily(fLazy);
+	}
+
+	private IASTTranslationUnit parseEagerly(String code, ParserLanguage lang) throws Exception {
+		fLazy= false;
+		try {
+			return parse(code, lang, true, false);
+		} finally {
+			fLazy= true;
+		}
+	}
+
+	private List<String> describeNames(IASTTranslationUnit tu) {
+		NameCollector col= new NameCollector();
+		tu.accept(col);
+		List<String> result= new ArrayList<>();
+		for (IASTName name : col.nameList) {
+			IASTFileLocation loc= name.getFileLocation();
+			IBinding binding= name.resolveBinding();
+			result.add(name + "@" + loc.getNodeOffset() + ":" + loc.getNodeLength() + " -> "
+					+ (binding == null ? null : binding.getClass().getSimpleName() + " " + binding.getName()));
+		}
+		return result;
+	}
+
+	private boolean reparse(IASTTranslationUnit tu, String code, ParserLanguage lang) throws Exception {
+		FileContent content= FileContent.create(TEST_CODE, code.toCharArray());
+		FunctionBodyReparser reparser= FunctionBodyReparser.create(tu, content);
+		if (reparser == null)
+			return false;
+		IScanner scanner= createScanner(content, lang, ParserMode.COMPLETE_PARSE, createScannerInfo(true));
+		AbstractGNUSourceCodeParser parser;
+		if (lang == ParserLanguage.CPP) {
+			parser= new GNUCPPSourceParser(scanner, ParserMode.COMPLETE_PARSE, NULL_LOG,
+					new GPPParserExtensionConfiguration(), null);
+		} else {
+			parser= new GNUCSourceParser(scanner, ParserMode.COMPLETE_PARSE, NULL_LOG,
+					new GCCParserExtensionConfiguration(), null);
+		}
+		return reparser.reparse(scanner, parser, null);
+	}
+
+	private void assertSameNames(String code, ParserLanguage lang) throws Exception {
+		IASTTranslationUnit eager= parseEagerly(code, lang);
+		IASTTranslationUnit lazy= parse(code, lang, true, false);
+		assertEquals(describeNames(eager), describeNames(lazy));
+	}
+
+	//	int f(int a) {
+	//		int b = a;
+	//		return b;
+	//	}
+	public void testStatementsAreParsedOnAccess() throws Exception {
+		String code= getAboveComment();
+		for (ParserLanguage lang : ParserLanguage.values()) {
+			IASTTranslationUnit tu= parse(code, lang, true, false);
+			assertFalse(tu.hasNodesOmitted());
+			IASTFunctionDefinition fdef= getDeclaration(tu, 0);
+			IASTCompoundStatement body= (IASTCompoundStatement) fdef.getBody();
+			assertEquals(code.indexOf('{'), body.getFileLocation().getNodeOffset());
+			assertEquals(code.lastIndexOf('}') + 1, body.getFileLocation().getNodeOffset() + body.getFileLocation().getNodeLength());
+
+			IASTStatement[] statements= body.getStatements();
+			assertEquals(2, statements.length);
+			assertSame(body, statements[0].getParent());
+			assertTrue(statements[0].isFrozen());
+			assertSame(statements[0], body.getStatements()[0]);
+		}
+	}
+
+	//	struct A {
+	//		int m() { return f + n(); }
+	//		int n() { return 0; }
+	//		int f;
+	//	};
+	//	int g(A& a) {
+	//		int x = a.m();
+	//		return x * 2;
+	//	}
+	public void testBindingsInBodies() throws Exception {
+		BindingAssertionHelper bh= new BindingAssertionHelper(getAboveComment(), true);
+		bh.assertNonProblem("f +", 1, ICPPField.class);
+		bh.assertNonProblem("n()", 1, ICPPMethod.class);
+		bh.assertNonProblem("m();", 1, ICPPMethod.class);
+		bh.assertNonProblem("x *", 1, IVariable.class);
+		assertEquals(0, CPPVisitor.getProblems(bh.getTranslationUnit()).length);
+	}
+
+	//	typedef int T;
+	//	int a, b;
+	//	void f() {
+	//		T * p;
+	//		a * b;
+	//		T(x);
+	//	}
+	public void testAmbiguitiesInBodies() throws Exception {
+		IASTTranslationUnit tu= parse(getAboveComment(), ParserLanguage.CPP, true, true);
+		IASTFunctionDefinition fdef= getDeclaration(tu, 2);
+		IASTStatement[] statements= ((IASTCompoundStatement) fdef.getBody()).getStatements();
+		assertEquals(3, statements.length);
+		assertInstance(statements[0], IASTDeclarationStatement.class);
+		assertInstance(statements[1], IASTExpressionStatement.class);
+		assertInstance(statements[2], IASTDeclarationStatement.class);
+	}
+
+	//	#define ADD(x, y) ((x) + (y))
+	//	#define BEGIN {
+	//	struct S { int v; };
+	//	static int count;
+	//	int sum(struct S* s, int n) {
+	//		int i, r = 0;
+	//		for (i = 0; i < n; i++) BEGIN
+	//			r = ADD(r, s[i].v);
+	//		}
+	//		return r + count;
+	//	}
+	//	void nested() {
+	//		{ struct S s; s.v = sum(&s, 1); }
+	//	}
+	public void testSameNamesAsEagerParse() throws Exception {
+		String code= getAboveComment();
+		assertSameNames(code, ParserLanguage.C);
+		assertSameNames(code, ParserLanguage.CPP);
+	}
+
+	//	void f() {
+	//		int x = ;
+	//		int y;
+	//	}
+	public void testSyntaxErrorInBody() throws Exception {
+		String code= getAboveComment();
+		int expected= CVisitor.getProblems(parseEagerly(code, ParserLanguage.C)).length;
+		assertTrue(expected > 0);
+		assertEquals(expected, CVisitor.getProblems(parse(code, ParserLanguage.C, true, false)).length);
+		expected= CPPVisitor.getProblems(parseEagerly(code, ParserLanguage.CPP)).length;
+		assertTrue(expected > 0);
+		assertEquals(expected, CPPVisitor.getProblems(parse(code, ParserLanguage.CPP, true, false)).length);
+		assertSameNames(code, ParserLanguage.CPP);
+	}
+
+	//	void f() {
+	//		int a[3] = {1, 2, 3};
+	//	}
+	public void testTrivialInitializersInBodies() throws Exception {
+		String code= getAboveComment();
+		for (ParserLanguage lang : ParserLanguage.values()) {
+			IASTTranslationUnit tu= parse(code, lang, true, false, 0);
+			IASTFunctionDefinition fdef= getDeclaration(tu, 0);
+			IASTDeclarationStatement stmt= getStatement(fdef, 0);
+			IASTDeclarator dtor= ((IASTSimpleDeclaration) stmt.getDeclaration()).getDeclarators()[0];
+			IASTInitializerList list= (IASTInitializerList) ((IASTEqualsInitializer) dtor.getInitializer()).getInitializerClause();
+			assertEquals(3, list.getSize());
+			assertEquals(0, list.getClauses().length);
+		}
+	}
+
+	//	int f(int a) { return a; }
+	//	int g() { return f(1); }
+	public void testNodeSelectorParsesEnclosingBody() throws Exception {
+		String code= getAboveComment();
+		IASTTranslationUnit tu= parse(code, ParserLanguage.CPP, true, false);
+		IASTName name= tu.getNodeSelector(null).findName(code.indexOf("f(1)"), 1);
+		assertNotNull(name);
+		IBinding binding= name.resolveBinding();
+		assertFalse(binding instanceof IProblemBinding);
+		assertSame(binding, ((IASTFunctionDefinition) getDeclaration(tu, 0)).getDeclarator().getName().resolveBinding());
+	}
+
+	//	#define INC(x) ((x) + 1)
+	//	struct S { int v; };
+	//	int f(struct S* s) {
+	//		return INC(s->v);
+	//	}
+	//	int g(int a) {
+	//		return f(0) + a;
+	//	}
+	public void testReparseChangedBody() throws Exception {
+		String code= getAboveComment();
+		String changed= code.replace("return INC(s->v);", "int w = INC(s->v);\n\treturn w * 2;");
+		for (ParserLanguage lang : ParserLanguage.values()) {
+			IASTTranslationUnit tu= parse(code, lang, true, false);
+			IASTFunctionDefinition g= getDeclaration(tu, 2);
+			IBinding gBinding= g.getDeclarator().getName().resolveBinding();
+			describeNames(tu);
+
+			assertTrue(reparse(tu, changed, lang));
+			assertSame(g, getDeclaration(tu, 2));
+			assertSame(gBinding, g.getDeclarator().getName().resolveBinding());
+			assertEquals(changed.indexOf("int g"), g.getFileLocation().getNodeOffset());
+			assertEquals(describeNames(parseEagerly(changed, lang)), describeNames(tu));
+		}
+	}
+
+	//	int f(int a) {
+	//		return a;
+	//	}
+	//	int g() { return f(1); }
+	public void testNoReparseOfChangesOutsideBody() throws Exception {
+		String code= getAboveComment();
+		for (ParserLanguage lang : ParserLanguage.values()) {
+			IASTTranslationUnit tu= parse(code, lang, true, false);
+			assertFalse(reparse(tu, code.replace("int a", "long a"), lang));
+			tu= parse(code, lang, true, false);
+			assertFalse(reparse(tu, code.replace("return a;", "#define a 1\n\treturn a;"), lang));
+			tu= parse(code, lang, true, false);
+			assertFalse(reparse(tu, code.replace("return a;", "}\nint h() {\n\treturn 0;"), lang));
+		}
+	}
+}
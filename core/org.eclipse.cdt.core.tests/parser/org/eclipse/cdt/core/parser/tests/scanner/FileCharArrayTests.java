@@ -21,7 +21,9 @@ import junit.framework.TestSuite;
 
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.FileCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.FileContentCache;
 import org.eclipse.cdt.internal.core.parser.scanner.LazyCharArray;
 
 public class FileCharArrayTests extends BaseTestCase {
@@ -84,6 +86,45 @@ public class FileCharArrayTests extends BaseTestCase {
 
 	}
 
+	public void testContentCache() throws IOException {
+		final int charSize= LazyCharArray.CHUNK_SIZE*3;
+		createFile(true, charSize);
+		final String path= fFile.getPath();
+		final long timestamp= fFile.lastModified();
+
+		AbstractCharArray charArray;
+		final FileInputStream inputStream = new FileInputStream(fFile);
+		try {
+			charArray = FileCharArray.create(path, "utf-8", inputStream);
+		} finally {
+			inputStream.close();
+		}
+
+		FileContentCache cache= new FileContentCache(charSize * 8);
+		assertNull(cache.get(path, timestamp, charSize, "utf-8"));
+		AbstractCharArray shared= cache.put(path, timestamp, charSize, "utf-8", charArray);
+		// The chunks of the lazy array are read into a single array, which is shared.
+		assertTrue(charArray instanceof LazyCharArray);
+		assertTrue(shared instanceof CharArray);
+		checkContent(shared, 0, charSize);
+		assertEquals(charArray.getContentsHash(), shared.getContentsHash());
+		assertEquals(charSize, cache.getSize());
+
+		assertSame(shared, cache.get(path, timestamp, charSize, "utf-8"));
+		assertNull(cache.get(path, timestamp, charSize, "iso-8859-1"));
+		assertEquals(0, cache.getSize());
+
+		assertSame(shared, cache.put(path, timestamp, charSize, "utf-8", shared));
+		assertNull(cache.get(path, timestamp + 1000, charSize, "utf-8"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+
+		// Files that are too large are not cached.
+		cache= new FileContentCache(charSize);
+		assertSame(charArray, cache.put(path, timestamp, charSize, "utf-8", charArray));
+		assertNull(cache.get(path, timestamp, charSize, "utf-8"));
+	}
+
 	public void checkContent(AbstractCharArray charArray, int from, int to) {
 		for (int i = from; i < to; i++) {
 			assertEquals(i % 127, charArray.get(i));
@@ -84,6 +84,12 @@ public class EmptyIndexFragment implements IIndexFragment {
 		return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
 	}
 
+	@Override
+	public IIndexFragmentBinding[] findTypes(char[] pattern, boolean camelCase,
+			IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+		return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+	}
+
 	@Override
 	public IIndexMacro[] findMacros(char[] name, boolean isPrefix, boolean caseSensitive, IndexFilter filter, IProgressMonitor monitor) {
 		return IIndexMacro.EMPTY_INDEX_MACRO_ARRAY;
@@ -2615,4 +2615,35 @@ public class IndexBugsTests extends BaseTestCase {
 		}
 	}
 
+	// struct Common { int member; };
+
+	// #include "common.h"
+	// void func(Common* c) { c->member = 1; }
+	public void testParallelIndexing() throws Exception {
+		String[] contents= getContentsForTest(2);
+		final int count= 20;
+		IndexerPreferences.setIndexerThreads(4);
+		try {
+			createFile(getProject(), "common.h", contents[0]);
+			for (int i = 0; i < count; i++) {
+				createFile(getProject(), "source" + i + ".cpp", contents[1].replace("func", "func" + i));
+			}
+			CCorePlugin.getIndexManager().reindex(fCProject);
+			waitForIndexer();
+			fIndex.acquireReadLock();
+			try {
+				IIndexBinding[] bindings= fIndex.findBindings(getPattern("Common::member"), true, IndexFilter.ALL, npm());
+				assertEquals(1, bindings.length);
+				assertEquals(count, fIndex.findReferences(bindings[0]).length);
+				for (int i = 0; i < count; i++) {
+					bindings= fIndex.findBindings(("func" + i).toCharArray(), IndexFilter.ALL, npm());
+					assertEquals(1, bindings.length);
+				}
+			} finally {
+				fIndex.releaseReadLock();
+			}
+		} finally {
+			IndexerPreferences.setIndexerThreads(IndexerPreferences.DEFAULT_INDEXER_THREADS);
+		}
+	}
 }
@@ -47,6 +47,8 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPPointerToMemberType;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPVariable;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.LookupCache;
 import org.eclipse.core.runtime.CoreException;
 
 /**
@@ -1859,4 +1861,23 @@ public abstract class IndexCPPBindingResolutionTest extends IndexBindingResoluti
 	public void testNameLookupFromArrayModifier_435075() {
 		checkBindings();
 	}
+
+	//	struct A {
+	//	  int waldo;
+	//	};
+	//	struct B : A {};
+	//	struct C : B {};
+
+	//	void test(C c1, C c2) {
+	//	  c1.waldo = 1;
+	//	  c2.waldo = 2;
+	//	}
+	public void testLookupCacheForIndexBaseClasses() {
+		ICPPField waldo1 = getBindingFromASTName("waldo = 1", 5, ICPPField.class);
+		ICPPField waldo2 = getBindingFromASTName("waldo = 2", 5, ICPPField.class);
+		assertEquals("A", waldo1.getClassOwner().getName());
+		assertEquals(waldo1, waldo2);
+		LookupCache lookupCache = ((CPPASTTranslationUnit) strategy.getAst(0)).getLookupCache();
+		assertTrue(lookupCache.getHitCount() > 0);
+	}
 }
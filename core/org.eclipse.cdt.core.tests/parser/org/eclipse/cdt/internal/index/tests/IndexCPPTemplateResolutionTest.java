@@ -68,6 +68,7 @@ import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPUnknownBinding;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPTemplates;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.SemanticUtil;
 import org.eclipse.cdt.internal.core.index.IIndexScope;
+import org.eclipse.cdt.internal.core.index.TemplateInstanceCache;
 import org.eclipse.core.runtime.CoreException;
 
 /**
@@ -2649,4 +2650,32 @@ public class IndexCPPTemplateResolutionTest extends IndexBindingResolutionTestBa
 		IVariable var2 = getBindingFromASTName("var2", 4);
 		assertSameType(var1.getType(), var2.getType());
 	}
+
+	//	template <typename T>
+	//	struct A {};
+	//	struct B {};
+
+	//	struct C {};
+	//	A<int> a1;
+	//	A<B> a2;
+	//	A<C> a3;
+	public void testTemplateInstanceCache() throws Exception {
+		ICPPTemplateInstance a1 = getBindingFromASTName("A<int>", 0, ICPPTemplateInstance.class);
+		ICPPTemplateInstance a2 = getBindingFromASTName("A<B>", 0, ICPPTemplateInstance.class);
+		ICPPTemplateInstance a3 = getBindingFromASTName("A<C>", 0, ICPPTemplateInstance.class);
+		assertInstance(a1.getTemplateDefinition(), IIndexBinding.class);
+
+		TemplateInstanceCache cache = new TemplateInstanceCache(1);
+		for (ICPPTemplateInstance instance : new ICPPTemplateInstance[] { a1, a2, a3 }) {
+			cache.addInstance(instance.getTemplateDefinition(), instance.getTemplateArguments(), instance);
+		}
+		// The instance with a type from the AST is not cached, the oldest instance is evicted.
+		assertNull(cache.getInstance(a1.getTemplateDefinition(), a1.getTemplateArguments()));
+		assertSame(a2, cache.getInstance(a2.getTemplateDefinition(), a2.getTemplateArguments()));
+		assertNull(cache.getInstance(a3.getTemplateDefinition(), a3.getTemplateArguments()));
+		assertEquals(1, cache.getHitCount());
+
+		cache.clear();
+		assertNull(cache.getInstance(a2.getTemplateDefinition(), a2.getTemplateArguments()));
+	}
 }
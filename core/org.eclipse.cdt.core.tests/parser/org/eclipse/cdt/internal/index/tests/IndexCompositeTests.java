@@ -13,6 +13,8 @@ package org.eclipse.cdt.internal.index.tests;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -30,13 +32,16 @@ import org.eclipse.cdt.core.dom.ast.ICompositeType;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPMethod;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespace;
 import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexBinding;
 import org.eclipse.cdt.core.index.IIndexManager;
+import org.eclipse.cdt.core.index.IIndexName;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.testplugin.CProjectHelper;
 import org.eclipse.cdt.core.testplugin.CTestPlugin;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.index.CIndex;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
@@ -475,6 +480,73 @@ public class IndexCompositeTests extends BaseTestCase {
 		}
 	}
 	
+	// class C1 {};
+	// namespace X { class C2 {}; }
+	// #define M1 1
+	// void foo(C1 c) {}
+
+	// #include "h2.h"
+	// class B1 {};
+	// namespace X { class B2 {}; C1 c; }
+	// #define M2 2
+	// void foo(B1 c) {}
+	public void testParallelFragmentQueries() throws Exception {
+		CharSequence[] contents = getContentsForTest(2);
+		List<ICProject> projects = new ArrayList<ICProject>();
+		boolean parallel = CIndex.isParallelFragmentQueries();
+
+		try {
+			ProjectBuilder pb = new ProjectBuilder("projB_" + getName(), true);
+			pb.addFile("h2.h", contents[0]);
+			ICProject cprojB = pb.create();
+			projects.add(cprojB);
+
+			pb = new ProjectBuilder("projA_" + getName(), true);
+			pb.addFile("h1.h", contents[1]).addDependency(cprojB.getProject());
+			ICProject cprojA = pb.create();
+			projects.add(cprojA);
+
+			CIndex.setParallelFragmentQueries(false);
+			setIndex(cprojA, BOTH);
+			List<String> sequential = queryAll();
+			CIndex.setParallelFragmentQueries(true);
+			setIndex(cprojA, BOTH);
+			List<String> concurrent = queryAll();
+			assertEquals(sequential, concurrent);
+		} finally {
+			CIndex.setParallelFragmentQueries(parallel);
+			for (ICProject project : projects) {
+				project.getProject().delete(true, true, new NullProgressMonitor());
+			}
+		}
+	}
+
+	private List<String> queryAll() throws CoreException {
+		List<String> result = new ArrayList<String>();
+		IIndexBinding[] bindings = index.findBindings(Pattern.compile(".*"), false, FILTER, npm());
+		addNames(result, "bindings", bindings);
+		addNames(result, "prefix", index.findBindingsForPrefix("B".toCharArray(), false, FILTER, npm()));
+		addNames(result, "macros", index.findMacroContainers(Pattern.compile("M."), FILTER, npm()));
+		for (IIndexBinding binding : bindings) {
+			List<String> names = new ArrayList<String>();
+			for (IIndexName name : index.findNames(binding, IIndex.FIND_ALL_OCCURRENCES)) {
+				names.add(name.getFileLocation().getFileName() + "@" + name.getNodeOffset());
+			}
+			Collections.sort(names);
+			result.add(binding.getName() + ": " + names);
+		}
+		return result;
+	}
+
+	private void addNames(List<String> result, String query, IIndexBinding[] bindings) {
+		List<String> names = new ArrayList<String>();
+		for (IIndexBinding binding : bindings) {
+			names.add(Arrays.toString(binding.getQualifiedName()));
+		}
+		Collections.sort(names);
+		result.add(query + ": " + names);
+	}
+
 	/**
 	 * Asserts binding counts, and returns the index tested against
 	 * @param global the number of bindings expected to be found at global scope
@@ -764,4 +764,73 @@ public class IndexIncludeTest extends IndexTestBase {
 			fIndex.releaseReadLock();
 		}
 	}	
+
+	// #ifndef PCH_20151018_H
+	// #define PCH_20151018_H
+	// #include "config20151018.h"
+	// #endif
+
+	// #define VALUE_20151018(x) first_##x
+
+	// #define VALUE_20151018(x) second_##x
+
+	// #include "pch20151018.h"
+	// #include "pch20151018.h"
+	// #ifdef PCH_20151018_H
+	// int VALUE_20151018(SOURCE);
+	// #endif
+	public void testSharedIncludePrefix() throws Exception {
+		waitForIndexer();
+		TestScannerProvider.sIncludes= new String[] { fProject.getProject().getLocation().toOSString() };
+		CharSequence[] contents= getContentsForTest(4);
+		TestSourceReader.createFile(fProject.getProject(), "pch20151018.h", contents[0].toString());
+		final IFile config= TestSourceReader.createFile(fProject.getProject(), "config20151018.h", contents[1].toString());
+		final String source= contents[3].toString();
+		final IFile[] sources= new IFile[3];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i]= TestSourceReader.createFile(fProject.getProject(), "s" + i + "_20151018.cpp",
+					source.replace("SOURCE", "s" + i));
+		}
+		// The later translation units take the content of the shared header from the index.
+		CCorePlugin.getIndexManager().reindex(fProject);
+		waitForIndexer();
+		checkSharedIncludePrefix("first_s", sources.length);
+
+		// Change a header of the shared prefix and parse all translation units again.
+		Thread.sleep(1000);
+		final String changedConfig= contents[2].toString();
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				config.setContents(new ByteArrayInputStream(changedConfig.getBytes()), false, false, npm());
+				for (int i = 0; i < sources.length; i++) {
+					sources[i].setContents(new ByteArrayInputStream((source.replace("SOURCE", "s" + i) + "\n").getBytes()),
+							false, false, npm());
+				}
+			}
+		}, npm());
+		waitForIndexer();
+		checkSharedIncludePrefix("second_s", sources.length);
+		fIndex.acquireReadLock();
+		try {
+			for (int i = 0; i < sources.length; i++) {
+				assertEquals(0, fIndex.findBindings(("first_s" + i).toCharArray(), IndexFilter.ALL_DECLARED, npm()).length);
+			}
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
+	private void checkSharedIncludePrefix(String prefix, int count) throws Exception {
+		fIndex.acquireReadLock();
+		try {
+			for (int i = 0; i < count; i++) {
+				IIndexBinding[] bindings= fIndex.findBindings((prefix + i).toCharArray(), IndexFilter.ALL_DECLARED, npm());
+				assertEquals(prefix + i, 1, bindings.length);
+				assertTrue(bindings[0] instanceof IVariable);
+			}
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
 }
@@ -197,6 +197,35 @@ public class IndexSearchTest extends IndexTestBase {
 		assertTrue(bindings[0].isFileLocal());
 	}
 
+	public void testFindTypes() throws CoreException {
+		CIndex index= (CIndex) fIndex;
+		IIndexBinding[] bindings;
+
+		bindings= index.findTypes("c160913".toCharArray(), false, INDEX_FILTER, npm());
+		assertEquals(3, bindings.length);
+		checkIsClass(bindings[0]);
+		checkIsClass(bindings[1]);
+		checkIsClass(bindings[2]);
+
+		bindings= index.findTypes("ns160913".toCharArray(), false, INDEX_FILTER, npm());
+		assertEquals(2, bindings.length);
+		checkIsNamespace(bindings[0]);
+		checkIsNamespace(bindings[1]);
+
+		// Enumerators are not types.
+		bindings= index.findTypes("e2006".toCharArray(), false, INDEX_FILTER, npm());
+		assertEquals(1, bindings.length);
+		checkIsEnumeration(bindings[0]);
+
+		bindings= index.findTypes("CIU".toCharArray(), false, INDEX_FILTER, npm());
+		assertEquals(0, bindings.length);
+
+		bindings= index.findTypes("CIU".toCharArray(), true, INDEX_FILTER, npm());
+		assertEquals(1, bindings.length);
+		checkIsClass(bindings[0]);
+		assertEquals("CInUnnamed160913", bindings[0].getName());
+	}
+
 	public void testFindEnumerator() throws CoreException {
 		Pattern pEnumeration= Pattern.compile("E20061017");
 		Pattern pEnumerator= Pattern.compile("e20061017");
@@ -268,7 +297,40 @@ public class IndexSearchTest extends IndexTestBase {
 		assertEquals(1, bindings.length);
 	}
 
-	
+	public void testRegularExpressionSearch() throws CoreException {
+		IIndexBinding[] bindings;
+
+		bindings= fIndex.findBindings(Pattern.compile(".*160913"), false, INDEX_FILTER, npm());
+		assertEquals(6, bindings.length);
+
+		bindings= fIndex.findBindings(Pattern.compile("C1609.3"), false, INDEX_FILTER, npm());
+		assertEquals(3, bindings.length);
+		checkIsClass(bindings[0]);
+		checkIsClass(bindings[1]);
+		checkIsClass(bindings[2]);
+
+		bindings= fIndex.findBindings(Pattern.compile("CIn[A-Z]nnamed\\d+"), false, INDEX_FILTER, npm());
+		assertEquals(1, bindings.length);
+		checkIsClass(bindings[0]);
+
+		bindings= fIndex.findBindings(Pattern.compile(".*e2006101[78]", Pattern.CASE_INSENSITIVE), false, INDEX_FILTER, npm());
+		assertEquals(2, bindings.length);
+		bindings= fIndex.findBindings(Pattern.compile(".*e2006101[78]"), false, INDEX_FILTER, npm());
+		assertEquals(1, bindings.length);
+		checkIsEnumerator(bindings[0]);
+
+		bindings= fIndex.findMacroContainers(Pattern.compile("\\w*Foo", Pattern.CASE_INSENSITIVE), INDEX_FILTER, npm());
+		assertEquals(2, bindings.length);
+		bindings= fIndex.findMacroContainers(Pattern.compile("\\w*Foo"), INDEX_FILTER, npm());
+		assertEquals(1, bindings.length);
+
+		// Escapes for hexadecimal, unicode and octal characters.
+		bindings= fIndex.findBindings(Pattern.compile("C\\x31609\\u00313"), false, INDEX_FILTER, npm());
+		assertEquals(3, bindings.length);
+		bindings= fIndex.findBindings(Pattern.compile("C\\06160913"), false, INDEX_FILTER, npm());
+		assertEquals(3, bindings.length);
+	}
+
 	public void testFindStatic_161216() throws CoreException {
 		Pattern pFunc= Pattern.compile("staticFunc20061017");
 		Pattern pVar= Pattern.compile("staticVar20061017");
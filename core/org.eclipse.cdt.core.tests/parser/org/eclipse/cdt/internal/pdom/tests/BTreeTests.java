@@ -13,6 +13,7 @@ package org.eclipse.cdt.internal.pdom.tests;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -120,6 +121,38 @@ public class BTreeTests extends BaseTestCase {
 		}
 	}
 
+	/**
+	 * Test bulk insertion into empty and populated B-trees of various degrees.
+	 */
+	public void testBulkInsertion() throws Exception {
+		Random random = new Random(4711);
+		int[] sizes = { 0, 1, 3, 25, 300, 5000 };
+		for (int degree = 2; degree <= 12; degree++) {
+			for (int size : sizes) {
+				init(degree);
+				try {
+					final SortedSet expected = new TreeSet();
+					for (int k = 0; k < 2; k++) {
+						long[] records = new long[size];
+						for (int i = 0; i < records.length; i++) {
+							// Include duplicates.
+							int value = random.nextInt(size * 2 + 1);
+							expected.add(new Integer(value));
+							records[i] = new BTMockRecord(db, value).getRecord();
+						}
+						long[] copy = records.clone();
+						btree.insertAll(records);
+						assertTrue(Arrays.equals(copy, records));
+						assertBTreeMatchesSortedSet("[degree " + degree + ", size " + size + "] ", btree, expected);
+						assertBTreeInvariantsHold("[degree " + degree + ", size " + size + "] ");
+					}
+				} finally {
+					finish();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Insert/Delete a random number of records into/from the B-tree
 	 * @param seed the seed for obtaining the deterministic random testing
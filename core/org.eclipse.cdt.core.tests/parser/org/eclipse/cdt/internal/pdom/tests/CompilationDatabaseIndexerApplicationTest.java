@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.pdom.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import junit.framework.Test;
+
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.index.IIndexFile;
+import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.index.URIRelativeLocationConverter;
+import org.eclipse.cdt.core.model.LanguageManager;
+import org.eclipse.cdt.internal.core.pdom.TeamPDOMImportOperation;
+import org.eclipse.cdt.internal.core.pdom.WritablePDOM;
+import org.eclipse.cdt.internal.core.pdom.export.CompilationDatabaseIndexerApplication;
+import org.eclipse.core.runtime.URIUtil;
+
+/**
+ * Tests the CompilationDatabaseIndexerApplication
+ */
+public class CompilationDatabaseIndexerApplicationTest extends PDOMTestBase {
+
+	public static Test suite() {
+		return suite(CompilationDatabaseIndexerApplicationTest.class);
+	}
+
+	private File fRoot;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fRoot= createTempFile("compdb", "");
+		fRoot.delete();
+		fRoot.mkdirs();
+		fRoot= fRoot.getCanonicalFile();
+	}
+
+	private File writeFile(String relativePath, String content) throws IOException {
+		File file= new File(fRoot, relativePath);
+		if (file.getParentFile().mkdirs()) {
+			deleteOnTearDown(file.getParentFile());
+		}
+		deleteOnTearDown(file);
+		Writer writer= new FileWriter(file);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static String path(File file) {
+		return file.getAbsolutePath().replace('\\', '/');
+	}
+
+	public void testIndexCompilationDatabase() throws Exception {
+		writeFile("inc/a.h", "#ifdef USE_A\nclass A {};\n#endif\n");
+		File main= writeFile("src/main.cpp", "#include \"a.h\"\nA a;\n");
+		File util= writeFile("src/util.c", "int util(void) { return VALUE; }\n");
+		File outside= writeFile("../outside" + System.currentTimeMillis() + ".c", "int outside;\n");
+		File compdb= writeFile("compile_commands.json", "[\n" +
+				"{ \"directory\": \"" + path(main.getParentFile()) + "\",\n" +
+				"  \"command\": \"g++ -I ../inc -D'USE_A' -c -o main.o main.cpp\",\n" +
+				"  \"file\": \"main.cpp\" },\n" +
+				"{ \"directory\": \"" + path(fRoot) + "\",\n" +
+				"  \"arguments\": [\"gcc\", \"-DVALUE=1\", \"-c\", \"src/util.c\"],\n" +
+				"  \"file\": \"" + path(util) + "\" },\n" +
+				"{ \"directory\": \"" + path(fRoot) + "\",\n" +
+				"  \"command\": \"gcc -c " + path(outside) + "\",\n" +
+				"  \"file\": \"" + path(outside) + "\" }\n" +
+				"]\n");
+		File target= nonExistentTempFile("index", ".zip");
+
+		CompilationDatabaseIndexerApplication app= new CompilationDatabaseIndexerApplication() {
+			@Override
+			protected void output(String s) {}
+		};
+		app.start(new MockApplicationContext(new String[] {
+				CompilationDatabaseIndexerApplication.OPT_QUIET,
+				CompilationDatabaseIndexerApplication.OPT_COMPDB, compdb.getAbsolutePath(),
+				CompilationDatabaseIndexerApplication.OPT_TARGET, target.getAbsolutePath(),
+				CompilationDatabaseIndexerApplication.OPT_THREADS, "2"
+		}));
+		assertTrue(target.exists());
+
+		File pdomFile= createTempFile("index", ".pdom");
+		Map<?, ?> checksums;
+		ZipFile zip= new ZipFile(target);
+		try {
+			ZipEntry indexEntry= zip.getEntry(TeamPDOMImportOperation.INDEX_NAME);
+			assertNotNull(indexEntry);
+			InputStream in= zip.getInputStream(indexEntry);
+			FileOutputStream out= new FileOutputStream(pdomFile);
+			try {
+				byte[] buffer= new byte[2048];
+				int read;
+				while ((read= in.read(buffer)) >= 0) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				out.close();
+				in.close();
+			}
+
+			ZipEntry checksumsEntry= zip.getEntry(TeamPDOMImportOperation.CHECKSUMS_NAME);
+			assertNotNull(checksumsEntry);
+			ObjectInputStream oin= new ObjectInputStream(zip.getInputStream(checksumsEntry));
+			try {
+				checksums= (Map<?, ?>) oin.readObject();
+			} finally {
+				oin.close();
+			}
+		} finally {
+			zip.close();
+		}
+		assertTrue(checksums.get("src/main.cpp") instanceof byte[]);
+		assertTrue(checksums.get("src/util.c") instanceof byte[]);
+		assertTrue(checksums.get("inc/a.h") instanceof byte[]);
+
+		WritablePDOM wpdom= new WritablePDOM(pdomFile, new URIRelativeLocationConverter(URIUtil.toURI(fRoot.getPath() + '/')),
+				LanguageManager.getInstance().getPDOMLinkageFactoryMappings());
+		wpdom.acquireReadLock();
+		try {
+			Set<String> files= new HashSet<>();
+			for (IIndexFile file : wpdom.getAllFiles()) {
+				files.add(new File(file.getLocation().getURI()).getAbsolutePath());
+			}
+			// Files outside of the root are not exported.
+			assertEquals(3, files.size());
+			assertTrue(files.contains(main.getCanonicalPath()));
+
+			// The class is visible with the macro definition of the command line.
+			IBinding[] bindings= wpdom.findBindings(Pattern.compile("A"), true, IndexFilter.ALL, npm());
+			assertEquals(1, bindings.length);
+			bindings= wpdom.findBindings(Pattern.compile("util"), true, IndexFilter.ALL, npm());
+			assertEquals(1, bindings.length);
+		} finally {
+			wpdom.releaseReadLock();
+			wpdom.close();
+		}
+	}
+}
@@ -13,6 +13,8 @@
 package org.eclipse.cdt.internal.pdom.tests;
 
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
 import java.util.Random;
 
 import junit.framework.Test;
@@ -142,6 +144,61 @@ public class DatabaseTest extends BaseTestCase {
 		assertEquals(mem2, mem1);
 	}
 
+	public void testConcurrentReads() throws Exception {
+		// A cache much smaller than the database, such that chunks are evicted all the time.
+		final ChunkCache cache = new ChunkCache(64 * Database.CHUNK_SIZE);
+		final Database readDb = new Database(getTestDir().append(getName() + System.currentTimeMillis() + "-read.dat").toFile(),
+				cache, 0, false);
+		try {
+			readDb.setExclusiveLock();
+			final long[] records = new long[2000];
+			for (int i = 0; i < records.length; i++) {
+				records[i] = readDb.malloc(Database.MAX_MALLOC_SIZE);
+				readDb.putInt(records[i], i);
+			}
+			readDb.giveUpExclusiveLock(true);
+			readDb.setLocked(true);
+			readDb.resetCacheCounters();
+
+			final int readsPerThread = 10000;
+			final Throwable[] failure = new Throwable[1];
+			Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				final Random random = new Random(t);
+				threads[t] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							for (int i = 0; i < readsPerThread; i++) {
+								int idx = random.nextInt(records.length);
+								assertEquals(idx, readDb.getInt(records[idx]));
+							}
+						} catch (Throwable e) {
+							synchronized (failure) {
+								failure[0] = e;
+							}
+						}
+					}
+				};
+				threads[t].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			if (failure[0] != null)
+				throw new AssertionError(failure[0]);
+
+			assertTrue(readDb.getCacheMisses() > 0);
+			assertEquals(threads.length * readsPerThread, readDb.getCacheHits() + readDb.getCacheMisses());
+			assertTrue(cache.getContentionCount() <= cache.getLockCount());
+			assertEquals(64L * Database.CHUNK_SIZE, cache.getMaxSize());
+		} finally {
+			readDb.setExclusiveLock();
+			readDb.close();
+			readDb.getLocation().delete();
+		}
+	}
+
 	private static class FindVisitor implements IBTreeVisitor {
 		private Database db;
 		private String key;
@@ -168,6 +225,229 @@ public class DatabaseTest extends BaseTestCase {
 		}
 	}
 
+	public void testMappedReadOnlyDatabase() throws Exception {
+		final long[] records = new long[500];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = db.malloc(Database.MAX_MALLOC_SIZE);
+			db.putInt(records[i], i);
+			db.putLong(records[i] + 4, -i);
+		}
+		final long str = db.newString("a string stored in a mapped database").getRecord();
+		// Closing the database copies the chunks from the log into the file.
+		db.close();
+		db = new Database(db.getLocation(), new ChunkCache(), 0, false);
+		db.setExclusiveLock();
+
+		final ChunkCache cache = new ChunkCache(16 * Database.CHUNK_SIZE);
+		final Database mappedDb = new Database(db.getLocation(), cache, 0, true, true);
+		try {
+			assertTrue(mappedDb.isMapped());
+			mappedDb.setLocked(true);
+			// Read the records twice, the chunks are evicted from the small cache in between.
+			for (int k = 0; k < 2; k++) {
+				for (int i = 0; i < records.length; i++) {
+					assertEquals(i, mappedDb.getInt(records[i]));
+					assertEquals(-i, mappedDb.getLong(records[i] + 4));
+				}
+			}
+			assertEquals("a string stored in a mapped database", mappedDb.getString(str).getString());
+			assertTrue(mappedDb.getCacheMisses() > records.length / 2);
+		} finally {
+			mappedDb.setExclusiveLock();
+			mappedDb.close();
+		}
+
+		// Writable databases are never mapped.
+		assertFalse(db.isMapped());
+		final Database writableDb = new Database(db.getLocation(), cache, 0, false, true);
+		assertFalse(writableDb.isMapped());
+		writableDb.setExclusiveLock();
+		writableDb.close();
+	}
+
+	public void testCrashRecovery() throws Exception {
+		final File file = getTestDir().append(getName() + System.currentTimeMillis() + "-crashed.dat").toFile();
+		final Database crashed = new Database(file, new ChunkCache(16 * Database.CHUNK_SIZE), 17, false);
+		crashed.setExclusiveLock();
+		final long[] records = new long[100];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = crashed.malloc(Database.MAX_MALLOC_SIZE);
+			crashed.putInt(records[i], i);
+		}
+		crashed.flush();
+
+		// Chunks evicted from the small cache are written to the log without a commit.
+		for (int i = 0; i < records.length; i++) {
+			crashed.putInt(records[i], -i);
+		}
+		crashed.giveUpExclusiveLock(false);
+		assertTrue(new File(file.getPath() + ".wal").length() > records.length * Database.CHUNK_SIZE);
+
+		// Open the database again without closing it.
+		final Database recovered = new Database(file, new ChunkCache(), 17, false);
+		try {
+			recovered.setLocked(true);
+			assertEquals(17, recovered.getVersion());
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i, recovered.getInt(records[i]));
+			}
+		} finally {
+			recovered.setExclusiveLock();
+			recovered.close();
+			crashed.setExclusiveLock();
+			crashed.close();
+			file.delete();
+		}
+	}
+
+	public void testCrashDuringCheckpoint() throws Exception {
+		final File file = getTestDir().append(getName() + System.currentTimeMillis() + "-checkpoint.dat").toFile();
+		final File log = new File(file.getPath() + ".wal");
+		Database database = new Database(file, new ChunkCache(), 17, false);
+		database.setExclusiveLock();
+		final long[] records = new long[100];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = database.malloc(Database.MAX_MALLOC_SIZE);
+			database.putInt(records[i], i);
+		}
+		database.flush();
+		final byte[] committedLog = Files.readAllBytes(log.toPath());
+
+		// Closing the database copies the chunks into the file, which grows.
+		final long lengthBeforeCheckpoint = file.length();
+		database.close();
+		assertTrue(file.length() > lengthBeforeCheckpoint);
+
+		// Simulate a crash after some of the chunks have been copied and before the log was emptied.
+		Files.write(log.toPath(), committedLog);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			for (int i = 0; i < records.length; i += 2) {
+				raf.seek(records[i]);
+				raf.writeInt(-1);
+			}
+		}
+
+		database = new Database(file, new ChunkCache(), 17, false);
+		try {
+			database.setLocked(true);
+			assertEquals(17, database.getVersion());
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i, database.getInt(records[i]));
+			}
+		} finally {
+			database.setExclusiveLock();
+			database.close();
+			file.delete();
+		}
+	}
+
+	public void testCompaction() throws Exception {
+		final long[] records = new long[400];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = db.malloc(1000);
+			db.putInt(records[i], i);
+		}
+		db.flush();
+		final long size = db.getSizeBytes();
+
+		// Free the second half and two adjacent blocks out of four in the first half.
+		for (int i = 0; i < records.length; i++) {
+			if (i >= records.length / 2 || i % 4 == 1 || i % 4 == 2) {
+				db.free(records[i]);
+			}
+		}
+		assertTrue(db.getBytesFreed() > db.getBytesAllocated() / 2);
+		final long shrunk = db.compact();
+		assertTrue(shrunk >= size / 3);
+		assertEquals(size - shrunk, db.getSizeBytes());
+		assertEquals(size - shrunk, db.getLocation().length());
+		assertEquals(0, db.getBytesFreed());
+
+		for (int i = 0; i < records.length / 2; i++) {
+			if (i % 4 == 0 || i % 4 == 3) {
+				assertEquals(i, db.getInt(records[i]));
+			}
+		}
+		// The adjacent free blocks have been merged.
+		final long merged = db.malloc(2000);
+		int index = 0;
+		while (index < records.length / 2 && records[index] != merged) {
+			index++;
+		}
+		assertEquals(1, index % 4);
+	}
+
+	public void testFreeBytesAcrossSessions() throws Exception {
+		final long initiallyFree = db.getBytesFree();
+		final long[] records = new long[400];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = db.malloc(1000);
+		}
+		for (int i = 0; i < records.length; i += 2) {
+			db.free(records[i]);
+		}
+		final long free = db.getBytesFree();
+		assertTrue(free >= initiallyFree + records.length / 2 * 1000);
+
+		// Compaction processes the chunks in batches.
+		int chunk = 1;
+		while (db.mergeFreeBlocks(chunk, 3)) {
+			chunk += 3;
+		}
+		db.releaseFreeChunks();
+		final long compacted = db.getBytesFree();
+		assertTrue(compacted <= free);
+		assertEquals(compacted, db.getBytesFreeAfterCompaction());
+		db.close();
+
+		// The free blocks of earlier sessions are counted, but not the ones remaining after compaction.
+		db = new Database(db.getLocation(), new ChunkCache(), 0, false);
+		db.setExclusiveLock();
+		assertEquals(compacted, db.getBytesFree());
+		assertEquals(0, db.getBytesFreeAfterCompaction());
+	}
+
+	public void testLargeChunksAndBlockAlignment() throws Exception {
+		final int chunkSize = 4 * Database.CHUNK_SIZE;
+		db.clear(0, chunkSize, Database.BLOCK_SIZE_DELTA_BITS + 1);
+		assertEquals(chunkSize, db.getChunkSize());
+		assertEquals(Database.MAX_DB_SIZE * 2, db.getMaxDatabaseSize());
+
+		Random random = new Random(42);
+		final long[] records = new long[1000];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = db.malloc(random.nextInt(Database.MAX_MALLOC_SIZE + 1));
+			final long block = records[i] - Database.BLOCK_HEADER_SIZE;
+			assertEquals(0, block % (Database.BLOCK_SIZE_DELTA * 2));
+			// Blocks must not cross a multiple of CHUNK_SIZE.
+			final int blockSize = -db.getShort(block);
+			assertEquals(block / Database.CHUNK_SIZE, (block + blockSize - 1) / Database.CHUNK_SIZE);
+			db.putInt(records[i], i);
+			db.putRecPtr(records[i] + 4, records[i]);
+		}
+		for (int i = 0; i < records.length; i += 2) {
+			db.free(records[i]);
+			records[i] = db.malloc(Database.MAX_MALLOC_SIZE);
+			db.putInt(records[i], i);
+			db.putRecPtr(records[i] + 4, records[i]);
+		}
+		db.flush();
+
+		final Database reopened = new Database(db.getLocation(), new ChunkCache(), 0, true);
+		try {
+			assertEquals(chunkSize, reopened.getChunkSize());
+			assertEquals(Database.BLOCK_SIZE_DELTA_BITS + 1, reopened.getBlockSizeDeltaBits());
+			reopened.setLocked(true);
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i, reopened.getInt(records[i]));
+				assertEquals(records[i], reopened.getRecPtr(records[i] + 4));
+			}
+		} finally {
+			reopened.setExclusiveLock();
+			reopened.close();
+		}
+	}
+
 	public void testStringsInBTree() throws Exception {
 		String[] names = {
 				"ARLENE",
@@ -251,6 +531,16 @@ public class DatabaseTest extends BaseTestCase {
 		assertCMP("a",  EQ, "A", false);
 	}
 
+	public void testShortStringComparisonOfMixedEncodings() throws CoreException {
+		// Strings with characters beyond Latin-1 are stored as chars, the others as bytes.
+		assertCMP("ab\u00e9", LT, "ab\u0101", true);
+		assertCMP("ab\u0101", GT, "abc", true);
+		assertCMP("\u0101", EQ, "\u0101", true);
+		assertCMP("a\u0101", GT, "A\u0101", true);
+		assertCMP("a\u0101", EQ, "A\u0101", false);
+		assertCMP("b\u0101", GT, "Ab", false);
+	}
+
 	public void testLongStringComparison() throws CoreException {
 		Random r= new Random(314159265);
 		doTrials(100, ShortString.MAX_BYTE_LENGTH + 1, ShortString.MAX_BYTE_LENGTH * 2, r, true);
@@ -43,6 +43,7 @@ public class PDOMTests extends TestSuite {
 		suite.addTest(PDOMTagIndexTests.suite());
 		suite.addTest(FilesOnReindexTests.suite());
 		suite.addTest(GeneratePDOMApplicationTest.suite());
+		suite.addTest(CompilationDatabaseIndexerApplicationTest.suite());
 
 		suite.addTest(CPPFieldTests.suite());
 		suite.addTest(CPPFunctionTests.suite());
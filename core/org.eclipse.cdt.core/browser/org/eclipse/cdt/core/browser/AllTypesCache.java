@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.cdt.core.browser;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -23,7 +25,10 @@ import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.parser.util.CharArrayUtils;
+import org.eclipse.cdt.core.parser.util.SegmentMatcher;
 import org.eclipse.cdt.internal.core.browser.IndexModelUtil;
+import org.eclipse.cdt.internal.core.index.ITypeIndex;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -48,6 +53,11 @@ public class AllTypesCache {
 	private static final boolean DEBUG = false;
 	
 	private static ITypeInfo[] getTypes(ICProject[] projects, final int[] kinds, IProgressMonitor monitor) throws CoreException {
+		return getTypes(projects, kinds, CharArrayUtils.EMPTY_CHAR_ARRAY, false, monitor);
+	}
+
+	private static ITypeInfo[] getTypes(ICProject[] projects, final int[] kinds, char[] pattern,
+			boolean camelCase, IProgressMonitor monitor) throws CoreException {
 		IIndex index = CCorePlugin.getIndexManager().getIndex(projects, IIndexManager.ADD_EXTENSION_FRAGMENTS_NAVIGATION);
 		
 		try {
@@ -60,15 +70,23 @@ public class AllTypesCache {
 		try {
 			long start = System.currentTimeMillis();
 			
-			IIndexBinding[] all =
-				index.findBindings(Pattern.compile(".*"), false, new IndexFilter() { //$NON-NLS-1$
-					@Override
-					public boolean acceptBinding(IBinding binding) throws CoreException {
-						return IndexFilter.ALL_DECLARED_OR_IMPLICIT.acceptBinding(binding) &&
-							IndexModelUtil.bindingHasCElementType(binding, kinds);
-					}},
-					monitor
-				);
+			IndexFilter filter = new IndexFilter() {
+				@Override
+				public boolean acceptBinding(IBinding binding) throws CoreException {
+					return IndexFilter.ALL_DECLARED_OR_IMPLICIT.acceptBinding(binding) &&
+						IndexModelUtil.bindingHasCElementType(binding, kinds);
+				}
+			};
+			IIndexBinding[] all;
+			if (index instanceof ITypeIndex) {
+				// The index of types is maintained by the indexer.
+				all = ((ITypeIndex) index).findTypes(pattern, camelCase, filter, monitor);
+			} else {
+				all = index.findBindings(Pattern.compile(".*"), false, filter, monitor); //$NON-NLS-1$
+				if (pattern.length > 0) {
+					all = filterByName(all, pattern, camelCase);
+				}
+			}
 			
 			if(DEBUG) {
 				System.out.println("Index search took "+(System.currentTimeMillis() - start)); //$NON-NLS-1$
@@ -91,6 +109,19 @@ public class AllTypesCache {
 		}
 	}
 
+	private static IIndexBinding[] filterByName(IIndexBinding[] bindings, char[] pattern, boolean camelCase) {
+		SegmentMatcher matcher = camelCase ? new SegmentMatcher(pattern) : null;
+		List<IIndexBinding> result = new ArrayList<IIndexBinding>();
+		for (IIndexBinding binding : bindings) {
+			char[] name = binding.getNameCharArray();
+			if (matcher != null ? matcher.match(name) :
+					CharArrayUtils.equals(name, 0, pattern.length, pattern, true)) {
+				result.add(binding);
+			}
+		}
+		return result.toArray(new IIndexBinding[result.size()]);
+	}
+
 	/**
 	 * Returns all types in the workspace.
 	 */
@@ -127,6 +158,27 @@ public class AllTypesCache {
 		}
 	}
 
+	/**
+	 * Returns the types in the given scope whose names start with the given prefix, ignoring case.
+	 * With <code>camelCase</code> the prefix is also matched against the segments of camel-case
+	 * names, such that for instance <code>"ACT"</code> matches <code>AllTypesCache</code>.
+	 * 
+	 * @param scope The search scope
+	 * @param kinds Array containing CElement types: C_NAMESPACE, C_CLASS,
+	 *              C_UNION, C_ENUMERATION, C_TYPEDEF
+	 * @param prefix The prefix of the names, an empty prefix matches all types
+	 * @param camelCase Whether to match camel-case names
+	 * @since 5.10
+	 */
+	public static ITypeInfo[] getTypes(ITypeSearchScope scope, int[] kinds, char[] prefix, boolean camelCase) {
+		try {
+			return getTypes(scope.getEnclosingProjects(), kinds, prefix, camelCase, new NullProgressMonitor());
+		} catch (CoreException e) {
+			CCorePlugin.log(e);
+			return new ITypeInfo[0];
+		}
+	}
+
 	/**
 	 * Returns all namespaces in the given scope.
 	 * 
@@ -82,6 +82,16 @@ public interface ILanguage extends IAdaptable {
 	 */
 	public final static int OPTION_PARSE_INACTIVE_CODE= 0x20;
 
+	/**
+	 * Option for {@link #getASTTranslationUnit(FileContent, IScannerInfo, IncludeFileContentProvider, IIndex, int, IParserLogService)}
+	 * Instructs the parser to record the tokens of function and method bodies and to parse a body
+	 * only when its statements are accessed, e.g. by a visitor. Other than with
+	 * {@link #OPTION_SKIP_FUNCTION_BODIES} the ast is complete, the statements of a body are
+	 * created on demand.
+	 * @since 5.10
+	 */
+	public final static int OPTION_PARSE_FUNCTION_BODIES_LAZILY= 0x40;
+
 	/**
 	 * Return the language id for this language.
 	 * This is to differentiate languages from each other.
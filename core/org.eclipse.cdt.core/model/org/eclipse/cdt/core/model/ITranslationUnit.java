@@ -113,6 +113,16 @@ public interface ITranslationUnit extends ICElement, IParent, IOpenable, ISource
 	 */
 	public final static int AST_PARSE_INACTIVE_CODE= 0x80;
 
+	/**
+	 * Style constant for {@link #getAST(IIndex, int)}. 
+	 * Instructs the parser to parse function and method bodies only when their statements are
+	 * accessed, e.g. by a visitor. Other than with {@link #AST_SKIP_FUNCTION_BODIES} the ast
+	 * is complete.
+	 * 
+	 * @since 5.10
+	 */
+	public final static int AST_PARSE_FUNCTION_BODIES_LAZILY= 0x100;
+
 	/**
 	 * Creates and returns an include declaration in this translation unit
 	 * with the given name.
@@ -11,6 +11,9 @@
  ******************************************************************************/
 package org.eclipse.cdt.internal.core.model;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.index.IIndex;
@@ -18,6 +21,7 @@ import org.eclipse.cdt.core.index.IIndexManager;
 import org.eclipse.cdt.core.model.ILanguage;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
+import org.eclipse.cdt.internal.core.parser.scanner.CharArray;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
@@ -28,7 +32,9 @@ import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
 /**
- * Provides a shared AST of a single translation unit at a time.
+ * Provides a shared AST of the active translation unit. The ASTs of recently active translation
+ * units, and of translation units for which an AST has been requested while they were inactive,
+ * are kept as long as the estimated memory they use does not exceed a budget.
  *
  * @since 4.0
  */
@@ -45,6 +51,15 @@ public class ASTCache {
 			| ITranslationUnit.AST_SKIP_TRIVIAL_EXPRESSIONS_IN_AGGREGATE_INITIALIZERS
 			| ITranslationUnit.AST_PARSE_INACTIVE_CODE;
 
+	/**
+	 * Maximum estimated number of bytes used by the ASTs of the inactive translation units,
+	 * 1/16 of the maximum heap size but not more than 128MB by default.
+	 */
+	private static final long DEFAULT_MAX_SIZE= Long.getLong("org.eclipse.cdt.core.model.astCacheSize", //$NON-NLS-1$
+			Math.min(Runtime.getRuntime().maxMemory() / 16, 128 * 1024 * 1024));
+	/** Rough estimate of the memory used by an AST per character of the source of its file */
+	private static final int BYTES_PER_SOURCE_CHAR= 64;
+
 	/**
 	 * Do something with an AST.
 	 *
@@ -61,8 +76,63 @@ public class ASTCache {
 		IStatus runOnAST(ILanguage lang, IASTTranslationUnit ast) throws CoreException;
 	}
 
+	/**
+	 * Identifies the contents of a translation unit an AST has been created from.
+	 */
+	private static final class ContentsStamp {
+		final long fHash;
+		final int fLength;
+
+		ContentsStamp(long hash, int length) {
+			fHash= hash;
+			fLength= length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ContentsStamp))
+				return false;
+			ContentsStamp other= (ContentsStamp) obj;
+			return fHash == other.fHash && fLength == other.fLength;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (fHash ^ (fHash >>> 32)) + fLength;
+		}
+	}
+
+	/**
+	 * An AST of an inactive translation unit.
+	 */
+	private static final class CachedAST {
+		final IASTTranslationUnit fAST;
+		final ContentsStamp fStamp;
+		final long fLastWriteOnIndex;
+		final int fModificationCount;
+
+		CachedAST(IASTTranslationUnit ast, ContentsStamp stamp, long lastWriteOnIndex) {
+			fAST= ast;
+			fStamp= stamp;
+			fLastWriteOnIndex= lastWriteOnIndex;
+			fModificationCount= getModificationCount(ast);
+		}
+
+		/**
+		 * Returns whether the AST has not been updated in place since it was cached.
+		 */
+		boolean isUnmodified() {
+			return fModificationCount == getModificationCount(fAST);
+		}
+
+		long getEstimatedSize() {
+			return (long) fStamp.fLength * BYTES_PER_SOURCE_CHAR;
+		}
+	}
+
 	private final int fParseMode;
 	private final Object fCacheMutex= new Object();
+	private final long fMaxSize;
 
 	/** The active translation unit for which to cache the AST */
 	private ITranslationUnit fActiveTU;
@@ -74,14 +144,32 @@ public class ASTCache {
 	 * write access afterwards.
 	 */
 	private long fLastWriteOnIndex;
+	/** The contents the cached AST, or the AST being computed, is created from */
+	private ContentsStamp fContentsStamp;
 	/** Indicates whether the AST is currently being computed */
 	private boolean fIsReconciling;
 
+	/** The ASTs of inactive translation units, in the order of their use */
+	private final LinkedHashMap<ITranslationUnit, CachedAST> fInactiveASTs= new LinkedHashMap<>(16, 0.75f, true);
+	/** The estimated number of bytes used by the ASTs of inactive translation units */
+	private long fInactiveASTsSize;
+
 	/**
 	 * Create a new AST cache.
 	 */
 	public ASTCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a new AST cache.
+	 *
+	 * @param maxSize  the maximum estimated number of bytes used by the cached ASTs
+	 *                 of inactive translation units
+	 */
+	public ASTCache(long maxSize) {
 		fParseMode= PARSE_MODE;
+		fMaxSize= maxSize;
 	}
 
 	/**
@@ -107,9 +195,19 @@ public class ASTCache {
 			if (progressMonitor != null && progressMonitor.isCanceled())
 				return null;
 
+			// The contents of an inactive translation unit identify the cached AST.
+			final ContentsStamp stamp= isActiveElement(tUnit) ? null : getContentsStamp(tUnit);
 			final boolean isActiveElement;
 			synchronized (fCacheMutex) {
 				isActiveElement= tUnit.equals(fActiveTU);
+				if (!isActiveElement && stamp != null) {
+					IASTTranslationUnit ast= getInactiveAST(tUnit, index, stamp);
+					if (ast != null) {
+						if (DEBUG)
+							System.out.println(DEBUG_PREFIX + getThreadName() + "returning cached AST of inactive element:" + toString(ast) + " for: " + tUnit.getElementName()); //$NON-NLS-1$ //$NON-NLS-2$
+						return ast;
+					}
+				}
 				if (isActiveElement) {
 					if (fAST != null) {
 						// AST is cached
@@ -176,6 +274,12 @@ public class ASTCache {
 						reconciled(fAST, tUnit);
 					} else
 						reconciled(ast, tUnit);
+				} else if (ast != null && stamp != null) {
+					synchronized (fCacheMutex) {
+						if (!tUnit.equals(fActiveTU)) {
+							addInactiveAST(tUnit, new CachedAST(ast, stamp, index.getLastWriteAccess()));
+						}
+					}
 				}
 			}
 			return ast;
@@ -299,6 +403,70 @@ public class ASTCache {
 		fCacheMutex.notifyAll();
 	}
 
+	/**
+	 * Returns the cached AST of an inactive translation unit, provided it is still valid.
+	 */
+	private IASTTranslationUnit getInactiveAST(ITranslationUnit tUnit, IIndex index, ContentsStamp stamp) {
+		assert Thread.holdsLock(fCacheMutex);
+		CachedAST cached= fInactiveASTs.get(tUnit);
+		if (cached == null)
+			return null;
+		if (cached.fLastWriteOnIndex < index.getLastWriteAccess() || !cached.fStamp.equals(stamp)
+				|| !cached.isUnmodified()) {
+			removeInactiveAST(tUnit);
+			return null;
+		}
+		return cached.fAST;
+	}
+
+	/**
+	 * Caches the AST of an inactive translation unit and evicts the least recently used ASTs
+	 * exceeding the memory budget.
+	 */
+	private void addInactiveAST(ITranslationUnit tUnit, CachedAST cached) {
+		assert Thread.holdsLock(fCacheMutex);
+		removeInactiveAST(tUnit);
+		final long size= cached.getEstimatedSize();
+		if (size > fMaxSize)
+			return;
+
+		if (DEBUG)
+			System.out.println(DEBUG_PREFIX + getThreadName() + "caching AST of inactive element: " + toString(cached.fAST) + " for: " + toString(tUnit)); //$NON-NLS-1$ //$NON-NLS-2$
+		fInactiveASTs.put(tUnit, cached);
+		fInactiveASTsSize += size;
+		for (Iterator<CachedAST> it= fInactiveASTs.values().iterator(); fInactiveASTsSize > fMaxSize && it.hasNext();) {
+			fInactiveASTsSize -= it.next().getEstimatedSize();
+			it.remove();
+		}
+	}
+
+	private CachedAST removeInactiveAST(ITranslationUnit tUnit) {
+		assert Thread.holdsLock(fCacheMutex);
+		CachedAST cached= fInactiveASTs.remove(tUnit);
+		if (cached != null)
+			fInactiveASTsSize -= cached.getEstimatedSize();
+		return cached;
+	}
+
+	/**
+	 * Disposes the ASTs of inactive translation units.
+	 */
+	public void disposeInactiveASTs() {
+		synchronized (fCacheMutex) {
+			fInactiveASTs.clear();
+			fInactiveASTsSize= 0;
+		}
+	}
+
+	private static int getModificationCount(IASTTranslationUnit ast) {
+		return ast instanceof ASTTranslationUnit ? ((ASTTranslationUnit) ast).getModificationCount() : 0;
+	}
+
+	private static ContentsStamp getContentsStamp(ITranslationUnit tUnit) {
+		char[] contents= tUnit.getContents();
+		return new ContentsStamp(new CharArray(contents).getContentsHash(), contents.length);
+	}
+
 	/**
 	 * Disposes the cached AST.
 	 */
@@ -361,15 +529,36 @@ public class ASTCache {
 		if (tUnit == fActiveTU) {
 			return;
 		}
+		final ContentsStamp stamp= tUnit != null && hasInactiveAST(tUnit) ? getContentsStamp(tUnit) : null;
 		synchronized (fCacheMutex) {
+			if (fActiveTU != null && fAST != null && !fIsReconciling && fContentsStamp != null) {
+				addInactiveAST(fActiveTU, new CachedAST(fAST, fContentsStamp, fLastWriteOnIndex));
+			}
 			fIsReconciling= false;
 			fActiveTU= tUnit;
+			fContentsStamp= null;
 			cache(null, tUnit);
+
+			CachedAST cached= tUnit != null ? removeInactiveAST(tUnit) : null;
+			if (cached != null && cached.fStamp.equals(stamp) && cached.isUnmodified()
+					&& cached.fLastWriteOnIndex >= cached.fAST.getIndex().getLastWriteAccess()) {
+				if (DEBUG)
+					System.out.println(DEBUG_PREFIX + getThreadName() + "reusing AST: " + toString(cached.fAST) + " for: " + toString(tUnit)); //$NON-NLS-1$ //$NON-NLS-2$
+				fAST= cached.fAST;
+				fLastWriteOnIndex= cached.fLastWriteOnIndex;
+				fContentsStamp= stamp;
+			}
 		}
 		if (DEBUG)
 			System.out.println(DEBUG_PREFIX + getThreadName() + "active element is: " + toString(tUnit)); //$NON-NLS-1$
 	}
 
+	private boolean hasInactiveAST(ITranslationUnit tUnit) {
+		synchronized (fCacheMutex) {
+			return fInactiveASTs.containsKey(tUnit);
+		}
+	}
+
 	/**
 	 * Check whether the given translation unit is the active element of this cache.
 	 *
@@ -389,9 +578,10 @@ public class ASTCache {
 	 * @param tUnit  the translation unit
 	 */
 	public void aboutToBeReconciled(ITranslationUnit tUnit) {
-		if (tUnit == null)
+		if (tUnit == null || !isActiveElement(tUnit))
 			return;
 
+		final ContentsStamp stamp= getContentsStamp(tUnit);
 		synchronized (fCacheMutex) {
 			if (fActiveTU == null || !fActiveTU.equals(tUnit)) {
 				return;
@@ -401,6 +591,7 @@ public class ASTCache {
 				System.out.println(DEBUG_PREFIX + getThreadName() + "about to reconcile: " + toString(tUnit)); //$NON-NLS-1$
 
 			fIsReconciling= true;
+			fContentsStamp= stamp;
 			cache(null, tUnit);
 		}
 	}
@@ -139,12 +139,21 @@ public class CModelBuilder2 implements IContributedModelBuilder {
 				parseFlags |= ITranslationUnit.AST_SKIP_FUNCTION_BODIES;
 			} else {
 				parseFlags |= ITranslationUnit.AST_CONFIGURE_USING_SOURCE_CONTEXT;
+				// The model needs the declarations, only. The bodies are parsed when the shared
+				// AST is used by the clients of the reconciler.
+				parseFlags |= ITranslationUnit.AST_PARSE_FUNCTION_BODIES_LAZILY;
 			}
 			parseFlags |= ITranslationUnit.AST_SKIP_TRIVIAL_EXPRESSIONS_IN_AGGREGATE_INITIALIZERS;
 			parseFlags |= ITranslationUnit.AST_PARSE_INACTIVE_CODE;
 			final IASTTranslationUnit ast;
 			try {
-				ast= fTranslationUnit.getAST(index, parseFlags, fProgressMonitor);
+				if (elementInfo instanceof ASTHolderTUInfo) {
+					// The shared AST of the previous reconcile can be updated if the changes are
+					// limited to a function body.
+					ast= fTranslationUnit.getIncrementalAST(index, parseFlags, fProgressMonitor);
+				} else {
+					ast= fTranslationUnit.getAST(index, parseFlags, fProgressMonitor);
+				}
 				if (DEBUG) {
 					Util.debugLog("CModelBuilder2: parsing " //$NON-NLS-1$
 							+ fTranslationUnit.getElementName()
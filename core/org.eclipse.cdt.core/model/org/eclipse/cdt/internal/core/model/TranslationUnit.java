@@ -19,6 +19,7 @@ package org.eclipse.cdt.internal.core.model;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -26,11 +27,13 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.ast.IASTCompletionNode;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.parser.AbstractCLikeLanguage;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
@@ -60,6 +63,7 @@ import org.eclipse.cdt.core.model.IWorkingCopy;
 import org.eclipse.cdt.core.model.LanguageManager;
 import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
 import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IExtendedScannerInfo;
 import org.eclipse.cdt.core.parser.IParserLogService;
 import org.eclipse.cdt.core.parser.IScannerInfo;
 import org.eclipse.cdt.core.parser.IScannerInfoProvider;
@@ -108,6 +112,7 @@ public class TranslationUnit extends Openable implements ITranslationUnit {
 
 	SourceManipulationInfo sourceManipulationInfo = null;
 	private ILanguage fLanguageOfContext;
+	private volatile IncrementalASTState fIncrementalASTState;
 
 	public TranslationUnit(ICElement parent, IFile file, String idType) {
 		super(parent, file, ICElement.C_UNIT);
@@ -832,6 +837,26 @@ public class TranslationUnit extends Openable implements ITranslationUnit {
 	}
 
 	public IASTTranslationUnit getAST(IIndex index, int style, IProgressMonitor monitor) throws CoreException {
+		return createAST(index, style, monitor, false);
+	}
+
+	/**
+	 * Same as {@link #getAST(IIndex, int, IProgressMonitor)}, but updates the ast returned by the
+	 * previous call of this method instead of parsing the translation unit from scratch, when
+	 * the translation unit has been changed within the body of a single function. In this case
+	 * the previous ast is modified and returned.
+	 */
+	public IASTTranslationUnit getIncrementalAST(IIndex index, int style, IProgressMonitor monitor)
+			throws CoreException {
+		return createAST(index, style, monitor, true);
+	}
+
+	private IASTTranslationUnit createAST(IIndex index, int style, IProgressMonitor monitor,
+			boolean incremental) throws CoreException {
+		final IncrementalASTState previousState= fIncrementalASTState;
+		if (incremental) {
+			fIncrementalASTState= null;
+		}
 		boolean incompleteIndex = index != null && !index.isFullyInitialized();
 		IIndexFile[] contextToHeader = getContextToHeader(index, style);
 		ITranslationUnit configureWith = getConfigureWith(contextToHeader);
@@ -864,6 +889,9 @@ public class TranslationUnit extends Openable implements ITranslationUnit {
 		if ((style & AST_PARSE_INACTIVE_CODE) != 0) {
 			options |= ILanguage.OPTION_PARSE_INACTIVE_CODE;
 		}
+		if ((style & AST_PARSE_FUNCTION_BODIES_LAZILY) != 0) {
+			options |= ILanguage.OPTION_PARSE_FUNCTION_BODIES_LAZILY;
+		}
 		if (isSourceUnit()) {
 			options |= ILanguage.OPTION_IS_SOURCE_UNIT;
 		}
@@ -873,15 +901,47 @@ public class TranslationUnit extends Openable implements ITranslationUnit {
 		} else {
 			log= ParserUtil.getParserLogService();
 		}
-		ASTTranslationUnit ast = (ASTTranslationUnit) ((AbstractLanguage) language).getASTTranslationUnit(
-				fileContent, scanInfo, crf, index, options, log);
-		if (ast == null)
-			return null;
+		ASTTranslationUnit ast= null;
+		final boolean updatable= incremental && configureWith == this && !incompleteIndex
+				&& (style & AST_SKIP_FUNCTION_BODIES) == 0 && language instanceof AbstractCLikeLanguage;
+		final long lastWriteAccess= index == null ? -1 : index.getLastWriteAccess();
+		if (updatable && previousState != null) {
+			ASTTranslationUnit previous= previousState.getAST(style, language, scanInfo, lastWriteAccess);
+			if (previous != null && updateAST(previous, (AbstractCLikeLanguage) language, fileContent,
+					scanInfo, crf, index, options, log)) {
+				ast= previous;
+			}
+		}
+		if (ast == null) {
+			ast= (ASTTranslationUnit) ((AbstractLanguage) language).getASTTranslationUnit(
+					fileContent, scanInfo, crf, index, options, log);
+			if (ast == null)
+				return null;
+		}
 		ast.setOriginatingTranslationUnit(this);
 		ast.setBasedOnIncompleteIndex(incompleteIndex);
+		if (updatable) {
+			fIncrementalASTState= new IncrementalASTState(ast, style, language, scanInfo, lastWriteAccess);
+		}
 		return ast;
 	}
 
+	private static boolean updateAST(ASTTranslationUnit ast, AbstractCLikeLanguage language,
+			FileContent fileContent, IScannerInfo scanInfo, IncludeFileContentProvider crf, IIndex index,
+			int options, IParserLogService log) throws CoreException {
+		try {
+			ast.beginExclusiveAccess();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		try {
+			return language.updateASTTranslationUnit(ast, fileContent, scanInfo, crf, index, options, log);
+		} finally {
+			ast.endExclusiveAccess();
+		}
+	}
+
 	private IncludeFileContentProvider getIncludeFileContentProvider(int style, IIndex index, int linkageID, IIndexFile[] contextToHeader) {
 		final ICProject cprj= getCProject();
 		final ProjectIndexerInputAdapter pathResolver = new ProjectIndexerInputAdapter(cprj);
@@ -1260,4 +1320,53 @@ public class TranslationUnit extends Openable implements ITranslationUnit {
 	public IWorkingCopy getSharedWorkingCopy(IProgressMonitor monitor, IBufferFactory factory) throws CModelException {
 		return CModelManager.getDefault().getSharedWorkingCopy(factory, this, null, monitor);
 	}
+
+	/**
+	 * The ast created by {@link TranslationUnit#getIncrementalAST(IIndex, int, IProgressMonitor)}
+	 * together with the configuration it was created with. The ast can be updated when the
+	 * configuration has not changed.
+	 */
+	private static class IncrementalASTState {
+		private final SoftReference<ASTTranslationUnit> fAST;
+		private final int fStyle;
+		private final ILanguage fLanguage;
+		private final IScannerInfo fScannerInfo;
+		private final long fLastWriteAccess;
+
+		IncrementalASTState(ASTTranslationUnit ast, int style, ILanguage language, IScannerInfo scanInfo,
+				long lastWriteAccess) {
+			fAST= new SoftReference<ASTTranslationUnit>(ast);
+			fStyle= style;
+			fLanguage= language;
+			fScannerInfo= scanInfo;
+			fLastWriteAccess= lastWriteAccess;
+		}
+
+		ASTTranslationUnit getAST(int style, ILanguage language, IScannerInfo scanInfo, long lastWriteAccess) {
+			if (style != fStyle || language != fLanguage || lastWriteAccess != fLastWriteAccess
+					|| !isEquivalent(scanInfo, fScannerInfo)) {
+				return null;
+			}
+			return fAST.get();
+		}
+
+		private static boolean isEquivalent(IScannerInfo info1, IScannerInfo info2) {
+			if (info1 == info2)
+				return true;
+			if (!Objects.equals(info1.getDefinedSymbols(), info2.getDefinedSymbols())
+					|| !Arrays.equals(info1.getIncludePaths(), info2.getIncludePaths())) {
+				return false;
+			}
+			if (info1 instanceof IExtendedScannerInfo || info2 instanceof IExtendedScannerInfo) {
+				if (!(info1 instanceof IExtendedScannerInfo) || !(info2 instanceof IExtendedScannerInfo))
+					return false;
+				IExtendedScannerInfo ext1= (IExtendedScannerInfo) info1;
+				IExtendedScannerInfo ext2= (IExtendedScannerInfo) info2;
+				return Arrays.equals(ext1.getMacroFiles(), ext2.getMacroFiles())
+						&& Arrays.equals(ext1.getIncludeFiles(), ext2.getIncludeFiles())
+						&& Arrays.equals(ext1.getLocalIncludePath(), ext2.getLocalIncludePath());
+			}
+			return true;
+		}
+	}
 }
@@ -106,6 +106,9 @@ public class GCCLanguage extends AbstractCLikeLanguage {
 					parser.setMaximumTrivialExpressionsInAggregateInitializers(maximumTrivialExpressions);
 			}
 		}
+		if ((options & OPTION_PARSE_FUNCTION_BODIES_LAZILY) != 0) {
+			parser.setParseFunctionBodiesLazily(true);
+		}
 		return parser;
 	}
 
@@ -113,6 +113,9 @@ public class GPPLanguage extends AbstractCLikeLanguage {
 					parser.setMaximumTrivialExpressionsInAggregateInitializers(maximumTrivialExpressions);
 			}
 		}
+		if ((options & OPTION_PARSE_FUNCTION_BODIES_LAZILY) != 0) {
+			parser.setParseFunctionBodiesLazily(true);
+		}
 		return parser;
 	}
 
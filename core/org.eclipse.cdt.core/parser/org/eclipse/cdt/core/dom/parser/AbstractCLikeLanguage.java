@@ -39,6 +39,7 @@ import org.eclipse.cdt.core.parser.ParseError;
 import org.eclipse.cdt.core.parser.ParseError.ParseErrorKind;
 import org.eclipse.cdt.core.parser.ParserLanguage;
 import org.eclipse.cdt.core.parser.ParserMode;
+import org.eclipse.cdt.internal.core.dom.parser.FunctionBodyReparser;
 import org.eclipse.cdt.internal.core.parser.scanner.CPreprocessor;
 import org.eclipse.cdt.internal.core.util.ICancelable;
 import org.eclipse.cdt.internal.core.util.ICanceler;
@@ -188,6 +189,58 @@ public abstract class AbstractCLikeLanguage extends AbstractLanguage implements
 		}
 	}
 
+	/**
+	 * Updates an ast that has been created by this language after the translation unit has been
+	 * changed within the body of a single function. The file is preprocessed again, but only the
+	 * changed function body is parsed, the rest of the ast is kept. The arguments other than the
+	 * ast have to be the same as for a call to
+	 * {@link #getASTTranslationUnit(FileContent, IScannerInfo, IncludeFileContentProvider, IIndex, int, IParserLogService)},
+	 * the scanner info and the options must not differ from the ones used to create the ast.
+	 * <p>
+	 * The ast is modified in place, the caller needs exclusive access to it. Returns {@code false}
+	 * if the ast could not be updated, in this case it has to be discarded.
+	 *
+	 * @since 5.10
+	 */
+	public boolean updateASTTranslationUnit(IASTTranslationUnit ast, FileContent reader,
+			IScannerInfo scanInfo, IncludeFileContentProvider fileCreator, IIndex index, int options,
+			IParserLogService log) throws CoreException {
+		final FunctionBodyReparser reparser= FunctionBodyReparser.create(ast, reader);
+		if (reparser == null)
+			return false;
+
+		final IScanner scanner= createScanner(reader, scanInfo, fileCreator, log);
+		scanner.setComputeImageLocations((options & OPTION_NO_IMAGE_LOCATIONS) == 0);
+		scanner.setProcessInactiveCode((options & OPTION_PARSE_INACTIVE_CODE) != 0);
+
+		IParserSettings parserSettings= null;
+		if (scanInfo instanceof ExtendedScannerInfo) {
+			parserSettings = ((ExtendedScannerInfo) scanInfo).getParserSettings();
+		}
+		final ISourceCodeParser parser= createParser(scanner, log, index, false, options, parserSettings);
+
+		ICanceler canceler= null;
+		if (log instanceof ICanceler) {
+			canceler= (ICanceler) log;
+			canceler.setCancelable(new ICancelable() {
+				@Override
+				public void cancel() {
+					scanner.cancel();
+					parser.cancel();
+				}});
+		}
+
+		try {
+			return reparser.reparse(scanner, parser, index);
+		} catch (ParseError e) {
+			return false;
+		} finally {
+			if (canceler != null) {
+				canceler.setCancelable(null);
+			}
+		}
+	}
+
 	@Deprecated
 	@Override
 	public IASTCompletionNode getCompletionNode(org.eclipse.cdt.core.parser.CodeReader reader,
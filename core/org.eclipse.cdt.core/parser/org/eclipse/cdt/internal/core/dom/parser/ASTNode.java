@@ -131,6 +131,24 @@ public abstract class ASTNode implements IASTNode {
         setOffsetAndLength(node.getOffset(), node.getLength());
     }
 
+    /**
+     * Moves the node by the given amount of sequence numbers and discards the cached locations,
+     * used when the ast is updated incrementally. Nodes caching children that are not reached
+     * by visitors, e.g. implicit names, have to move them, too.
+     */
+    public void shiftOffset(int shift) {
+    	setOffset(getOffset() + shift);
+    }
+
+    protected static void shiftOffsets(IASTNode[] nodes, int shift) {
+    	if (nodes != null) {
+    		for (IASTNode node : nodes) {
+    			if (node instanceof ASTNode)
+    				((ASTNode) node).shiftOffset(shift);
+    		}
+    	}
+    }
+
     @Override
 	public IASTNodeLocation[] getNodeLocations() {
         if (locations == null) {
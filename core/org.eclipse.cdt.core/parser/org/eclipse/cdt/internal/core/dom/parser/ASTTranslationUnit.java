@@ -85,6 +85,7 @@ public abstract class ASTTranslationUnit extends ASTNode implements IASTTranslat
 	private final Semaphore fSemaphore= new Semaphore(1);
 	private boolean fBasedOnIncompleteIndex;
 	private boolean fNodesOmitted;
+	private volatile int fModificationCount;
 
 	@Override
 	public final IASTTranslationUnit getTranslationUnit() {
@@ -419,6 +420,12 @@ public abstract class ASTTranslationUnit extends ASTNode implements IASTTranslat
 	 */
 	public abstract void resolveAmbiguities();
 
+	/**
+	 * Resolves the ambiguities of a node added after the ambiguities of the translation unit
+	 * have been resolved, e.g. the statements of a lazily parsed function body.
+	 */
+	public abstract void resolveAmbiguities(IASTNode node);
+
 	/**
 	 * Can be called to create a type for a type-id.
 	 */
@@ -505,6 +512,22 @@ public abstract class ASTTranslationUnit extends ASTNode implements IASTTranslat
 		fSemaphore.release();
 	}
 
+	/**
+	 * Returns the number of times the ast has been updated after it was parsed, see
+	 * {@link FunctionBodyReparser}.
+	 */
+	public int getModificationCount() {
+		return fModificationCount;
+	}
+
+	/**
+	 * Called before the ast is updated in place for changed contents of the translation unit.
+	 * Subclasses may discard information computed for the previous contents.
+	 */
+	protected void contentsChanged() {
+		fModificationCount++;
+	}
+
 	public SizeofCalculator getSizeofCalculator() {
 		if (fSizeofCalculator == null) {
 			fSizeofCalculator = new SizeofCalculator(this);
@@ -193,6 +193,9 @@ public abstract class AbstractGNUSourceCodeParser implements ISourceCodeParser {
 
     protected boolean functionCallCanBeLValue= false;
 	protected int maximumTrivialExpressionsInAggregateInitializers= Integer.MAX_VALUE;
+	private boolean parseFunctionBodiesLazily;
+	private LazyFunctionBody.IParserFactory functionBodyParserFactory;
+	private List<LazyFunctionBody> lazyFunctionBodies;
 
     /**
      *  Marks the beginning of the current declaration. It is important to clear the mark whenever we
@@ -242,6 +245,14 @@ public abstract class AbstractGNUSourceCodeParser implements ISourceCodeParser {
 		maximumTrivialExpressionsInAggregateInitializers= limit;
 	}
 
+	/**
+	 * Instructs the parser to record the tokens of function bodies rather than creating ast nodes
+	 * for them. A function body is parsed when its statements are accessed for the first time.
+	 */
+	public void setParseFunctionBodiesLazily(boolean value) {
+		parseFunctionBodiesLazily= value;
+	}
+
     private AbstractParserLogService wrapLogService(IParserLogService logService) {
 		if (logService instanceof AbstractParserLogService) {
 			return (AbstractParserLogService) logService;
@@ -517,7 +528,7 @@ public abstract class AbstractGNUSourceCodeParser implements ISourceCodeParser {
     }
 
 	protected final boolean isOnSameLine(int offset1, int offset2) {
-		ILocationResolver lr= (ILocationResolver) getTranslationUnit().getAdapter(ILocationResolver.class);
+		ILocationResolver lr= scanner.getLocationResolver();
 		IASTFileLocation floc= lr.getMappedFileLocation(offset1, offset2-offset1+1);
 		return floc.getFileName().equals(lr.getContainingFilePath(offset1)) &&
 			floc.getStartingLineNumber() == floc.getEndingLineNumber();
@@ -666,6 +677,13 @@ public abstract class AbstractGNUSourceCodeParser implements ISourceCodeParser {
         IASTTranslationUnit result = getTranslationUnit();
         nullifyTranslationUnit();
         result.freeze(); // make the AST immutable
+        if (lazyFunctionBodies != null) {
+        	// The ast is complete, the function bodies can be parsed on demand.
+        	for (LazyFunctionBody body : lazyFunctionBodies) {
+        		body.enable();
+        	}
+        	lazyFunctionBodies= null;
+        }
         return result;
     }
 
@@ -1456,9 +1474,38 @@ public abstract class AbstractGNUSourceCodeParser implements ISourceCodeParser {
         }
 
         // full parse
+        if (parseFunctionBodiesLazily && LT(1) == IToken.tLBRACE) {
+        	IASTCompoundStatement cs= nodeFactory.newCompoundStatement();
+        	if (cs instanceof LazyFunctionBody.ILazyCompoundStatement)
+        		return lazyFunctionBody((LazyFunctionBody.ILazyCompoundStatement) cs);
+        }
         return functionBody();
     }
 
+    /**
+     * Records the tokens of a function body, such that it can be parsed on demand.
+     */
+    private IASTCompoundStatement lazyFunctionBody(LazyFunctionBody.ILazyCompoundStatement cs)
+    		throws BacktrackException, EndOfFileException {
+    	if (functionBodyParserFactory == null) {
+    		functionBodyParserFactory= createFunctionBodyParserFactory();
+    		lazyFunctionBodies= new ArrayList<LazyFunctionBody>();
+    	}
+    	IToken first= LA(1);
+    	IToken last= skipOverCompoundStatement(false);
+    	LazyFunctionBody body= new LazyFunctionBody(functionBodyParserFactory, first, last);
+    	cs.setLazyBody(body);
+    	lazyFunctionBodies.add(body);
+    	setRange(cs, first.getOffset(), last.getEndOffset());
+    	return cs;
+    }
+
+    /**
+     * Creates the factory for the parsers of function bodies that are parsed lazily. The factory
+     * must not reference this parser.
+     */
+    protected abstract LazyFunctionBody.IParserFactory createFunctionBodyParserFactory();
+
     /**
      * Parses a function body.
      *
@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.dom.parser;
+
+import org.eclipse.cdt.core.dom.ast.ASTGenericVisitor;
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
+import org.eclipse.cdt.core.dom.ast.DOMException;
+import org.eclipse.cdt.core.dom.ast.IASTAttribute;
+import org.eclipse.cdt.core.dom.ast.IASTAttributeSpecifier;
+import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
+import org.eclipse.cdt.core.dom.ast.IASTDeclSpecifier;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarationListOwner;
+import org.eclipse.cdt.core.dom.ast.IASTElaboratedTypeSpecifier;
+import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
+import org.eclipse.cdt.core.dom.ast.IASTName;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclSpecifier;
+import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTToken;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.ILabel;
+import org.eclipse.cdt.core.dom.ast.IScope;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTClassVirtSpecifier;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTDeclSpecifier;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTDecltypeSpecifier;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTTemplateDeclaration;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTTemplateSpecialization;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTVirtSpecifier;
+import org.eclipse.cdt.core.dom.parser.ISourceCodeParser;
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.parser.EndOfFileException;
+import org.eclipse.cdt.core.parser.FileContent;
+import org.eclipse.cdt.core.parser.IScanner;
+import org.eclipse.cdt.core.parser.IToken;
+import org.eclipse.cdt.internal.core.dom.parser.LazyFunctionBody.ILazyCompoundStatement;
+import org.eclipse.cdt.internal.core.dom.parser.c.ICInternalBinding;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInternalBinding;
+import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.ILocationResolver;
+import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
+
+/**
+ * Updates an ast after its translation unit has been edited within the body of a single function.
+ * The file is preprocessed again, but only the tokens of the edited body are parsed, the rest of
+ * the ast is kept together with the bindings that have been resolved. The update is possible when
+ * the preprocessor produces the same output outside of the body and the body does not declare
+ * bindings outside of its own scopes.
+ * <p>
+ * The ast is modified in place, clients have to obtain exclusive access to it, see
+ * {@link ASTTranslationUnit#beginExclusiveAccess()}.
+ */
+public final class FunctionBodyReparser {
+	private final ASTTranslationUnit fAST;
+	private final ILocationResolver fPreviousResolver;
+	private final IASTFunctionDefinition fFunction;
+	private final ASTNode fBody;
+	private final int fBodyFileOffset;
+	private final int fBodyFileEndOffset;
+	private final int fFileDelta;
+
+	private FunctionBodyReparser(ASTTranslationUnit ast, ILocationResolver resolver,
+			IASTFunctionDefinition function, int bodyFileOffset, int bodyFileEndOffset, int fileDelta) {
+		fAST= ast;
+		fPreviousResolver= resolver;
+		fFunction= function;
+		fBody= (ASTNode) function.getBody();
+		fBodyFileOffset= bodyFileOffset;
+		fBodyFileEndOffset= bodyFileEndOffset;
+		fFileDelta= fileDelta;
+	}
+
+	/**
+	 * Compares the contents of the translation unit of the ast with the given ones. Returns a
+	 * reparser, if the contents differ within the body of a single function only, or
+	 * {@code null} if the translation unit has to be parsed from scratch.
+	 */
+	public static FunctionBodyReparser create(IASTTranslationUnit ast, FileContent contents) {
+		if (!(ast instanceof ASTTranslationUnit) || !(contents instanceof InternalFileContent))
+			return null;
+		if (!(ast.getASTNodeFactory().newCompoundStatement() instanceof ILazyCompoundStatement))
+			return null;
+
+		final ASTTranslationUnit tu= (ASTTranslationUnit) ast;
+		final ILocationResolver resolver= (ILocationResolver) tu.getAdapter(ILocationResolver.class);
+		final AbstractCharArray source= ((InternalFileContent) contents).getSource();
+		if (resolver == null || source == null || source.hasError())
+			return null;
+		final String path= resolver.getTranslationUnitPath();
+		if (path == null || !path.equals(contents.getFileLocation()))
+			return null;
+		final AbstractCharArray previousSource= resolver.getTranslationUnitContents();
+		if (previousSource == null || previousSource.hasError())
+			return null;
+
+		// The range of the file that has been changed.
+		final int previousLength= previousSource.getLength();
+		final int length= source.getLength();
+		final int minLength= Math.min(previousLength, length);
+		int start= 0;
+		while (start < minLength && previousSource.get(start) == source.get(start)) {
+			start++;
+		}
+		if (start == previousLength && start == length)
+			return null;
+		int previousEnd= previousLength;
+		int end= length;
+		while (previousEnd > start && end > start && previousSource.get(previousEnd - 1) == source.get(end - 1)) {
+			previousEnd--;
+			end--;
+		}
+
+		final int sequenceNumber= resolver.getSequenceNumberForFileOffset(null, start);
+		if (sequenceNumber < 0)
+			return null;
+		IASTFunctionDefinition function= findFunctionDefinition(tu, sequenceNumber);
+		if (function == null || !function.isActive() || !isBodyIndependent(function))
+			return null;
+
+		// The braces of the body have to be part of the file, the change has to be between them.
+		final ASTNode body= (ASTNode) function.getBody();
+		IASTFileLocation open= resolver.getMappedFileLocation(body.getOffset(), 1);
+		IASTFileLocation close= resolver.getMappedFileLocation(body.getOffset() + body.getLength() - 1, 1);
+		if (!isCharacter(open, '{', path, previousSource) || !isCharacter(close, '}', path, previousSource))
+			return null;
+		final int bodyFileOffset= open.getNodeOffset();
+		final int bodyFileEndOffset= close.getNodeOffset() + 1;
+		if (start <= bodyFileOffset || previousEnd >= bodyFileEndOffset)
+			return null;
+
+		if (((ILazyCompoundStatement) body).getLazyBody() == null && declaresBindingsOutside(body))
+			return null;
+
+		return new FunctionBodyReparser(tu, resolver, function, bodyFileOffset, bodyFileEndOffset,
+				length - previousLength);
+	}
+
+	private static IASTFunctionDefinition findFunctionDefinition(IASTDeclarationListOwner owner,
+			int sequenceNumber) {
+		for (IASTDeclaration declaration : owner.getDeclarations(true)) {
+			final ASTNode node= (ASTNode) declaration;
+			if (node.getOffset() <= sequenceNumber && sequenceNumber < node.getOffset() + node.getLength())
+				return findFunctionDefinition(declaration, sequenceNumber);
+		}
+		return null;
+	}
+
+	private static IASTFunctionDefinition findFunctionDefinition(IASTDeclaration declaration,
+			int sequenceNumber) {
+		while (true) {
+			if (declaration instanceof ICPPASTTemplateDeclaration) {
+				declaration= ((ICPPASTTemplateDeclaration) declaration).getDeclaration();
+			} else if (declaration instanceof ICPPASTTemplateSpecialization) {
+				declaration= ((ICPPASTTemplateSpecialization) declaration).getDeclaration();
+			} else {
+				break;
+			}
+		}
+		if (declaration instanceof IASTFunctionDefinition) {
+			final IASTFunctionDefinition function= (IASTFunctionDefinition) declaration;
+			final ASTNode body= (ASTNode) function.getBody();
+			if (body instanceof ILazyCompoundStatement && body.getOffset() <= sequenceNumber
+					&& sequenceNumber < body.getOffset() + body.getLength()) {
+				return function;
+			}
+			return null;
+		}
+		if (declaration instanceof IASTDeclarationListOwner)
+			return findFunctionDefinition((IASTDeclarationListOwner) declaration, sequenceNumber);
+		if (declaration instanceof IASTSimpleDeclaration) {
+			IASTDeclSpecifier declSpec= ((IASTSimpleDeclaration) declaration).getDeclSpecifier();
+			if (declSpec instanceof IASTDeclarationListOwner)
+				return findFunctionDefinition((IASTDeclarationListOwner) declSpec, sequenceNumber);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the body of the function does not contribute to the type of the function.
+	 */
+	private static boolean isBodyIndependent(IASTFunctionDefinition function) {
+		IASTDeclSpecifier declSpec= function.getDeclSpecifier();
+		if (declSpec instanceof ICPPASTDeclSpecifier && ((ICPPASTDeclSpecifier) declSpec).isConstexpr())
+			return false;
+		if (declSpec instanceof IASTSimpleDeclSpecifier
+				&& ((IASTSimpleDeclSpecifier) declSpec).getType() == IASTSimpleDeclSpecifier.t_auto) {
+			return false;
+		}
+		return true;
+	}
+
+	private static boolean isCharacter(IASTFileLocation location, char c, String path,
+			AbstractCharArray source) {
+		if (location == null || location.getNodeLength() != 1 || !path.equals(location.getFileName()))
+			return false;
+		final int offset= location.getNodeOffset();
+		return source.isValidOffset(offset) && source.get(offset) == c;
+	}
+
+	/**
+	 * Checks whether one of the bindings resolved in the body has been declared by the body in an
+	 * enclosing scope. Such a binding would survive the replacement of the body.
+	 */
+	private static boolean declaresBindingsOutside(final IASTNode body) {
+		return !body.accept(new ASTVisitor() {
+			{
+				shouldVisitNames= true;
+			}
+
+			@Override
+			public int visit(IASTName name) {
+				return isDeclaredOutside(name, body) ? PROCESS_ABORT : PROCESS_CONTINUE;
+			}
+		});
+	}
+
+	private static boolean isDeclaredOutside(IASTName name, IASTNode body) {
+		final IBinding binding= name.getBinding();
+		if (binding == null || binding instanceof ILabel) {
+			// Labels are removed from the function scope together with the body.
+			return false;
+		}
+		IASTNode definition;
+		IASTNode[] declarations;
+		if (binding instanceof ICPPInternalBinding) {
+			definition= ((ICPPInternalBinding) binding).getDefinition();
+			declarations= ((ICPPInternalBinding) binding).getDeclarations();
+		} else if (binding instanceof ICInternalBinding) {
+			definition= ((ICInternalBinding) binding).getDefinition();
+			declarations= ((ICInternalBinding) binding).getDeclarations();
+		} else {
+			return false;
+		}
+		if (!body.contains(definition) && !containsAny(body, declarations))
+			return false;
+
+		// In C the scope of a structure introduced by an elaborated type specifier may be wrong.
+		if (name.getParent() instanceof IASTElaboratedTypeSpecifier)
+			return true;
+		try {
+			IASTNode scopeNode= ASTInternal.getPhysicalNodeOfScope(binding.getScope());
+			return scopeNode == null || !body.contains(scopeNode);
+		} catch (DOMException e) {
+			return true;
+		}
+	}
+
+	private static boolean containsAny(IASTNode body, IASTNode[] nodes) {
+		if (nodes != null) {
+			for (IASTNode node : nodes) {
+				if (node != null && body.contains(node))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Preprocesses the new contents of the translation unit with the given scanner and replaces
+	 * the body of the function with the one provided by the scanner. The body is parsed on demand
+	 * by the given parser. Returns {@code false} if the ast could not be updated, in this case
+	 * the ast may have been modified partially and must be discarded.
+	 */
+	public boolean reparse(IScanner scanner, ISourceCodeParser parser, IIndex index) {
+		if (!(parser instanceof AbstractGNUSourceCodeParser))
+			return false;
+
+		// From here on the ast is modified.
+		fAST.contentsChanged();
+		fAST.setIndex(index);
+		final ILocationResolver resolver= scanner.getLocationResolver();
+		fAST.setLocationResolver(resolver);
+
+		final int bodyOffset= fBody.getOffset();
+		final int bodyEndOffset= bodyOffset + fBody.getLength();
+		IToken first;
+		IToken last;
+		try {
+			first= scanner.nextToken();
+			while (first.getOffset() < bodyOffset) {
+				first= scanner.nextToken();
+			}
+			if (first.getType() != IToken.tLBRACE || first.getOffset() != bodyOffset)
+				return false;
+
+			// Collect the tokens of the body the same way the parser does.
+			last= first;
+			int depth= 1;
+			while (depth > 0) {
+				IToken t= scanner.nextToken();
+				while (t.getType() == IToken.tINACTIVE_CODE_START) {
+					scanner.skipInactiveCode();
+					t= scanner.nextToken();
+				}
+				switch (t.getType()) {
+				case IToken.tLBRACE:
+					depth++;
+					break;
+				case IToken.tRBRACE:
+					depth--;
+					break;
+				case IToken.tEOC:
+				case IToken.tINACTIVE_CODE_SEPARATOR:
+				case IToken.tINACTIVE_CODE_END:
+					return false;
+				}
+				last.setNext(t);
+				last= t;
+			}
+			last.setNext(null);
+		} catch (EndOfFileException e) {
+			return false;
+		}
+		try {
+			// Preprocess the rest of the file, such that the location map is complete.
+			while (true) {
+				scanner.nextToken();
+			}
+		} catch (EndOfFileException e) {
+		}
+
+		IASTFileLocation close= resolver.getMappedFileLocation(last.getOffset(), 1);
+		if (close == null || close.getNodeLength() != 1
+				|| close.getNodeOffset() != fBodyFileEndOffset - 1 + fFileDelta
+				|| !resolver.getTranslationUnitPath().equals(close.getFileName())) {
+			return false;
+		}
+		if (!resolver.isEquivalentOutside(fPreviousResolver, fBodyFileOffset, fBodyFileEndOffset,
+				fBodyFileEndOffset + fFileDelta)) {
+			return false;
+		}
+
+		IScope scope= fFunction.getScope();
+		if (scope instanceof IASTInternalScope)
+			((IASTInternalScope) scope).removeNestedFromCache(fBody);
+
+		ShiftVisitor shifter= new ShiftVisitor(bodyOffset, bodyEndOffset, last.getEndOffset() - bodyEndOffset);
+		fAST.accept(shifter);
+		if (shifter.fFailed)
+			return false;
+
+		AbstractGNUSourceCodeParser gnuParser= (AbstractGNUSourceCodeParser) parser;
+		IASTCompoundStatement newBody= fAST.getASTNodeFactory().newCompoundStatement();
+		LazyFunctionBody lazyBody= new LazyFunctionBody(gnuParser.createFunctionBodyParserFactory(), first, last);
+		((ILazyCompoundStatement) newBody).setLazyBody(lazyBody);
+		((ASTNode) newBody).setOffsetAndLength(first.getOffset(), last.getEndOffset() - first.getOffset());
+		((IASTAmbiguityParent) fFunction).replace(fBody, newBody);
+		((ASTNode) newBody).setIsFrozen();
+		lazyBody.enable();
+		return true;
+	}
+
+	/**
+	 * Moves the nodes following the replaced body to their new sequence numbers, extends the
+	 * nodes enclosing the body and discards the cached locations of all other nodes.
+	 */
+	private final class ShiftVisitor extends ASTGenericVisitor {
+		private final int fStart;
+		private final int fEnd;
+		private final int fShift;
+		boolean fFailed;
+
+		ShiftVisitor(int start, int end, int shift) {
+			super(true);
+			shouldVisitTokens= true;
+			includeInactiveNodes= true;
+			fStart= start;
+			fEnd= end;
+			fShift= shift;
+		}
+
+		@Override
+		protected int genericVisit(IASTNode n) {
+			if (n == fBody)
+				return PROCESS_SKIP;
+			if (n == fAST) {
+				// The length of the translation unit has been set by the preprocessor.
+				return PROCESS_CONTINUE;
+			}
+
+			final ASTNode node= (ASTNode) n;
+			final int offset= node.getOffset();
+			if (n instanceof ILazyCompoundStatement) {
+				LazyFunctionBody lazyBody= ((ILazyCompoundStatement) n).getLazyBody();
+				if (lazyBody != null) {
+					// Don't parse the body while moving it.
+					if (offset >= fEnd) {
+						if (!lazyBody.shiftOffsets(fShift)) {
+							fFailed= true;
+							return PROCESS_ABORT;
+						}
+						node.shiftOffset(fShift);
+					} else {
+						node.shiftOffset(0);
+					}
+					return PROCESS_SKIP;
+				}
+			}
+			if (offset >= fEnd) {
+				node.shiftOffset(fShift);
+			} else if (offset <= fStart && offset + node.getLength() >= fEnd) {
+				node.setLength(node.getLength() + fShift);
+			} else {
+				node.shiftOffset(0);
+			}
+			return PROCESS_CONTINUE;
+		}
+
+		@Override
+		public int visit(IASTAttribute attribute) {
+			return genericVisit(attribute);
+		}
+
+		@Override
+		public int visit(IASTAttributeSpecifier specifier) {
+			return genericVisit(specifier);
+		}
+
+		@Override
+		public int visit(IASTToken token) {
+			return genericVisit(token);
+		}
+
+		@Override
+		public int visit(ICPPASTVirtSpecifier virtSpecifier) {
+			return genericVisit(virtSpecifier);
+		}
+
+		@Override
+		public int visit(ICPPASTClassVirtSpecifier classVirtSpecifier) {
+			return genericVisit(classVirtSpecifier);
+		}
+
+		@Override
+		public int visit(ICPPASTDecltypeSpecifier decltypeSpecifier) {
+			return genericVisit(decltypeSpecifier);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.dom.parser;
+
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.ASTGenericVisitor;
+import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
+import org.eclipse.cdt.core.dom.ast.IASTProblem;
+import org.eclipse.cdt.core.dom.ast.IASTStatement;
+import org.eclipse.cdt.core.dom.ast.IMacroBinding;
+import org.eclipse.cdt.core.parser.EndOfFileException;
+import org.eclipse.cdt.core.parser.IProblem;
+import org.eclipse.cdt.core.parser.IScanner;
+import org.eclipse.cdt.core.parser.IToken;
+import org.eclipse.cdt.core.parser.IncludeExportPatterns;
+import org.eclipse.cdt.internal.core.parser.scanner.ILocationResolver;
+import org.eclipse.cdt.internal.core.parser.scanner.Token;
+
+/**
+ * The tokens of a function body that is parsed when its statements are accessed for the first
+ * time, see {@link AbstractGNUSourceCodeParser#setParseFunctionBodiesLazily(boolean)}.
+ * <p>
+ * The tokens are recorded after preprocessing, such that the body can be parsed without the state
+ * of the preprocessor. Until the translation unit is complete, the body has no statements. The
+ * statements parsed later on have their ambiguities resolved and are frozen like the rest of the
+ * translation unit.
+ */
+public final class LazyFunctionBody {
+	/**
+	 * Creates the parsers for the recorded function bodies. The factory must not hold on to
+	 * the parser of the translation unit.
+	 */
+	public interface IParserFactory {
+		AbstractGNUSourceCodeParser createParser(IScanner scanner);
+	}
+
+	/**
+	 * Implemented by the compound statements that can be the body of a function parsed lazily.
+	 */
+	public interface ILazyCompoundStatement extends IASTCompoundStatement {
+		/**
+		 * Makes the compound statement the body recorded by the given lazy function body.
+		 */
+		void setLazyBody(LazyFunctionBody body);
+
+		/**
+		 * Returns the lazy function body that has not been parsed, yet, or {@code null}.
+		 */
+		LazyFunctionBody getLazyBody();
+
+		/**
+		 * Adds a statement parsed from the recorded tokens. Other than {@link #addStatement(IASTStatement)}
+		 * this is allowed for frozen compound statements.
+		 */
+		void addParsedStatement(IASTStatement statement);
+	}
+
+	private static final ASTGenericVisitor FREEZE= new ASTGenericVisitor(true) {
+		@Override
+		protected int genericVisit(IASTNode node) {
+			((ASTNode) node).setIsFrozen();
+			return PROCESS_CONTINUE;
+		}
+	};
+
+	private final IParserFactory fParserFactory;
+	private IToken[] fTokens;
+	private boolean fEnabled;
+	private boolean fParsing;
+
+	/**
+	 * Records the tokens from {@code first} to {@code last}, both inclusive.
+	 */
+	LazyFunctionBody(IParserFactory parserFactory, IToken first, IToken last) {
+		fParserFactory= parserFactory;
+		int count= 1;
+		for (IToken t= first; t != last; t= t.getNext()) {
+			count++;
+		}
+		fTokens= new IToken[count];
+		IToken t= first;
+		for (int i= 0; i < count; i++, t= t.getNext()) {
+			// The tokens are linked again by the parser of the body.
+			fTokens[i]= t instanceof Token ? ((Token) t).clone() : t;
+		}
+	}
+
+	/**
+	 * Called by the parser when the translation unit is complete, from now on the body is parsed
+	 * on demand.
+	 */
+	synchronized void enable() {
+		fEnabled= true;
+	}
+
+	/**
+	 * Moves the recorded tokens by the given amount of sequence numbers, used when the
+	 * translation unit is updated incrementally. Returns {@code false} if the body has been
+	 * parsed already.
+	 */
+	synchronized boolean shiftOffsets(int shift) {
+		if (fTokens == null || fParsing)
+			return false;
+		for (IToken t : fTokens) {
+			if (!(t instanceof Token))
+				return false;
+			((Token) t).shiftOffset(shift);
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the recorded tokens and adds the statements to the given compound statement.
+	 * Returns {@code false} if the body cannot be parsed, yet, because the translation unit is
+	 * not complete or because the body is being parsed. In this case the compound statement
+	 * has to retry on the next access.
+	 */
+	public synchronized boolean parse(ILazyCompoundStatement target) {
+		if (!fEnabled || fParsing)
+			return false;
+		if (fTokens == null)
+			return true;
+
+		fParsing= true;
+		try {
+			final ASTTranslationUnit tu= (ASTTranslationUnit) target.getTranslationUnit();
+			final IToken[] tokens= fTokens;
+			ILocationResolver resolver= (ILocationResolver) tu.getAdapter(ILocationResolver.class);
+			AbstractGNUSourceCodeParser parser= fParserFactory.createParser(new TokenScanner(tokens, resolver));
+			try {
+				IASTCompoundStatement body= parser.functionBody();
+				for (IASTStatement statement : body.getStatements()) {
+					target.addParsedStatement(statement);
+				}
+			} catch (BacktrackException | EndOfFileException e) {
+				// The parser recovers from syntax errors between the balanced braces, this is
+				// for the unexpected case only.
+				ASTNode node= (ASTNode) target;
+				IASTProblem problem= parser.createProblem(IProblem.SYNTAX_ERROR, node.getOffset(), node.getLength());
+				IASTStatement statement= tu.getASTNodeFactory().newProblemStatement(problem);
+				((ASTNode) statement).setOffsetAndLength(node);
+				target.addParsedStatement(statement);
+			}
+			tu.resolveAmbiguities(target);
+			target.accept(FREEZE);
+			fTokens= null;
+		} finally {
+			fParsing= false;
+		}
+		return true;
+	}
+
+	/**
+	 * Provides the recorded tokens to the parser of the body.
+	 */
+	private static class TokenScanner implements IScanner {
+		private final IToken[] fTokens;
+		private final ILocationResolver fLocationResolver;
+		private int fNext;
+
+		TokenScanner(IToken[] tokens, ILocationResolver locationResolver) {
+			fTokens= tokens;
+			fLocationResolver= locationResolver;
+		}
+
+		@Override
+		public IToken nextToken() throws EndOfFileException {
+			if (fNext >= fTokens.length)
+				throw new EndOfFileException(fTokens[fTokens.length - 1].getEndOffset());
+			IToken t= fTokens[fNext++];
+			t.setNext(null);
+			return t;
+		}
+
+		@Override
+		public Map<String, IMacroBinding> getMacroDefinitions() {
+			return null;
+		}
+
+		@Override
+		public boolean isOnTopContext() {
+			return false;
+		}
+
+		@Override
+		public void cancel() {
+		}
+
+		@Override
+		public ILocationResolver getLocationResolver() {
+			return fLocationResolver;
+		}
+
+		@Override
+		public void setContentAssistMode(int offset) {
+		}
+
+		@Override
+		public void setSplitShiftROperator(boolean val) {
+			// The recorded tokens are already split as needed.
+		}
+
+		@Override
+		public void setComputeImageLocations(boolean val) {
+		}
+
+		@Override
+		public void setTrackIncludeExport(IncludeExportPatterns patterns) {
+		}
+
+		@Override
+		public void setProcessInactiveCode(boolean val) {
+		}
+
+		@Override
+		public void skipInactiveCode() {
+			// Inactive code has been skipped while recording the tokens.
+		}
+
+		@Override
+		public int getCodeBranchNesting() {
+			return 0;
+		}
+
+		@Override
+		@Deprecated
+		public void setScanComments(boolean val) {
+		}
+	}
+}
@@ -14,20 +14,22 @@ package org.eclipse.cdt.internal.core.dom.parser.c;
 
 import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.EScopeKind;
-import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTStatement;
 import org.eclipse.cdt.core.dom.ast.IScope;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.internal.core.dom.parser.ASTAttributeOwner;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguityParent;
+import org.eclipse.cdt.internal.core.dom.parser.LazyFunctionBody;
+import org.eclipse.cdt.internal.core.dom.parser.LazyFunctionBody.ILazyCompoundStatement;
 
 /**
  * @author jcamelon
  */
-public class CASTCompoundStatement extends ASTAttributeOwner implements IASTCompoundStatement, IASTAmbiguityParent {
+public class CASTCompoundStatement extends ASTAttributeOwner implements ILazyCompoundStatement, IASTAmbiguityParent {
     private IASTStatement[] statements;
     private IScope scope;
+    private volatile LazyFunctionBody lazyBody;
 
     @Override
 	public CASTCompoundStatement copy() {
@@ -44,6 +46,7 @@ public class CASTCompoundStatement extends ASTAttributeOwner implements IASTComp
 
     @Override
 	public IASTStatement[] getStatements() {
+    	parseLazyBody();
         if (statements == null) return IASTStatement.EMPTY_STATEMENT_ARRAY;
         return ArrayUtil.trim(IASTStatement.class, statements);
     }
@@ -57,6 +60,29 @@ public class CASTCompoundStatement extends ASTAttributeOwner implements IASTComp
         	statement.setPropertyInParent(NESTED_STATEMENT);
         }
     }
+    @Override
+	public void setLazyBody(LazyFunctionBody body) {
+    	assertNotFrozen();
+    	lazyBody = body;
+    }
+
+    @Override
+	public LazyFunctionBody getLazyBody() {
+    	return lazyBody;
+    }
+
+    @Override
+	public void addParsedStatement(IASTStatement statement) {
+        statements = ArrayUtil.append(IASTStatement.class, statements, statement);
+        statement.setParent(this);
+        statement.setPropertyInParent(NESTED_STATEMENT);
+    }
+
+    private void parseLazyBody() {
+    	final LazyFunctionBody body = lazyBody;
+    	if (body != null && body.parse(this))
+    		lazyBody = null;
+    }
 
     @Override
 	public IScope getScope() {
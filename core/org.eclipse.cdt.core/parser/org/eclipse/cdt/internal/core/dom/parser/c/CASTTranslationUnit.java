@@ -16,6 +16,7 @@ package org.eclipse.cdt.internal.core.dom.parser.c;
 import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.ast.EScopeKind;
 import org.eclipse.cdt.core.dom.ast.IASTName;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTTypeId;
 import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.dom.ast.ICompositeType;
@@ -104,6 +105,11 @@ public class CASTTranslationUnit extends ASTTranslationUnit implements IASTAmbig
 		accept(new CASTAmbiguityResolver()); 
 	}
 
+	@Override
+	public void resolveAmbiguities(IASTNode node) {
+		node.accept(new CASTAmbiguityResolver());
+	}
+
 	@Override
 	public IScope mapToASTScope(IScope scope) {
 		if (scope instanceof IIndexScope) {
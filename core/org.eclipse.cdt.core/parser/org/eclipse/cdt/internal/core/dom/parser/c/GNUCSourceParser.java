@@ -87,6 +87,7 @@ import org.eclipse.cdt.core.parser.IParserLogService;
 import org.eclipse.cdt.core.parser.IProblem;
 import org.eclipse.cdt.core.parser.IScanner;
 import org.eclipse.cdt.core.parser.IToken;
+import org.eclipse.cdt.core.parser.NullLogService;
 import org.eclipse.cdt.core.parser.ParserMode;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
@@ -99,6 +100,7 @@ import org.eclipse.cdt.internal.core.dom.parser.BacktrackException;
 import org.eclipse.cdt.internal.core.dom.parser.DeclarationOptions;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguousExpression;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguousStatement;
+import org.eclipse.cdt.internal.core.dom.parser.LazyFunctionBody;
 
 /**
  * Source parser for gnu-c syntax.
@@ -109,6 +111,7 @@ public class GNUCSourceParser extends AbstractGNUSourceCodeParser {
 
     private final boolean supportGCCStyleDesignators;
 	private IIndex index;
+	private final ICParserExtensionConfiguration fConfiguration;
     protected IASTTranslationUnit translationUnit;
 
     private int fPreventKnrCheck= 0;
@@ -136,6 +139,7 @@ public class GNUCSourceParser extends AbstractGNUSourceCodeParser {
         supportExtendedSizeofOperator= config.supportExtendedSizeofOperator();
         supportFunctionStyleAsm= config.supportFunctionStyleAssembler();
         this.index= index;
+        this.fConfiguration= config;
         this.nodeFactory = CNodeFactory.getDefault();
     }
 
@@ -1835,6 +1839,31 @@ public class GNUCSourceParser extends AbstractGNUSourceCodeParser {
         return translationUnit;
     }
 
+    @Override
+	protected LazyFunctionBody.IParserFactory createFunctionBodyParserFactory() {
+    	return new FunctionBodyParserFactory(fConfiguration, maximumTrivialExpressionsInAggregateInitializers);
+    }
+
+    private static class FunctionBodyParserFactory implements LazyFunctionBody.IParserFactory {
+    	private final ICParserExtensionConfiguration fConfiguration;
+    	private final int fMaximumTrivialExpressionsInAggregateInitializers;
+
+    	FunctionBodyParserFactory(ICParserExtensionConfiguration configuration,
+    			int maximumTrivialExpressionsInAggregateInitializers) {
+    		fConfiguration= configuration;
+    		fMaximumTrivialExpressionsInAggregateInitializers= maximumTrivialExpressionsInAggregateInitializers;
+    	}
+
+    	@Override
+    	public AbstractGNUSourceCodeParser createParser(IScanner scanner) {
+    		// The index is used for setting up the translation unit, only.
+    		GNUCSourceParser parser= new GNUCSourceParser(scanner, ParserMode.COMPLETE_PARSE, new NullLogService(),
+    				fConfiguration, null);
+    		parser.setMaximumTrivialExpressionsInAggregateInitializers(fMaximumTrivialExpressionsInAggregateInitializers);
+    		return parser;
+    	}
+    }
+
 
     @Override
 	protected IASTStatement statement() throws EndOfFileException, BacktrackException {
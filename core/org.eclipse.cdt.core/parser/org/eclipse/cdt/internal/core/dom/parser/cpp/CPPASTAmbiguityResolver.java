@@ -59,6 +59,18 @@ final class CPPASTAmbiguityResolver extends ASTVisitor {
 		shouldVisitTranslationUnit= true;
 	}
 
+	/**
+	 * Resolves the ambiguities of a node that is not visited as part of the translation unit.
+	 */
+	public void resolveAmbiguities(IASTNode node) {
+		fDeferredNodes.add(new ArrayDeque<IASTNode>());
+		node.accept(this);
+		fDeferFunctions= 0;
+		while (!fDeferredNodes.isEmpty()) {
+			processDeferredNodes(fDeferredNodes.removeLast());
+		}
+	}
+
 	@Override
 	public int visit(ASTAmbiguousNode astAmbiguousNode) {
 		IASTNode node= astAmbiguousNode.resolveAmbiguity(this);
@@ -105,6 +105,12 @@ public class CPPASTArraySubscriptExpression extends ASTNode
     	setArgument(expression);
     }
 
+    @Override
+	public void shiftOffset(int shift) {
+		super.shiftOffset(shift);
+		shiftOffsets(implicitNames, shift);
+    }
+
     @Override
 	public IASTImplicitName[] getImplicitNames() {
 		if (implicitNames == null) {
@@ -121,6 +121,12 @@ public class CPPASTBinaryExpression extends ASTNode implements ICPPASTBinaryExpr
     	setInitOperand2(expression);
     }
 
+	@Override
+	public void shiftOffset(int shift) {
+		super.shiftOffset(shift);
+		shiftOffsets(implicitNames, shift);
+	}
+
     /**
      * @see org.eclipse.cdt.core.dom.ast.IASTImplicitNameOwner#getImplicitNames()
      */
@@ -12,7 +12,6 @@
 package org.eclipse.cdt.internal.core.dom.parser.cpp;
 
 import org.eclipse.cdt.core.dom.ast.ASTVisitor;
-import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTStatement;
 import org.eclipse.cdt.core.dom.ast.IScope;
@@ -20,14 +19,17 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPScope;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.internal.core.dom.parser.ASTAttributeOwner;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguityParent;
+import org.eclipse.cdt.internal.core.dom.parser.LazyFunctionBody;
+import org.eclipse.cdt.internal.core.dom.parser.LazyFunctionBody.ILazyCompoundStatement;
 
 /**
  * @author jcamelon
  */
 public class CPPASTCompoundStatement extends ASTAttributeOwner
-		implements IASTCompoundStatement, IASTAmbiguityParent {
+		implements ILazyCompoundStatement, IASTAmbiguityParent {
     private IASTStatement[] statements = new IASTStatement[2];
     private ICPPScope scope;
+    private volatile LazyFunctionBody lazyBody;
 
     @Override
 	public CPPASTCompoundStatement copy() {
@@ -47,6 +49,7 @@ public class CPPASTCompoundStatement extends ASTAttributeOwner
 
     @Override
 	public IASTStatement[] getStatements() {
+    	parseLazyBody();
     	statements = ArrayUtil.trim(statements);
         return statements;
     }
@@ -61,6 +64,30 @@ public class CPPASTCompoundStatement extends ASTAttributeOwner
 		}
     }
 
+    @Override
+	public void setLazyBody(LazyFunctionBody body) {
+    	assertNotFrozen();
+    	lazyBody = body;
+    }
+
+    @Override
+	public LazyFunctionBody getLazyBody() {
+    	return lazyBody;
+    }
+
+    @Override
+	public void addParsedStatement(IASTStatement statement) {
+        statements = ArrayUtil.append(statements, statement);
+		statement.setParent(this);
+		statement.setPropertyInParent(NESTED_STATEMENT);
+    }
+
+    private void parseLazyBody() {
+    	final LazyFunctionBody body = lazyBody;
+    	if (body != null && body.parse(this))
+    		lazyBody = null;
+    }
+
     @Override
 	public IScope getScope() {
     	if (scope == null)
@@ -79,6 +106,7 @@ public class CPPASTCompoundStatement extends ASTAttributeOwner
 		}
 
         if (!acceptByAttributeSpecifiers(action)) return false;
+        parseLazyBody();
         for (IASTStatement statement : statements) {
         	if (statement == null)
         		break;
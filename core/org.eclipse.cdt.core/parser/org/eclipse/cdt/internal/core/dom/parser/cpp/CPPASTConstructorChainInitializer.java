@@ -230,6 +230,12 @@ public class CPPASTConstructorChainInitializer extends ASTNode implements
         }
     }
 
+	@Override
+	public void shiftOffset(int shift) {
+		super.shiftOffset(shift);
+		shiftOffsets(implicitNames, shift);
+	}
+
 	/**
 	 * @see IASTImplicitNameOwner#getImplicitNames()
 	 */
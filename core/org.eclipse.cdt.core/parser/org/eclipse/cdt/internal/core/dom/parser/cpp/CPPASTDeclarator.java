@@ -271,6 +271,12 @@ public class CPPASTDeclarator extends ASTAttributeOwner implements ICPPASTDeclar
 		return false;
 	}
 
+	@Override
+	public void shiftOffset(int shift) {
+		super.shiftOffset(shift);
+		shiftOffsets(implicitNames, shift);
+	}
+
 	/**
 	 * @see IASTImplicitNameOwner#getImplicitNames()
 	 */
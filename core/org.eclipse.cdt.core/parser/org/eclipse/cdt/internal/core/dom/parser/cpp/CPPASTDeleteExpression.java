@@ -101,6 +101,12 @@ public class CPPASTDeleteExpression extends ASTNode implements ICPPASTDeleteExpr
         return isVectored;
     }
 
+    @Override
+	public void shiftOffset(int shift) {
+    	super.shiftOffset(shift);
+    	shiftOffsets(implicitNames, shift);
+    }
+
     /**
      * Try to resolve both the destructor and operator delete.
      */
@@ -132,6 +132,12 @@ public class CPPASTExpressionList extends ASTNode implements ICPPASTExpressionLi
 		return implicitNames;
 	}
 
+    @Override
+	public void shiftOffset(int shift) {
+    	super.shiftOffset(shift);
+    	shiftOffsets(implicitNames, shift);
+    }
+
     @Override
 	public IASTImplicitName[] getImplicitNames() {
     	return ArrayUtil.removeNulls(IASTImplicitName.class, computeImplicitNames());
@@ -131,6 +131,12 @@ public class CPPASTFieldReference extends ASTNode
         isDeref = value;
     }
     
+    @Override
+	public void shiftOffset(int shift) {
+    	super.shiftOffset(shift);
+    	shiftOffsets(implicitNames, shift);
+    }
+
     @Override
 	public IASTImplicitName[] getImplicitNames() {
     	if (implicitNames == null) {
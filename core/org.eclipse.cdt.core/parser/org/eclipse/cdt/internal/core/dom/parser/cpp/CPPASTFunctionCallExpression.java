@@ -116,6 +116,12 @@ public class CPPASTFunctionCallExpression extends ASTNode
 		}
     }
 
+    @Override
+	public void shiftOffset(int shift) {
+    	super.shiftOffset(shift);
+    	shiftOffsets(implicitNames, shift);
+    }
+
     @Override
 	public IASTImplicitName[] getImplicitNames() {
     	if (implicitNames == null) {
@@ -15,6 +15,7 @@ import static org.eclipse.cdt.core.dom.ast.IASTExpression.ValueCategory.PRVALUE;
 import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.IASTCompoundStatement;
 import org.eclipse.cdt.core.dom.ast.IASTImplicitName;
+import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTCapture;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTFunctionDeclarator;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTLambdaExpression;
@@ -71,6 +72,12 @@ public class CPPASTLambdaExpression extends ASTNode implements ICPPASTLambdaExpr
 		return copy(copy, style);
 	}
 
+	@Override
+	public void shiftOffset(int shift) {
+		super.shiftOffset(shift);
+		shiftOffsets(new IASTNode[] { fClosureTypeName, fImplicitFunctionCallName }, shift);
+	}
+
     @Override
 	public IASTImplicitName[] getImplicitNames() {
     	return new IASTImplicitName[] {getFunctionCallOperatorName()};
@@ -158,6 +158,12 @@ public class CPPASTNewExpression extends ASTNode implements ICPPASTNewExpression
         isNewTypeId = value;
     }
     
+    @Override
+	public void shiftOffset(int shift) {
+    	super.shiftOffset(shift);
+    	shiftOffsets(implicitNames, shift);
+    }
+
     /**
      * @see org.eclipse.cdt.core.dom.ast.IASTImplicitNameOwner#getImplicitNames()
      */
@@ -113,6 +113,12 @@ public class CPPASTRangeBasedForStatement extends ASTAttributeOwner
 		return fScope;
 	}
 
+	@Override
+	public void shiftOffset(int shift) {
+		super.shiftOffset(shift);
+		shiftOffsets(fImplicitNames, shift);
+	}
+
 	@Override
 	public IASTImplicitName[] getImplicitNames() {
 		if (fImplicitNames == null) {
@@ -34,6 +34,7 @@ import org.eclipse.cdt.internal.core.dom.Linkage;
 import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguityParent;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPVisitor;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.LookupCache;
 import org.eclipse.cdt.internal.core.index.IIndexScope;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
 
@@ -44,6 +45,7 @@ public class CPPASTTranslationUnit extends ASTTranslationUnit implements ICPPAST
     private CPPNamespaceScope fScope;
     private ICPPNamespace fBinding;
 	private final CPPScopeMapper fScopeMapper= new CPPScopeMapper(this);
+	private final LookupCache fLookupCache= new LookupCache();
 	
 	public CPPASTTranslationUnit() {
 	}
@@ -188,9 +190,30 @@ public class CPPASTTranslationUnit extends ASTTranslationUnit implements ICPPAST
 		fScopeMapper.handleAdditionalDirectives(scope);
 	}
 
+	/**
+	 * Returns the memo for name lookups performed in this translation unit.
+	 */
+	public LookupCache getLookupCache() {
+		return fLookupCache;
+	}
+
 	@Override
 	public void resolveAmbiguities() {
 		accept(new CPPASTAmbiguityResolver()); 
+		// Lookups performed while trying the alternatives must not survive the resolution.
+		fLookupCache.clear();
+	}
+
+	@Override
+	public void resolveAmbiguities(IASTNode node) {
+		new CPPASTAmbiguityResolver().resolveAmbiguities(node);
+		fLookupCache.clear();
+	}
+
+	@Override
+	protected void contentsChanged() {
+		super.contentsChanged();
+		fLookupCache.clear();
 	}
 	
 	@Override
@@ -94,6 +94,12 @@ public class CPPASTUnaryExpression extends ASTNode implements ICPPASTUnaryExpres
     	return fOperator == op_postFixDecr || fOperator == op_postFixIncr;
     }
 
+    @Override
+	public void shiftOffset(int shift) {
+		super.shiftOffset(shift);
+		shiftOffsets(fImplicitNames, shift);
+    }
+
     /**
      * @see org.eclipse.cdt.core.dom.ast.IASTImplicitNameOwner#getImplicitNames()
      */
@@ -62,6 +62,21 @@ public class CPPFunctionScope extends CPPScope implements ICPPFunctionScope {
 	    labels.put(binding.getNameCharArray(), (ILabel) binding);
 	}
 
+	@Override
+	public void removeNestedFromCache(IASTNode container) {
+		super.removeNestedFromCache(container);
+		for (int i = 0; i < labels.size(); i++) {
+			ILabel label = labels.getAt(i);
+			IASTNode definition = label instanceof ICPPInternalBinding ?
+					((ICPPInternalBinding) label).getDefinition() : null;
+			if (definition == null || container.contains(definition)) {
+				final char[] key = labels.keyAt(i);
+				labels.remove(key, 0, key.length);
+				i--;
+			}
+		}
+	}
+
 	@Override
 	public IBinding[] find(String name) {
 	    char[] n = name.toCharArray();
@@ -150,6 +150,7 @@ import org.eclipse.cdt.core.parser.IScanner;
 import org.eclipse.cdt.core.parser.IToken;
 import org.eclipse.cdt.core.parser.IToken.ContextSensitiveTokenType;
 import org.eclipse.cdt.core.parser.Keywords;
+import org.eclipse.cdt.core.parser.NullLogService;
 import org.eclipse.cdt.core.parser.ParserMode;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
@@ -164,6 +165,7 @@ import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguityParent;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguousDeclarator;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguousExpression;
 import org.eclipse.cdt.internal.core.dom.parser.IASTAmbiguousStatement;
+import org.eclipse.cdt.internal.core.dom.parser.LazyFunctionBody;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.NameOrTemplateIDVariants.BranchPoint;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.NameOrTemplateIDVariants.Variant;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.CPPVisitor;
@@ -186,6 +188,7 @@ public class GNUCPPSourceParser extends AbstractGNUSourceCodeParser {
     private final boolean supportAutoTypeSpecifier;
 
 	private final IIndex index;
+	private final ICPPParserExtensionConfiguration fConfiguration;
     protected ICPPASTTranslationUnit translationUnit;
 
     private int functionBodyCount;
@@ -219,6 +222,7 @@ public class GNUCPPSourceParser extends AbstractGNUSourceCodeParser {
         functionCallCanBeLValue= true;
         supportAutoTypeSpecifier= true;
         this.index= index;
+        this.fConfiguration= config;
         this.nodeFactory = CPPNodeFactory.getDefault();
         scanner.setSplitShiftROperator(true);
         fContextSensitiveTokens = createContextSensitiveTokenMap(config);
@@ -4988,6 +4992,31 @@ public class GNUCPPSourceParser extends AbstractGNUSourceCodeParser {
         return result;
     }
 
+    @Override
+	protected LazyFunctionBody.IParserFactory createFunctionBodyParserFactory() {
+    	return new FunctionBodyParserFactory(fConfiguration, maximumTrivialExpressionsInAggregateInitializers);
+    }
+
+    private static class FunctionBodyParserFactory implements LazyFunctionBody.IParserFactory {
+    	private final ICPPParserExtensionConfiguration fConfiguration;
+    	private final int fMaximumTrivialExpressionsInAggregateInitializers;
+
+    	FunctionBodyParserFactory(ICPPParserExtensionConfiguration configuration,
+    			int maximumTrivialExpressionsInAggregateInitializers) {
+    		fConfiguration= configuration;
+    		fMaximumTrivialExpressionsInAggregateInitializers= maximumTrivialExpressionsInAggregateInitializers;
+    	}
+
+    	@Override
+    	public AbstractGNUSourceCodeParser createParser(IScanner scanner) {
+    		// The index is used for setting up the translation unit, only.
+    		GNUCPPSourceParser parser= new GNUCPPSourceParser(scanner, ParserMode.COMPLETE_PARSE, new NullLogService(),
+    				fConfiguration, null);
+    		parser.setMaximumTrivialExpressionsInAggregateInitializers(fMaximumTrivialExpressionsInAggregateInitializers);
+    		return parser;
+    	}
+    }
+
     @Override
 	protected IASTCompoundStatement functionBody() throws EndOfFileException, BacktrackException {
         ++functionBodyCount;
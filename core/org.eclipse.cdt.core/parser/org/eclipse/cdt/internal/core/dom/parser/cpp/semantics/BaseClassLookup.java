@@ -26,15 +26,20 @@ import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.dom.ast.IProblemBinding;
 import org.eclipse.cdt.core.dom.ast.IScope;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTConversionName;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTNameSpecifier;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTQualifiedName;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPBase;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassScope;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassSpecialization;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassType;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPMember;
+import org.eclipse.cdt.core.index.IIndexBinding;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.core.parser.util.CharArrayObjectMap;
 import org.eclipse.cdt.internal.core.dom.parser.ProblemBinding;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPClassScope;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ClassTypeHelper;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPDeferredClassInstance;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPInternalUnknownScope;
@@ -55,6 +60,19 @@ class BaseClassLookup {
 		if (classType == null) 
 			return;
 		
+		final LookupCache cache= getLookupCache(data, classType);
+		final int cacheFlags= cache == null ? 0 : getLookupCacheFlags(data);
+		if (cache != null) {
+			LookupCache.Entry entry= cache.get(classType, data.getLookupKey(), cacheFlags);
+			if (entry != null) {
+				data.foundItems = ArrayUtil.addAll((Object[]) data.foundItems, entry.fBindings);
+				if (entry.fSkippedScope && data.skippedScope == null)
+					data.skippedScope= classType;
+				return;
+			}
+		}
+
+		final ICPPClassType skippedScope= data.skippedScope;
 		final HashMap<IScope, BaseClassLookup> infoMap = new HashMap<>();
 		BaseClassLookup rootInfo= lookupInBaseClass(data, null, false, classType, infoMap, 0);
 		if (data.contentAssist) {
@@ -64,6 +82,11 @@ class BaseClassLookup {
 			IBinding[] result= rootInfo.collectResult(data, true, IBinding.EMPTY_BINDING_ARRAY);
 			if (data.problem == null) {
 				data.foundItems = ArrayUtil.addAll((Object[]) data.foundItems, result);
+				// A dependent base class skipped by an earlier lookup would hide the one of this lookup.
+				if (cache != null && skippedScope == null) {
+					cache.put(classType, data.getLookupKey(), cacheFlags,
+							new LookupCache.Entry(result, data.skippedScope != null));
+				}
 			} else if (result.length > 0) {
 				data.problem.setCandidateBindings(result);
 			}
@@ -71,6 +94,47 @@ class BaseClassLookup {
 		}
 	}
 
+	/**
+	 * Returns the memo for the lookup, or <code>null</code> if the result of the lookup must not be
+	 * memoized. The result for a class from the index does not depend on the position of the lookup
+	 * in the AST, unless the lookup name itself restricts the base classes to be considered.
+	 */
+	private static LookupCache getLookupCache(LookupData data, ICPPClassType classType) {
+		if (data.contentAssist || data.isPrefixLookup() || data.problem != null)
+			return null;
+		if (!(classType instanceof IIndexBinding) || classType instanceof ICPPClassSpecialization)
+			return null;
+		final char[] lookupKey= data.getLookupKey();
+		if (lookupKey == null || lookupKey.length == 0)
+			return null;
+
+		final IASTName lookupName= data.getLookupName();
+		if (lookupName instanceof ICPPASTConversionName)
+			return null;
+		if (data.qualified && lookupName != null &&
+				lookupName.getPropertyInParent() == ICPPASTQualifiedName.SEGMENT_NAME &&
+				lookupName.getRoleOfName(false) == IASTNameOwner.r_definition) {
+			return null;
+		}
+		final CPPASTTranslationUnit tu= data.getTranslationUnit();
+		return tu == null ? null : tu.getLookupCache();
+	}
+
+	private static int getLookupCacheFlags(LookupData data) {
+		int flags= 0;
+		if (data.typesOnly)
+			flags |= LookupCache.TYPES_ONLY;
+		if (data.forDeclaration() != null)
+			flags |= LookupCache.FOR_DECLARATION;
+		if (data.ignoreRecursionResolvingBindings())
+			flags |= LookupCache.IGNORE_RECURSION_RESOLVING_BINDINGS;
+		if (CPPClassScope.shallReturnConstructors(data.getLookupName(), false))
+			flags |= LookupCache.RETURN_CONSTRUCTORS;
+		if (data.isResolve())
+			flags |= LookupCache.RESOLVE;
+		return flags;
+	}
+
 
 	private final ICPPClassType fClassType;
 	private IBinding[] fBindings;
@@ -40,6 +40,7 @@ import org.eclipse.cdt.core.dom.ast.IASTIdExpression;
 import org.eclipse.cdt.core.dom.ast.IASTName;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTTypeId;
 import org.eclipse.cdt.core.dom.ast.IArrayType;
 import org.eclipse.cdt.core.dom.ast.IBinding;
@@ -105,6 +106,7 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPTypeSpecialization;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUnaryTypeTransformation;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDeclaration;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexFileSet;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.core.parser.util.CharArraySet;
 import org.eclipse.cdt.core.parser.util.ObjectMap;
@@ -171,6 +173,8 @@ import org.eclipse.cdt.internal.core.dom.parser.cpp.ICPPUnknownType;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.Conversions.Context;
 import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.Conversions.UDCMode;
 import org.eclipse.cdt.internal.core.index.IIndexType;
+import org.eclipse.cdt.internal.core.index.ITemplateInstanceCacheProvider;
+import org.eclipse.cdt.internal.core.index.TemplateInstanceCache;
 
 /**
  * Collection of static methods to perform template instantiation, member specialization and
@@ -359,7 +363,7 @@ public class CPPTemplates {
 
 	private static IBinding instantiateFunctionTemplate(ICPPFunctionTemplate template,
 			ICPPTemplateArgument[] arguments, CPPTemplateParameterMap map, IASTNode point) throws DOMException {
-		ICPPTemplateInstance instance= getInstance(template, arguments, false);
+		ICPPTemplateInstance instance= getInstance(template, arguments, false, point);
 		if (instance != null) {
 			return instance;
 		}
@@ -367,7 +371,7 @@ public class CPPTemplates {
 		IBinding owner= template.getOwner();
 		instance = createInstance(owner, template, map, arguments, point);
 		if (instance instanceof ICPPFunction && SemanticUtil.isValidType(((ICPPFunction) instance).getType())) {
-			addInstance(template, arguments, instance);
+			addInstance(template, arguments, instance, point);
 		}
 		return instance;
 	}
@@ -378,7 +382,7 @@ public class CPPTemplates {
 	private static IBinding instantiatePartialSpecialization(
 			ICPPClassTemplatePartialSpecialization partialSpec, ICPPTemplateArgument[] args, boolean isDef,
 			CPPTemplateParameterMap tpMap, IASTNode point) throws DOMException {
-		ICPPTemplateInstance instance= getInstance(partialSpec, args, isDef);
+		ICPPTemplateInstance instance= getInstance(partialSpec, args, isDef, point);
 		if (instance != null)
 			return instance;
 
@@ -390,7 +394,7 @@ public class CPPTemplates {
 		}
 
 		instance= createInstance(partialSpec.getOwner(), partialSpec, tpMap, args, point);
-		addInstance(partialSpec, args, instance);
+		addInstance(partialSpec, args, instance, point);
 		return instance;
 	}
 
@@ -401,14 +405,14 @@ public class CPPTemplates {
 	private static IBinding instantiatePrimaryTemplate(ICPPClassTemplate template, ICPPTemplateArgument[] arguments,
 			CPPTemplateParameterMap map, boolean isDef, IASTNode point) throws DOMException {
 		assert !(template instanceof ICPPClassTemplatePartialSpecialization);
-		ICPPTemplateInstance instance= getInstance(template, arguments, isDef);
+		ICPPTemplateInstance instance= getInstance(template, arguments, isDef, point);
 		if (instance != null) {
 			return instance;
 		}
 
 		IBinding owner= template.getOwner();
 		instance = createInstance(owner, template, map, arguments, point);
-		addInstance(template, arguments, instance);
+		addInstance(template, arguments, instance, point);
 		return instance;
 	}
 
@@ -417,6 +421,15 @@ public class CPPTemplates {
 	 */
 	private static ICPPTemplateInstance getInstance(ICPPTemplateDefinition template,
 			ICPPTemplateArgument[] args, boolean forDefinition) {
+		return getInstance(template, args, forDefinition, null);
+	}
+
+	/**
+	 * Obtains a cached instance from the template, or from the instances shared by the translation
+	 * units parsed with the index of the lookup point.
+	 */
+	private static ICPPTemplateInstance getInstance(ICPPTemplateDefinition template,
+			ICPPTemplateArgument[] args, boolean forDefinition, IASTNode point) {
 		if (template instanceof ICPPInstanceCache) {
 			ICPPTemplateInstance result = ((ICPPInstanceCache) template).getInstance(args);
 			if (forDefinition && result instanceof IIndexBinding)
@@ -431,6 +444,14 @@ public class CPPTemplates {
 						return null; 
 					}
 				}
+			} else if (!forDefinition) {
+				TemplateInstanceCache sharedCache= getSharedInstanceCache(template, point);
+				if (sharedCache != null) {
+					result= sharedCache.getInstance(template, args);
+					if (result != null) {
+						((ICPPInstanceCache) template).addInstance(args, result);
+					}
+				}
 			}
 			return result;
 		}
@@ -441,11 +462,54 @@ public class CPPTemplates {
 	 * Caches an instance with the template.
 	 */
 	private static void addInstance(ICPPTemplateDefinition template, ICPPTemplateArgument[] args, ICPPTemplateInstance instance) {
+		addInstance(template, args, instance, null);
+	}
+
+	/**
+	 * Caches an instance with the template and with the instances shared by the translation units
+	 * parsed with the index of the lookup point.
+	 */
+	private static void addInstance(ICPPTemplateDefinition template, ICPPTemplateArgument[] args,
+			ICPPTemplateInstance instance, IASTNode point) {
 		if (template instanceof ICPPInstanceCache) {
 			((ICPPInstanceCache) template).addInstance(args, instance);
+			TemplateInstanceCache sharedCache= getSharedInstanceCache(template, point);
+			// A partial specialization selected for the instance may be declared in the AST.
+			if (sharedCache != null &&
+					isFromIndexOnly(instance.getSpecializedBinding(), point.getTranslationUnit())) {
+				sharedCache.addInstance(template, args, instance);
+			}
 		}
 	}
 
+	/**
+	 * Returns the cache for instances shared between translation units, or <code>null</code> if
+	 * the instances of the template must not be shared. The instances of a template declared in
+	 * the AST of the lookup point may refer to the AST.
+	 */
+	private static TemplateInstanceCache getSharedInstanceCache(ICPPTemplateDefinition template,
+			IASTNode point) {
+		if (point == null)
+			return null;
+		IASTTranslationUnit tu= point.getTranslationUnit();
+		if (tu == null || !(tu.getIndex() instanceof ITemplateInstanceCacheProvider))
+			return null;
+		TemplateInstanceCache cache= ((ITemplateInstanceCacheProvider) tu.getIndex()).getTemplateInstanceCache();
+		if (cache == null || !isFromIndexOnly(template, tu))
+			return null;
+		return cache;
+	}
+
+	/**
+	 * Checks whether the binding is from the index and not declared in the AST.
+	 */
+	private static boolean isFromIndexOnly(IBinding binding, IASTTranslationUnit tu) {
+		if (!(binding instanceof IIndexBinding))
+			return false;
+		IIndexFileSet astFileSet= tu.getASTFileSet();
+		return astFileSet == null || !astFileSet.containsDeclaration((IIndexBinding) binding);
+	}
+
 	private static IBinding deferredInstance(ICPPClassTemplate template, ICPPTemplateArgument[] arguments) throws DOMException {
 		ICPPTemplateInstance instance= getInstance(template, arguments, false);
 		if (instance != null)
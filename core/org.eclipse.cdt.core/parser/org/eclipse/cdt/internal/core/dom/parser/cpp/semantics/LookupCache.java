@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.dom.parser.cpp.semantics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassType;
+
+/**
+ * Memo for the results of name lookups performed while resolving the names of a single AST.
+ * Only lookups that do not depend on the position of the lookup within the AST are stored,
+ * see {@link BaseClassLookup}. The memo is cleared when the ambiguities of the AST are resolved,
+ * because the resolution may change the bindings of the AST.
+ */
+public final class LookupCache {
+	/** The lookup is restricted to types. */
+	static final int TYPES_ONLY= 0x01;
+	/** The lookup is performed for a declaration. */
+	static final int FOR_DECLARATION= 0x02;
+	/** Recursion resolving bindings are filtered out. */
+	static final int IGNORE_RECURSION_RESOLVING_BINDINGS= 0x04;
+	/** Constructors are part of the result. */
+	static final int RETURN_CONSTRUCTORS= 0x08;
+	/** The bindings are resolved. */
+	static final int RESOLVE= 0x10;
+
+	private static final class Key {
+		final ICPPClassType fClassType;
+		final char[] fName;
+		final int fFlags;
+		final int fHashCode;
+
+		Key(ICPPClassType classType, char[] name, int flags) {
+			fClassType= classType;
+			fName= name;
+			fFlags= flags;
+			fHashCode= (classType.hashCode() * 31 + Arrays.hashCode(name)) * 31 + flags;
+		}
+
+		@Override
+		public int hashCode() {
+			return fHashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fHashCode == other.fHashCode && fFlags == other.fFlags &&
+					Arrays.equals(fName, other.fName) && fClassType.equals(other.fClassType);
+		}
+	}
+
+	static final class Entry {
+		final IBinding[] fBindings;
+		/** Whether the lookup skipped a dependent base class. */
+		final boolean fSkippedScope;
+
+		Entry(IBinding[] bindings, boolean skippedScope) {
+			fBindings= bindings;
+			fSkippedScope= skippedScope;
+		}
+	}
+
+	private final Map<Key, Entry> fEntries= new HashMap<>();
+	private int fHitCount;
+	private int fMissCount;
+
+	Entry get(ICPPClassType classType, char[] name, int flags) {
+		Entry entry= fEntries.get(new Key(classType, name, flags));
+		if (entry != null) {
+			fHitCount++;
+		} else {
+			fMissCount++;
+		}
+		return entry;
+	}
+
+	void put(ICPPClassType classType, char[] name, int flags, Entry entry) {
+		fEntries.put(new Key(classType, name, flags), entry);
+	}
+
+	/**
+	 * Discards the stored results, the hit and miss counts are retained.
+	 */
+	public void clear() {
+		fEntries.clear();
+	}
+
+	/**
+	 * Returns the number of lookups that were answered from the memo.
+	 */
+	public int getHitCount() {
+		return fHitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that could have been answered from the memo, but were not.
+	 */
+	public int getMissCount() {
+		return fMissCount;
+	}
+}
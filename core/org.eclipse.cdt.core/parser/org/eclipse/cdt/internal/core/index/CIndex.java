@@ -24,6 +24,15 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -33,7 +42,6 @@ import org.eclipse.cdt.core.dom.ast.IASTName;
 import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespace;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDeclaration;
-import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
 import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
@@ -53,16 +61,45 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
-public class CIndex implements IIndex {
+public class CIndex implements ITypeIndex, ITemplateInstanceCacheProvider {
 	/**
 	 * If this constant is set, for logical index objects with only
 	 * one fragment, composite binding wrappers will not be used.
 	 */
 	private static final boolean SPECIALCASE_SINGLES = true;
 
+	/**
+	 * Whether the fragments of a logical index are queried concurrently rather than one after
+	 * the other. The initial value is taken from a system property.
+	 */
+	private static volatile boolean sParallelFragmentQueries =
+			Boolean.getBoolean("org.eclipse.cdt.core.index.parallelFragmentQueries"); //$NON-NLS-1$
+
+	/** Executes the queries of all but the first fragment in the parallel mode. */
+	private static ExecutorService sFragmentQueryExecutor;
+
+	/**
+	 * Query of a single fragment.
+	 */
+	private interface FragmentQuery<T> {
+		T run(IIndexFragment fragment, IProgressMonitor monitor) throws CoreException;
+	}
+
+	private static class FragmentQueryThreadFactory implements ThreadFactory {
+		private final AtomicInteger fCount= new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread= new Thread(runnable, "C/C++ Index Query " + fCount.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
 	private final IIndexFragment[] fFragments;
 	private int fReadLock;
 	private ICompositesFactory cppCF, cCF, fCF;
+	private TemplateInstanceCache fTemplateInstanceCache;
 
 	/**
 	 * Creates an index consisting of one or more fragments.
@@ -74,6 +111,21 @@ public class CIndex implements IIndex {
 		fFragments= fragments;
 	}
 
+	/**
+	 * Returns whether the fragments of logical indexes are queried concurrently.
+	 */
+	public static boolean isParallelFragmentQueries() {
+		return sParallelFragmentQueries;
+	}
+
+	/**
+	 * Sets whether the fragments of logical indexes are queried concurrently. The setting
+	 * takes effect for queries started afterwards.
+	 */
+	public static void setParallelFragmentQueries(boolean parallel) {
+		sParallelFragmentQueries= parallel;
+	}
+
 	@Override
 	public IIndexBinding findBinding(IName name) throws CoreException {
 		if (name instanceof IIndexFragmentName) {
@@ -100,7 +152,7 @@ public class CIndex implements IIndex {
 	}
 
 	@Override
-	public IIndexBinding[] findBindings(Pattern[] patterns, boolean isFullyQualified, IndexFilter filter,
+	public IIndexBinding[] findBindings(final Pattern[] patterns, final boolean isFullyQualified, IndexFilter filter,
 			IProgressMonitor monitor) throws CoreException {
 		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
 			return fFragments[0].findBindings(patterns, isFullyQualified, filter, monitor);
@@ -109,18 +161,13 @@ public class CIndex implements IIndex {
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findBindings(patterns, isFullyQualified,
-									retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+					final IndexFilter retargetedFilter= retargetFilter(linkage, filter);
+					IIndexFragmentBinding[][] fragmentBindings= findFragmentBindings(new FragmentQuery<IBinding[]>() {
+						@Override
+						public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+							return fragment.findBindings(patterns, isFullyQualified, retargetedFilter, pm);
 						}
-					}
+					}, monitor);
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -130,7 +177,7 @@ public class CIndex implements IIndex {
 	}
 
 	@Override
-	public IIndexBinding[] findMacroContainers(Pattern pattern, IndexFilter filter, IProgressMonitor monitor)
+	public IIndexBinding[] findMacroContainers(final Pattern pattern, IndexFilter filter, IProgressMonitor monitor)
 			throws CoreException {
 		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
 			 return fFragments[0].findMacroContainers(pattern, filter, monitor);
@@ -139,18 +186,13 @@ public class CIndex implements IIndex {
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findMacroContainers(pattern,
-									retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+					final IndexFilter retargetedFilter= retargetFilter(linkage, filter);
+					IIndexFragmentBinding[][] fragmentBindings= findFragmentBindings(new FragmentQuery<IBinding[]>() {
+						@Override
+						public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+							return fragment.findMacroContainers(pattern, retargetedFilter, pm);
 						}
-					}
+					}, monitor);
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -160,7 +202,7 @@ public class CIndex implements IIndex {
 	}
 
 	@Override
-	public IIndexName[] findNames(IBinding binding, int flags) throws CoreException {
+	public IIndexName[] findNames(IBinding binding, final int flags) throws CoreException {
 		ArrayList<IIndexFragmentName> result= new ArrayList<>();
 		if (binding instanceof ICPPUsingDeclaration) {
 			IBinding[] bindings= ((ICPPUsingDeclaration) binding).getDelegates();
@@ -183,21 +225,27 @@ public class CIndex implements IIndex {
 		// Read only fragments can be superseded by what the indexer writes into
 		// a writable fragment. Therefore names from a read-only fragment are
 		// ignored if there is a match in a writable fragment.
+		final IBinding target= binding;
+		IIndexFragmentName[][] fragmentNames= new IIndexFragmentName[fFragments.length][];
+		queryFragments(new FragmentQuery<IIndexFragmentName[]>() {
+			@Override
+			public IIndexFragmentName[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+				return fragment.findNames(target, flags);
+			}
+		}, fragmentNames, null);
 		HashSet<NameKey> encounteredNames = new HashSet<>();
-		for (IIndexFragment fragment : fFragments) {
-			if (fragment instanceof IWritableIndexFragment) {
-				final IIndexFragmentName[] names = fragment.findNames(binding, flags);
-				for (IIndexFragmentName name : names) {
+		for (int i = 0; i < fFragments.length; i++) {
+			if (fFragments[i] instanceof IWritableIndexFragment) {
+				for (IIndexFragmentName name : fragmentNames[i]) {
 					if (encounteredNames.add(new NameKey(name, true))) {
 						result.add(name);
 					}
 				}
 			}
 		}
-		for (IIndexFragment fragment : fFragments) {
-			if (!(fragment instanceof IWritableIndexFragment)) {
-				final IIndexFragmentName[] names = fragment.findNames(binding, flags);
-				for (IIndexFragmentName name : names) {
+		for (int i = 0; i < fFragments.length; i++) {
+			if (!(fFragments[i] instanceof IWritableIndexFragment)) {
+				for (IIndexFragmentName name : fragmentNames[i]) {
 					if (encounteredNames.add(new NameKey(name, false))) {
 						result.add(name);
 					}
@@ -412,6 +460,10 @@ public class CIndex implements IIndex {
 			for (IIndexFragment fragment : fFragments) {
 				fragment.releaseReadLock();
 			}
+			// The shared instances must not outlive the read lock they were created under.
+			if (fTemplateInstanceCache != null) {
+				fTemplateInstanceCache.clear();
+			}
 		}
 	}
 
@@ -439,7 +491,7 @@ public class CIndex implements IIndex {
 	}
 
 	@Override
-	public IIndexBinding[] findBindings(char[][] names, IndexFilter filter, IProgressMonitor monitor)
+	public IIndexBinding[] findBindings(final char[][] names, IndexFilter filter, IProgressMonitor monitor)
 			throws CoreException {
 		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
 			try {
@@ -457,18 +509,13 @@ public class CIndex implements IIndex {
 			monitor.beginTask(Messages.CIndex_FindBindingsTask_label, fFragments.length * linkages.length);
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findBindings(names,
-									retargetFilter(linkage, filter), new SubProgressMonitor(monitor, 1));
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+					final IndexFilter retargetedFilter= retargetFilter(linkage, filter);
+					IIndexFragmentBinding[][] fragmentBindings= findFragmentBindings(new FragmentQuery<IBinding[]>() {
+						@Override
+						public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+							return fragment.findBindings(names, retargetedFilter, new SubProgressMonitor(pm, 1));
 						}
-					}
+					}, monitor);
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -507,6 +554,106 @@ public class CIndex implements IIndex {
 	 * Non-API
 	 */
 
+	/**
+	 * Runs the given query on each of the fragments and stores the results in the order of
+	 * the fragments. In the parallel mode the fragments are queried concurrently. The workers rely
+	 * on the read locks held by the caller, therefore all queries complete before this method
+	 * returns, also when one of them fails. The progress of the workers is not reported.
+	 */
+	private <T> void queryFragments(final FragmentQuery<T> query, T[] results, final IProgressMonitor monitor)
+			throws CoreException {
+		if (!sParallelFragmentQueries || fFragments.length < 2) {
+			for (int i = 0; i < fFragments.length; i++) {
+				results[i]= query.run(fFragments[i], monitor);
+			}
+			return;
+		}
+
+		final IProgressMonitor workerMonitor= monitor == null ? null : new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+		};
+		ExecutorService executor= getFragmentQueryExecutor();
+		List<Future<T>> futures= new ArrayList<>(fFragments.length - 1);
+		for (int i = 1; i < fFragments.length; i++) {
+			final IIndexFragment fragment= fFragments[i];
+			futures.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws CoreException {
+					return query.run(fragment, workerMonitor);
+				}
+			}));
+		}
+		Throwable failure= null;
+		try {
+			results[0]= query.run(fFragments[0], monitor);
+		} catch (CoreException | RuntimeException | Error e) {
+			failure= e;
+		}
+		boolean interrupted= false;
+		for (int i = 1; i < fFragments.length; i++) {
+			while (true) {
+				try {
+					results[i]= futures.get(i - 1).get();
+					break;
+				} catch (InterruptedException e) {
+					// The caller must not release its read locks before the workers are done.
+					interrupted= true;
+				} catch (ExecutionException e) {
+					if (failure == null)
+						failure= e.getCause();
+					break;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (failure instanceof CoreException)
+			throw (CoreException) failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+	}
+
+	private static synchronized ExecutorService getFragmentQueryExecutor() {
+		if (sFragmentQueryExecutor == null) {
+			int threads= Runtime.getRuntime().availableProcessors();
+			ThreadPoolExecutor executor= new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new FragmentQueryThreadFactory());
+			executor.allowCoreThreadTimeOut(true);
+			sFragmentQueryExecutor= executor;
+		}
+		return sFragmentQueryExecutor;
+	}
+
+	/**
+	 * Queries the bindings of each fragment, failures of a fragment are logged.
+	 */
+	private IIndexFragmentBinding[][] findFragmentBindings(final FragmentQuery<IBinding[]> query,
+			IProgressMonitor monitor) throws CoreException {
+		IBinding[][] parts= new IBinding[fFragments.length][];
+		queryFragments(new FragmentQuery<IBinding[]>() {
+			@Override
+			public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+				try {
+					return query.run(fragment, pm);
+				} catch (CoreException e) {
+					CCorePlugin.log(e);
+					return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+				}
+			}
+		}, parts, monitor);
+		IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
+		for (int i = 0; i < fFragments.length; i++) {
+			fragmentBindings[i] = new IIndexFragmentBinding[parts[i].length];
+			System.arraycopy(parts[i], 0, fragmentBindings[i], 0, parts[i].length);
+		}
+		return fragmentBindings;
+	}
+
 	private IIndexBinding[] flatten(List<IIndexBinding[]> bindingArrays) {
 		int size = 0;
 		for (int i = 0; i<bindingArrays.size(); i++) {
@@ -576,7 +723,7 @@ public class CIndex implements IIndex {
 	}
 
 	@Override
-	public IIndexBinding[] findBindingsForPrefix(char[] prefix, boolean filescope, IndexFilter filter,
+	public IIndexBinding[] findBindingsForPrefix(final char[] prefix, final boolean filescope, IndexFilter filter,
 			IProgressMonitor monitor) throws CoreException {
 		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
 			return fFragments[0].findBindingsForPrefix(prefix, filescope, filter, monitor);
@@ -585,18 +732,13 @@ public class CIndex implements IIndex {
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findBindingsForPrefix(prefix, filescope,
-									retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+					final IndexFilter retargetedFilter= retargetFilter(linkage, filter);
+					IIndexFragmentBinding[][] fragmentBindings= findFragmentBindings(new FragmentQuery<IBinding[]>() {
+						@Override
+						public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+							return fragment.findBindingsForPrefix(prefix, filescope, retargetedFilter, pm);
 						}
-					}
+					}, monitor);
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -606,7 +748,32 @@ public class CIndex implements IIndex {
 	}
 
 	@Override
-	public IIndexBinding[] findBindingsForContentAssist(char[] prefix, boolean filescope,
+	public IIndexBinding[] findTypes(final char[] pattern, final boolean camelCase, IndexFilter filter,
+			IProgressMonitor monitor) throws CoreException {
+		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
+			return fFragments[0].findTypes(pattern, camelCase, filter, monitor);
+		} else {
+			List<IIndexBinding[]> result = new ArrayList<>();
+			ILinkage[] linkages = Linkage.getIndexerLinkages();
+			for (ILinkage linkage : linkages) {
+				if (filter.acceptLinkage(linkage)) {
+					final IndexFilter retargetedFilter= retargetFilter(linkage, filter);
+					IIndexFragmentBinding[][] fragmentBindings= findFragmentBindings(new FragmentQuery<IBinding[]>() {
+						@Override
+						public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+							return fragment.findTypes(pattern, camelCase, retargetedFilter, pm);
+						}
+					}, monitor);
+					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
+					result.add(factory.getCompositeBindings(fragmentBindings));
+				}
+			}
+			return flatten(result);
+		}
+	}
+
+	@Override
+	public IIndexBinding[] findBindingsForContentAssist(final char[] prefix, final boolean filescope,
 			IndexFilter filter, IProgressMonitor monitor) throws CoreException {
 		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
 			return fFragments[0].findBindingsForContentAssist(prefix, filescope, filter, monitor);
@@ -615,18 +782,13 @@ public class CIndex implements IIndex {
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findBindingsForContentAssist(prefix,
-									filescope, retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+					final IndexFilter retargetedFilter= retargetFilter(linkage, filter);
+					IIndexFragmentBinding[][] fragmentBindings= findFragmentBindings(new FragmentQuery<IBinding[]>() {
+						@Override
+						public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+							return fragment.findBindingsForContentAssist(prefix, filescope, retargetedFilter, pm);
 						}
-					}
+					}, monitor);
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -636,7 +798,8 @@ public class CIndex implements IIndex {
 	}
 
 	@Override
-	public IIndexBinding[] findBindings(char[] name, boolean filescope, IndexFilter filter, IProgressMonitor monitor)
+	public IIndexBinding[] findBindings(final char[] name, final boolean filescope, IndexFilter filter,
+			IProgressMonitor monitor)
 			throws CoreException {
 		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
 			return fFragments[0].findBindings(name, filescope, filter, monitor);
@@ -645,18 +808,13 @@ public class CIndex implements IIndex {
 			ILinkage[] linkages = Linkage.getIndexerLinkages();
 			for (ILinkage linkage : linkages) {
 				if (filter.acceptLinkage(linkage)) {
-					IIndexFragmentBinding[][] fragmentBindings = new IIndexFragmentBinding[fFragments.length][];
-					for (int i = 0; i < fFragments.length; i++) {
-						try {
-							IBinding[] part = fFragments[i].findBindings(name, filescope,
-									retargetFilter(linkage, filter), monitor);
-							fragmentBindings[i] = new IIndexFragmentBinding[part.length];
-							System.arraycopy(part, 0, fragmentBindings[i], 0, part.length);
-						} catch (CoreException e) {
-							CCorePlugin.log(e);
-							fragmentBindings[i] = IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+					final IndexFilter retargetedFilter= retargetFilter(linkage, filter);
+					IIndexFragmentBinding[][] fragmentBindings= findFragmentBindings(new FragmentQuery<IBinding[]>() {
+						@Override
+						public IBinding[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+							return fragment.findBindings(name, filescope, retargetedFilter, pm);
 						}
-					}
+					}, monitor);
 					ICompositesFactory factory = getCompositesFactory(linkage.getLinkageID());
 					result.add(factory.getCompositeBindings(fragmentBindings));
 				}
@@ -676,8 +834,8 @@ public class CIndex implements IIndex {
 		return findMacros(name, true, false, filter, monitor);
 	}
 
-	private IIndexMacro[] findMacros(char[] name, boolean isPrefix, boolean caseSensitive,
-			IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+	private IIndexMacro[] findMacros(final char[] name, final boolean isPrefix, final boolean caseSensitive,
+			final IndexFilter filter, IProgressMonitor monitor) throws CoreException {
 		// Macros can be represented multiple times when a header is parsed in c- and c++ context,
 		// so there is no special case for indexes with single fragments.
 		if (monitor == null) {
@@ -686,11 +844,23 @@ public class CIndex implements IIndex {
 		List<IIndexMacro> result = new ArrayList<>();
 		HashSet<IIndexFileLocation> handledIFLs= new HashSet<>();
 		monitor.beginTask(Messages.CIndex_FindBindingsTask_label, fFragments.length);
-		for (IIndexFragment fragment : fFragments) {
+		IIndexMacro[][] fragmentMacros= new IIndexMacro[fFragments.length][];
+		queryFragments(new FragmentQuery<IIndexMacro[]>() {
+			@Override
+			public IIndexMacro[] run(IIndexFragment fragment, IProgressMonitor pm) throws CoreException {
+				try {
+					return fragment.findMacros(name, isPrefix, caseSensitive, filter, new SubProgressMonitor(pm, 1));
+				} catch (CoreException e) {
+					CCorePlugin.log(e);
+					return null;
+				}
+			}
+		}, fragmentMacros, monitor);
+		for (IIndexMacro[] macros : fragmentMacros) {
+			if (macros == null)
+				continue;
 			HashSet<IIndexFile> allowedFiles= new HashSet<>();
 			try {
-				IIndexMacro[] macros= fragment.findMacros(name, isPrefix, caseSensitive, filter,
-						new SubProgressMonitor(monitor, 1));
 				for (IIndexMacro indexMacro : macros) {
 					IIndexFile file= indexMacro.getFile();
 					if (!allowedFiles.contains(file)) {
@@ -738,6 +908,19 @@ public class CIndex implements IIndex {
 		}
 	}
 
+	@Override
+	public TemplateInstanceCache getTemplateInstanceCache() {
+		return fTemplateInstanceCache;
+	}
+
+	/**
+	 * Sets the cache for the instances of templates shared by the translation units parsed with
+	 * this index. The cache must not be set when the translation units are parsed concurrently.
+	 */
+	public void setTemplateInstanceCache(TemplateInstanceCache cache) {
+		fTemplateInstanceCache= cache;
+	}
+
 	@Override
 	public IIndexFileSet createFileSet() {
 		return new IndexFileSet();
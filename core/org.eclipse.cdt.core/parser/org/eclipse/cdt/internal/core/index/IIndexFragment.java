@@ -267,6 +267,16 @@ public interface IIndexFragment {
 	 */
 	IIndexFragmentBinding[] findBindingsForContentAssist(char[] prefix, boolean filescope, IndexFilter filter, IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Returns the types whose names match the given pattern, accepted by the given filter. Types
+	 * are classes, structs, unions, enumerations, typedefs and namespaces, regardless of their
+	 * nesting.
+	 * @param pattern the prefix of the names, or with <code>camelCase</code> a pattern that may
+	 *     match the segments of a camel-case name. An empty pattern matches all types.
+	 * @param monitor to report progress, may be <code>null</code>
+	 */
+	IIndexFragmentBinding[] findTypes(char[] pattern, boolean camelCase, IndexFilter filter, IProgressMonitor monitor) throws CoreException;
+
 	/**
 	 * Returns all macros with the given prefix or name, accepted by the given filter
 	 * @param monitor to report progress, may be <code>null</code>
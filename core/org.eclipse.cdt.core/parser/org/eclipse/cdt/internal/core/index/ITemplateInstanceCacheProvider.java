@@ -0,0 +1,20 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index;
+
+/**
+ * An index that may provide a cache for the instances of templates shared by the translation
+ * units parsed with it.
+ */
+public interface ITemplateInstanceCacheProvider {
+	/**
+	 * Returns the cache for the instances of templates shared by the translation units parsed with
+	 * this index, or <code>null</code> if there is no such cache.
+	 */
+	TemplateInstanceCache getTemplateInstanceCache();
+}
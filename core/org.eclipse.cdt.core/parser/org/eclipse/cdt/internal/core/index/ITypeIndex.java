@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index;
+
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * An index that maintains a separate index of the types it contains.
+ */
+public interface ITypeIndex extends IIndex {
+	/**
+	 * Returns the types whose names match the given pattern, accepted by the given filter.
+	 * @see IIndexFragment#findTypes(char[], boolean, IndexFilter, IProgressMonitor)
+	 */
+	IIndexBinding[] findTypes(char[] pattern, boolean camelCase, IndexFilter filter,
+			IProgressMonitor monitor) throws CoreException;
+}
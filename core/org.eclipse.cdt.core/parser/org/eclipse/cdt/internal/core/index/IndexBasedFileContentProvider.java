@@ -65,6 +65,37 @@ public final class IndexBasedFileContentProvider extends InternalFileContentProv
 
 	private boolean fIndexAllHeaderVersions;
 
+	/**
+	 * Content collected from the index for a header that is included before any other file
+	 * of a translation unit. Such content depends only on the version of the header selected from
+	 * the index, it is reused by the translation units that share the header, similar to a
+	 * precompiled header.
+	 */
+	public static final class IncludeSnapshot {
+		final List<IIndexMacro> fMacros;
+		final List<ICPPUsingDirective> fDirectives;
+		final List<IIndexFile> fFiles;
+		final List<FileVersion> fPreLoaded;
+		final Map<IIndexFileLocation, IFileNomination> fPragmaOnce;
+
+		IncludeSnapshot(List<IIndexMacro> macros, List<ICPPUsingDirective> directives,
+				List<IIndexFile> files, List<FileVersion> preLoaded,
+				Map<IIndexFileLocation, IFileNomination> pragmaOnce) {
+			fMacros= Collections.unmodifiableList(macros);
+			fDirectives= Collections.unmodifiableList(directives);
+			fFiles= Collections.unmodifiableList(files);
+			fPreLoaded= Collections.unmodifiableList(preLoaded);
+			fPragmaOnce= pragmaOnce;
+		}
+
+		/**
+		 * Returns whether the content of the given file is part of the snapshot.
+		 */
+		public boolean contains(IIndexFile file) {
+			return fFiles.contains(file);
+		}
+	}
+
 	public IndexBasedFileContentProvider(IIndex index,
 			ASTFilePathResolver pathResolver, int linkage, IncludeFileContentProvider fallbackFactory) {
 		this(index, pathResolver, linkage, fallbackFactory, null);
@@ -130,6 +161,17 @@ public final class IndexBasedFileContentProvider extends InternalFileContentProv
 		try {
 			IIndexFile file = selectIndexFile(macroDictionary, ifl);
 			if (file != null) {
+				// The collected content depends on the files included with pragma once semantics,
+				// without such files it can be shared with other translation units.
+				final boolean shareable= fRelatedIndexerTask != null && fPragmaOnce.isEmpty();
+				if (shareable) {
+					IncludeSnapshot snapshot= fRelatedIndexerTask.getIncludeSnapshot(file);
+					if (snapshot != null) {
+						fPragmaOnce.putAll(snapshot.fPragmaOnce);
+						return new InternalFileContent(path, snapshot.fMacros, snapshot.fDirectives,
+								snapshot.fFiles, snapshot.fPreLoaded);
+					}
+				}
 				try {
 					List<IIndexFile> files= new ArrayList<IIndexFile>();
 					List<IIndexMacro> macros= new ArrayList<IIndexMacro>();
@@ -139,6 +181,13 @@ public final class IndexBasedFileContentProvider extends InternalFileContentProv
 					collectFileContent(file, null, newPragmaOnce, preLoaded, files, macros, directives, null);
 					// Report pragma once inclusions, only if no exception was thrown.
 					fPragmaOnce.putAll(newPragmaOnce);
+					if (shareable) {
+						IncludeSnapshot snapshot= new IncludeSnapshot(macros, directives, files,
+								toList(preLoaded), newPragmaOnce);
+						fRelatedIndexerTask.putIncludeSnapshot(file, snapshot);
+						return new InternalFileContent(path, snapshot.fMacros, snapshot.fDirectives,
+								snapshot.fFiles, snapshot.fPreLoaded);
+					}
 					return new InternalFileContent(path, macros, directives, files, toList(preLoaded));
 				} catch (DependsOnOutdatedFileException e) {
 				}
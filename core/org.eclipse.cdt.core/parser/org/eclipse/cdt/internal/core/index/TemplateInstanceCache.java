@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.ast.DOMException;
+import org.eclipse.cdt.core.dom.ast.IArrayType;
+import org.eclipse.cdt.core.dom.ast.IBasicType;
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.dom.ast.IType;
+import org.eclipse.cdt.core.dom.ast.IValue;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPFunctionType;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPPointerToMemberType;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateArgument;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateDefinition;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateInstance;
+import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.internal.core.dom.parser.ITypeContainer;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Cache for the instances of templates from the index, shared by the translation units parsed
+ * with the same index. Instances of a template from the index with arguments from the index
+ * do not depend on the translation unit they were created for, such that they can be reused by
+ * the translation units parsed after it. The cache is keyed by the template and the signature of
+ * the arguments, the least recently used instances are evicted when the cache is full.
+ * <p>
+ * The instances are not thread-safe, the cache must be used by one thread at a time. It needs to
+ * be cleared when bindings are removed from the index, and when the read lock on the index is
+ * released.
+ */
+public final class TemplateInstanceCache {
+	/** Maximum number of cached instances. */
+	public static final int DEFAULT_MAX_SIZE=
+			Integer.getInteger("org.eclipse.cdt.core.index.templateInstanceCacheSize", 10000); //$NON-NLS-1$
+
+	private static final class Key {
+		final IIndexBinding fTemplate;
+		final String fArguments;
+
+		Key(IIndexBinding template, String arguments) {
+			fTemplate= template;
+			fArguments= arguments;
+		}
+
+		@Override
+		public int hashCode() {
+			return fTemplate.hashCode() * 31 + fArguments.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other= (Key) obj;
+			return fArguments.equals(other.fArguments) && fTemplate.equals(other.fTemplate);
+		}
+	}
+
+	private final LinkedHashMap<Key, ICPPTemplateInstance> fInstances;
+	private int fHitCount;
+	private int fMissCount;
+
+	public TemplateInstanceCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize the maximum number of cached instances.
+	 */
+	public TemplateInstanceCache(final int maxSize) {
+		fInstances= new LinkedHashMap<Key, ICPPTemplateInstance>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, ICPPTemplateInstance> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached instance of the template for the given arguments, or <code>null</code>.
+	 */
+	public ICPPTemplateInstance getInstance(ICPPTemplateDefinition template, ICPPTemplateArgument[] args) {
+		Key key= createKey(template, args);
+		if (key == null)
+			return null;
+		ICPPTemplateInstance instance= fInstances.get(key);
+		if (instance != null) {
+			fHitCount++;
+		} else {
+			fMissCount++;
+		}
+		return instance;
+	}
+
+	/**
+	 * Caches an instance of the template, provided that both the template and the arguments
+	 * are from the index.
+	 */
+	public void addInstance(ICPPTemplateDefinition template, ICPPTemplateArgument[] args,
+			ICPPTemplateInstance instance) {
+		Key key= createKey(template, args);
+		if (key != null) {
+			fInstances.put(key, instance);
+		}
+	}
+
+	public void clear() {
+		fInstances.clear();
+	}
+
+	public int getHitCount() {
+		return fHitCount;
+	}
+
+	public int getMissCount() {
+		return fMissCount;
+	}
+
+	private static Key createKey(ICPPTemplateDefinition template, ICPPTemplateArgument[] args) {
+		if (!(template instanceof IIndexBinding) || !isFromIndex(args, 0))
+			return null;
+		try {
+			return new Key((IIndexBinding) template, IndexCPPSignatureUtil.getTemplateArgString(args, true));
+		} catch (CoreException e) {
+			CCorePlugin.log(e);
+		} catch (DOMException e) {
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the arguments consist of types from the index, basic types and constant values,
+	 * only. Such arguments do not refer to an AST. Instances created for an AST are not accepted
+	 * even if their template is from the index, because they may refer to that AST.
+	 */
+	private static boolean isFromIndex(ICPPTemplateArgument[] args, int depth) {
+		for (ICPPTemplateArgument arg : args) {
+			if (arg.isNonTypeValue()) {
+				IValue value= arg.getNonTypeValue();
+				if (value == null || value.numericalValue() == null)
+					return false;
+				if (!isFromIndex(arg.getTypeOfNonTypeValue(), depth))
+					return false;
+			} else if (!isFromIndex(arg.getTypeValue(), depth)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isFromIndex(IType type, int depth) {
+		if (depth++ > 20)
+			return false;
+		while (true) {
+			if (type instanceof IIndexType || type instanceof IBasicType)
+				return true;
+			if (type instanceof IBinding)
+				return false;
+			if (type instanceof ICPPFunctionType) {
+				ICPPFunctionType functionType= (ICPPFunctionType) type;
+				for (IType parameterType : functionType.getParameterTypes()) {
+					if (!isFromIndex(parameterType, depth))
+						return false;
+				}
+				type= functionType.getReturnType();
+			} else if (type instanceof IArrayType) {
+				IValue size= ((IArrayType) type).getSize();
+				if (size != null && size.numericalValue() == null)
+					return false;
+				type= ((IArrayType) type).getType();
+			} else if (type instanceof ICPPPointerToMemberType) {
+				if (!isFromIndex(((ICPPPointerToMemberType) type).getMemberOfClass(), depth))
+					return false;
+				type= ((ICPPPointerToMemberType) type).getType();
+			} else if (type instanceof ITypeContainer) {
+				type= ((ITypeContainer) type).getType();
+			} else {
+				return false;
+			}
+		}
+	}
+}
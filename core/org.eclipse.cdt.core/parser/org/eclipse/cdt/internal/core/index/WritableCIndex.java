@@ -90,11 +90,21 @@ public class WritableCIndex extends CIndex implements IWritableIndex {
 	@Override
 	public void clear() throws CoreException {
 		getWritableFragment().clear();
+		clearTemplateInstanceCache();
 	}
 
 	@Override
 	public void clearFile(IIndexFragmentFile file) throws CoreException {
 		getWritableFragment().clearFile(file);
+		// Bindings of the file may have been deleted.
+		clearTemplateInstanceCache();
+	}
+
+	private void clearTemplateInstanceCache() {
+		TemplateInstanceCache cache= getTemplateInstanceCache();
+		if (cache != null) {
+			cache.clear();
+		}
 	}
 
 	@Override
@@ -0,0 +1,580 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.indexer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.dom.ast.gnu.c.GCCLanguage;
+import org.eclipse.cdt.core.dom.ast.gnu.cpp.GPPLanguage;
+import org.eclipse.cdt.core.model.ILanguage;
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+
+/**
+ * A JSON compilation database as written by CMake or Bear (<code>compile_commands.json</code>).
+ * Provides the scanner information and the language for each of the translation units
+ * listed in the database, derived from the include paths, macro definitions and forced
+ * includes of its command line.
+ * <p>
+ * Optionally the macros and include paths built into the compilers are added. They are queried
+ * once per compiler, language and language standard by running the compiler with the options of
+ * GCC (<code>-E -dM -v</code>). Compilers that do not understand these options contribute
+ * nothing.
+ * <p>
+ * Translation units are identified by their canonical path, the instance is immutable and may
+ * be used by parallel indexer threads.
+ */
+public class CompilationDatabase implements IStandaloneScannerInfoProvider, ILanguageMapper {
+	private static final IScannerInfo EMPTY_SCANNER_INFO= new ExtendedScannerInfo();
+	private static final String[] C_EXTENSIONS= { ".c", ".i" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private final Map<String, IScannerInfo> fScannerInfos= new LinkedHashMap<>();
+	private final Map<String, ILanguage> fLanguages= new HashMap<>();
+	private final boolean fQueryBuiltins;
+	/** Results of the compiler queries by command line of the query, <code>null</code> for failures. */
+	private final Map<List<String>, CompilerBuiltins> fBuiltins= new HashMap<>();
+
+	private CompilationDatabase(boolean queryBuiltins) {
+		fQueryBuiltins= queryBuiltins;
+	}
+
+	/**
+	 * Reads the compilation database from the given file.
+	 * @param queryBuiltins whether to add the macros and include paths built into the compilers.
+	 * @throws IOException if the file cannot be read or is not a valid compilation database.
+	 * @throws InterruptedException if interrupted while querying a compiler.
+	 */
+	public static CompilationDatabase read(File file, boolean queryBuiltins)
+			throws IOException, InterruptedException {
+		Object json;
+		Reader reader= new InputStreamReader(new FileInputStream(file), "UTF-8"); //$NON-NLS-1$
+		try {
+			json= new JSONReader(reader).readValue();
+		} finally {
+			reader.close();
+		}
+		return create(json, queryBuiltins);
+	}
+
+	private static CompilationDatabase create(Object json, boolean queryBuiltins)
+			throws IOException, InterruptedException {
+		if (!(json instanceof List))
+			throw new IOException("Compilation database must be an array"); //$NON-NLS-1$
+		CompilationDatabase result= new CompilationDatabase(queryBuiltins);
+		for (Object entry : (List<?>) json) {
+			if (!(entry instanceof Map))
+				throw new IOException("Compilation database entry must be an object"); //$NON-NLS-1$
+			result.addEntry((Map<?, ?>) entry);
+		}
+		return result;
+	}
+
+	private void addEntry(Map<?, ?> entry) throws IOException, InterruptedException {
+		Object directory= entry.get("directory"); //$NON-NLS-1$
+		Object file= entry.get("file"); //$NON-NLS-1$
+		if (!(directory instanceof String) || !(file instanceof String))
+			throw new IOException("Compilation database entry without directory or file"); //$NON-NLS-1$
+
+		List<String> args;
+		Object arguments= entry.get("arguments"); //$NON-NLS-1$
+		Object command= entry.get("command"); //$NON-NLS-1$
+		if (arguments instanceof List) {
+			args= new ArrayList<>();
+			for (Object arg : (List<?>) arguments) {
+				args.add(String.valueOf(arg));
+			}
+		} else if (command instanceof String) {
+			args= splitCommand((String) command);
+		} else {
+			throw new IOException("Compilation database entry without command: " + file); //$NON-NLS-1$
+		}
+
+		String dir= (String) directory;
+		String path= canonicalPath(resolve(dir, (String) file));
+		// The first command for a file wins, like for compilers using the database.
+		if (!fScannerInfos.containsKey(path)) {
+			ILanguage language= getLanguage(path, args);
+			CompilerBuiltins builtins= fQueryBuiltins ? getBuiltins(dir, args, language) : null;
+			fScannerInfos.put(path, createScannerInfo(dir, args, builtins));
+			fLanguages.put(path, language);
+		}
+	}
+
+	/**
+	 * Returns the macros and include paths built into the compiler of a command line, or
+	 * <code>null</code> if the compiler cannot be queried. The compiler is run once for each
+	 * combination of compiler, language and language standard.
+	 */
+	private CompilerBuiltins getBuiltins(String directory, List<String> args, ILanguage language)
+			throws InterruptedException {
+		if (args.isEmpty())
+			return null;
+		String compiler= args.get(0);
+		if (compiler.indexOf('/') >= 0 || compiler.indexOf(File.separatorChar) >= 0) {
+			compiler= resolve(directory, compiler);
+		}
+		List<String> command= new ArrayList<>();
+		command.add(compiler);
+		command.add("-x"); //$NON-NLS-1$
+		command.add(language == GCCLanguage.getDefault() ? "c" : "c++"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (String arg : args) {
+			if (arg.startsWith("-std=")) //$NON-NLS-1$
+				command.add(arg);
+		}
+		command.add("-E"); //$NON-NLS-1$
+		command.add("-dM"); //$NON-NLS-1$
+		command.add("-v"); //$NON-NLS-1$
+		command.add("-"); //$NON-NLS-1$
+		if (fBuiltins.containsKey(command))
+			return fBuiltins.get(command);
+		CompilerBuiltins result= CompilerBuiltins.query(command, new File(directory));
+		fBuiltins.put(command, result);
+		return result;
+	}
+
+	/**
+	 * Derives the scanner information from the options of a compiler command line.
+	 * @param builtins the macros and include paths built into the compiler, may be <code>null</code>.
+	 */
+	static IScannerInfo createScannerInfo(String directory, List<String> args, CompilerBuiltins builtins) {
+		Map<String, String> definedSymbols= new HashMap<>();
+		List<String> includePaths= new ArrayList<>();
+		List<String> localIncludePaths= new ArrayList<>();
+		if (builtins != null) {
+			definedSymbols.putAll(builtins.fDefinedSymbols);
+		}
+		List<String> macroFiles= new ArrayList<>();
+		List<String> includeFiles= new ArrayList<>();
+
+		// The first argument is the compiler.
+		for (int i= 1; i < args.size(); i++) {
+			String arg= args.get(i);
+			String value;
+			if ((value= getOptionValue(args, i, "-I")) != null) { //$NON-NLS-1$
+				includePaths.add(resolve(directory, value));
+			} else if ((value= getOptionValue(args, i, "-isystem")) != null) { //$NON-NLS-1$
+				includePaths.add(resolve(directory, value));
+			} else if ((value= getOptionValue(args, i, "-iquote")) != null) { //$NON-NLS-1$
+				localIncludePaths.add(resolve(directory, value));
+			} else if ((value= getOptionValue(args, i, "-D")) != null) { //$NON-NLS-1$
+				int eq= value.indexOf('=');
+				if (eq < 0) {
+					definedSymbols.put(value, "1"); //$NON-NLS-1$
+				} else {
+					definedSymbols.put(value.substring(0, eq), value.substring(eq + 1));
+				}
+			} else if ((value= getOptionValue(args, i, "-U")) != null) { //$NON-NLS-1$
+				definedSymbols.remove(value);
+			} else if ((value= getOptionValue(args, i, "-include")) != null) { //$NON-NLS-1$
+				includeFiles.add(resolve(directory, value));
+			} else if ((value= getOptionValue(args, i, "-imacros")) != null) { //$NON-NLS-1$
+				macroFiles.add(resolve(directory, value));
+			} else {
+				continue;
+			}
+			if (arg.equals("-I") || arg.equals("-D") || arg.equals("-U") || arg.equals("-isystem") || //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+					arg.equals("-iquote") || arg.equals("-include") || arg.equals("-imacros")) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				// The value was the next argument.
+				i++;
+			}
+		}
+		if (builtins != null) {
+			// The compiler searches its own directories after the ones of the command line.
+			includePaths.addAll(builtins.fIncludePaths);
+			localIncludePaths.addAll(builtins.fLocalIncludePaths);
+		}
+		return new ExtendedScannerInfo(definedSymbols, toArray(includePaths), toArray(macroFiles),
+				toArray(includeFiles), toArray(localIncludePaths));
+	}
+
+	/**
+	 * Returns the value of the option at the given index, supporting both the joined
+	 * (<code>-Idir</code>) and the separate (<code>-I dir</code>) form. Returns <code>null</code>
+	 * if the argument is not the option.
+	 */
+	private static String getOptionValue(List<String> args, int i, String option) {
+		String arg= args.get(i);
+		if (!arg.startsWith(option))
+			return null;
+		if (arg.length() > option.length()) {
+			// Only the single letter options take joined values.
+			return option.length() == 2 ? arg.substring(option.length()) : null;
+		}
+		return i + 1 < args.size() ? args.get(i + 1) : null;
+	}
+
+	private static ILanguage getLanguage(String path, List<String> args) {
+		for (int i= 1; i < args.size() - 1; i++) {
+			if (args.get(i).equals("-x")) { //$NON-NLS-1$
+				String lang= args.get(i + 1);
+				return lang.equals("c") || lang.equals("c-header") ? //$NON-NLS-1$ //$NON-NLS-2$
+						GCCLanguage.getDefault() : GPPLanguage.getDefault();
+			}
+		}
+		for (String ext : C_EXTENSIONS) {
+			if (path.endsWith(ext))
+				return GCCLanguage.getDefault();
+		}
+		return GPPLanguage.getDefault();
+	}
+
+	/**
+	 * Splits a command line into its arguments, honoring quotes and backslash escapes the way
+	 * a POSIX shell does.
+	 */
+	static List<String> splitCommand(String command) {
+		List<String> result= new ArrayList<>();
+		StringBuilder arg= new StringBuilder();
+		boolean inArg= false;
+		char quote= 0;
+		for (int i= 0; i < command.length(); i++) {
+			char c= command.charAt(i);
+			if (quote == '\'') {
+				if (c == '\'') {
+					quote= 0;
+				} else {
+					arg.append(c);
+				}
+			} else if (c == '\\' && i + 1 < command.length()) {
+				char next= command.charAt(i + 1);
+				if (quote == 0 || next == '"' || next == '\\') {
+					arg.append(next);
+					i++;
+				} else {
+					arg.append(c);
+				}
+				inArg= true;
+			} else if (quote == '"') {
+				if (c == '"') {
+					quote= 0;
+				} else {
+					arg.append(c);
+				}
+			} else if (c == '"' || c == '\'') {
+				quote= c;
+				inArg= true;
+			} else if (Character.isWhitespace(c)) {
+				if (inArg) {
+					result.add(arg.toString());
+					arg.setLength(0);
+					inArg= false;
+				}
+			} else {
+				arg.append(c);
+				inArg= true;
+			}
+		}
+		if (inArg) {
+			result.add(arg.toString());
+		}
+		return result;
+	}
+
+	private static String resolve(String directory, String path) {
+		File file= new File(path);
+		if (!file.isAbsolute()) {
+			file= new File(directory, path);
+		}
+		return file.getPath();
+	}
+
+	private static String canonicalPath(String path) {
+		try {
+			return new File(path).getCanonicalPath();
+		} catch (IOException e) {
+			return new File(path).getAbsolutePath();
+		}
+	}
+
+	private static String[] toArray(List<String> list) {
+		return list.toArray(new String[list.size()]);
+	}
+
+	/**
+	 * Returns the canonical paths of the translation units in the database, in the order
+	 * of their first occurrence.
+	 */
+	public List<String> getTranslationUnits() {
+		return Collections.unmodifiableList(new ArrayList<>(fScannerInfos.keySet()));
+	}
+
+	@Override
+	public IScannerInfo getScannerInformation(String path) {
+		IScannerInfo result= fScannerInfos.get(path);
+		if (result == null) {
+			result= fScannerInfos.get(canonicalPath(path));
+		}
+		return result != null ? result : EMPTY_SCANNER_INFO;
+	}
+
+	@Override
+	public IScannerInfo getDefaultScannerInformation(int linkageID) {
+		return EMPTY_SCANNER_INFO;
+	}
+
+	@Override
+	public ILanguage getLanguage(String file) {
+		ILanguage result= fLanguages.get(file);
+		if (result == null) {
+			result= getLanguage(file, Collections.<String>emptyList());
+		}
+		return result;
+	}
+
+	/**
+	 * The macros and include paths built into a compiler, as reported by GCC compatible compilers
+	 * for <code>-E -dM -v</code>.
+	 */
+	static class CompilerBuiltins {
+		final Map<String, String> fDefinedSymbols= new LinkedHashMap<>();
+		final List<String> fIncludePaths= new ArrayList<>();
+		final List<String> fLocalIncludePaths= new ArrayList<>();
+
+		/**
+		 * Runs the given command and parses its output, returns <code>null</code> if the command
+		 * cannot be run or fails.
+		 */
+		static CompilerBuiltins query(List<String> command, File directory) throws InterruptedException {
+			File errors= null;
+			Process process= null;
+			try {
+				// The search paths are reported on the error stream.
+				errors= File.createTempFile("builtins", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+				ProcessBuilder builder= new ProcessBuilder(command);
+				if (directory.isDirectory()) {
+					builder.directory(directory);
+				}
+				builder.redirectError(errors);
+				process= builder.start();
+				process.getOutputStream().close();
+
+				CompilerBuiltins result= new CompilerBuiltins();
+				BufferedReader out= new BufferedReader(new InputStreamReader(process.getInputStream()));
+				try {
+					String line;
+					while ((line= out.readLine()) != null) {
+						result.addDefinition(line);
+					}
+				} finally {
+					out.close();
+				}
+				if (process.waitFor() != 0)
+					return null;
+
+				BufferedReader err= new BufferedReader(new InputStreamReader(new FileInputStream(errors)));
+				try {
+					List<String> paths= null;
+					String line;
+					while ((line= err.readLine()) != null) {
+						if (line.startsWith("#include \"...\" search starts here:")) { //$NON-NLS-1$
+							paths= result.fLocalIncludePaths;
+						} else if (line.startsWith("#include <...> search starts here:")) { //$NON-NLS-1$
+							paths= result.fIncludePaths;
+						} else if (line.startsWith("End of search list.")) { //$NON-NLS-1$
+							paths= null;
+						} else if (paths != null && line.startsWith(" ")) { //$NON-NLS-1$
+							String path= line.trim();
+							if (path.endsWith(" (framework directory)")) //$NON-NLS-1$
+								path= path.substring(0, path.lastIndexOf(" (")); //$NON-NLS-1$
+							paths.add(path);
+						}
+					}
+				} finally {
+					err.close();
+				}
+				return result;
+			} catch (IOException e) {
+				return null;
+			} finally {
+				if (process != null) {
+					process.destroy();
+				}
+				if (errors != null) {
+					errors.delete();
+				}
+			}
+		}
+
+		/**
+		 * Adds a macro definition in the form <code>#define NAME(PARAMS) VALUE</code>.
+		 */
+		private void addDefinition(String line) {
+			final String prefix= "#define "; //$NON-NLS-1$
+			if (!line.startsWith(prefix))
+				return;
+			String definition= line.substring(prefix.length());
+			int end= definition.indexOf(' ');
+			int paren= definition.indexOf('(');
+			if (paren >= 0 && (end < 0 || paren < end)) {
+				end= definition.indexOf(')', paren) + 1;
+			}
+			if (end <= 0) {
+				fDefinedSymbols.put(definition, ""); //$NON-NLS-1$
+			} else {
+				fDefinedSymbols.put(definition.substring(0, end),
+						end < definition.length() ? definition.substring(end + 1) : ""); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * A minimal reader for JSON documents, maps objects to {@link Map}, arrays to {@link List},
+	 * numbers to {@link Double} and literals to {@link Boolean} or <code>null</code>.
+	 */
+	private static class JSONReader {
+		private final Reader fReader;
+		private int fNext;
+
+		JSONReader(Reader reader) throws IOException {
+			fReader= reader;
+			fNext= reader.read();
+		}
+
+		Object readValue() throws IOException {
+			skipWhitespace();
+			switch (fNext) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				return readString();
+			case 't':
+				readLiteral("true"); //$NON-NLS-1$
+				return Boolean.TRUE;
+			case 'f':
+				readLiteral("false"); //$NON-NLS-1$
+				return Boolean.FALSE;
+			case 'n':
+				readLiteral("null"); //$NON-NLS-1$
+				return null;
+			default:
+				return readNumber();
+			}
+		}
+
+		private Map<String, Object> readObject() throws IOException {
+			Map<String, Object> result= new LinkedHashMap<>();
+			consume('{');
+			skipWhitespace();
+			if (fNext == '}') {
+				consume('}');
+				return result;
+			}
+			while (true) {
+				skipWhitespace();
+				String key= readString();
+				skipWhitespace();
+				consume(':');
+				result.put(key, readValue());
+				skipWhitespace();
+				if (fNext == '}') {
+					consume('}');
+					return result;
+				}
+				consume(',');
+			}
+		}
+
+		private List<Object> readArray() throws IOException {
+			List<Object> result= new ArrayList<>();
+			consume('[');
+			skipWhitespace();
+			if (fNext == ']') {
+				consume(']');
+				return result;
+			}
+			while (true) {
+				result.add(readValue());
+				skipWhitespace();
+				if (fNext == ']') {
+					consume(']');
+					return result;
+				}
+				consume(',');
+			}
+		}
+
+		private String readString() throws IOException {
+			consume('"');
+			StringBuilder buf= new StringBuilder();
+			while (fNext != '"') {
+				if (fNext < 0)
+					throw new IOException("Unterminated string"); //$NON-NLS-1$
+				char c= (char) fNext;
+				fNext= fReader.read();
+				if (c == '\\') {
+					c= (char) fNext;
+					fNext= fReader.read();
+					switch (c) {
+					case 'b': c= '\b'; break;
+					case 'f': c= '\f'; break;
+					case 'n': c= '\n'; break;
+					case 'r': c= '\r'; break;
+					case 't': c= '\t'; break;
+					case 'u':
+						char[] hex= { (char) fNext, (char) fReader.read(), (char) fReader.read(), (char) fReader.read() };
+						fNext= fReader.read();
+						try {
+							c= (char) Integer.parseInt(new String(hex), 16);
+						} catch (NumberFormatException e) {
+							throw new IOException("Invalid unicode escape"); //$NON-NLS-1$
+						}
+						break;
+					}
+				}
+				buf.append(c);
+			}
+			consume('"');
+			return buf.toString();
+		}
+
+		private Double readNumber() throws IOException {
+			StringBuilder buf= new StringBuilder();
+			while (fNext == '-' || fNext == '+' || fNext == '.' || fNext == 'e' || fNext == 'E' ||
+					(fNext >= '0' && fNext <= '9')) {
+				buf.append((char) fNext);
+				fNext= fReader.read();
+			}
+			try {
+				return Double.valueOf(buf.toString());
+			} catch (NumberFormatException e) {
+				throw new IOException("Unexpected character in JSON document: " + (char) fNext); //$NON-NLS-1$
+			}
+		}
+
+		private void readLiteral(String literal) throws IOException {
+			for (int i= 0; i < literal.length(); i++) {
+				consume(literal.charAt(i));
+			}
+		}
+
+		private void consume(char c) throws IOException {
+			if (fNext != c)
+				throw new IOException("Expected '" + c + "' in JSON document"); //$NON-NLS-1$ //$NON-NLS-2$
+			fNext= fReader.read();
+		}
+
+		private void skipWhitespace() throws IOException {
+			while (fNext == ' ' || fNext == '\t' || fNext == '\n' || fNext == '\r') {
+				fNext= fReader.read();
+			}
+		}
+	}
+}
@@ -150,6 +150,11 @@ public abstract class StandaloneIndexer {
 	
 	protected int fUpdateOptions = UPDATE_ALL;
 	
+	/**
+	 * The number of threads used for parsing source files.
+	 */
+	protected int fParallelism = 1;
+	
 	private IndexerProgress fProgress = null;
 	private volatile StandaloneIndexerTask fDelegate;
 	
@@ -345,6 +350,21 @@ public abstract class StandaloneIndexer {
 		fTraceStatistics = traceStatistics;
 	}
 	
+	/**
+	 * Returns the number of threads used for parsing source files.
+	 */
+	public int getParallelism() {
+		return fParallelism;
+	}
+	
+	/**
+	 * Tells indexer how many threads to use for parsing source files. The results
+	 * are still written to the index by a single thread.
+	 */
+	public void setParallelism(int threads) {
+		fParallelism = Math.max(1, threads);
+	}
+	
 	private IndexerProgress createProgress() {
 		IndexerProgress progress= new IndexerProgress();
 		progress.fTimeEstimate= 1000;
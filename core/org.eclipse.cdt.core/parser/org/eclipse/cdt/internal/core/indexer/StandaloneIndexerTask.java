@@ -53,6 +53,7 @@ public abstract class StandaloneIndexerTask extends AbstractIndexerTask {
 		setShowActivity(fIndexer.getShowActivity());
 		setShowProblems(fIndexer.getShowProblems());
 		setSkipReferences(fIndexer.getSkipReferences());
+		setParallelism(fIndexer.getParallelism());
 		
 		if (getIndexAllFiles()) {
 			setIndexFilesWithoutBuildConfiguration(true);
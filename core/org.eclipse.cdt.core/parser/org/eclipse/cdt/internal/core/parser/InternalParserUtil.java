@@ -22,6 +22,7 @@ import org.eclipse.cdt.core.parser.FileContent;
 import org.eclipse.cdt.core.parser.ParserFactory;
 import org.eclipse.cdt.internal.core.parser.scanner.AbstractCharArray;
 import org.eclipse.cdt.internal.core.parser.scanner.FileCharArray;
+import org.eclipse.cdt.internal.core.parser.scanner.FileContentCache;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContent;
 import org.eclipse.cdt.internal.core.resources.PathCanonicalizationStrategy;
 import org.eclipse.cdt.utils.UNCPathConverter;
@@ -212,6 +213,12 @@ public class InternalParserUtil extends ParserFactory {
 		if (includeFile != null && includeFile.isFile()) {
 			long timestamp = includeFile.lastModified();
 			long fileSize = includeFile.length();
+			// System headers are included by many translation units, reuse their contents.
+			FileContentCache cache = FileContentCache.getSharedInstance();
+			AbstractCharArray cached = cache.get(path, timestamp, fileSize, encoding);
+			if (cached != null)
+				return new InternalFileContent(path, cached, timestamp, fileSize, fileReadTime);
+
 			FileInputStream in;
 			try {
 				in = new FileInputStream(includeFile);
@@ -220,7 +227,11 @@ public class InternalParserUtil extends ParserFactory {
 				return null;
 			}
 			try {
-				return createFileContent(path, localPath, encoding, in, timestamp, fileSize, fileReadTime);
+				InternalFileContent fc = createFileContent(path, localPath, encoding, in, timestamp, fileSize, fileReadTime);
+				if (fc != null) {
+					cache.put(path, timestamp, fileSize, encoding, fc.getSource());
+				}
+				return fc;
 			} finally {
 				try {
 					in.close();
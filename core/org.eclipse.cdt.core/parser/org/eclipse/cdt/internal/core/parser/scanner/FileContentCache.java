@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.parser.scanner;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Cache for the contents of files outside of the workspace, typically system headers that are
+ * included by many translation units. The cache is shared by all parsers of a session, such that
+ * such a header is read and decoded only once.
+ * <p>
+ * An entry is valid as long as the modification time, the size and the encoding of the file do not
+ * change. The cached contents carry their hash, which therefore is computed only once, too. The
+ * least recently used entries are evicted when the total number of cached characters exceeds
+ * the limit.
+ * <p>
+ * The contents are referenced softly, such that they are released under memory pressure. Only
+ * {@link CharArray}s are cached, the chunks of a {@link LazyCharArray} are read into a single
+ * array first. A lazy array re-reads released chunks and therefore cannot be shared between
+ * threads.
+ */
+public final class FileContentCache {
+	/** Maximum number of characters in the shared cache, 32M characters use 64MB of memory. */
+	private static final long DEFAULT_MAX_SIZE=
+			Long.getLong("org.eclipse.cdt.core.parser.fileContentCacheSize", 32 * 1024 * 1024); //$NON-NLS-1$
+
+	private static final FileContentCache sSharedInstance= new FileContentCache(DEFAULT_MAX_SIZE);
+
+	private static final class Entry {
+		final long fTimestamp;
+		final long fFileSize;
+		final String fEncoding;
+		final int fLength;
+		final SoftReference<AbstractCharArray> fContent;
+
+		Entry(long timestamp, long fileSize, String encoding, AbstractCharArray content) {
+			fTimestamp= timestamp;
+			fFileSize= fileSize;
+			fEncoding= encoding;
+			fLength= content.getLength();
+			fContent= new SoftReference<>(content);
+		}
+	}
+
+	private final LinkedHashMap<String, Entry> fEntries= new LinkedHashMap<>(16, 0.75f, true);
+	private final long fMaxSize;
+	private long fSize;
+	private long fHitCount;
+	private long fMissCount;
+
+	public static FileContentCache getSharedInstance() {
+		return sSharedInstance;
+	}
+
+	/**
+	 * @param maxSize the maximum total number of cached characters.
+	 */
+	public FileContentCache(long maxSize) {
+		fMaxSize= maxSize;
+	}
+
+	/**
+	 * Returns the cached contents of a file, or <code>null</code> if the file is not cached, has
+	 * changed since it was cached or its contents have been released.
+	 */
+	public synchronized AbstractCharArray get(String path, long timestamp, long fileSize, String encoding) {
+		final Entry entry= fEntries.get(path);
+		if (entry != null) {
+			if (entry.fTimestamp == timestamp && entry.fFileSize == fileSize && Objects.equals(entry.fEncoding, encoding)) {
+				final AbstractCharArray content= entry.fContent.get();
+				if (content != null) {
+					fHitCount++;
+					return content;
+				}
+			}
+			remove(path);
+		}
+		fMissCount++;
+		return null;
+	}
+
+	/**
+	 * Adds the contents of a file to the cache. The contents are shared by the parsers that read
+	 * the file afterwards, they must not be modified.
+	 * @return the cached contents, or the given contents if they are not cached.
+	 */
+	public AbstractCharArray put(String path, long timestamp, long fileSize, String encoding,
+			AbstractCharArray content) {
+		if (!(content instanceof CharArray || content instanceof LazyCharArray))
+			return content;
+		// A single file must not displace a large part of the cache.
+		final int length= content.getLength();
+		if (content.hasError() || length > fMaxSize / 8)
+			return content;
+		if (content instanceof LazyCharArray) {
+			final char[] chars= new char[length];
+			content.arraycopy(0, chars, 0, length);
+			if (content.hasError())
+				return content;
+			content= new CharArray(chars);
+		}
+		// Compute the hash before the contents are published to other threads, afterwards
+		// the array is only read.
+		content.getContentsHash();
+
+		synchronized (this) {
+			remove(path);
+			fEntries.put(path, new Entry(timestamp, fileSize, encoding, content));
+			fSize += length;
+			for (Iterator<Entry> it= fEntries.values().iterator(); fSize > fMaxSize && it.hasNext();) {
+				fSize -= it.next().fLength;
+				it.remove();
+			}
+		}
+		return content;
+	}
+
+	private void remove(String path) {
+		final Entry entry= fEntries.remove(path);
+		if (entry != null) {
+			fSize -= entry.fLength;
+		}
+	}
+
+	public synchronized void clear() {
+		fEntries.clear();
+		fSize= 0;
+	}
+
+	/**
+	 * Returns the total number of cached characters.
+	 */
+	public synchronized long getSize() {
+		return fSize;
+	}
+
+	public synchronized long getHitCount() {
+		return fHitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return fMissCount;
+	}
+}
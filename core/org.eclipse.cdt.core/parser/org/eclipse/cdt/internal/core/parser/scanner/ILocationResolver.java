@@ -184,4 +184,21 @@ public interface ILocationResolver {
 	 * Returns the lexer options that have been used by the preprocessor.
 	 */
 	LexerOptions getLexerOptions();
+
+	/**
+	 * Returns the contents of the translation unit file.
+	 */
+	AbstractCharArray getTranslationUnitContents();
+
+	/**
+	 * Compares this location resolver with the one of an earlier version of the translation unit,
+	 * which differs in a single range of the translation unit file. Returns whether the
+	 * preprocessor produced the same output outside of the range, such that the AST of the
+	 * earlier version remains valid outside of the range.
+	 * @param previous the location resolver of the earlier version.
+	 * @param offset the file offset where the range starts in both versions.
+	 * @param previousEndOffset the file offset where the range ends in the earlier version.
+	 * @param endOffset the file offset where the range ends in this version.
+	 */
+	boolean isEquivalentOutside(ILocationResolver previous, int offset, int previousEndOffset, int endOffset);
 }
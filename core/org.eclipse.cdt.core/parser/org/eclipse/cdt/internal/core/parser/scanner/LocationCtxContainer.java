@@ -58,6 +58,10 @@ class LocationCtxContainer extends LocationCtx {
 		fChildren.add(locationCtx);
 	}
 
+	public AbstractCharArray getSource() {
+		return fSource;
+	}
+
 	public char[] getSource(int offset, int length) {
 		if (fSource.isValidOffset(offset + length - 1)) {
 			char[] result= new char[length];
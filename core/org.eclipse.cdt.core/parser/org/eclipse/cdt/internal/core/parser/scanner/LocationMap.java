@@ -13,8 +13,10 @@ package org.eclipse.cdt.internal.core.parser.scanner;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -25,10 +27,17 @@ import org.eclipse.cdt.core.dom.ast.IASTImageLocation;
 import org.eclipse.cdt.core.dom.ast.IASTName;
 import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTNodeLocation;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorElifStatement;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorElseStatement;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorEndifStatement;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorIfStatement;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorIfdefStatement;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorIfndefStatement;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorIncludeStatement;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroDefinition;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroExpansion;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorStatement;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorUndefStatement;
 import org.eclipse.cdt.core.dom.ast.IASTProblem;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit.IDependencyTree;
@@ -50,6 +59,9 @@ import org.eclipse.cdt.internal.core.parser.scanner.Lexer.LexerOptions;
  * @since 5.0
  */
 public class LocationMap implements ILocationResolver {
+	private static final char[] __LINE__ = "__LINE__".toCharArray(); //$NON-NLS-1$
+	private static final char[] __COUNTER__ = "__COUNTER__".toCharArray(); //$NON-NLS-1$
+
 	private final LexerOptions fLexerOptions;
 	private String fTranslationUnitPath;
     private IASTTranslationUnit fTranslationUnit;
@@ -838,6 +850,154 @@ public class LocationMap implements ILocationResolver {
 		return result.toArray(new ASTPreprocessorName[result.size()]);
 	}
 
+	@Override
+	public AbstractCharArray getTranslationUnitContents() {
+		return fRootContext.getSource();
+	}
+
+	@Override
+	public boolean isEquivalentOutside(ILocationResolver previous, int offset, int previousEndOffset,
+			int endOffset) {
+		if (!(previous instanceof LocationMap))
+			return false;
+
+		final LocationMap other= (LocationMap) previous;
+		final LocationCtxFile otherRoot= other.fRootContext;
+		final int start= fRootContext.getSequenceNumberForOffset(offset, true);
+		if (start != otherRoot.getSequenceNumberForOffset(offset, true))
+			return false;
+		final int end= fRootContext.getSequenceNumberForOffset(endOffset, true);
+		final int otherEnd= otherRoot.getSequenceNumberForOffset(previousEndOffset, true);
+		final int delta= end - otherEnd;
+
+		// Inclusions and macro expansions of the translation unit file.
+		List<LocationCtx> children= getChildrenOutside(fRootContext, offset, endOffset);
+		List<LocationCtx> otherChildren= getChildrenOutside(otherRoot, offset, previousEndOffset);
+		if (children == null || otherChildren == null || children.size() != otherChildren.size())
+			return false;
+		for (int i= 0; i < children.size(); i++) {
+			final LocationCtx child= children.get(i);
+			final LocationCtx otherChild= otherChildren.get(i);
+			final boolean before= child.fEndOffsetInParent <= offset;
+			final int shift= before ? 0 : endOffset - previousEndOffset;
+			if (child.fOffsetInParent != otherChild.fOffsetInParent + shift
+					|| child.fEndOffsetInParent != otherChild.fEndOffsetInParent + shift
+					|| !isEquivalent(child, otherChild, before ? 0 : delta)) {
+				return false;
+			}
+		}
+
+		// Directives, the ones in inactive code depend on how the parser skipped it.
+		List<ASTPreprocessorNode> directives= getActiveDirectivesOutside(start, end);
+		List<ASTPreprocessorNode> otherDirectives= other.getActiveDirectivesOutside(start, otherEnd);
+		if (directives == null || otherDirectives == null || directives.size() != otherDirectives.size())
+			return false;
+		for (int i= 0; i < directives.size(); i++) {
+			final ASTPreprocessorNode directive= directives.get(i);
+			final ASTPreprocessorNode otherDirective= otherDirectives.get(i);
+			final int shift= directive.getOffset() < start ? 0 : delta;
+			if (directive.getClass() != otherDirective.getClass()
+					|| directive.getOffset() != otherDirective.getOffset() + shift
+					|| directive.getLength() != otherDirective.getLength()) {
+				return false;
+			}
+		}
+
+		// Macros that expand differently after the range.
+		final boolean linesChanged=
+				fRootContext.getLineNumber(endOffset) != otherRoot.getLineNumber(previousEndOffset);
+		for (ASTPreprocessorName name : fMacroReferences) {
+			if (name.getOffset() >= end) {
+				final char[] id= name.getSimpleID();
+				if (CharArrayUtils.equals(id, __COUNTER__) || (linesChanged && CharArrayUtils.equals(id, __LINE__)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the children of the context that are outside of the given range, or {@code null}
+	 * if a child overlaps with a boundary of the range.
+	 */
+	private static List<LocationCtx> getChildrenOutside(LocationCtxContainer ctx, int offset, int endOffset) {
+		List<LocationCtx> result= new ArrayList<>();
+		for (LocationCtx child : ctx.getChildren()) {
+			if (child.fEndOffsetInParent <= offset || child.fOffsetInParent >= endOffset) {
+				result.add(child);
+			} else if (child.fOffsetInParent < offset || child.fEndOffsetInParent > endOffset) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Compares two contexts and their children, the sequence numbers of the contexts differ
+	 * by the given amount.
+	 */
+	private static boolean isEquivalent(LocationCtx ctx, LocationCtx other, int delta) {
+		if (ctx.getClass() != other.getClass() || ctx.fSequenceNumber != other.fSequenceNumber + delta
+				|| ctx.getSequenceLength() != other.getSequenceLength()) {
+			return false;
+		}
+		if (ctx instanceof LocationCtxFile) {
+			final LocationCtxFile file= (LocationCtxFile) ctx;
+			final LocationCtxFile otherFile= (LocationCtxFile) other;
+			if (!file.getFilePath().equals(otherFile.getFilePath())
+					|| file.getSource().getContentsHash() != otherFile.getSource().getContentsHash()) {
+				return false;
+			}
+		}
+		final Collection<LocationCtx> children= ctx.getChildren();
+		final Collection<LocationCtx> otherChildren= other.getChildren();
+		if (children.size() != otherChildren.size())
+			return false;
+		final Iterator<LocationCtx> it= otherChildren.iterator();
+		for (LocationCtx child : children) {
+			final LocationCtx otherChild= it.next();
+			if (child.fOffsetInParent != otherChild.fOffsetInParent
+					|| child.fEndOffsetInParent != otherChild.fEndOffsetInParent
+					|| !isEquivalent(child, otherChild, delta)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the active directives outside of the given range of sequence numbers, or
+	 * {@code null} if the directives within the range affect the code after it.
+	 */
+	private List<ASTPreprocessorNode> getActiveDirectivesOutside(int start, int end) {
+		List<ASTPreprocessorNode> result= new ArrayList<>();
+		int nesting= 0;
+		for (ASTPreprocessorNode directive : fDirectives) {
+			final int offset= directive.getOffset();
+			if (offset + directive.getLength() <= start || offset >= end) {
+				if (directive.isActive()) {
+					result.add(directive);
+				}
+			} else if (directive instanceof IASTPreprocessorIfStatement
+					|| directive instanceof IASTPreprocessorIfdefStatement
+					|| directive instanceof IASTPreprocessorIfndefStatement) {
+				nesting++;
+			} else if (directive instanceof IASTPreprocessorEndifStatement) {
+				if (--nesting < 0)
+					return null;
+			} else if (directive instanceof IASTPreprocessorElifStatement
+					|| directive instanceof IASTPreprocessorElseStatement) {
+				if (nesting == 0)
+					return null;
+			} else if (directive.isActive() && (directive instanceof IASTPreprocessorMacroDefinition
+					|| directive instanceof IASTPreprocessorUndefStatement
+					|| directive instanceof IASTPreprocessorIncludeStatement)) {
+				return null;
+			}
+		}
+		return nesting == 0 ? result : null;
+	}
+
 	@Override
 	public IDependencyTree getDependencyTree() {
         return new DependencyTree(fRootContext);
@@ -861,7 +1021,8 @@ public class LocationMap implements ILocationResolver {
 
 	public IFileNomination reportPragmaOnceSemantics(ILocationCtx locationCtx) {
 		if (locationCtx == fRootContext) {
-			if (fTranslationUnit != null) {
+			// An ast that is updated incrementally keeps its properties.
+			if (fTranslationUnit != null && !fTranslationUnit.isFrozen()) {
 				fTranslationUnit.setPragmaOnceSemantics(true);
 			}
 			return fTranslationUnit;
@@ -880,7 +1041,7 @@ public class LocationMap implements ILocationResolver {
 			int offset= getSequenceNumberForOffset(endOffset);
 			((ASTNode) fTranslationUnit).setLength(offset);
 
-			if (sigMacros != null) {
+			if (sigMacros != null && !fTranslationUnit.isFrozen()) {
 				ISignificantMacros sig = sigMacros.isEmpty() ?
 						ISignificantMacros.NONE	: new SignificantMacros(sigMacros);
 				fTranslationUnit.setSignificantMacros(sig);
@@ -29,14 +29,28 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.IPDOMIndexerTask;
+import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.IASTComment;
 import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
+import org.eclipse.cdt.core.dom.ast.IASTName;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorIncludeStatement;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit.IDependencyTree;
@@ -63,11 +77,16 @@ import org.eclipse.cdt.core.parser.IncludeFileContentProvider;
 import org.eclipse.cdt.core.parser.ParserUtil;
 import org.eclipse.cdt.internal.core.dom.IIncludeFileResolutionHeuristics;
 import org.eclipse.cdt.internal.core.dom.parser.ASTTranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTTranslationUnit;
+import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.LookupCache;
+import org.eclipse.cdt.internal.core.index.CIndex;
 import org.eclipse.cdt.internal.core.index.FileContentKey;
 import org.eclipse.cdt.internal.core.index.IIndexFragment;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentFile;
 import org.eclipse.cdt.internal.core.index.IWritableIndex;
 import org.eclipse.cdt.internal.core.index.IndexBasedFileContentProvider;
+import org.eclipse.cdt.internal.core.index.IndexBasedFileContentProvider.IncludeSnapshot;
+import org.eclipse.cdt.internal.core.index.TemplateInstanceCache;
 import org.eclipse.cdt.internal.core.parser.IMacroDictionary;
 import org.eclipse.cdt.internal.core.parser.ParserSettings2;
 import org.eclipse.cdt.internal.core.parser.scanner.InternalFileContentProvider;
@@ -299,6 +318,59 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 	}
 
+	/**
+	 * Outcome of parsing a translation unit on a worker thread. The AST is handed over to
+	 * the indexer thread that writes it to the index.
+	 */
+	private static class ParseResult {
+		final Object fTu;
+		final AbstractLanguage fLanguage;
+		final IIndexFileLocation fLocation;
+		FileContent fCodeReader;
+		IASTTranslationUnit fAST;
+		long fParsingTime;
+		boolean fDependsOnOutdatedFile;
+		boolean fSkipped;
+		Throwable fError;
+
+		ParseResult(Object tu, AbstractLanguage language, IIndexFileLocation ifl) {
+			fTu= tu;
+			fLanguage= language;
+			fLocation= ifl;
+		}
+	}
+
+	/**
+	 * Resolves all names of an AST on a worker thread, so that the indexer thread finds
+	 * the bindings already cached in the names when writing the AST to the index.
+	 */
+	private static class NameResolver extends ASTVisitor {
+		NameResolver() {
+			shouldVisitNames= true;
+		}
+
+		@Override
+		public int visit(IASTName name) {
+			try {
+				name.resolveBinding();
+			} catch (RuntimeException e) {
+				// The error is reported when the name is resolved again by the indexer thread.
+			}
+			return PROCESS_CONTINUE;
+		}
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private final AtomicInteger fCount= new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread= new Thread(runnable, "C/C++ Indexer Worker " + fCount.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
 	protected enum MessageKind { parsingFileTask, errorWhileParsing, tooManyIndexProblems }
 
 	private int fUpdateFlags= IIndexManager.UPDATE_ALL;
@@ -308,8 +380,13 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private Set<String> fHeadersToIndexAllVersions = Collections.emptySet();
 	private Pattern fPragmaPrivatePattern;
 	private List<LinkageTask> fRequestsPerLinkage= new ArrayList<>();
-	private Map<IIndexFile, IndexFileContent> fIndexContentCache= new LRUCache<>(500);
-	private Map<IIndexFileLocation, IIndexFragmentFile[]> fIndexFilesCache= new LRUCache<>(5000);
+	// The caches are accessed by worker threads when translation units are parsed in parallel.
+	private Map<IIndexFile, IndexFileContent> fIndexContentCache=
+			Collections.synchronizedMap(new LRUCache<IIndexFile, IndexFileContent>(500));
+	private Map<IIndexFileLocation, IIndexFragmentFile[]> fIndexFilesCache=
+			Collections.synchronizedMap(new LRUCache<IIndexFileLocation, IIndexFragmentFile[]>(5000));
+	private Map<IIndexFile, IncludeSnapshot> fIncludeSnapshotCache=
+			Collections.synchronizedMap(new LRUCache<IIndexFile, IncludeSnapshot>(50));
 	private Map<IIndexFileLocation, LocationTask> fOneLinkageTasks= new HashMap<>();
 
 	private Object[] fFilesToUpdate;
@@ -324,6 +401,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 	private long fIncludedFileSizeLimit;
 	private InternalFileContentProvider fCodeReaderFactory;
 	private int fSwallowOutOfMemoryError= 5;
+	private int fParallelism= 1;
 	/**
 	 * A queue of urgent indexing tasks that contribute additional files to this task.
 	 * The files from the urgent tasks are indexed before all not yet processed files.
@@ -384,6 +462,15 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		fPragmaPrivatePattern = pattern;
 	}
 
+	/**
+	 * Sets the number of threads used for parsing source files. With more than one thread
+	 * the source files are parsed concurrently while the indexer thread writes the resulting
+	 * ASTs to the index one at a time.
+	 */
+	public void setParallelism(int threads) {
+		fParallelism= Math.max(1, threads);
+	}
+
 	/**
 	 * @see IPDOMIndexerTask#acceptUrgentTask(IPDOMIndexerTask)
 	 */
@@ -522,6 +609,11 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			if (fIndex == null) {
 				return;
 			}
+			// Instances of templates are not thread-safe, they can be shared between translation
+			// units only when these are parsed one after the other.
+			if (fParallelism == 1 && fIndex instanceof CIndex) {
+				((CIndex) fIndex).setTemplateInstanceCache(new TemplateInstanceCache());
+			}
 			fTodoTaskUpdater= createTodoTaskUpdater();
 
 			fASTOptions= ILanguage.OPTION_NO_IMAGE_LOCATIONS
@@ -559,6 +651,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 								}
 								fIndexContentCache.clear();
 								fIndexFilesCache.clear();
+								fIncludeSnapshotCache.clear();
 							}
 							if (hasUrgentTasks())
 								break;
@@ -805,6 +898,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 		fIndexContentCache.remove(ifile);
 		fIndexFilesCache.remove(file.fileContentKey.getLocation());
+		removeIncludeSnapshots(ifile);
 
 		LocationTask task= fOneLinkageTasks.remove(location);
 		if (task != null && task != locTask) {
@@ -885,6 +979,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				continue;
 
 			// First parse the required sources.
+			List<IIndexFileLocation> sources= fParallelism > 1 ? new ArrayList<IIndexFileLocation>() : null;
 			for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
 				IIndexFileLocation ifl= it.next();
 				LocationTask locTask = map.find(ifl);
@@ -893,12 +988,21 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				} else if (locTask.fKind == UpdateKind.REQUIRED_SOURCE) {
 					if (monitor.isCanceled() || hasUrgentTasks())
 						return;
-					final Object tu = locTask.fTu;
-					final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
-					parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, monitor);
+					if (sources != null) {
+						sources.add(ifl);
+					} else {
+						final Object tu = locTask.fTu;
+						final IScannerInfo scannerInfo = getScannerInfo(linkageID, tu);
+						parseFile(tu, getLanguage(tu, linkageID), ifl, scannerInfo, null, monitor);
+					}
 				}
 			}
-	
+			if (sources != null && !sources.isEmpty()) {
+				parseSourcesInParallel(linkageID, map, sources, monitor);
+				if (monitor.isCanceled() || hasUrgentTasks())
+					return;
+			}
+
 			// Files with context.
 			for (Iterator<IIndexFileLocation> it= filesAtPriority.iterator(); it.hasNext();) {
 				IIndexFileLocation ifl= it.next();
@@ -955,6 +1059,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 									locTask.removeVersionTask(it);
 									fIndexContentCache.remove(v.fIndexFile);
 									fIndexFilesCache.remove(ifl);
+									removeIncludeSnapshots(v.fIndexFile);
 								}
 							}
 						}
@@ -1083,7 +1188,9 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			final boolean isSource = fResolver.isSourceUnit(tu);
 
 			long start= System.currentTimeMillis();
-			IASTTranslationUnit ast= createAST(lang, codeReader, scanInfo, isSource, fASTOptions, ctx, pm);
+			fCodeReaderFactory= prepareContentProvider(fCodeReaderFactory, lang, ctx);
+			IASTTranslationUnit ast= createAST(lang, codeReader, scanInfo, isSource, fASTOptions,
+					fCodeReaderFactory, pm);
 			fStatistics.fParsingTime += System.currentTimeMillis() - start;
 			if (ast == null) {
 				++fStatistics.fTooManyTokensCount;
@@ -1111,16 +1218,193 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		}
 
 		if (!resultCacheCleared) {
-			// If the result cache has not been cleared, clear it under a write lock to reduce
-			// interference with index readers.
-			fIndex.acquireWriteLock(fProgressMonitor);
+			clearResultCache();
+		}
+		return null;
+	}
+
+	/**
+	 * Clears the result cache of the index under a write lock to reduce interference with
+	 * index readers.
+	 */
+	private void clearResultCache() throws InterruptedException {
+		fIndex.acquireWriteLock(fProgressMonitor);
+		try {
+			fIndex.clearResultCache();
+		} finally {
+			fIndex.releaseWriteLock();
+		}
+	}
+
+	/**
+	 * Parses the given source files on {@link #fParallelism} worker threads. The ASTs are written
+	 * to the index by the calling thread as soon as they become available. Workers read the index
+	 * only while none of the ASTs is being written, since the write lock on the index cannot
+	 * distinguish the workers from the indexer thread.
+	 * <p>
+	 * The gate between the workers and the writing thread is fair: once the indexer thread waits
+	 * to write an AST, workers wanting to read the index queue up behind it. Workers hold the gate
+	 * for one phase of one file at a time, the parse including the resolution of ambiguities, and
+	 * the resolution of names. The writer therefore waits at most for the phases already running,
+	 * it cannot be starved by workers moving on to the next phase or file.
+	 */
+	private void parseSourcesInParallel(int linkageID, LinkageTask map, List<IIndexFileLocation> sources,
+			IProgressMonitor monitor) throws CoreException, InterruptedException {
+		final ReadWriteLock indexAccess= new ReentrantReadWriteLock(true);
+		final ArrayDeque<InternalFileContentProvider> contentProviders= new ArrayDeque<>();
+		final boolean resolveNames= getSkipReferences() == SKIP_NO_REFERENCES;
+		ExecutorService executor= Executors.newFixedThreadPool(fParallelism, new WorkerThreadFactory());
+		CompletionService<ParseResult> completionService= new ExecutorCompletionService<>(executor);
+		// Limit the number of ASTs kept in memory.
+		final int maxPending= fParallelism * 2;
+		int pending= 0;
+		Iterator<IIndexFileLocation> it= sources.iterator();
+		try {
+			while (true) {
+				while (pending < maxPending && it.hasNext() && !monitor.isCanceled() && !hasUrgentTasks()) {
+					IIndexFileLocation ifl= it.next();
+					LocationTask locTask= map.find(ifl);
+					if (locTask == null || locTask.isCompleted())
+						continue;  // The file was indexed as a header of another source.
+					final Object tu= locTask.fTu;
+					final ParseResult request= new ParseResult(tu, getLanguage(tu, linkageID), ifl);
+					final IScannerInfo scannerInfo= getScannerInfo(linkageID, tu);
+					final IProgressMonitor pm= monitor;
+					completionService.submit(new Callable<ParseResult>() {
+						@Override
+						public ParseResult call() {
+							InternalFileContentProvider contentProvider;
+							synchronized (contentProviders) {
+								contentProvider= contentProviders.poll();
+							}
+							if (pm.isCanceled() || hasUrgentTasks()) {
+								request.fSkipped= true;
+							} else {
+								contentProvider= prepareContentProvider(contentProvider, request.fLanguage, null);
+								parseOnWorkerThread(request, scannerInfo, contentProvider, resolveNames,
+										indexAccess.readLock(), pm);
+							}
+							if (contentProvider != null) {
+								synchronized (contentProviders) {
+									contentProviders.add(contentProvider);
+								}
+							}
+							return request;
+						}
+					});
+					pending++;
+				}
+				if (pending == 0)
+					break;
+
+				ParseResult result;
+				try {
+					result= completionService.take().get();
+				} catch (ExecutionException e) {
+					Throwable cause= e.getCause();
+					if (cause instanceof Error)
+						throw (Error) cause;
+					throw new CoreException(createStatus(cause.getMessage(), cause));
+				}
+				pending--;
+				if (result.fSkipped || monitor.isCanceled() || hasUrgentTasks())
+					continue;  // Drain the remaining results without writing them.
+
+				indexAccess.writeLock().lock();
+				try {
+					writeParsedFile(result, monitor);
+				} finally {
+					indexAccess.writeLock().unlock();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Parses a source file on a worker thread. Errors are stored in the result to be reported
+	 * by the indexer thread. The index is read only while holding the given lock, which is
+	 * released between parsing the file and resolving its names.
+	 */
+	private void parseOnWorkerThread(ParseResult result, IScannerInfo scanInfo,
+			InternalFileContentProvider contentProvider, boolean resolveNames, Lock indexRead,
+			IProgressMonitor pm) {
+		if (fShowActivity) {
+			trace("Indexer: parsing " + getLabel(result.fLocation).toOSString()); //$NON-NLS-1$
+		}
+		long start= System.currentTimeMillis();
+		try {
+			result.fCodeReader= fResolver.getCodeReader(result.fTu);
+			IASTTranslationUnit ast;
+			indexRead.lock();
 			try {
-				fIndex.clearResultCache();
+				ast= createAST(result.fLanguage, result.fCodeReader, scanInfo,
+						fResolver.isSourceUnit(result.fTu), fASTOptions, contentProvider, pm);
 			} finally {
-				fIndex.releaseWriteLock();
+				indexRead.unlock();
 			}
+			if (ast != null) {
+				((ASTTranslationUnit) ast).setOriginatingTranslationUnit((ITranslationUnit) result.fTu);
+				if (resolveNames && !pm.isCanceled()) {
+					indexRead.lock();
+					try {
+						ast.accept(new NameResolver());
+					} finally {
+						indexRead.unlock();
+					}
+				}
+			}
+			result.fAST= ast;
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof DependsOnOutdatedFileException) {
+				result.fDependsOnOutdatedFile= true;
+			} else {
+				result.fError= e;
+			}
+		} catch (StackOverflowError | CoreException | AssertionError | OutOfMemoryError e) {
+			result.fError= e;
+		}
+		result.fParsingTime= System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Writes an AST parsed on a worker thread to the index.
+	 */
+	private void writeParsedFile(ParseResult result, IProgressMonitor pm)
+			throws CoreException, InterruptedException {
+		boolean resultCacheCleared = false;
+		IPath path= getLabel(result.fLocation);
+		Throwable th= result.fError;
+		fStatistics.fParsingTime += result.fParsingTime;
+		if (th == null && !result.fDependsOnOutdatedFile) {
+			try {
+				pm.subTask(getMessage(MessageKind.parsingFileTask,
+						path.lastSegment(), path.removeLastSegments(1).toString()));
+				if (result.fAST == null) {
+					++fStatistics.fTooManyTokensCount;
+				} else {
+					writeToIndex(result.fLanguage.getLinkageID(), result.fAST, result.fCodeReader, null, pm);
+					resultCacheCleared = true;  // The cache was cleared while writing to the index.
+				}
+			} catch (RuntimeException e) {
+				if (!(e.getCause() instanceof DependsOnOutdatedFileException))
+					th= e;
+			} catch (StackOverflowError | CoreException | AssertionError | OutOfMemoryError e) {
+				th= e;
+			}
+		}
+		if (th instanceof OutOfMemoryError && --fSwallowOutOfMemoryError < 0) {
+			throw (OutOfMemoryError) th;
+		}
+		if (th != null) {
+			swallowError(path, th);
+		}
+
+		if (!resultCacheCleared) {
+			clearResultCache();
 		}
-		return null;
 	}
 
 	private AbstractLanguage getLanguage(Object tu, int linkageID) {
@@ -1192,7 +1476,7 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 
 	private final IASTTranslationUnit createAST(AbstractLanguage language, FileContent codeReader,
 			IScannerInfo scanInfo, boolean isSource, int options,
-			FileContext ctx, IProgressMonitor pm) throws CoreException {
+			InternalFileContentProvider contentProvider, IProgressMonitor pm) throws CoreException {
 		if (codeReader == null) {
 			return null;
 		}
@@ -1205,8 +1489,23 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 			}
 			return null;
 		}
+
+		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, contentProvider,
+				fIndex, options, getLogService());
+		if (pm.isCanceled()) {
+			return null;
+		}
+		return ast;
+	}
+
+	/**
+	 * Creates a file content provider if necessary and configures it for parsing a file
+	 * with the given language and context.
+	 */
+	private InternalFileContentProvider prepareContentProvider(InternalFileContentProvider contentProvider,
+			AbstractLanguage language, FileContext ctx) {
 		final IIndexFile[] ctx2header = ctx == null ? null : new IIndexFile[] {ctx.fContext, ctx.fOldFile};
-		if (fCodeReaderFactory == null) {
+		if (contentProvider == null) {
 			InternalFileContentProvider fileContentProvider = createInternalFileContentProvider();
 			if (fIsFastIndexer) {
 				IndexBasedFileContentProvider ibfcp = new IndexBasedFileContentProvider(fIndex, fResolver,
@@ -1215,23 +1514,17 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				ibfcp.setFileSizeLimit(fIncludedFileSizeLimit);
 				ibfcp.setHeadersToIndexAllVersions(fHeadersToIndexAllVersions);
 				ibfcp.setIndexAllHeaderVersions(fIndexAllHeaderVersions);
-				fCodeReaderFactory= ibfcp;
+				contentProvider= ibfcp;
 			} else {
-				fCodeReaderFactory= fileContentProvider;
+				contentProvider= fileContentProvider;
 			}
-			fCodeReaderFactory.setIncludeResolutionHeuristics(createIncludeHeuristics());
+			contentProvider.setIncludeResolutionHeuristics(createIncludeHeuristics());
 		} else if (fIsFastIndexer) {
-			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) fCodeReaderFactory;
+			final IndexBasedFileContentProvider ibfcp = (IndexBasedFileContentProvider) contentProvider;
 			ibfcp.setContextToHeaderGap(ctx2header);
 			ibfcp.setLinkage(language.getLinkageID());
 		}
-
-		IASTTranslationUnit ast= language.getASTTranslationUnit(codeReader, scanInfo, fCodeReaderFactory,
-				fIndex, options, getLogService());
-		if (pm.isCanceled()) {
-			return null;
-		}
-		return ast;
+		return contentProvider;
 	}
 
 	private InternalFileContentProvider createInternalFileContentProvider() {
@@ -1295,6 +1588,12 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 				if (storageLinkageID != ILinkage.NO_LINKAGE_ID)
 					addSymbols(data, storageLinkageID, ctx, pm);
 			}
+
+			if (ast instanceof CPPASTTranslationUnit) {
+				LookupCache lookupCache= ((CPPASTTranslationUnit) ast).getLookupCache();
+				fStatistics.fLookupCacheHits += lookupCache.getHitCount();
+				fStatistics.fLookupCacheMisses += lookupCache.getMissCount();
+			}
 		} catch (CoreException | RuntimeException | Error e) {
 			// Avoid parsing files again, that caused an exception to be thrown.
 			withdrawRequests(linkageID, fileKeys);
@@ -1437,6 +1736,30 @@ public abstract class AbstractIndexerTask extends PDOMWriter {
 		return fc;
 	}
 
+	/**
+	 * Returns the content collected from the index for a header included before any other file
+	 * of a translation unit, or <code>null</code> if there is no such content for the given file.
+	 */
+	public final IncludeSnapshot getIncludeSnapshot(IIndexFile file) {
+		return fIncludeSnapshotCache.get(file);
+	}
+
+	public final void putIncludeSnapshot(IIndexFile file, IncludeSnapshot snapshot) {
+		fIncludeSnapshotCache.put(file, snapshot);
+	}
+
+	/**
+	 * Discards the snapshots that contain the given file, because the file has been changed.
+	 */
+	private void removeIncludeSnapshots(IIndexFile file) {
+		synchronized (fIncludeSnapshotCache) {
+			for (Iterator<IncludeSnapshot> it= fIncludeSnapshotCache.values().iterator(); it.hasNext();) {
+				if (it.next().contains(file))
+					it.remove();
+			}
+		}
+	}
+
 	IIndexFragmentFile selectIndexFile(int linkageID, IIndexFileLocation ifl, ISignificantMacros sigMacros) throws CoreException {
 		LinkageTask map = findRequestMap(linkageID);
 		if (map != null) {
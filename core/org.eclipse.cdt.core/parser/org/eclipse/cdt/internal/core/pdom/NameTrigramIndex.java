@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMNamedNode;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * In-memory index of the trigrams of the names stored in one or more BTrees of named nodes.
+ * A regular expression can only match names that contain the literal parts of the expression,
+ * the index yields the records of the nodes whose names contain all trigrams of these parts.
+ * The candidates have to be verified against the expression.
+ * <p>
+ * Trigrams are formed from lower case characters, such that the index serves case-sensitive and
+ * case-insensitive searches. The index is immutable, it needs to be rebuilt when the BTrees change.
+ */
+final class NameTrigramIndex {
+	private static final int[] NO_NAMES= {};
+
+	/** Records of the nodes, grouped by name. */
+	private final long[] fRecords;
+	/** Start of the records of each name in fRecords, with an additional entry for the end. */
+	private final int[] fNameStart;
+	/** Sorted ids of the names containing a trigram. */
+	private final Map<Long, int[]> fPostings;
+
+	private NameTrigramIndex(long[] records, int[] nameStart, Map<Long, int[]> postings) {
+		fRecords= records;
+		fNameStart= nameStart;
+		fPostings= postings;
+	}
+
+	/**
+	 * Builds the index for the named nodes stored in the given BTrees.
+	 */
+	static NameTrigramIndex build(final Database db, BTree... trees) throws CoreException {
+		final Map<String, LongList> recordsByName= new HashMap<>();
+		for (BTree tree : trees) {
+			tree.accept(new IBTreeVisitor() {
+				@Override
+				public int compare(long record) throws CoreException {
+					return 0;
+				}
+
+				@Override
+				public boolean visit(long record) throws CoreException {
+					if (record != 0) {
+						String name= PDOMNamedNode.getDBName(db, record).getString();
+						LongList list= recordsByName.get(name);
+						if (list == null) {
+							list= new LongList();
+							recordsByName.put(name, list);
+						}
+						list.add(record);
+					}
+					return true;
+				}
+			});
+		}
+
+		int recordCount= 0;
+		for (LongList list : recordsByName.values()) {
+			recordCount += list.fSize;
+		}
+		final long[] records= new long[recordCount];
+		final int[] nameStart= new int[recordsByName.size() + 1];
+		final Map<Long, IntList> postings= new HashMap<>();
+		int nameId= 0;
+		int pos= 0;
+		for (Map.Entry<String, LongList> entry : recordsByName.entrySet()) {
+			final LongList list= entry.getValue();
+			nameStart[nameId]= pos;
+			System.arraycopy(list.fValues, 0, records, pos, list.fSize);
+			pos += list.fSize;
+
+			final String name= entry.getKey();
+			for (int i= 0; i + 3 <= name.length(); i++) {
+				final Long trigram= trigram(name, i);
+				IntList ids= postings.get(trigram);
+				if (ids == null) {
+					ids= new IntList();
+					postings.put(trigram, ids);
+				}
+				// Names are visited in order of their ids, a trigram repeated within a name
+				// must not add the name twice.
+				if (ids.fSize == 0 || ids.fValues[ids.fSize - 1] != nameId) {
+					ids.add(nameId);
+				}
+			}
+			nameId++;
+		}
+		nameStart[nameId]= pos;
+
+		final Map<Long, int[]> result= new HashMap<>(postings.size() * 4 / 3 + 1);
+		for (Map.Entry<Long, IntList> entry : postings.entrySet()) {
+			final IntList ids= entry.getValue();
+			result.put(entry.getKey(), Arrays.copyOf(ids.fValues, ids.fSize));
+		}
+		return new NameTrigramIndex(records, nameStart, result);
+	}
+
+	private static Long trigram(CharSequence name, int offset) {
+		return (long) Character.toLowerCase(name.charAt(offset)) << 32
+				| (long) Character.toLowerCase(name.charAt(offset + 1)) << 16
+				| Character.toLowerCase(name.charAt(offset + 2));
+	}
+
+	/**
+	 * Returns the records of the nodes whose names contain all of the given strings, ignoring
+	 * case. Each string must be at least three characters long.
+	 */
+	long[] getCandidates(List<String> literals) {
+		int[] names= null;
+		for (String literal : literals) {
+			for (int i= 0; i + 3 <= literal.length(); i++) {
+				final int[] ids= fPostings.get(trigram(literal, i));
+				if (ids == null)
+					return new long[0];
+				names= names == null ? ids : intersect(names, ids);
+				if (names.length == 0)
+					return new long[0];
+			}
+		}
+		if (names == null)
+			names= NO_NAMES;
+
+		final LongList result= new LongList();
+		for (int name : names) {
+			for (int i= fNameStart[name]; i < fNameStart[name + 1]; i++) {
+				result.add(fRecords[i]);
+			}
+		}
+		// A node may be stored in more than one of the BTrees.
+		final long[] records= Arrays.copyOf(result.fValues, result.fSize);
+		Arrays.sort(records);
+		int length= 0;
+		for (int i= 0; i < records.length; i++) {
+			if (length == 0 || records[length - 1] != records[i]) {
+				records[length++]= records[i];
+			}
+		}
+		return Arrays.copyOf(records, length);
+	}
+
+	private static int[] intersect(int[] a, int[] b) {
+		final int[] result= new int[Math.min(a.length, b.length)];
+		int length= 0;
+		for (int i= 0, j= 0; i < a.length && j < b.length;) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[length++]= a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, length);
+	}
+
+	/**
+	 * Returns literal strings of at least three characters that are contained in every name
+	 * matching the given pattern, or <code>null</code> if no such strings can be determined.
+	 * The analysis is conservative, alternatives and groups are not supported.
+	 */
+	static List<String> getRequiredLiterals(Pattern pattern) {
+		if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0)
+			return null;
+
+		final String p= pattern.pattern();
+		final List<String> result= new ArrayList<>();
+		final StringBuilder literal= new StringBuilder();
+		for (int i= 0; i < p.length(); i++) {
+			char c= p.charAt(i);
+			switch (c) {
+			case '|':
+			case '(':
+			case ')':
+				return null;
+			case '[':
+				// Character class, find its end.
+				addLiteral(result, literal);
+				i++;
+				if (i < p.length() && p.charAt(i) == '^')
+					i++;
+				if (i < p.length() && p.charAt(i) == ']')
+					i++;
+				for (; i < p.length() && p.charAt(i) != ']'; i++) {
+					if (p.charAt(i) == '\\') {
+						i++;
+					} else if (p.charAt(i) == '[') {
+						return null;  // Nested classes.
+					}
+				}
+				if (i >= p.length())
+					return null;
+				break;
+			case '\\':
+				if (++i >= p.length())
+					return null;
+				c= p.charAt(i);
+				if (Character.isLetterOrDigit(c)) {
+					// Predefined class, back reference, quotation or escaped character.
+					switch (c) {
+					case 'Q':
+						return null;
+					case 'x':
+					case 'u':
+					case '0':
+					case 'c':
+					case 'k':
+						// Escapes whose following characters are not literals.
+						return null;
+					}
+					addLiteral(result, literal);
+				} else {
+					literal.append(c);
+				}
+				break;
+			case '*':
+			case '?':
+			case '{':
+				// The preceding character is optional.
+				if (literal.length() > 0)
+					literal.setLength(literal.length() - 1);
+				addLiteral(result, literal);
+				if (c == '{') {
+					i= p.indexOf('}', i);
+					if (i < 0)
+						return null;
+				}
+				i= skipQuantifierModifier(p, i);
+				break;
+			case '+':
+				addLiteral(result, literal);
+				i= skipQuantifierModifier(p, i);
+				break;
+			case '.':
+			case '^':
+			case '$':
+				addLiteral(result, literal);
+				break;
+			default:
+				literal.append(c);
+				break;
+			}
+		}
+		addLiteral(result, literal);
+		return result.isEmpty() ? null : result;
+	}
+
+	private static int skipQuantifierModifier(String p, int i) {
+		if (i + 1 < p.length() && (p.charAt(i + 1) == '?' || p.charAt(i + 1) == '+'))
+			return i + 1;
+		return i;
+	}
+
+	private static void addLiteral(List<String> result, StringBuilder literal) {
+		if (literal.length() >= 3) {
+			result.add(literal.toString());
+		}
+		literal.setLength(0);
+	}
+
+	private static final class LongList {
+		long[] fValues= new long[4];
+		int fSize;
+
+		void add(long value) {
+			if (fSize == fValues.length) {
+				fValues= Arrays.copyOf(fValues, fSize * 2);
+			}
+			fValues[fSize++]= value;
+		}
+	}
+
+	private static final class IntList {
+		int[] fValues= new int[4];
+		int fSize;
+
+		void add(int value) {
+			if (fSize == fValues.length) {
+				fValues= Arrays.copyOf(fValues, fSize * 2);
+			}
+			fValues[fSize++]= value;
+		}
+	}
+}
@@ -28,6 +28,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -60,6 +63,7 @@ import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.parser.ISignificantMacros;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
+import org.eclipse.cdt.core.parser.util.SegmentMatcher;
 import org.eclipse.cdt.internal.core.dom.Linkage;
 import org.eclipse.cdt.internal.core.index.IIndexCBindingConstants;
 import org.eclipse.cdt.internal.core.index.IIndexFragment;
@@ -109,6 +113,12 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private static final int LONG_READ_LOCK_WAIT_REPORT_THRESHOLD = 1000;
 	static boolean sDEBUG_LOCKS= false; // Initialized in the PDOMManager, because IBM needs PDOM independent of runtime plugin.
 
+	/** Whether regular expression searches for names use the trigram index of the names. */
+	private static final boolean USE_TRIGRAM_INDEX=
+			!Boolean.getBoolean("org.eclipse.cdt.core.parser.pdom.disableTrigramIndex"); //$NON-NLS-1$
+	/** Time in milliseconds without modifications after which the trigram indexes are rebuilt. */
+	private static final long TRIGRAM_INDEX_QUIET_PERIOD = 1000;
+
 	/**
 	 * Identifier for PDOM format
 	 * @see IIndexFragment#PROPERTY_FRAGMENT_FORMAT_ID
@@ -261,10 +271,12 @@ public class PDOM extends PlatformObject implements IPDOM {
 	 *  
 	 *  CDT 8.7 development (versions not supported on the 8.6.x branch)
 	 *  181.0 - C function type with varargs, bug 452416.
+	 *  182.0 - Database stores its chunk size and alignment of blocks, moves the data area.
+	 *  183.0 - Linkages store an index of types.
 	 */
-	private static final int MIN_SUPPORTED_VERSION= version(181, 0);
-	private static final int MAX_SUPPORTED_VERSION= version(181, Short.MAX_VALUE);
-	private static final int DEFAULT_VERSION = version(181, 0);
+	private static final int MIN_SUPPORTED_VERSION= version(183, 0);
+	private static final int MAX_SUPPORTED_VERSION= version(183, Short.MAX_VALUE);
+	private static final int DEFAULT_VERSION = version(183, 0);
 
 	private static int version(int major, int minor) {
 		return (major << 16) + minor;
@@ -371,6 +383,8 @@ public class PDOM extends PlatformObject implements IPDOM {
 	private final IIndexLocationConverter locationConverter;
 	private final Map<String, IPDOMLinkageFactory> fPDOMLinkageFactoryCache;
 	private final HashMap<Object, Object> fResultCache= new HashMap<>();
+	/** Trigram indexes of the names of the linkages, valid until the next write access. */
+	private final Map<Long, FutureTask<NameTrigramIndex>> fTrigramIndexCache= new HashMap<>();
 	private List<IListener> listeners;
 	protected ChangeEvent fEvent= new ChangeEvent();
 
@@ -764,6 +778,12 @@ public class PDOM extends PlatformObject implements IPDOM {
 			}
 		}
 
+		if (patterns.length == 1 && !isFullyQualified) {
+			IIndexFragmentBinding[] result= findBindingsWithTrigramIndex(patterns[0], filter, monitor);
+			if (result != null)
+				return result;
+		}
+
 		BindingFinder finder = new BindingFinder(patterns, isFullyQualified, filter, monitor);
 		for (PDOMLinkage linkage : getLinkageList()) {
 			if (filter.acceptLinkage(linkage)) {
@@ -779,6 +799,120 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return finder.getBindings();
 	}
 
+	/**
+	 * Searches for the bindings with names matching the given pattern using the trigram indexes
+	 * of the linkages. Finds the same bindings as the {@link BindingFinder}.
+	 * @return the bindings found, or <code>null</code> if the trigram indexes cannot be used for
+	 *     the pattern.
+	 */
+	private IIndexFragmentBinding[] findBindingsWithTrigramIndex(Pattern pattern, IndexFilter filter,
+			IProgressMonitor monitor) throws CoreException {
+		final List<String> literals= NameTrigramIndex.getRequiredLiterals(pattern);
+		if (literals == null)
+			return null;
+
+		List<IIndexFragmentBinding> result= new ArrayList<>();
+		for (PDOMLinkage linkage : getLinkageList()) {
+			if (filter.acceptLinkage(linkage)) {
+				NameTrigramIndex index= getTrigramIndex(linkage, false);
+				if (index == null)
+					return null;
+				for (long record : index.getCandidates(literals)) {
+					if (monitor.isCanceled())
+						return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+					PDOMNode node= PDOMNode.load(this, record);
+					if (node instanceof PDOMBinding && isVisibleToBindingFinder(node)) {
+						PDOMBinding binding= (PDOMBinding) node;
+						if (pattern.matcher(new String(binding.getNameCharArray())).matches()
+								&& filter.acceptBinding(binding)) {
+							result.add(binding);
+						}
+					}
+				}
+			}
+		}
+		return result.toArray(new IIndexFragmentBinding[result.size()]);
+	}
+
+	/**
+	 * Checks whether the {@link BindingFinder} visits the given node, i.e. whether all nodes
+	 * it is nested in may have children.
+	 */
+	private static boolean isVisibleToBindingFinder(PDOMNode node) throws CoreException {
+		for (PDOMNode parent= node.getParentNode(); !(parent instanceof PDOMLinkage); parent= parent.getParentNode()) {
+			if (!(parent instanceof PDOMNamedNode) || !((PDOMNamedNode) parent).mayHaveChildren())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the trigram index of the names of the bindings or of the macros of a linkage,
+	 * or <code>null</code> if the index must not be used because the PDOM is being modified.
+	 * <p>
+	 * The indexes are discarded with every write access. While the PDOM is modified frequently,
+	 * e.g. by the indexer, they are not rebuilt and the callers search without them. An index is
+	 * built by the first caller that needs it, other callers of the same index wait for it.
+	 */
+	private NameTrigramIndex getTrigramIndex(final PDOMLinkage linkage, final boolean macros) throws CoreException {
+		if (!USE_TRIGRAM_INDEX)
+			return null;
+		final long lastWrite;
+		synchronized (mutex) {
+			if (lockCount < 0)
+				return null;
+			lastWrite= lastWriteAccess;
+		}
+		final Long key= linkage.getRecord() * 2 + (macros ? 1 : 0);
+		FutureTask<NameTrigramIndex> task;
+		boolean build= false;
+		synchronized (fTrigramIndexCache) {
+			task= fTrigramIndexCache.get(key);
+			if (task == null) {
+				if (System.currentTimeMillis() - lastWrite < TRIGRAM_INDEX_QUIET_PERIOD)
+					return null;
+				task= new FutureTask<>(new Callable<NameTrigramIndex>() {
+					@Override
+					public NameTrigramIndex call() throws CoreException {
+						if (macros)
+							return NameTrigramIndex.build(db, linkage.getMacroIndex());
+						return NameTrigramIndex.build(db, linkage.getIndex(), linkage.getNestedBindingsIndex());
+					}
+				});
+				fTrigramIndexCache.put(key, task);
+				build= true;
+			}
+		}
+		// The index is built outside of the monitor, such that other indexes remain accessible.
+		if (build)
+			task.run();
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			synchronized (fTrigramIndexCache) {
+				if (fTrigramIndexCache.get(key) == task)
+					fTrigramIndexCache.remove(key);
+			}
+			final Throwable cause= e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new CoreException(CCorePlugin.createStatus(cause.getMessage(), cause));
+		}
+	}
+
+	private void clearTrigramIndexCache() {
+		synchronized (fTrigramIndexCache) {
+			fTrigramIndexCache.clear();
+		}
+	}
+
 	private Boolean getCaseSensitive(Pattern[] patterns) {
 		Boolean caseSensitive= null;
 		for (Pattern p : patterns) {
@@ -855,12 +989,22 @@ public class PDOM extends PlatformObject implements IPDOM {
 			}
 		}
 
+		final List<String> literals= NameTrigramIndex.getRequiredLiterals(pattern);
 		List<IIndexFragmentBinding> result= new ArrayList<>();
 		for (PDOMLinkage linkage : getLinkageList()) {
 			if (filter.acceptLinkage(linkage)) {
 				try {
 					MacroContainerPatternCollector finder = new MacroContainerPatternCollector(linkage, pattern, monitor);
-					linkage.getMacroIndex().accept(finder);
+					NameTrigramIndex index= literals != null ? getTrigramIndex(linkage, true) : null;
+					if (index != null) {
+						for (long record : index.getCandidates(literals)) {
+							if (monitor.isCanceled())
+								return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+							finder.visit(record);
+						}
+					} else {
+						linkage.getMacroIndex().accept(finder);
+					}
 					result.addAll(Arrays.asList(finder.getMacroContainers()));
 				} catch (CoreException e) {
 					if (e.getStatus() != Status.OK_STATUS)
@@ -1047,6 +1191,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 				timeWriteLockAcquired = System.currentTimeMillis();
 			db.setExclusiveLock();
 		}
+		clearTrigramIndexCache();
 	}
 
 	final public void releaseWriteLock() {
@@ -1292,6 +1437,31 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return findBindingsForPrefixOrContentAssist(prefix, filescope, true, false, filter, monitor);
 	}
 
+	@Override
+	public IIndexFragmentBinding[] findTypes(char[] pattern, boolean camelCase, IndexFilter filter,
+			IProgressMonitor monitor) throws CoreException {
+		final SegmentMatcher matcher= camelCase ? new SegmentMatcher(pattern) : null;
+		final char[] prefix= matcher != null ? matcher.getPrefixForBinarySearch() : pattern;
+		final boolean matchRequired= matcher != null && matcher.matchRequiredAfterBinarySearch();
+		ArrayList<IIndexFragmentBinding> result= new ArrayList<>();
+		for (PDOMLinkage linkage : getLinkageList()) {
+			if (filter.acceptLinkage(linkage)) {
+				BindingCollector visitor = new BindingCollector(linkage, prefix, filter, true, false, false);
+				visitor.setMonitor(monitor);
+				try {
+					linkage.getTypesIndex().accept(visitor);
+				} catch (OperationCanceledException e) {
+				}
+				for (PDOMBinding binding : visitor.getBindings()) {
+					if (!matchRequired || matcher.match(binding.getNameCharArray())) {
+						result.add(binding);
+					}
+				}
+			}
+		}
+		return result.toArray(new IIndexFragmentBinding[result.size()]);
+	}
+
 	private IIndexFragmentBinding[] findBindingsForPrefixOrContentAssist(char[] prefix, boolean filescope, boolean isContentAssist, boolean caseSensitive, IndexFilter filter, IProgressMonitor monitor) throws CoreException {
 		ArrayList<IIndexFragmentBinding> result= new ArrayList<>();
 		for (PDOMLinkage linkage : getLinkageList()) {
@@ -1431,6 +1601,7 @@ public class PDOM extends PlatformObject implements IPDOM {
 		indexOfFiledWithUnresolvedIncludes= null;
 		fLinkageIDCache.clear();
 		clearResultCache();
+		clearTrigramIndexCache();
 	}
 
 	@Override
@@ -71,12 +71,14 @@ import org.eclipse.cdt.internal.core.index.IndexChangeEvent;
 import org.eclipse.cdt.internal.core.index.IndexFactory;
 import org.eclipse.cdt.internal.core.index.IndexerStateEvent;
 import org.eclipse.cdt.internal.core.index.provider.IndexProviderManager;
+import org.eclipse.cdt.internal.core.parser.scanner.FileContentCache;
 import org.eclipse.cdt.internal.core.pdom.PDOM.IListener;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
 import org.eclipse.cdt.internal.core.pdom.dom.IPDOMLinkageFactory;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMProjectIndexLocationConverter;
 import org.eclipse.cdt.internal.core.pdom.indexer.AbstractPDOMIndexer;
 import org.eclipse.cdt.internal.core.pdom.indexer.IndexerPreferences;
+import org.eclipse.cdt.internal.core.pdom.indexer.PDOMCompactionTask;
 import org.eclipse.cdt.internal.core.pdom.indexer.PDOMNullIndexer;
 import org.eclipse.cdt.internal.core.pdom.indexer.PDOMRebuildTask;
 import org.eclipse.cdt.internal.core.pdom.indexer.PDOMUpdateTask;
@@ -696,8 +698,10 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 
 	IPDOMIndexerTask getNextTask() {
 		IPDOMIndexerTask result= null;
+		boolean becomesIdle= false;
     	synchronized (fTaskQueue) {
     		if (fTaskQueue.isEmpty()) {
+    			becomesIdle= fCurrentTask != null && !(fCurrentTask instanceof PDOMCompactionTask);
     			fCurrentTask= null;
     			fSourceCount= fHeaderCount= fTickCount= 0;
     		} else {
@@ -711,9 +715,50 @@ public class PDOMManager implements IWritableIndexManager, IListener {
     			result= fCurrentTask= fTaskQueue.removeFirst();
     		}
 		}
+    	if (becomesIdle) {
+    		// Compact the indexes that have shrunk, before the indexer job finishes.
+    		IPDOMIndexerTask compaction= createCompactionTask();
+    		if (compaction != null) {
+    			synchronized (fTaskQueue) {
+    				// Called by the indexer job, which picks up the task without being scheduled.
+    				fTaskQueue.addLast(compaction);
+    			}
+    			return getNextTask();
+    		}
+    	}
     	return result;
     }
 
+	private IPDOMIndexerTask createCompactionTask() {
+		List<WritablePDOM> candidates= new ArrayList<>();
+		synchronized (fProjectToPDOM) {
+			for (IPDOM pdom : fProjectToPDOM.values()) {
+				if (pdom instanceof WritablePDOM) {
+					candidates.add((WritablePDOM) pdom);
+				}
+			}
+		}
+		List<WritablePDOM> pdoms= new ArrayList<>();
+		for (WritablePDOM pdom : candidates) {
+			try {
+				pdom.acquireReadLock();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			try {
+				if (PDOMCompactionTask.needsCompaction(pdom)) {
+					pdoms.add(pdom);
+				}
+			} catch (CoreException e) {
+				CCorePlugin.log(e);
+			} finally {
+				pdom.releaseReadLock();
+			}
+		}
+		return pdoms.isEmpty() ? null : new PDOMCompactionTask(pdoms);
+	}
+
     void cancelledIndexerJob(boolean byManager) {
     	synchronized (fTaskQueue) {
     		fCurrentTask= null;
@@ -828,6 +873,8 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 
 	private void preRemoveProject(ICProject cproject, final boolean delete) {
 		assert !Thread.holdsLock(fProjectToPDOM);
+		// The include files of the project are likely not needed anymore.
+		FileContentCache.getSharedInstance().clear();
 
 		final IProject rproject= cproject.getProject();
 		final String name = rproject.getName();
@@ -134,6 +134,15 @@ public class PDOMProxy implements IPDOM {
 		return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
 	}
 
+	@Override
+	public synchronized IIndexFragmentBinding[] findTypes(char[] pattern, boolean camelCase,
+			IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+		if (fDelegate != null)
+			return fDelegate.findTypes(pattern, camelCase, filter, monitor);
+
+		return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+	}
+
 	@Override
 	public synchronized IIndexFragmentInclude[] findIncludedBy(IIndexFragmentFile file) throws CoreException {
 		if (fDelegate != null)
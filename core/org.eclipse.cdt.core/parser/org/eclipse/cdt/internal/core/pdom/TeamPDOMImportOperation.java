@@ -52,8 +52,8 @@ import org.eclipse.core.variables.VariablesPlugin;
 import org.eclipse.osgi.util.NLS;
 
 public class TeamPDOMImportOperation implements IWorkspaceRunnable {
-	static final String CHECKSUMS_NAME = "checksums.dat"; //$NON-NLS-1$
-	static final String INDEX_NAME = "cdt-index.pdom"; //$NON-NLS-1$
+	public static final String CHECKSUMS_NAME = "checksums.dat"; //$NON-NLS-1$
+	public static final String INDEX_NAME = "cdt-index.pdom"; //$NON-NLS-1$
 	private static final Pattern PROJECT_VAR_PATTERN= Pattern.compile("\\$\\{(project_[a-zA-Z0-9]*)\\}"); //$NON-NLS-1$
 	private static final String PROJECT_VAR_REPLACEMENT_BEGIN = "\\${$1:"; //$NON-NLS-1$
 	private static final String PROJECT_VAR_REPLACEMENT_END = "}"; //$NON-NLS-1$
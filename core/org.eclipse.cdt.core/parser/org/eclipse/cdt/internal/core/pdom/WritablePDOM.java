@@ -43,6 +43,7 @@ import org.eclipse.core.runtime.CoreException;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -227,15 +228,19 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 
 		clearFileIndex();
 		final List<PDOMFile> notConverted = new ArrayList<PDOMFile>();
+		long[] converted = new long[pdomfiles.size()];
+		int count = 0;
 		for (PDOMFile file : pdomfiles) {
 			String internalFormat = newConverter.toInternalFormat(file.getLocation());
 			if (internalFormat != null) {
 				file.setInternalLocation(internalFormat);
-				getFileIndex().insert(file.getRecord());
+				converted[count++] = file.getRecord();
 			} else {
 				notConverted.add(file);
 			}
 		}
+		// The file index is empty, it is built at once.
+		getFileIndex().insertAll(Arrays.copyOf(converted, count));
 
 		// remove content where converter returns null
 		for (PDOMFile file : notConverted) {
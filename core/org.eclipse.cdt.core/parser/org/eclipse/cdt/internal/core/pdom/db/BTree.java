@@ -111,7 +111,7 @@ public class BTree {
 		// If this node is full (last record isn't null), split it.
 		if (getRecord(chunk, node, MAX_RECORDS - 1) != 0) {
 			long median = getRecord(chunk, node, MEDIAN_RECORD); 
-			if (median == record) {
+			if (median == record || cmp.compare(median, record) == 0) {
 				// Found it, never mind.
 				return median;
 			} else {
@@ -211,6 +211,112 @@ public class BTree {
 		return db.malloc((2 * MAX_RECORDS + 1) * Database.INT_SIZE);
 	}
 
+	/**
+	 * Inserts a batch of records into the b-tree. The records are sorted with the comparator
+	 * of the tree first, such that consecutive insertions touch the same nodes. An empty tree is
+	 * built bottom-up without any splits.
+	 * <p>
+	 * As with {@link #insert(long)}, a record is not inserted if an equal record is already
+	 * contained in the tree or precedes it in the batch.
+	 *
+	 * @param batch offsets of the records, the array is not modified.
+	 */
+	public void insertAll(long[] batch) throws CoreException {
+		if (batch.length == 0)
+			return;
+
+		// Sort a copy, such that the caller can retry the batch after a failure.
+		final long[] records= batch.clone();
+		sort(records, 0, records.length, new long[records.length]);
+		// Remove the duplicates.
+		int count= 1;
+		for (int i= 1; i < records.length; i++) {
+			if (cmp.compare(records[count - 1], records[i]) != 0) {
+				records[count++]= records[i];
+			}
+		}
+		if (getRoot() != 0) {
+			for (int i= 0; i < count; i++) {
+				insert(records[i]);
+			}
+			return;
+		}
+
+		int height= 0;
+		while (getCapacity(height) < count) {
+			height++;
+		}
+		db.putRecPtr(rootPointer, buildNode(records, 0, count, height));
+	}
+
+	/**
+	 * Sorts a range of the records with a stable merge sort.
+	 */
+	private void sort(long[] records, int from, int to, long[] buffer) throws CoreException {
+		if (to - from < 2)
+			return;
+		final int middle= (from + to) >>> 1;
+		sort(records, from, middle, buffer);
+		sort(records, middle, to, buffer);
+		if (cmp.compare(records[middle - 1], records[middle]) <= 0)
+			return;
+
+		System.arraycopy(records, from, buffer, from, to - from);
+		int i= from;
+		int j= middle;
+		for (int k= from; k < to; k++) {
+			if (j >= to || (i < middle && cmp.compare(buffer[i], buffer[j]) <= 0)) {
+				records[k]= buffer[i++];
+			} else {
+				records[k]= buffer[j++];
+			}
+		}
+	}
+
+	/**
+	 * Returns the maximum number of records in a subtree of the given height.
+	 */
+	private long getCapacity(int height) {
+		long capacity= MAX_RECORDS;
+		for (int i= 0; i < height; i++) {
+			capacity= capacity * MAX_CHILDREN + MAX_RECORDS;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Builds a subtree of the given height from a sorted range of records. The records are
+	 * distributed evenly among the children, which keeps every node above the minimum fill.
+	 */
+	private long buildNode(long[] records, int from, int to, int height) throws CoreException {
+		final long node= allocateNode();
+		final int count= to - from;
+		if (height == 0) {
+			final Chunk chunk= db.getChunk(node);
+			for (int i= 0; i < count; i++) {
+				putRecord(chunk, node, i, records[from + i]);
+			}
+			return node;
+		}
+
+		final long childCapacity= getCapacity(height - 1);
+		final int children= (int) ((count + childCapacity + 1) / (childCapacity + 1));
+		final int inChildren= count - (children - 1);
+		int start= from;
+		for (int i= 0; i < children; i++) {
+			final int end= start + inChildren / children + (i < inChildren % children ? 1 : 0);
+			final long child= buildNode(records, start, end, height - 1);
+			// The chunk may have been evicted while the child was built.
+			final Chunk chunk= db.getChunk(node);
+			putChild(chunk, node, i, child);
+			if (i < children - 1) {
+				putRecord(chunk, node, i, records[end]);
+			}
+			start= end + 1;
+		}
+		return node;
+	}
+
 	/**
 	 * Deletes the specified record from the B-tree.
 	 * <p>
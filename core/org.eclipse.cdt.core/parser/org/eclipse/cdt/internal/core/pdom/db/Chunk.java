@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2012 QNX Software Systems and others.
+ * Copyright (c) 2005, 2014 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,17 +15,22 @@ package org.eclipse.cdt.internal.core.pdom.db;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.eclipse.core.runtime.CoreException;
 
 /**
- * Caches the content of a piece of the database.
+ * Caches the content of a piece of the database. The content is either held in a buffer on the heap,
+ * or, for databases that are mapped into memory, a read-only view onto the mapped file.
  */
 final class Chunk {
-	final private byte[] fBuffer= new byte[Database.CHUNK_SIZE];
+	final private ByteBuffer fBuffer;
 
 	final Database fDatabase;
 	final int fSequenceNumber;
+	// Copied from the database, which may change its format only after removing all chunks.
+	private final int fOffsetInChunkMask;
+	private final int fBlockSizeDeltaBits;
 	
 	boolean fCacheHitFlag;
 	boolean fDirty;
@@ -33,14 +38,29 @@ final class Chunk {
 	int fCacheIndex= -1;
 		
 	Chunk(Database db, int sequenceNumber) {
+		this(db, sequenceNumber, ByteBuffer.wrap(new byte[db.getChunkSize()]));
+	}
+
+	/**
+	 * Creates a chunk operating on the given buffer of the chunk size of the database. The buffer
+	 * may be a read-only view, in which case the chunk cannot be modified.
+	 */
+	Chunk(Database db, int sequenceNumber, ByteBuffer buffer) {
+		assert buffer.capacity() == db.getChunkSize() && buffer.order() == ByteOrder.BIG_ENDIAN;
 		fDatabase= db;
 		fSequenceNumber= sequenceNumber;
+		fBuffer= buffer;
+		fOffsetInChunkMask= db.getChunkSize() - 1;
+		fBlockSizeDeltaBits= db.getBlockSizeDeltaBits();
+	}
+
+	int getSize() {
+		return fBuffer.capacity();
 	}
 
 	void read() throws CoreException {
 		try {
-			final ByteBuffer buf= ByteBuffer.wrap(fBuffer);
-			fDatabase.read(buf, (long) fSequenceNumber * Database.CHUNK_SIZE);
+			fDatabase.readChunk(bufferAt(0), fSequenceNumber);
 		} catch (IOException e) {
 			throw new CoreException(new DBStatus(e));
 		}
@@ -48,45 +68,53 @@ final class Chunk {
 
 	void flush() throws CoreException {
 		try {
-			final ByteBuffer buf= ByteBuffer.wrap(fBuffer);
-			fDatabase.write(buf, (long) fSequenceNumber * Database.CHUNK_SIZE);
+			fDatabase.writeChunk(bufferAt(0), fSequenceNumber);
 		} catch (IOException e) {
 			throw new CoreException(new DBStatus(e));
 		}
 		fDirty= false;
 	}
 
-	private static int recPtrToIndex(final long offset) {
-		return (int) (offset & Database.OFFSET_IN_CHUNK_MASK);
+	/**
+	 * Returns a buffer sharing the content of the chunk, positioned at the given index. The buffer
+	 * of the chunk itself is accessed by index only, such that it can be used by multiple threads.
+	 */
+	private ByteBuffer bufferAt(int idx) {
+		final ByteBuffer buf= fBuffer.duplicate();
+		buf.position(idx);
+		return buf;
+	}
+
+	private int recPtrToIndex(final long offset) {
+		return (int) (offset & fOffsetInChunkMask);
 	}
 
 	public void putByte(final long offset, final byte value) {
 		assert fLocked;
 		fDirty= true;
-		fBuffer[recPtrToIndex(offset)]= value;
+		fBuffer.put(recPtrToIndex(offset), value);
 	}
 	
 	public byte getByte(final long offset) {
-		return fBuffer[recPtrToIndex(offset)];
+		return fBuffer.get(recPtrToIndex(offset));
 	}
 	
 	public byte[] getBytes(final long offset, final int length) {
 		final byte[] bytes = new byte[length];
-		System.arraycopy(fBuffer, recPtrToIndex(offset), bytes, 0, length);
+		bufferAt(recPtrToIndex(offset)).get(bytes, 0, length);
 		return bytes;
 	}
 	
 	public void putBytes(final long offset, final byte[] bytes) {
 		assert fLocked;
 		fDirty= true;
-		System.arraycopy(bytes, 0, fBuffer, recPtrToIndex(offset), bytes.length);
+		bufferAt(recPtrToIndex(offset)).put(bytes, 0, bytes.length);
 	}
 	
 	public void putInt(final long offset, final int value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-		putInt(value, fBuffer, idx);
+		fBuffer.putInt(recPtrToIndex(offset), value);
 	}
 
 	static final void putInt(final int value, final byte[] buffer, int idx) {
@@ -97,7 +125,7 @@ final class Chunk {
 	}
 	
 	public int getInt(final long offset) {
-		return getInt(fBuffer, recPtrToIndex(offset));
+		return fBuffer.getInt(recPtrToIndex(offset));
 	}
 
 	static final int getInt(final byte[] buffer, int idx) {
@@ -111,10 +139,10 @@ final class Chunk {
 	 * A free Record Pointer is a pointer to a raw block, i.e. the
 	 * pointer is not moved past the BLOCK_HEADER_SIZE.
 	 */
-	private static int compressFreeRecPtr(final long value) {
+	private static int compressFreeRecPtr(final long value, final int blockSizeDeltaBits) {
 		// This assert verifies the alignment. We expect the low bits to be clear.
-		assert (value & (Database.BLOCK_SIZE_DELTA - 1)) == 0;
-		final int dense = (int) (value >> Database.BLOCK_SIZE_DELTA_BITS);
+		assert (value & ((1 << blockSizeDeltaBits) - 1)) == 0;
+		final int dense = (int) (value >> blockSizeDeltaBits);
 		return dense;
 	}
 	
@@ -122,7 +150,7 @@ final class Chunk {
 	 * A free Record Pointer is a pointer to a raw block,
 	 * i.e. the pointer is not moved past the BLOCK_HEADER_SIZE.
 	 */
-	private static long expandToFreeRecPtr(int value) {
+	private static long expandToFreeRecPtr(int value, final int blockSizeDeltaBits) {
 		/*
 		 * We need to properly manage the integer that was read. The value will be sign-extended 
 		 * so if the most significant bit is set, the resulting long will look negative. By 
@@ -131,15 +159,15 @@ final class Chunk {
 		 * stored record pointers.
 		 */
 		long address = value & 0xFFFFFFFFL;
-		return address << Database.BLOCK_SIZE_DELTA_BITS;
+		return address << blockSizeDeltaBits;
 	}
 
 	/**
 	 * A Record Pointer is a pointer as returned by Database.malloc().
 	 * This is a pointer to a block + BLOCK_HEADER_SIZE.
 	 */
-	static void putRecPtr(final long value, byte[] buffer, int idx) {
-		final int denseValue = value == 0 ? 0 : compressFreeRecPtr(value - Database.BLOCK_HEADER_SIZE);
+	static void putRecPtr(final long value, final int blockSizeDeltaBits, byte[] buffer, int idx) {
+		final int denseValue = value == 0 ? 0 : compressFreeRecPtr(value - Database.BLOCK_HEADER_SIZE, blockSizeDeltaBits);
 		putInt(denseValue, buffer, idx);
 	}
 
@@ -147,9 +175,9 @@ final class Chunk {
 	 * A Record Pointer is a pointer as returned by Database.malloc().
 	 * This is a pointer to a block + BLOCK_HEADER_SIZE.
 	 */
-	static long getRecPtr(byte[] buffer, final int idx) {
+	static long getRecPtr(final int blockSizeDeltaBits, byte[] buffer, final int idx) {
 		int value = getInt(buffer, idx);
-		long address = expandToFreeRecPtr(value);
+		long address = expandToFreeRecPtr(value, blockSizeDeltaBits);
 		return address != 0 ? (address + Database.BLOCK_HEADER_SIZE) : address;
 	}
 
@@ -160,8 +188,8 @@ final class Chunk {
 	public void putRecPtr(final long offset, final long value) {
 		assert fLocked;
 		fDirty = true;
-		int idx = recPtrToIndex(offset);
-		putRecPtr(value, fBuffer, idx);
+		final int denseValue = value == 0 ? 0 : compressFreeRecPtr(value - Database.BLOCK_HEADER_SIZE, fBlockSizeDeltaBits);
+		fBuffer.putInt(recPtrToIndex(offset), denseValue);
 	}
 	
 	/**
@@ -171,95 +199,64 @@ final class Chunk {
 	public void putFreeRecPtr(final long offset, final long value) {
 		assert fLocked;
 		fDirty = true;
-		int idx = recPtrToIndex(offset);
-		putInt(compressFreeRecPtr(value), fBuffer, idx);
+		fBuffer.putInt(recPtrToIndex(offset), compressFreeRecPtr(value, fBlockSizeDeltaBits));
 	}
 
 	public long getRecPtr(final long offset) {
-		final int idx = recPtrToIndex(offset);
-		return getRecPtr(fBuffer, idx);
+		long address = expandToFreeRecPtr(fBuffer.getInt(recPtrToIndex(offset)), fBlockSizeDeltaBits);
+		return address != 0 ? (address + Database.BLOCK_HEADER_SIZE) : address;
 	}
 	
 	public long getFreeRecPtr(final long offset) {
-		final int idx = recPtrToIndex(offset);
-		int value = getInt(fBuffer, idx);
-		return expandToFreeRecPtr(value);
+		return expandToFreeRecPtr(fBuffer.getInt(recPtrToIndex(offset)), fBlockSizeDeltaBits);
 	}
 	
 	public void put3ByteUnsignedInt(final long offset, final int value) {
 		assert fLocked;
 		fDirty= true;
 		int idx= recPtrToIndex(offset);
-		fBuffer[idx]= (byte) (value >> 16);
-		fBuffer[++idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.put(idx, (byte) (value >> 16));
+		fBuffer.put(++idx, (byte) (value >> 8));
+		fBuffer.put(++idx, (byte) (value));
 	}
 	
 	public int get3ByteUnsignedInt(final long offset) {
 		int idx= recPtrToIndex(offset);
-		return ((fBuffer[idx] & 0xff) << 16) |
-				((fBuffer[++idx] & 0xff) <<  8) |
-				((fBuffer[++idx] & 0xff) <<  0);
+		return ((fBuffer.get(idx) & 0xff) << 16) |
+				((fBuffer.get(++idx) & 0xff) <<  8) |
+				((fBuffer.get(++idx) & 0xff) <<  0);
 	}
 
 	public void putShort(final long offset, final short value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-		fBuffer[idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.putShort(recPtrToIndex(offset), value);
 	}
 	
 	public short getShort(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (short) (((fBuffer[idx] << 8) | (fBuffer[++idx] & 0xff)));
+		return fBuffer.getShort(recPtrToIndex(offset));
 	}
 
 	public long getLong(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return ((((long) fBuffer[idx] & 0xff) << 56) |
-				(((long) fBuffer[++idx] & 0xff) << 48) |
-				(((long) fBuffer[++idx] & 0xff) << 40) |
-				(((long) fBuffer[++idx] & 0xff) << 32) |
-				(((long) fBuffer[++idx] & 0xff) << 24) |
-				(((long) fBuffer[++idx] & 0xff) << 16) |
-				(((long) fBuffer[++idx] & 0xff) <<  8) |
-				(((long) fBuffer[++idx] & 0xff) <<  0));
+		return fBuffer.getLong(recPtrToIndex(offset));
 	}
 
 	public void putLong(final long offset, final long value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-
-		fBuffer[idx]=   (byte) (value >> 56);
-		fBuffer[++idx]= (byte) (value >> 48);
-		fBuffer[++idx]= (byte) (value >> 40);
-		fBuffer[++idx]= (byte) (value >> 32);
-		fBuffer[++idx]= (byte) (value >> 24);
-		fBuffer[++idx]= (byte) (value >> 16);
-		fBuffer[++idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.putLong(recPtrToIndex(offset), value);
 	}
 	
 	public void putChar(final long offset, final char value) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset);
-		fBuffer[idx]= (byte) (value >> 8);
-		fBuffer[++idx]= (byte) (value);
+		fBuffer.putChar(recPtrToIndex(offset), value);
 	}
 	
 	public void putChars(final long offset, char[] chars, int start, int len) {
 		assert fLocked;
 		fDirty= true;
-		int idx= recPtrToIndex(offset)-1;
-		final int end= start + len;
-		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			fBuffer[++idx]= (byte) (value >> 8);
-			fBuffer[++idx]= (byte) (value);
-		}
+		bufferAt(recPtrToIndex(offset)).asCharBuffer().put(chars, start, len);
 	}
 
 	public void putCharsAsBytes(final long offset, char[] chars, int start, int len) {
@@ -268,26 +265,22 @@ final class Chunk {
 		int idx= recPtrToIndex(offset)-1;
 		final int end= start + len;
 		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			fBuffer[++idx]= (byte) (value);
+			fBuffer.put(++idx, (byte) chars[i]);
 		}
 	}
 
 	public char getChar(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (char) (((fBuffer[idx] << 8) | (fBuffer[++idx] & 0xff)));
+		return fBuffer.getChar(recPtrToIndex(offset));
 	}
 
 	public void getChars(final long offset, final char[] result, int start, int len) {
-		final ByteBuffer buf= ByteBuffer.wrap(fBuffer);
-		buf.position(recPtrToIndex(offset));
-		buf.asCharBuffer().get(result, start, len);
+		bufferAt(recPtrToIndex(offset)).asCharBuffer().get(result, start, len);
 	}
 
 	public void getCharsFromBytes(final long offset, final char[] result, int start, int len) {
 		final int pos = recPtrToIndex(offset);
 		for (int i = 0; i < len; i++) {
-			result[start + i] =  (char) (fBuffer[pos + i] & 0xff);
+			result[start + i] =  (char) (fBuffer.get(pos + i) & 0xff);
 		}
 	}
 
@@ -297,7 +290,7 @@ final class Chunk {
 		int idx = recPtrToIndex(offset);
 		final int end = idx + length;
 		for (; idx < end; idx++) {
-			fBuffer[idx] = 0;
+			fBuffer.put(idx, (byte) 0);
 		}
 	}
 
@@ -308,8 +301,7 @@ final class Chunk {
 	void put(final long offset, final byte[] data, int dataPos, final int len) {
 		assert fLocked;
 		fDirty = true;
-		int idx = recPtrToIndex(offset);
-		System.arraycopy(data, dataPos, fBuffer, idx, len);
+		bufferAt(recPtrToIndex(offset)).put(data, dataPos, len);
 	}
 	
 	public void get(final long offset, byte[] data) {
@@ -317,7 +309,6 @@ final class Chunk {
 	}
 
 	public void get(final long offset, byte[] data, int dataPos, int len) {
-		int idx = recPtrToIndex(offset);
-		System.arraycopy(fBuffer, idx, data, dataPos, len);
+		bufferAt(recPtrToIndex(offset)).get(data, dataPos, len);
 	}
 }
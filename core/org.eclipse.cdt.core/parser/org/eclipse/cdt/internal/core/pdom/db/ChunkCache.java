@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007 Wind River Systems, Inc. and others.
+ * Copyright (c) 2007, 2014 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,16 +7,63 @@
  *
  * Contributors:
  *     Markus Schorn - initial API and implementation
- *******************************************************************************/ 
+ *******************************************************************************/
 package org.eclipse.cdt.internal.core.pdom.db;
 
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of chunks shared by databases. The page table is split into segments, each of which
+ * is protected by its own lock and runs its own CLOCK hand. A chunk always maps to the same
+ * segment, so that readers of different chunks rarely contend for the same lock. Databases may use
+ * different chunk sizes, a segment evicts chunks until the total size of its chunks fits its share
+ * of the maximum size.
+ * <p>
+ * The lock of a segment also protects the entries of {@link Database}'s chunk table that map to
+ * the segment. Databases acquire it via {@link #lockSegment(Database, int)}.
+ */
 public final class ChunkCache {
+	/** Number of segments, must be a power of two. */
+	static final int SEGMENT_COUNT= 16;
+
 	private static ChunkCache sSharedInstance= new ChunkCache();
-	
-	private Chunk[] fPageTable;
-	private boolean fTableIsFull;
-	private int fPointer;
-	
+
+	private static final class Segment extends ReentrantLock {
+		Chunk[] fPageTable;
+		int fCount;		// Number of chunks in the page table.
+		int fPointer;
+		long fSize;		// Total size of the chunks in the page table.
+		long fMaxSize;
+		// Protected by the lock of the segment.
+		long fLockCount;
+		long fContentionCount;
+
+		Segment(long maxSize) {
+			fMaxSize= maxSize;
+			fPageTable= new Chunk[computeTableLength(maxSize)];
+		}
+
+		/**
+		 * Removes the chunk at the given index of the page table by moving the last chunk there.
+		 */
+		void removeAt(int idx) {
+			final Chunk chunk= fPageTable[idx];
+			chunk.fCacheIndex= -1;
+			fSize -= chunk.getSize();
+			final Chunk move= fPageTable[--fCount];
+			fPageTable[fCount]= null;
+			if (move != chunk) {
+				fPageTable[idx]= move;
+				move.fCacheIndex= idx;
+			}
+			if (fPointer >= fCount) {
+				fPointer= 0;
+			}
+		}
+	}
+
+	private final Segment[] fSegments;
+
 	public static ChunkCache getSharedInstance() {
 		return sSharedInstance;
 	}
@@ -24,41 +71,95 @@ public final class ChunkCache {
 	public ChunkCache() {
 		this(5 * 1024 * 1024);
 	}
-	
+
 	public ChunkCache(long maxSize) {
-		fPageTable= new Chunk[computeLength(maxSize)];
+		final long segmentSize= computeSegmentSize(maxSize);
+		fSegments= new Segment[SEGMENT_COUNT];
+		for (int i= 0; i < fSegments.length; i++) {
+			fSegments[i]= new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * Returns the segment the chunk with the given sequence number of a database maps to.
+	 */
+	static int getSegment(Database db, int chunkIndex) {
+		return (chunkIndex + System.identityHashCode(db)) & (SEGMENT_COUNT - 1);
 	}
-	
-	public synchronized void add(Chunk chunk, boolean locked) {
-		if (locked) {
-			chunk.fLocked= true;
+
+	/**
+	 * Acquires the lock of the segment a chunk of a database maps to.
+	 * @return the segment that needs to be passed to {@link #unlockSegment(int)}.
+	 */
+	int lockSegment(Database db, int chunkIndex) {
+		final int segment= getSegment(db, chunkIndex);
+		final Segment seg= fSegments[segment];
+		if (!seg.tryLock()) {
+			seg.lock();
+			seg.fContentionCount++;
 		}
-		if (chunk.fCacheIndex >= 0) {
-			chunk.fCacheHitFlag= true;
-			return;
+		seg.fLockCount++;
+		return segment;
+	}
+
+	void unlockSegment(int segment) {
+		fSegments[segment].unlock();
+	}
+
+	/**
+	 * Acquires the locks of all segments, needed when a database modifies its entire chunk table.
+	 */
+	void lockAll() {
+		for (Segment seg : fSegments) {
+			seg.lock();
 		}
-		if (fTableIsFull) {
-			evictChunk();
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
-		} else {
-			chunk.fCacheIndex= fPointer;
-			fPageTable[fPointer]= chunk;
-
-			fPointer++;
-			if (fPointer == fPageTable.length) {
-				fPointer= 0;
-				fTableIsFull= true;
+	}
+
+	void unlockAll() {
+		for (int i= fSegments.length; --i >= 0;) {
+			fSegments[i].unlock();
+		}
+	}
+
+	/**
+	 * Returns whether the current thread holds the lock of any segment.
+	 */
+	boolean isLockedByCurrentThread() {
+		for (Segment seg : fSegments) {
+			if (seg.isHeldByCurrentThread())
+				return true;
+		}
+		return false;
+	}
+
+	public void add(Chunk chunk, boolean locked) {
+		final Segment seg= fSegments[getSegment(chunk.fDatabase, chunk.fSequenceNumber)];
+		seg.lock();
+		try {
+			if (locked) {
+				chunk.fLocked= true;
+			}
+			if (chunk.fCacheIndex >= 0) {
+				chunk.fCacheHitFlag= true;
+				return;
+			}
+			// A single chunk is kept even if it exceeds the size of the segment.
+			final int size= chunk.getSize();
+			while (seg.fCount > 0 && (seg.fSize + size > seg.fMaxSize || seg.fCount == seg.fPageTable.length)) {
+				evictChunk(seg);
 			}
+			chunk.fCacheIndex= seg.fCount;
+			seg.fPageTable[seg.fCount++]= chunk;
+			seg.fSize += size;
+		} finally {
+			seg.unlock();
 		}
 	}
-	
-	/**                                                                   
-	 * Evicts a chunk from the page table and the chunk table.            
-	 * After this method returns, {@link #fPointer}  will contain
-	 * the index of the evicted chunk within the page table.              
-	 */                                                                   
-	private void evictChunk() {
+
+	/**
+	 * Evicts a chunk from the page table of the segment and the chunk table.
+	 */
+	private void evictChunk(Segment seg) {
 		/*
 		 * Use the CLOCK algorithm to determine which chunk to evict.
 		 * i.e., if the chunk in the current slot of the page table has been
@@ -66,74 +167,134 @@ public final class ChunkCache {
 		 * reference flag and move to the next slot.  Otherwise, evict the
 		 * chunk in the current slot.
 		 */
+		final Chunk[] pageTable= seg.fPageTable;
 		while (true) {
-			Chunk chunk = fPageTable[fPointer];
+			Chunk chunk = pageTable[seg.fPointer];
 			if (chunk.fCacheHitFlag) {
 				chunk.fCacheHitFlag= false;
-				fPointer= (fPointer + 1) % fPageTable.length;
+				seg.fPointer= (seg.fPointer + 1) % seg.fCount;
 			} else {
 				chunk.fDatabase.releaseChunk(chunk);
-				chunk.fCacheIndex= -1;
-				fPageTable[fPointer] = null;
+				seg.removeAt(seg.fPointer);
 				return;
 			}
 		}
 	}
 
-	public synchronized void remove(Chunk chunk) {
-		final int idx= chunk.fCacheIndex;
-		if (idx >= 0) {
-			if (fTableIsFull) {
-				fPointer= fPageTable.length-1;
-				fTableIsFull= false;
-			} else {
-				fPointer--;
+	public void remove(Chunk chunk) {
+		final Segment seg= fSegments[getSegment(chunk.fDatabase, chunk.fSequenceNumber)];
+		seg.lock();
+		try {
+			final int idx= chunk.fCacheIndex;
+			if (idx >= 0) {
+				seg.removeAt(idx);
 			}
-			chunk.fCacheIndex= -1;
-			final Chunk move= fPageTable[fPointer];
-			fPageTable[idx]= move;
-			move.fCacheIndex= idx;
-			fPageTable[fPointer]= null;
-		}	
+		} finally {
+			seg.unlock();
+		}
 	}
 
-	/**                                                                           
+	/**
 	 * Returns the maximum size of the chunk cache in bytes.
-	 */                                                                           
-	public synchronized long getMaxSize() {
-		return (long) fPageTable.length * Database.CHUNK_SIZE;
+	 */
+	public long getMaxSize() {
+		long size= 0;
+		for (Segment seg : fSegments) {
+			seg.lock();
+			try {
+				size += seg.fMaxSize;
+			} finally {
+				seg.unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns how many times the lock of a segment was acquired by a database.
+	 */
+	public long getLockCount() {
+		long count= 0;
+		for (Segment seg : fSegments) {
+			seg.lock();
+			try {
+				count += seg.fLockCount;
+			} finally {
+				seg.unlock();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns how many times a database had to wait for the lock of a segment, because it was
+	 * held by another thread.
+	 */
+	public long getContentionCount() {
+		long count= 0;
+		for (Segment seg : fSegments) {
+			seg.lock();
+			try {
+				count += seg.fContentionCount;
+			} finally {
+				seg.unlock();
+			}
+		}
+		return count;
 	}
 
-	/**                                                                           
+	public void resetCounters() {
+		for (Segment seg : fSegments) {
+			seg.lock();
+			try {
+				seg.fLockCount= 0;
+				seg.fContentionCount= 0;
+			} finally {
+				seg.unlock();
+			}
+		}
+	}
+
+	/**
 	 * Clears the page table and changes it to hold chunks with
-	 * maximum total memory of <code>maxSize</code>.       
-	 * @param maxSize the total size of the chunks in bytes.                
-	 */                                                                           
-	public synchronized void setMaxSize(long maxSize) {
-		final int newLength= computeLength(maxSize);
-		final int oldLength= fTableIsFull ? fPageTable.length : fPointer;
-		if (newLength > oldLength) {
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, oldLength);
-			fTableIsFull= false;
-			fPointer= oldLength;
-			fPageTable= newTable;
-		} else {
-			for (int i= newLength; i < oldLength; i++) {
-				final Chunk chunk= fPageTable[i];
-				chunk.fDatabase.releaseChunk(chunk);
-				chunk.fCacheIndex= -1;
+	 * maximum total memory of <code>maxSize</code>.
+	 * @param maxSize the total size of the chunks in bytes.
+	 */
+	public void setMaxSize(long maxSize) {
+		final long segmentSize= computeSegmentSize(maxSize);
+		lockAll();
+		try {
+			for (Segment seg : fSegments) {
+				seg.fMaxSize= segmentSize;
+				while (seg.fCount > 0 && seg.fSize > segmentSize) {
+					final Chunk chunk= seg.fPageTable[seg.fCount - 1];
+					chunk.fDatabase.releaseChunk(chunk);
+					seg.removeAt(seg.fCount - 1);
+				}
+				Chunk[] newTable= new Chunk[Math.max(computeTableLength(segmentSize), seg.fCount)];
+				System.arraycopy(seg.fPageTable, 0, newTable, 0, seg.fCount);
+				seg.fPointer= 0;
+				seg.fPageTable= newTable;
 			}
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(fPageTable, 0, newTable, 0, newLength);
-			fTableIsFull= true;
-			fPointer= 0;
-			fPageTable= newTable;
-		}       
-	}                                                                             
-
-	private int computeLength(long maxSize) {
-		long maxLength= Math.min(maxSize / Database.CHUNK_SIZE, Integer.MAX_VALUE);
-		return Math.max(1, (int) maxLength);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Computes the size of a segment. The total is rounded down to whole chunks of the minimal
+	 * size, such that the memory bound is kept unless the cache is too small to hold a chunk in
+	 * every segment.
+	 */
+	private static long computeSegmentSize(long maxSize) {
+		return Math.max(1, maxSize / Database.CHUNK_SIZE / SEGMENT_COUNT) * Database.CHUNK_SIZE;
+	}
+
+	/**
+	 * Computes the length of the page table of a segment, which needs to hold as many chunks
+	 * of the minimal size as fit into the segment.
+	 */
+	private static int computeTableLength(long segmentSize) {
+		return (int) Math.min(segmentSize / Database.CHUNK_SIZE, Integer.MAX_VALUE);
 	}
 }
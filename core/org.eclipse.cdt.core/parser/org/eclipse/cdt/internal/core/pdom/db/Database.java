@@ -19,9 +19,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -39,9 +41,10 @@ import com.ibm.icu.text.MessageFormat;
  * @author Doug Schaefer
  */
 /*
- * The file encapsulated is divided into Chunks of size CHUNK_SIZE, and a table of contents
- * mapping chunk index to chunk address is maintained. Chunk structure exists only conceptually -
- * it is not a structure that appears in the file.
+ * The file encapsulated is divided into Chunks of a size stored with the database, and a table of
+ * contents mapping chunk index to chunk address is maintained. Chunk structure exists only
+ * conceptually - it is not a structure that appears in the file. The chunk size is a multiple of
+ * CHUNK_SIZE, blocks never cross a multiple of CHUNK_SIZE.
  *
  * ===== The first chunk is used by Database itself for house-keeping purposes and has structure
  *
@@ -51,9 +54,12 @@ import com.ibm.icu.text.MessageFormat;
  * INT_SIZE         | pointer to head of linked list of blocks of size MIN_BLOCK_DELTAS*BLOCK_SIZE_DELTA
  * ..               | ...
  * INT_SIZE * m (1) | pointer to head of linked list of blocks of size (m + MIN_BLOCK_DELTAS) * BLOCK_SIZE_DELTA
+ * FORMAT_OFFSET    | format of the database: chunk size and alignment of blocks (2)
  * DATA_AREA        | undefined (PDOM stores its own house-keeping data in this area)
  *
  * (1) where 2 <= m <= CHUNK_SIZE / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 1
+ * (2) BLOCK_SIZE_DELTA and MIN_BLOCK_DELTAS depend on the alignment of blocks, the values of the
+ *     constants are the ones of the default format.
  *
  * ===== block structure
  *
@@ -67,9 +73,13 @@ import com.ibm.icu.text.MessageFormat;
 public class Database {
 	// Public for tests only, you shouldn't need these.
 	public static final int INT_SIZE = 4;
+	// Default and minimum size of a chunk, also the maximum size of a block.
 	public static final int CHUNK_SIZE = 1024 * 4;
+	public static final int MAX_CHUNK_SIZE = 1024 * 64;
 	public static final int OFFSET_IN_CHUNK_MASK= CHUNK_SIZE - 1;
 	public static final int BLOCK_HEADER_SIZE= 2;
+	// Blocks are aligned to 1 << BLOCK_SIZE_DELTA_BITS bytes in databases with the default format.
+	// A larger alignment increases the maximum size of a database.
 	public static final int BLOCK_SIZE_DELTA_BITS = 3;
 	public static final int BLOCK_SIZE_DELTA= 1 << BLOCK_SIZE_DELTA_BITS;
 	public static final int MIN_BLOCK_DELTAS = 2;	// a block must at least be 2 + 2*4 bytes to link the free blocks.
@@ -83,31 +93,83 @@ public class Database {
 	public static final int EVALUATION_SIZE = TYPE_SIZE;  // size of an evaluation in the database in bytes
 	public static final int ARGUMENT_SIZE = TYPE_SIZE;  // size of a template argument in the database in bytes
 	public static final long MAX_DB_SIZE= ((long) 1 << (Integer.SIZE + BLOCK_SIZE_DELTA_BITS));
+	public static final int MAX_BLOCK_SIZE_DELTA_BITS = 5;
 
 	public static final int VERSION_OFFSET = 0;
-	public static final int DATA_AREA = (CHUNK_SIZE / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 2) * INT_SIZE;
+	private static final int FORMAT_OFFSET = (CHUNK_SIZE / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 2) * INT_SIZE;
+	public static final int DATA_AREA = FORMAT_OFFSET + INT_SIZE;
+	// Distinguishes the format from data stored at FORMAT_OFFSET by databases that predate it.
+	private static final int FORMAT_TAG= 0xDB00 << 16;
+	private static final int FORMAT_TAG_MASK= 0xFFFF << 16;
+
+	// Format of new databases.
+	private static final int DEFAULT_CHUNK_SIZE;
+	private static final int DEFAULT_BLOCK_SIZE_DELTA_BITS;
+	static {
+		int chunkSize= Integer.getInteger("org.eclipse.cdt.core.parser.pdom.db.chunkSize", CHUNK_SIZE); //$NON-NLS-1$
+		int blockSizeDeltaBits= Integer.getInteger("org.eclipse.cdt.core.parser.pdom.db.blockSizeDeltaBits", //$NON-NLS-1$
+				BLOCK_SIZE_DELTA_BITS);
+		if (!isValidFormat(chunkSize, blockSizeDeltaBits)) {
+			chunkSize= CHUNK_SIZE;
+			blockSizeDeltaBits= BLOCK_SIZE_DELTA_BITS;
+		}
+		DEFAULT_CHUNK_SIZE= chunkSize;
+		DEFAULT_BLOCK_SIZE_DELTA_BITS= blockSizeDeltaBits;
+	}
 
 	private static final int BLOCK_PREV_OFFSET = BLOCK_HEADER_SIZE;
 	private static final int BLOCK_NEXT_OFFSET = BLOCK_HEADER_SIZE + INT_SIZE;
 
+	/**
+	 * Read-only databases are mapped into memory in regions of this size, a mapped buffer cannot
+	 * exceed 2GB. Must be a multiple of CHUNK_SIZE.
+	 */
+	private static final int MAPPED_REGION_SIZE= 1 << 30;
+	private static final boolean USE_MEMORY_MAPPING=
+			Boolean.getBoolean("org.eclipse.cdt.core.parser.pdom.db.mmap"); //$NON-NLS-1$
+	/**
+	 * Writable databases append chunks to a {@link WriteAheadLog} instead of writing them in place,
+	 * such that the last flushed state can be recovered after a crash.
+	 */
+	private static final boolean USE_WRITE_AHEAD_LOG=
+			!Boolean.getBoolean("org.eclipse.cdt.core.parser.pdom.db.disableWriteAheadLog"); //$NON-NLS-1$
+	// Size of the log that triggers copying the logged chunks into the database file.
+	private static final long CHECKPOINT_SIZE= 32 * 1024 * 1024;
+
 	private final File fLocation;
 	private final boolean fReadOnly;
+	// Non-null if the chunks of this read-only database are views onto the mapped file.
+	private MappedByteBuffer[] fMappedRegions;
+	private long fMappedLength;
+	private WriteAheadLog fWal;
 	private RandomAccessFile fFile;
 	private boolean fExclusiveLock;	 // Necessary for any write operation.
 	private boolean fLocked;		 // Necessary for any operation.
 	private boolean fIsMarkedIncomplete;
 
 	private int fVersion;
-	private final Chunk fHeaderChunk;
+	// The format of the database, changes only when it is cleared.
+	private int fChunkSize;
+	private int fBlockSizeDeltaBits;
+	private int fBlockSizeDelta;
+	private int fMinBlockDeltas;
+	private int fMaxBlockDeltas;
+	private Chunk fHeaderChunk;
 	private Chunk[] fChunks;
 	private int fChunksUsed;
 	private int fChunksAllocated;
 	private ChunkCache fCache;
 
+	// Updated while holding the exclusive lock, read while holding a lock.
 	private long malloced;
 	private long freed;
-	private long cacheHits;
-	private long cacheMisses;
+	// Bytes in the free blocks, computed on demand, negative while unknown.
+	private long fBytesFree= -1;
+	private long fBytesFreeAfterCompaction;
+	private boolean fClosed;
+	// Counted per segment of the cache, protected by the lock of the segment.
+	private final long[] cacheHits= new long[ChunkCache.SEGMENT_COUNT];
+	private final long[] cacheMisses= new long[ChunkCache.SEGMENT_COUNT];
 
 	/**
 	 * Construct a new Database object, creating a backing file if necessary.
@@ -118,30 +180,141 @@ public class Database {
 	 * @throws CoreException
 	 */
 	public Database(File location, ChunkCache cache, int version, boolean openReadOnly) throws CoreException {
+		this(location, cache, version, openReadOnly, openReadOnly && USE_MEMORY_MAPPING);
+	}
+
+	/**
+	 * Construct a new Database object, creating a backing file if necessary. New databases are
+	 * created with the default format, which can be changed via {@link #clear(int, int, int)}.
+	 * @param location the local file path for the database
+	 * @param cache the cache to be used optimization
+	 * @param version the version number to store in the database (only applicable for new databases)
+	 * @param openReadOnly whether this Database object will ever need writing to
+	 * @param mapFile whether the chunks of a read-only database shall be views onto the file mapped
+	 *     into memory rather than copies of its content. Ignored for writable databases.
+	 * @throws CoreException
+	 */
+	public Database(File location, ChunkCache cache, int version, boolean openReadOnly, boolean mapFile)
+			throws CoreException {
 		try {
 			fLocation = location;
 			fReadOnly= openReadOnly;
 			fCache= cache;
 			openFile();
+			openWriteAheadLog();
 
-			int nChunksOnDisk = (int) (fFile.length() / CHUNK_SIZE);
+			final long length= fFile.length();
+			final int chunksInLog= fWal != null ? fWal.getChunkCount() : 0;
+			if (length < CHUNK_SIZE && chunksInLog == 0) {
+				setFormat(DEFAULT_CHUNK_SIZE, DEFAULT_BLOCK_SIZE_DELTA_BITS);
+			} else {
+				final ByteBuffer buf= ByteBuffer.allocate(INT_SIZE);
+				if (fWal == null || !fWal.read(0, FORMAT_OFFSET, buf)) {
+					read(buf, FORMAT_OFFSET);
+				}
+				final int format= buf.getInt(0);
+				if (isValidFormat(format)) {
+					setFormat(1 << ((format >> 8) & 0xff), format & 0xff);
+				} else {
+					// Databases that predate the format are rebuilt, the PDOM does not support their version.
+					setFormat(CHUNK_SIZE, BLOCK_SIZE_DELTA_BITS);
+				}
+			}
+
+			int nChunksOnDisk = Math.max((int) (length / fChunkSize), chunksInLog);
 			fHeaderChunk= new Chunk(this, 0);
 			fHeaderChunk.fLocked= true;		// Never makes it into the cache, needed to satisfy assertions.
 			if (nChunksOnDisk <= 0) {
 				fVersion= version;
 				fChunks= new Chunk[1];
 				fChunksUsed = fChunksAllocated = fChunks.length;
+				if (!openReadOnly) {
+					fHeaderChunk.putInt(FORMAT_OFFSET, encodeFormat());
+				}
 			} else {
 				fHeaderChunk.read();
 				fVersion= fHeaderChunk.getInt(VERSION_OFFSET);
 				fChunks = new Chunk[nChunksOnDisk];	// chunk[0] is unused.
 				fChunksUsed = fChunksAllocated = nChunksOnDisk;
+				if (openReadOnly && mapFile) {
+					fMappedLength= length;
+					fMappedRegions= new MappedByteBuffer[(nChunksOnDisk - 1) / getChunksPerMappedRegion() + 1];
+				}
 			}
 		} catch (IOException e) {
 			throw new CoreException(new DBStatus(e));
 		}
 	}
 
+	/**
+	 * Opens the log of the database. For writable databases this recovers the state of the last
+	 * flush, if the database was not closed properly.
+	 */
+	private void openWriteAheadLog() throws IOException {
+		final File logLocation= WriteAheadLog.getLocation(fLocation);
+		if (fReadOnly) {
+			if (logLocation.exists()) {
+				fWal= new WriteAheadLog(logLocation, fFile.getChannel(), true);
+			}
+		} else if (USE_WRITE_AHEAD_LOG || logLocation.exists()) {
+			fWal= new WriteAheadLog(logLocation, fFile.getChannel(), false);
+			if (!USE_WRITE_AHEAD_LOG) {
+				// The log has been used for recovery, only.
+				fWal.close(true);
+				fWal= null;
+			}
+		}
+	}
+
+	private void setFormat(int chunkSize, int blockSizeDeltaBits) {
+		fChunkSize= chunkSize;
+		fBlockSizeDeltaBits= blockSizeDeltaBits;
+		fBlockSizeDelta= 1 << blockSizeDeltaBits;
+		// A block must at least be 2 + 2*4 bytes to link the free blocks.
+		fMinBlockDeltas= (BLOCK_HEADER_SIZE + 2 * INT_SIZE + fBlockSizeDelta - 1) / fBlockSizeDelta;
+		fMaxBlockDeltas= CHUNK_SIZE / fBlockSizeDelta;
+	}
+
+	private int encodeFormat() {
+		return FORMAT_TAG | (Integer.numberOfTrailingZeros(fChunkSize) << 8) | fBlockSizeDeltaBits;
+	}
+
+	private static boolean isValidFormat(int format) {
+		if ((format & FORMAT_TAG_MASK) != FORMAT_TAG)
+			return false;
+		final int chunkSizeBits= (format >> 8) & 0xff;
+		return isValidFormat(1 << chunkSizeBits, format & 0xff);
+	}
+
+	private static boolean isValidFormat(int chunkSize, int blockSizeDeltaBits) {
+		return chunkSize >= CHUNK_SIZE && chunkSize <= MAX_CHUNK_SIZE && Integer.bitCount(chunkSize) == 1
+				&& blockSizeDeltaBits >= BLOCK_SIZE_DELTA_BITS
+				&& blockSizeDeltaBits <= MAX_BLOCK_SIZE_DELTA_BITS;
+	}
+
+	/**
+	 * Returns the size of the chunks of this database, which is a power of two between
+	 * {@link #CHUNK_SIZE} and {@link #MAX_CHUNK_SIZE}.
+	 */
+	public int getChunkSize() {
+		return fChunkSize;
+	}
+
+	/**
+	 * Returns the binary logarithm of the alignment of blocks. Record pointers are stored
+	 * in {@link #PTR_SIZE} bytes shifted by this amount.
+	 */
+	public int getBlockSizeDeltaBits() {
+		return fBlockSizeDeltaBits;
+	}
+
+	/**
+	 * Returns the size the database cannot grow beyond.
+	 */
+	public long getMaxDatabaseSize() {
+		return 1L << (Integer.SIZE + fBlockSizeDeltaBits);
+	}
+
 	private void openFile() throws FileNotFoundException {
 		fFile = new RandomAccessFile(fLocation, fReadOnly ? "r" : "rw"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
@@ -159,6 +332,26 @@ public class Database {
 		} while (true);
 	}
 
+	/**
+	 * Reads a chunk from the log or the file.
+	 */
+	void readChunk(ByteBuffer buf, int index) throws IOException {
+		if (fWal == null || !fWal.read(index, 0, buf)) {
+			read(buf, (long) index * fChunkSize);
+		}
+	}
+
+	/**
+	 * Writes a chunk to the log or, if there is none, to the file.
+	 */
+	void writeChunk(ByteBuffer buf, int index) throws IOException {
+		if (fWal != null) {
+			fWal.append(index, buf);
+		} else {
+			write(buf, (long) index * fChunkSize);
+		}
+	}
+
 	void write(ByteBuffer buf, long position) throws IOException {
 		int retries= 0;
 		while (true) {
@@ -180,8 +373,65 @@ public class Database {
 		openFile();
 	}
 
+	/**
+	 * Returns whether the chunks of this database are views onto the file mapped into memory.
+	 */
+	public boolean isMapped() {
+		return fMappedRegions != null;
+	}
+
+	/**
+	 * Creates a chunk that is a read-only view onto the mapped file. The content does not use
+	 * the Java heap, it is paged in and out by the operating system.
+	 */
+	private int getChunksPerMappedRegion() {
+		return MAPPED_REGION_SIZE / fChunkSize;
+	}
+
+	private Chunk createMappedChunk(int index) throws CoreException {
+		final int chunksPerRegion= getChunksPerMappedRegion();
+		final int region= index / chunksPerRegion;
+		MappedByteBuffer mapped;
+		synchronized (fMappedRegions) {
+			mapped= fMappedRegions[region];
+			if (mapped == null) {
+				final long position= (long) region * MAPPED_REGION_SIZE;
+				final long size= Math.min(MAPPED_REGION_SIZE, fMappedLength - position);
+				try {
+					mapped= fFile.getChannel().map(MapMode.READ_ONLY, position, size);
+				} catch (IOException e) {
+					throw new CoreException(new DBStatus(e));
+				}
+				fMappedRegions[region]= mapped;
+			}
+		}
+		final ByteBuffer view= mapped.duplicate();
+		final int start= (index % chunksPerRegion) * fChunkSize;
+		view.limit(start + fChunkSize).position(start);
+		return new Chunk(this, index, view.slice());
+	}
+
+	/**
+	 * Returns whether a chunk can be a view onto the mapped file. Chunks that are contained in
+	 * the log are not.
+	 */
+	private boolean isMappable(int index) {
+		return (index + 1L) * fChunkSize <= fMappedLength && (fWal == null || !fWal.contains(index));
+	}
+
+	/**
+	 * Copies the database file to the given channel. Writable databases need to be flushed before,
+	 * such that the file contains the flushed state.
+	 */
 	public void transferTo(FileChannel target) throws IOException {
 		assert fLocked;
+		if (fWal != null && !fReadOnly) {
+			synchronized (fHeaderChunk) {
+				if (!fWal.hasUncommittedChunks()) {
+					fWal.checkpoint(fFile.getChannel());
+				}
+			}
+		}
         final FileChannel from= fFile.getChannel();
         long nRead = 0;
         long position = 0;
@@ -211,22 +461,53 @@ public class Database {
 	 * @throws CoreException
 	 */
 	public void clear(int version) throws CoreException {
+		clear(version, DEFAULT_CHUNK_SIZE, DEFAULT_BLOCK_SIZE_DELTA_BITS);
+	}
+
+	/**
+	 * Empty the contents of the Database and change its format.
+	 * @param chunkSize the size of the chunks, a power of two between {@link #CHUNK_SIZE}
+	 *     and {@link #MAX_CHUNK_SIZE}.
+	 * @param blockSizeDeltaBits the binary logarithm of the alignment of blocks, between
+	 *     {@link #BLOCK_SIZE_DELTA_BITS} and {@link #MAX_BLOCK_SIZE_DELTA_BITS}. Larger values
+	 *     increase the maximum size of the database at the expense of wasting more space per block.
+	 * @throws CoreException
+	 */
+	public void clear(int version, int chunkSize, int blockSizeDeltaBits) throws CoreException {
 		assert fExclusiveLock;
+		if (!isValidFormat(chunkSize, blockSizeDeltaBits)) {
+			throw new IllegalArgumentException("Invalid database format: chunk size " + chunkSize //$NON-NLS-1$
+					+ ", block size delta bits " + blockSizeDeltaBits); //$NON-NLS-1$
+		}
 		removeChunksFromCache();
 
 		fVersion= version;
-		// Clear the first chunk.
-		fHeaderChunk.clear(0, CHUNK_SIZE);
+		setFormat(chunkSize, blockSizeDeltaBits);
+		// Replace the first chunk, its size may have changed.
+		fHeaderChunk= new Chunk(this, 0);
+		fHeaderChunk.fLocked= true;
+		fHeaderChunk.putInt(FORMAT_OFFSET, encodeFormat());
 		// Chunks have been removed from the cache, so we may just reset the array of chunks.
 		fChunks = new Chunk[] {null};
 		fChunksUsed = fChunksAllocated = fChunks.length;
 		try {
-			fHeaderChunk.flush();	// Zero out header chunk.
-			fFile.getChannel().truncate(CHUNK_SIZE);	// Truncate database.
+			if (fWal != null) {
+				// The content of the log is discarded, a crash must not recover the old state.
+				markFileIncomplete();
+				fFile.getChannel().truncate(fChunkSize);	// Truncate database.
+				fWal.reset(fFile.length());
+				fHeaderChunk.flush();
+				fWal.commit();
+				fWal.checkpoint(fFile.getChannel());
+			} else {
+				fHeaderChunk.flush();	// Zero out header chunk.
+				fFile.getChannel().truncate(fChunkSize);	// Truncate database.
+			}
 		} catch (IOException e) {
 			CCorePlugin.log(e);
 		}
 		malloced = freed = 0;
+		fBytesFree= fBytesFreeAfterCompaction= 0;
 		/*
 		 * This is for debugging purposes in order to simulate having a very large PDOM database.
 		 * This will set aside the specified number of chunks.
@@ -245,7 +526,8 @@ public class Database {
 	}
 
 	private void removeChunksFromCache() {
-		synchronized (fCache) {
+		fCache.lockAll();
+		try {
 			for (int i= 1; i < fChunks.length; i++) {
 				Chunk chunk= fChunks[i];
 				if (chunk != null) {
@@ -253,6 +535,8 @@ public class Database {
 					fChunks[i]= null;
 				}
 			}
+		} finally {
+			fCache.unlockAll();
 		}
 	}
 
@@ -261,28 +545,35 @@ public class Database {
 	 * @throws CoreException
 	 */
 	public Chunk getChunk(long offset) throws CoreException {
-		if (offset < CHUNK_SIZE) {
+		if (offset < fChunkSize) {
 			return fHeaderChunk;
 		}
-		long long_index = offset / CHUNK_SIZE;
+		long long_index = offset / fChunkSize;
 		assert long_index < Integer.MAX_VALUE;
 
-		synchronized (fCache) {
+		final int index = (int) long_index;
+		final int segment= fCache.lockSegment(this, index);
+		try {
 			assert fLocked;
-			final int index = (int) long_index;
 			if (index < 0 || index >= fChunks.length) {
 				databaseCorruptionDetected();
 			}
 			Chunk chunk= fChunks[index];
 			if (chunk == null) {
-				cacheMisses++;
-				chunk = fChunks[index] = new Chunk(this, index);
-				chunk.read();
+				cacheMisses[segment]++;
+				if (fMappedRegions != null && isMappable(index)) {
+					chunk = fChunks[index] = createMappedChunk(index);
+				} else {
+					chunk = fChunks[index] = new Chunk(this, index);
+					chunk.read();
+				}
 			} else {
-				cacheHits++;
+				cacheHits[segment]++;
 			}
 			fCache.add(chunk, fExclusiveLock);
 			return chunk;
+		} finally {
+			fCache.unlockSegment(segment);
 		}
 	}
 
@@ -299,16 +590,17 @@ public class Database {
 		assert fExclusiveLock;
 		assert datasize >= 0 && datasize <= MAX_MALLOC_SIZE;
 
-		int needDeltas= (datasize + BLOCK_HEADER_SIZE + BLOCK_SIZE_DELTA - 1) / BLOCK_SIZE_DELTA;
-		if (needDeltas < MIN_BLOCK_DELTAS) {
-			needDeltas= MIN_BLOCK_DELTAS;
+		final int delta= fBlockSizeDelta;
+		int needDeltas= (datasize + BLOCK_HEADER_SIZE + delta - 1) / delta;
+		if (needDeltas < fMinBlockDeltas) {
+			needDeltas= fMinBlockDeltas;
 		}
 
 		// Which block size.
 		long freeblock = 0;
 		int useDeltas;
-		for (useDeltas= needDeltas; useDeltas <= MAX_BLOCK_DELTAS; useDeltas++) {
-			freeblock = getFirstBlock(useDeltas * BLOCK_SIZE_DELTA);
+		for (useDeltas= needDeltas; useDeltas <= fMaxBlockDeltas; useDeltas++) {
+			freeblock = getFirstBlock(useDeltas * delta);
 			if (freeblock != 0)
 				break;
 		}
@@ -318,22 +610,26 @@ public class Database {
 		if (freeblock == 0) {
 			// Allocate a new chunk.
 			freeblock= createNewChunk();
-			useDeltas = MAX_BLOCK_DELTAS;
+			useDeltas = fMaxBlockDeltas;
 			chunk = getChunk(freeblock);
+			// Blocks do not exceed CHUNK_SIZE, the remainder of a larger chunk becomes free blocks.
+			for (long block= freeblock + CHUNK_SIZE; block < freeblock + fChunkSize; block += CHUNK_SIZE) {
+				addBlock(chunk, CHUNK_SIZE, block);
+			}
 		} else {
 			chunk = getChunk(freeblock);
-			removeBlock(chunk, useDeltas * BLOCK_SIZE_DELTA, freeblock);
+			removeBlock(chunk, useDeltas * delta, freeblock);
 		}
 
 		final int unusedDeltas = useDeltas - needDeltas;
-		if (unusedDeltas >= MIN_BLOCK_DELTAS) {
+		if (unusedDeltas >= fMinBlockDeltas) {
 			// Add in the unused part of our block.
-			addBlock(chunk, unusedDeltas * BLOCK_SIZE_DELTA, freeblock + needDeltas * BLOCK_SIZE_DELTA);
+			addBlock(chunk, unusedDeltas * delta, freeblock + needDeltas * delta);
 			useDeltas= needDeltas;
 		}
 
 		// Make our size negative to show in use.
-		final int usedSize= useDeltas * BLOCK_SIZE_DELTA;
+		final int usedSize= useDeltas * delta;
 		chunk.putShort(freeblock, (short) -usedSize);
 
 		// Clear out the block, lots of people are expecting this.
@@ -345,7 +641,8 @@ public class Database {
 
 	private long createNewChunk() throws CoreException {
 		assert fExclusiveLock;
-		synchronized (fCache) {
+		fCache.lockAll();
+		try {
 			final int newChunkIndex = fChunksUsed; // fChunks.length;
 
 			final Chunk chunk = new Chunk(this, newChunkIndex);
@@ -363,21 +660,24 @@ public class Database {
 			fChunks[newChunkIndex] = chunk;
 
 			fCache.add(chunk, true);
-			long address = (long) newChunkIndex * CHUNK_SIZE;
+			long address = (long) newChunkIndex * fChunkSize;
 
 			/*
-			 * Non-dense pointers are at most 31 bits dense pointers are at most 35 bits Check the sizes here
-			 * and throw an exception if the address is too large. By throwing the CoreException with the
-			 * special status, the indexing operation should be stopped. This is desired since generally, once
-			 * the max size is exceeded, there are lots of errors.
+			 * Non-dense pointers are at most 31 bits dense pointers are at most 32 bits plus the block size
+			 * delta bits. Check the sizes here and throw an exception if the address is too large. By
+			 * throwing the CoreException with the special status, the indexing operation should be stopped.
+			 * This is desired since generally, once the max size is exceeded, there are lots of errors.
 			 */
-			if (address >= MAX_DB_SIZE) {
-				Object bindings[] = { this.getLocation().getAbsolutePath(), MAX_DB_SIZE };
+			final long maxSize= getMaxDatabaseSize();
+			if (address >= maxSize) {
+				Object bindings[] = { this.getLocation().getAbsolutePath(), maxSize };
 				throw new CoreException(new Status(IStatus.ERROR, CCorePlugin.PLUGIN_ID,
 						CCorePlugin.STATUS_PDOM_TOO_LARGE, NLS.bind(
 								CCorePlugin.getResourceString("pdom.DatabaseTooLarge"), bindings), null)); //$NON-NLS-1$
 			}
 			return address;
+		} finally {
+			fCache.unlockAll();
 		}
 	}
 
@@ -386,7 +686,8 @@ public class Database {
 	 */
 	private long createNewChunks(int numChunks) throws CoreException {
 		assert fExclusiveLock;
-		synchronized (fCache) {
+		fCache.lockAll();
+		try {
 			final int oldLen= fChunks.length;
 			Chunk[] newchunks = new Chunk[oldLen + numChunks];
 			System.arraycopy(fChunks, 0, newchunks, 0, oldLen);
@@ -400,18 +701,20 @@ public class Database {
 			fCache.add(chunk, true);
 			fChunksAllocated=oldLen + numChunks;
 			fChunksUsed=oldLen + numChunks;
-			return (long) (oldLen + numChunks - 1) * CHUNK_SIZE;
+			return (long) (oldLen + numChunks - 1) * fChunkSize;
+		} finally {
+			fCache.unlockAll();
 		}
 	}
 
 	private long getFirstBlock(int blocksize) throws CoreException {
 		assert fLocked;
-		return fHeaderChunk.getFreeRecPtr((blocksize / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 1) * INT_SIZE);
+		return fHeaderChunk.getFreeRecPtr((blocksize / fBlockSizeDelta - fMinBlockDeltas + 1) * INT_SIZE);
 	}
 
 	private void setFirstBlock(int blocksize, long block) throws CoreException {
 		assert fExclusiveLock;
-		fHeaderChunk.putFreeRecPtr((blocksize / BLOCK_SIZE_DELTA - MIN_BLOCK_DELTAS + 1) * INT_SIZE, block);
+		fHeaderChunk.putFreeRecPtr((blocksize / fBlockSizeDelta - fMinBlockDeltas + 1) * INT_SIZE, block);
 	}
 
 	private void removeBlock(Chunk chunk, int blocksize, long block) throws CoreException {
@@ -426,6 +729,8 @@ public class Database {
 
 		if (nextblock != 0)
 			putFreeRecPtr(nextblock + BLOCK_PREV_OFFSET, prevblock);
+		if (fBytesFree >= 0)
+			fBytesFree -= blocksize;
 	}
 
 	private void addBlock(Chunk chunk, int blocksize, long block) throws CoreException {
@@ -440,6 +745,8 @@ public class Database {
 		if (prevfirst != 0)
 			putFreeRecPtr(prevfirst + BLOCK_PREV_OFFSET, block);
 		setFirstBlock(blocksize, block);
+		if (fBytesFree >= 0)
+			fBytesFree += blocksize;
 	}
 
 	/**
@@ -462,6 +769,199 @@ public class Database {
 		freed += blocksize;
 	}
 
+	/**
+	 * Merges adjacent free blocks and removes the chunks at the end of the file that no longer
+	 * hold any records. Records are not moved, because they are referenced by their offsets.
+	 * The database is flushed.
+	 *
+	 * @return the number of bytes the database shrank by.
+	 */
+	public long compact() throws CoreException {
+		mergeFreeBlocks(1, fChunksUsed);
+		return releaseFreeChunks();
+	}
+
+	/**
+	 * Merges adjacent free blocks in up to the given number of chunks, starting with the given
+	 * chunk. Allows for compacting the database in batches, between which the lock is yielded.
+	 *
+	 * @return whether there are chunks after the ones processed.
+	 */
+	public boolean mergeFreeBlocks(int firstChunk, int chunkCount) throws CoreException {
+		assert fExclusiveLock;
+		// Chunks stay in memory while the exclusive lock is held, flush from time to time.
+		final long flushInterval= Math.max(1, fCache.getMaxSize() / fChunkSize / 2);
+		final int end= (int) Math.min((long) firstChunk + chunkCount, fChunksUsed);
+		for (int i= Math.max(1, firstChunk); i < end; i++) {
+			mergeFreeBlocks(getChunk((long) i * fChunkSize));
+			if (i % flushInterval == 0) {
+				flush();
+			}
+		}
+		return end < fChunksUsed;
+	}
+
+	/**
+	 * Removes the chunks at the end of the file that no longer hold any records and truncates
+	 * the file. The database is flushed.
+	 *
+	 * @return the number of bytes the database shrank by.
+	 */
+	public long releaseFreeChunks() throws CoreException {
+		assert fExclusiveLock;
+		int chunksUsed= fChunksUsed;
+		while (chunksUsed > 1 && isFreeChunk(getChunk((long) (chunksUsed - 1) * fChunkSize))) {
+			chunksUsed--;
+		}
+		for (int i= chunksUsed; i < fChunksUsed; i++) {
+			final long address= (long) i * fChunkSize;
+			final Chunk chunk= getChunk(address);
+			for (long page= address; page < address + fChunkSize; page += CHUNK_SIZE) {
+				removeBlock(chunk, CHUNK_SIZE, page);
+			}
+		}
+		final long released= (long) (fChunksUsed - chunksUsed) * fChunkSize;
+		fCache.lockAll();
+		try {
+			for (int i= chunksUsed; i < fChunksUsed; i++) {
+				final Chunk chunk= fChunks[i];
+				if (chunk != null) {
+					fCache.remove(chunk);
+					fChunks[i]= null;
+				}
+			}
+			fChunksUsed= chunksUsed;
+		} finally {
+			fCache.unlockAll();
+		}
+		flush();
+
+		try {
+			final FileChannel channel= fFile.getChannel();
+			if (fWal != null) {
+				fWal.checkpoint(channel);
+			}
+			final long newSize= (long) fChunksUsed * fChunkSize;
+			if (channel.size() > newSize) {
+				channel.truncate(newSize);
+			}
+			if (fWal != null) {
+				fWal.reset(channel.size());
+			}
+			malloced= freed= 0;
+			fBytesFreeAfterCompaction= getBytesFree();
+			return released;
+		} catch (IOException e) {
+			throw new CoreException(new DBStatus(e));
+		}
+	}
+
+	/**
+	 * Merges the runs of adjacent free blocks in the pages of a chunk.
+	 */
+	private void mergeFreeBlocks(Chunk chunk) throws CoreException {
+		final long address= (long) chunk.fSequenceNumber * fChunkSize;
+		for (long page= address; page < address + fChunkSize; page += CHUNK_SIZE) {
+			final long end= page + CHUNK_SIZE;
+			long run= page;
+			int runSize= 0;
+			int runLength= 0;
+			for (long block= page; block < end;) {
+				final int blocksize= chunk.getShort(block);
+				final int size= Math.abs(blocksize);
+				if (size < fMinBlockDeltas * fBlockSizeDelta || block + size > end) {
+					// The page is not divided into blocks.
+					runLength= 0;
+					break;
+				}
+				if (blocksize < 0) {
+					mergeBlocks(chunk, run, runSize, runLength);
+					runSize= runLength= 0;
+				} else {
+					if (runLength++ == 0) {
+						run= block;
+					}
+					runSize += size;
+				}
+				block += size;
+			}
+			mergeBlocks(chunk, run, runSize, runLength);
+		}
+	}
+
+	private void mergeBlocks(Chunk chunk, long run, int runSize, int runLength) throws CoreException {
+		if (runLength < 2)
+			return;
+		for (long block= run; block < run + runSize;) {
+			final int blocksize= chunk.getShort(block);
+			removeBlock(chunk, blocksize, block);
+			block += blocksize;
+		}
+		addBlock(chunk, runSize, run);
+	}
+
+	private boolean isFreeChunk(Chunk chunk) throws CoreException {
+		final long address= (long) chunk.fSequenceNumber * fChunkSize;
+		for (long page= address; page < address + fChunkSize; page += CHUNK_SIZE) {
+			if (chunk.getShort(page) != CHUNK_SIZE)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of bytes allocated since the database was opened, cleared or compacted.
+	 * Must be called while holding a lock on the database.
+	 */
+	public long getBytesAllocated() {
+		assert fLocked;
+		return malloced;
+	}
+
+	/**
+	 * Returns the number of bytes freed since the database was opened, cleared or compacted.
+	 * Must be called while holding a lock on the database.
+	 */
+	public long getBytesFreed() {
+		assert fLocked;
+		return freed;
+	}
+
+	/**
+	 * Returns the number of bytes in free blocks, including the ones freed in earlier sessions.
+	 * Must be called while holding a lock on the database.
+	 */
+	public long getBytesFree() throws CoreException {
+		assert fLocked;
+		if (fBytesFree < 0) {
+			long bytes= 0;
+			for (int bs= fMinBlockDeltas * fBlockSizeDelta; bs <= CHUNK_SIZE; bs += fBlockSizeDelta) {
+				for (long block= getFirstBlock(bs); block != 0; block= getFreeRecPtr(block + BLOCK_NEXT_OFFSET)) {
+					bytes += bs;
+				}
+			}
+			fBytesFree= bytes;
+		}
+		return fBytesFree;
+	}
+
+	/**
+	 * Returns the number of bytes in free blocks after the last compaction in this session,
+	 * compacting the database again does not reclaim these.
+	 * Must be called while holding a lock on the database.
+	 */
+	public long getBytesFreeAfterCompaction() {
+		assert fLocked;
+		return fBytesFreeAfterCompaction;
+	}
+
+	/**
+	 * Returns whether the database has been closed.
+	 */
+	public boolean isClosed() {
+		return fClosed;
+	}
+
 	public void putByte(long offset, byte value) throws CoreException {
 		getChunk(offset).putByte(offset, value);
 	}
@@ -588,12 +1088,12 @@ public class Database {
 	 * For debugging purposes, only.
 	 */
 	public void reportFreeBlocks() throws CoreException {
-		System.out.println("Allocated size: " + fChunksUsed * CHUNK_SIZE); //$NON-NLS-1$
+		System.out.println("Allocated size: " + (long) fChunksUsed * fChunkSize); //$NON-NLS-1$
 		System.out.println("malloc'ed: " + malloced); //$NON-NLS-1$
 		System.out.println("free'd: " + freed); //$NON-NLS-1$
-		System.out.println("wasted: " + (fChunksUsed * CHUNK_SIZE - (malloced - freed))); //$NON-NLS-1$
+		System.out.println("wasted: " + ((long) fChunksUsed * fChunkSize - (malloced - freed))); //$NON-NLS-1$
 		System.out.println("Free blocks"); //$NON-NLS-1$
-		for (int bs = MIN_BLOCK_DELTAS*BLOCK_SIZE_DELTA; bs <= CHUNK_SIZE; bs += BLOCK_SIZE_DELTA) {
+		for (int bs = fMinBlockDeltas*fBlockSizeDelta; bs <= CHUNK_SIZE; bs += fBlockSizeDelta) {
 			int count = 0;
 			long block = getFirstBlock(bs);
 			while (block != 0) {
@@ -615,12 +1115,27 @@ public class Database {
 		assert fExclusiveLock;
 		flush();
 		removeChunksFromCache();
+		if (fWal != null) {
+			try {
+				// Leave the flushed state in the database file.
+				if (!fReadOnly) {
+					fWal.checkpoint(fFile.getChannel());
+				}
+				fWal.close(!fReadOnly);
+			} catch (IOException e) {
+				throw new CoreException(new DBStatus(e));
+			}
+			fWal= null;
+		}
 
 		// Chunks have been removed from the cache, so we are fine.
-		fHeaderChunk.clear(0, CHUNK_SIZE);
+		fHeaderChunk.clear(0, fChunkSize);
 		fHeaderChunk.fDirty= false;
 		fChunks= new Chunk[] { null };
 		fChunksUsed = fChunksAllocated = fChunks.length;
+		// The mapped regions are released when the buffers are garbage collected.
+		fMappedRegions= null;
+		fClosed= true;
 		try {
 			fFile.close();
 		} catch (IOException e) {
@@ -636,7 +1151,8 @@ public class Database {
 	}
 
 	/**
-	 * Called from any thread via the cache, protected by {@link #fCache}.
+	 * Called from any thread via the cache, protected by the lock of the segment of
+	 * {@link #fCache} the chunk maps to.
 	 */
 	void releaseChunk(final Chunk chunk) {
 		if (!chunk.fLocked) {
@@ -669,7 +1185,8 @@ public class Database {
 		if (fExclusiveLock) {
 			try {
 				ArrayList<Chunk> dirtyChunks= new ArrayList<>();
-				synchronized (fCache) {
+				fCache.lockAll();
+				try {
 					for (int i= 1; i < fChunksUsed; i++) {
 						Chunk chunk= fChunks[i];
 						if (chunk != null) {
@@ -695,6 +1212,8 @@ public class Database {
 							}
 						}
 					}
+				} finally {
+					fCache.unlockAll();
 				}
 				// Also handles header chunk.
 				flushAndUnlockChunks(dirtyChunks, flush);
@@ -717,13 +1236,16 @@ public class Database {
 
 		// Be careful as other readers may access chunks concurrently.
 		ArrayList<Chunk> dirtyChunks= new ArrayList<>();
-		synchronized (fCache) {
+		fCache.lockAll();
+		try {
 			for (int i= 1; i < fChunksUsed ; i++) {
 				Chunk chunk= fChunks[i];
 				if (chunk != null && chunk.fDirty) {
 					dirtyChunks.add(chunk);
 				}
 			}
+		} finally {
+			fCache.unlockAll();
 		}
 
 		// Also handles header chunk.
@@ -731,10 +1253,11 @@ public class Database {
 	}
 
 	private void flushAndUnlockChunks(final ArrayList<Chunk> dirtyChunks, boolean isComplete) throws CoreException {
-		assert !Thread.holdsLock(fCache);
+		assert !fCache.isLockedByCurrentThread();
 		synchronized (fHeaderChunk) {
 			final boolean haveDirtyChunks = !dirtyChunks.isEmpty();
-			if (haveDirtyChunks || fHeaderChunk.fDirty) {
+			if ((haveDirtyChunks || fHeaderChunk.fDirty) && fWal == null) {
+				// With a log the file is not modified before the flushed state is committed.
 				markFileIncomplete();
 			}
 			if (haveDirtyChunks) {
@@ -745,26 +1268,43 @@ public class Database {
 				}
 
 				// Only after the chunks are flushed we may unlock and release them.
-				synchronized (fCache) {
+				fCache.lockAll();
+				try {
 					for (Chunk chunk : dirtyChunks) {
 						chunk.fLocked= false;
 						if (chunk.fCacheIndex < 0) {
 							fChunks[chunk.fSequenceNumber]= null;
 						}
 					}
+				} finally {
+					fCache.unlockAll();
 				}
 			}
 
 			if (isComplete) {
-				if (fHeaderChunk.fDirty || fIsMarkedIncomplete) {
+				if (fHeaderChunk.fDirty || fIsMarkedIncomplete || (fWal != null && fWal.hasUncommittedChunks())) {
 					fHeaderChunk.putInt(VERSION_OFFSET, fVersion);
 					fHeaderChunk.flush();
 					fIsMarkedIncomplete= false;
+					if (fWal != null) {
+						commitWriteAheadLog();
+					}
 				}
 			}
 		}
 	}
 
+	private void commitWriteAheadLog() throws CoreException {
+		try {
+			fWal.commit();
+			if (fWal.getSize() >= CHECKPOINT_SIZE) {
+				fWal.checkpoint(fFile.getChannel());
+			}
+		} catch (IOException e) {
+			throw new CoreException(new DBStatus(e));
+		}
+	}
+
 	private void markFileIncomplete() throws CoreException {
 		if (!fIsMarkedIncomplete) {
 			fIsMarkedIncomplete= true;
@@ -778,18 +1318,42 @@ public class Database {
 	}
 
 	public void resetCacheCounters() {
-		cacheHits= cacheMisses= 0;
+		for (int i= 0; i < ChunkCache.SEGMENT_COUNT; i++) {
+			final int segment= fCache.lockSegment(this, i);
+			try {
+				cacheHits[segment]= cacheMisses[segment]= 0;
+			} finally {
+				fCache.unlockSegment(segment);
+			}
+		}
 	}
 
 	public long getCacheHits() {
-		return cacheHits;
+		return sumOverSegments(cacheHits);
 	}
 
 	public long getCacheMisses() {
-		return cacheMisses;
+		return sumOverSegments(cacheMisses);
+	}
+
+	private long sumOverSegments(long[] counters) {
+		long sum= 0;
+		for (int i= 0; i < ChunkCache.SEGMENT_COUNT; i++) {
+			final int segment= fCache.lockSegment(this, i);
+			try {
+				sum += counters[segment];
+			} finally {
+				fCache.unlockSegment(segment);
+			}
+		}
+		return sum;
 	}
 
 	public long getSizeBytes() {
+		if (fWal != null) {
+			// The file does not contain the chunks that are in the log, only.
+			return (long) fChunksUsed * fChunkSize;
+		}
 		try {
 			return fFile.length();
 		} catch (IOException e) {
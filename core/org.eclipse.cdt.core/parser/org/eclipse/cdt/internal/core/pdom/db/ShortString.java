@@ -13,7 +13,6 @@
 package org.eclipse.cdt.internal.core.pdom.db;
 
 import org.eclipse.cdt.core.CCorePlugin;
-import org.eclipse.cdt.core.parser.util.CharArrayUtils;
 import org.eclipse.core.runtime.CoreException;
 
 /**
@@ -99,7 +98,7 @@ public class ShortString implements IString {
 				if (n1 != n2)
 					return false;
 				
-				return CharArrayUtils.equals(getChars(), string.getChars());
+				return compare(chunk1, record, chunk2, string.record, true) == 0;
 			} 
 			if (obj instanceof char[]) {
 				char[] chars = (char[])obj;
@@ -108,13 +107,20 @@ public class ShortString implements IString {
 				if (getLength() != chars.length)
 					return false;
 				
-				return CharArrayUtils.equals(getChars(), chars);
+				return compare(chars, true) == 0;
 			} else if (obj instanceof String) {
 				String string = (String)obj;
-				if (getLength() != string.length())
+				final Chunk chunk = db.getChunk(record);
+				final int l = chunk.getInt(record + LENGTH);
+				final int length = Math.abs(l);
+				if (length != string.length())
 					return false;
-				
-				return CharArrayUtils.equals(getChars(), string.toCharArray());
+
+				for (int i = 0; i < length; i++) {
+					if (charAt(chunk, record, l, i) != string.charAt(i))
+						return false;
+				}
+				return true;
 			}
 		} catch (CoreException e) {
 			CCorePlugin.log(e);
@@ -129,12 +135,12 @@ public class ShortString implements IString {
 	public int hashCode() {
 		int h = hash;
 		if (h == 0) {
-			char chars[];
 			try {
-				chars = getChars();
-				final int len = chars.length;
+				final Chunk chunk = db.getChunk(record);
+				final int l = chunk.getInt(record + LENGTH);
+				final int len = Math.abs(l);
 				for (int i = 0; i < len; i++) {
-					h = 31 * h + chars[i];
+					h = 31 * h + charAt(chunk, record, l, i);
 				}
 			} catch (CoreException e) {
 			}
@@ -142,24 +148,73 @@ public class ShortString implements IString {
 		}
 		return h;
 	}
-	
-	public static int compare(final char[] chars, char[] other, boolean caseSensitive) {
-		final int n = Math.min(chars.length, other.length);
+
+	/**
+	 * Reads a character of a string directly from the chunk, such that comparisons do not need
+	 * to copy the string.
+	 * @param l the length field of the string, negative for strings stored as bytes.
+	 */
+	private static char charAt(Chunk chunk, long record, int l, int i) {
+		if (l < 0)
+			return (char) (chunk.getByte(record + CHARS + i) & 0xff);
+		return chunk.getChar(record + CHARS + 2 * i);
+	}
+
+	/**
+	 * Reads a character either from the chunk or, if the chunk is {@code null}, from the given array.
+	 */
+	private static char charAt(Chunk chunk, long record, int l, char[] chars, int i) {
+		if (chunk == null)
+			return chars[i];
+		return charAt(chunk, record, l, i);
+	}
+
+	private static int compare(Chunk chunk1, long record1, Chunk chunk2, long record2, boolean caseSensitive) {
+		final int l1 = chunk1.getInt(record1 + LENGTH);
+		final int l2 = chunk2.getInt(record2 + LENGTH);
+		final int length1 = Math.abs(l1);
+		final int length2 = Math.abs(l2);
+		final int n = Math.min(length1, length2);
 		for (int i = 0; i < n; i++) {
-			int cmp= compareChars(chars[i], other[i], caseSensitive);
+			int cmp= compareChars(charAt(chunk1, record1, l1, i), charAt(chunk2, record2, l2, i), caseSensitive);
+			if (cmp != 0)
+				return cmp;
+		}
+		return length1 - length2;
+	}
+
+	/**
+	 * Compares the string stored in the chunk, or the given characters if the chunk is {@code null},
+	 * with another array of characters.
+	 */
+	private static int compare(Chunk chunk, long record, int l, char[] chars, char[] other, boolean caseSensitive) {
+		final int length = Math.abs(l);
+		final int n = Math.min(length, other.length);
+		for (int i = 0; i < n; i++) {
+			int cmp= compareChars(charAt(chunk, record, l, chars, i), other[i], caseSensitive);
 			if (cmp != 0)
 				return cmp;
 		}
-		return chars.length - other.length;
+		return length - other.length;
+	}
+
+	public static int compare(final char[] chars, char[] other, boolean caseSensitive) {
+		return compare(null, 0, chars.length, chars, other, caseSensitive);
 	}
 
 	@Override
 	public int compare(char[] other, boolean caseSensitive) throws CoreException {
-		return compare(getChars(), other, caseSensitive);
+		final Chunk chunk = db.getChunk(record);
+		return compare(chunk, record, chunk.getInt(record + LENGTH), null, other, caseSensitive);
 	}
 
 	@Override
 	public int compare(IString string, boolean caseSensitive) throws CoreException {
+		if (string instanceof ShortString) {
+			final ShortString other = (ShortString) string;
+			return compare(db.getChunk(record), record, other.db.getChunk(other.record), other.record,
+					caseSensitive);
+		}
 		return compare(getChars(), string.getChars(), caseSensitive);
 	}
 		
@@ -170,20 +225,40 @@ public class ShortString implements IString {
 
 	@Override
 	public int compareCompatibleWithIgnoreCase(IString string) throws CoreException {
+		if (string instanceof ShortString) {
+			final ShortString other = (ShortString) string;
+			final Chunk chunk1 = db.getChunk(record);
+			final Chunk chunk2 = other.db.getChunk(other.record);
+			int cmp= compare(chunk1, record, chunk2, other.record, false);
+			if (cmp != 0)
+				return cmp;
+			return compare(chunk1, record, chunk2, other.record, true);
+		}
 		return compareCompatibleWithIgnoreCase(string.getChars());
 	}
 	
 	@Override
 	public int compareCompatibleWithIgnoreCase(char[] other) throws CoreException {
-		return compareCompatibleWithIgnoreCase(getChars(), other);
+		final Chunk chunk = db.getChunk(record);
+		return compareCompatibleWithIgnoreCase(chunk, record, chunk.getInt(record + LENGTH), null, other);
 	}
 
 	public static int compareCompatibleWithIgnoreCase(final char[] chars, char[] other) {
-		final int n = Math.min(chars.length, other.length);
+		return compareCompatibleWithIgnoreCase(null, 0, chars.length, chars, other);
+	}
+
+	/**
+	 * Compares the string stored in the chunk, or the given characters if the chunk is {@code null},
+	 * with another array of characters, see {@link #compareCompatibleWithIgnoreCase(IString)}.
+	 */
+	private static int compareCompatibleWithIgnoreCase(Chunk chunk, long record, int l, char[] chars,
+			char[] other) {
+		final int length = Math.abs(l);
+		final int n = Math.min(length, other.length);
 		int sensitiveCmp= 0;
 
 		for (int i = 0; i < n; i++) {
-			final char c1= chars[i];
+			final char c1= charAt(chunk, record, l, chars, i);
 			final char c2= other[i];
 			if (c1 != c2) {
 				int cmp= compareChars(c1, c2, false); // insensitive
@@ -199,7 +274,7 @@ public class ShortString implements IString {
 				}
 			}
 		}
-		int cmp= chars.length - other.length;
+		int cmp= length - other.length;
 		if (cmp != 0)
 			return cmp;
 		
@@ -208,7 +283,19 @@ public class ShortString implements IString {
 	
 	@Override
 	public int comparePrefix(char[] other, boolean caseSensitive) throws CoreException {
-		return comparePrefix(getChars(), other, caseSensitive);
+		final Chunk chunk = db.getChunk(record);
+		final int l = chunk.getInt(record + LENGTH);
+		final int length = Math.abs(l);
+		final int n = Math.min(length, other.length);
+		for (int i = 0; i < n; i++) {
+			int cmp= compareChars(charAt(chunk, record, l, i), other[i], caseSensitive);
+			if (cmp != 0)
+				return cmp;
+		}
+		if (length < other.length)
+			return -1;
+
+		return 0;
 	}
 
 	public static int comparePrefix(final char[] chars, char[] other, boolean caseSensitive) {
@@ -346,7 +346,7 @@ public final class TypeMarshalBuffer implements ITypeMarshalBuffer {
 
 	private void putRecordPointer(long record) {
 		request(Database.PTR_SIZE);
-		Chunk.putRecPtr(record, fBuffer, fPos);
+		Chunk.putRecPtr(record, fLinkage.getPDOM().getDB().getBlockSizeDeltaBits(), fBuffer, fPos);
 		fPos += Database.PTR_SIZE;
 	}
 
@@ -357,7 +357,7 @@ public final class TypeMarshalBuffer implements ITypeMarshalBuffer {
 			fPos= fBuffer.length;
 			throw unmarshallingError();
 		}
-		return Chunk.getRecPtr(fBuffer, pos);
+		return Chunk.getRecPtr(fLinkage.getPDOM().getDB().getBlockSizeDeltaBits(), fBuffer, pos);
 	}
 
 	@Override
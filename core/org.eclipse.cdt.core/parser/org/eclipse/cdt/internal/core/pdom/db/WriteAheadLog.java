@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.db;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the chunks written by a {@link Database}. Chunks are appended to the log
+ * rather than written to the database file, a commit record marks a consistent state of the
+ * database. A checkpoint copies the committed chunks into the database file and empties the log.
+ * <p>
+ * After a crash the database file holds the state of the last checkpoint, the log is used to
+ * recover the state of the last commit. Chunks appended after the last commit are discarded.
+ */
+/*
+ * ===== The log starts with a header
+ *
+ * offset            content
+ * 	                 _____________________________
+ * 0                | MAGIC
+ * INT_SIZE         | length of the database file when the log was started
+ *
+ * ===== followed by frames
+ *
+ * offset            content
+ * 	                 _____________________________
+ * 0                | sequence number of the chunk, COMMIT for a commit record
+ * INT_SIZE         | length of the content (0 for a commit record)
+ * 2*INT_SIZE       | content of the chunk
+ * ...              | CRC32 of all of the above (8 bytes)
+ */
+final class WriteAheadLog {
+	private static final int MAGIC= 0xCD7A1000;
+	private static final int HEADER_SIZE= 12;
+	private static final int FRAME_HEADER_SIZE= 8;
+	private static final int FRAME_TRAILER_SIZE= 8;
+	private static final int COMMIT= -1;
+
+	private final File fLocation;
+	private final boolean fReadOnly;
+	private RandomAccessFile fFile;
+	// Position of the content of the latest frame of each chunk.
+	private final Map<Integer, Long> fFrames= new HashMap<>();
+	private final Map<Integer, Long> fPendingFrames= new HashMap<>();
+	private long fSize;
+	private byte[] fFrameBuffer= new byte[0];
+
+	/**
+	 * Opens the log of a database. For writable databases the committed chunks found in an existing
+	 * log are copied into the database file, uncommitted chunks are discarded. For read-only
+	 * databases the committed chunks are read from the log without modifying any of the files.
+	 */
+	WriteAheadLog(File location, FileChannel database, boolean readOnly) throws IOException {
+		fLocation= location;
+		fReadOnly= readOnly;
+		if (readOnly) {
+			if (location.exists()) {
+				openFile();
+				fSize= fFile.length();
+				scan(database);
+			}
+		} else {
+			openFile();
+			fSize= fFile.length();
+			if (scan(database)) {
+				checkpoint(database);
+			} else {
+				reset(database.size());
+			}
+		}
+	}
+
+	private void openFile() throws FileNotFoundException {
+		fFile= new RandomAccessFile(fLocation, fReadOnly ? "r" : "rw"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	static File getLocation(File database) {
+		return new File(database.getPath() + ".wal"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Indexes the committed frames of an existing log that belongs to the given database file.
+	 * @return whether there are committed frames.
+	 */
+	private boolean scan(FileChannel database) throws IOException {
+		if (fSize < HEADER_SIZE)
+			return false;
+		final ByteBuffer header= ByteBuffer.allocate(HEADER_SIZE);
+		read(header, 0);
+		// A checkpoint interrupted before the log was emptied may have made the database file
+		// longer. Copying the committed chunks again completes such a checkpoint, a shorter file
+		// indicates a log that does not belong to the database.
+		if (header.getInt(0) != MAGIC || header.getLong(4) > database.size())
+			return false;
+
+		final ByteBuffer frameHeader= ByteBuffer.allocate(FRAME_HEADER_SIZE);
+		long pos= HEADER_SIZE;
+		while (pos + FRAME_HEADER_SIZE + FRAME_TRAILER_SIZE <= fSize) {
+			frameHeader.clear();
+			read(frameHeader, pos);
+			final int chunk= frameHeader.getInt(0);
+			final int length= frameHeader.getInt(4);
+			if (length < 0 || length > Database.MAX_CHUNK_SIZE || (chunk == COMMIT) != (length == 0)
+					|| pos + FRAME_HEADER_SIZE + length + FRAME_TRAILER_SIZE > fSize) {
+				break;
+			}
+			final byte[] frame= getFrameBuffer(FRAME_HEADER_SIZE + length + FRAME_TRAILER_SIZE);
+			final ByteBuffer buf= ByteBuffer.wrap(frame, 0, FRAME_HEADER_SIZE + length + FRAME_TRAILER_SIZE);
+			read(buf, pos);
+			if (checksum(frame, FRAME_HEADER_SIZE + length) != ByteBuffer.wrap(frame).getLong(FRAME_HEADER_SIZE + length))
+				break;  // Torn write.
+
+			if (chunk == COMMIT) {
+				fFrames.putAll(fPendingFrames);
+				fPendingFrames.clear();
+			} else {
+				fPendingFrames.put(chunk, pos + FRAME_HEADER_SIZE);
+			}
+			pos += FRAME_HEADER_SIZE + length + FRAME_TRAILER_SIZE;
+		}
+		fPendingFrames.clear();
+		fSize= pos;
+		return !fFrames.isEmpty();
+	}
+
+	private static long checksum(byte[] frame, int length) {
+		final CRC32 crc= new CRC32();
+		crc.update(frame, 0, length);
+		return crc.getValue();
+	}
+
+	private byte[] getFrameBuffer(int length) {
+		if (fFrameBuffer.length < length) {
+			fFrameBuffer= new byte[length];
+		}
+		return fFrameBuffer;
+	}
+
+	/**
+	 * Returns whether the log contains the given chunk.
+	 */
+	synchronized boolean contains(int chunk) {
+		return fFrames.containsKey(chunk);
+	}
+
+	/**
+	 * Reads the content of a chunk starting at the given offset, if the chunk is contained in
+	 * the log.
+	 * @return whether the chunk was read from the log.
+	 */
+	synchronized boolean read(int chunk, int offset, ByteBuffer buf) throws IOException {
+		final Long pos= fFrames.get(chunk);
+		if (pos == null)
+			return false;
+		read(buf, pos + offset);
+		return true;
+	}
+
+	/**
+	 * Appends the content of a chunk to the log. The chunk becomes part of the state recovered
+	 * after a crash only when a commit record follows.
+	 */
+	synchronized void append(int chunk, ByteBuffer content) throws IOException {
+		assert !fReadOnly;
+		final int length= content.remaining();
+		final byte[] frame= getFrameBuffer(FRAME_HEADER_SIZE + length + FRAME_TRAILER_SIZE);
+		final ByteBuffer buf= ByteBuffer.wrap(frame);
+		buf.putInt(chunk).putInt(length).put(content);
+		buf.putLong(checksum(frame, FRAME_HEADER_SIZE + length));
+		buf.flip();
+		write(buf, fSize);
+		fFrames.put(chunk, fSize + FRAME_HEADER_SIZE);
+		fPendingFrames.put(chunk, fSize + FRAME_HEADER_SIZE);
+		fSize += FRAME_HEADER_SIZE + length + FRAME_TRAILER_SIZE;
+	}
+
+	/**
+	 * Appends a commit record, the chunks appended so far make up a consistent state. The log is
+	 * forced to the storage device, such that the state survives a power loss.
+	 */
+	synchronized void commit() throws IOException {
+		assert !fReadOnly;
+		final byte[] frame= getFrameBuffer(FRAME_HEADER_SIZE + FRAME_TRAILER_SIZE);
+		final ByteBuffer buf= ByteBuffer.wrap(frame, 0, FRAME_HEADER_SIZE + FRAME_TRAILER_SIZE);
+		buf.putInt(COMMIT).putInt(0);
+		buf.putLong(checksum(frame, FRAME_HEADER_SIZE));
+		buf.flip();
+		write(buf, fSize);
+		force();
+		fSize += FRAME_HEADER_SIZE + FRAME_TRAILER_SIZE;
+		fPendingFrames.clear();
+	}
+
+	/**
+	 * Returns the number of chunks of the database including the committed chunks in the log.
+	 */
+	synchronized int getChunkCount() {
+		int count= 0;
+		for (Integer chunk : fFrames.keySet()) {
+			count= Math.max(count, chunk + 1);
+		}
+		return count;
+	}
+
+	synchronized boolean hasUncommittedChunks() {
+		return !fPendingFrames.isEmpty();
+	}
+
+	synchronized long getSize() {
+		return fSize;
+	}
+
+	/**
+	 * Copies the committed chunks into the database file and empties the log. Must not be called
+	 * while there are uncommitted chunks.
+	 */
+	synchronized void checkpoint(FileChannel database) throws IOException {
+		assert !fReadOnly && fPendingFrames.isEmpty();
+		if (fFrames.isEmpty())
+			return;
+
+		final ByteBuffer header= ByteBuffer.allocate(FRAME_HEADER_SIZE);
+		for (Map.Entry<Integer, Long> entry : fFrames.entrySet()) {
+			final long pos= entry.getValue();
+			header.clear();
+			read(header, pos - FRAME_HEADER_SIZE);
+			final int length= header.getInt(4);
+			final ByteBuffer content= ByteBuffer.wrap(getFrameBuffer(length), 0, length);
+			read(content, pos);
+			content.flip();
+			final long target= (long) entry.getKey() * length;
+			while (content.hasRemaining()) {
+				database.write(content, target + content.position());
+			}
+		}
+		// The log must not be emptied before the chunks are stored.
+		database.force(true);
+		reset(database.size());
+	}
+
+	/**
+	 * Discards the content of the log, which is started anew for a database file of the given
+	 * length.
+	 */
+	synchronized void reset(long databaseLength) throws IOException {
+		assert !fReadOnly;
+		fFrames.clear();
+		fPendingFrames.clear();
+		final ByteBuffer header= ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putLong(databaseLength);
+		header.flip();
+		write(header, 0);
+		truncate(HEADER_SIZE);
+		fSize= HEADER_SIZE;
+	}
+
+	/**
+	 * Closes the log, and deletes it if requested.
+	 */
+	synchronized void close(boolean delete) throws IOException {
+		if (fFile != null) {
+			fFile.close();
+			fFile= null;
+		}
+		if (delete) {
+			fLocation.delete();
+		}
+	}
+
+	private void read(ByteBuffer buf, long position) throws IOException {
+		final int start= buf.position();
+		int retries= 0;
+		while (true) {
+			try {
+				while (buf.hasRemaining()) {
+					if (fFile.getChannel().read(buf, position + buf.position() - start) < 0)
+						throw new IOException("Unexpected end of " + fLocation); //$NON-NLS-1$
+				}
+				return;
+			} catch (ClosedChannelException e) {
+				reopen(e, ++retries);
+			}
+		}
+	}
+
+	private void write(ByteBuffer buf, long position) throws IOException {
+		final int start= buf.position();
+		int retries= 0;
+		while (true) {
+			try {
+				while (buf.hasRemaining()) {
+					fFile.getChannel().write(buf, position + buf.position() - start);
+				}
+				return;
+			} catch (ClosedChannelException e) {
+				reopen(e, ++retries);
+			}
+		}
+	}
+
+	private void force() throws IOException {
+		int retries= 0;
+		while (true) {
+			try {
+				fFile.getChannel().force(false);
+				return;
+			} catch (ClosedChannelException e) {
+				reopen(e, ++retries);
+			}
+		}
+	}
+
+	private void truncate(long size) throws IOException {
+		int retries= 0;
+		while (true) {
+			try {
+				fFile.getChannel().truncate(size);
+				return;
+			} catch (ClosedChannelException e) {
+				reopen(e, ++retries);
+			}
+		}
+	}
+
+	private void reopen(ClosedChannelException e, int attempt) throws ClosedChannelException, FileNotFoundException {
+		// Bug 219834 file may have be closed by interrupting a thread during an I/O operation.
+		if (e instanceof ClosedByInterruptException || attempt >= 20) {
+			throw e;
+		}
+		openFile();
+	}
+}
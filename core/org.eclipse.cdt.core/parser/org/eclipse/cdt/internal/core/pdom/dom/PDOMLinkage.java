@@ -34,6 +34,8 @@ import org.eclipse.cdt.core.dom.ast.IType;
 import org.eclipse.cdt.core.dom.ast.ITypedef;
 import org.eclipse.cdt.core.dom.ast.IValue;
 import org.eclipse.cdt.core.dom.ast.IVariable;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespace;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPSpecialization;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPTemplateArgument;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDirective;
 import org.eclipse.cdt.core.index.IIndexLinkage;
@@ -68,9 +70,10 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 	private static final int INDEX_OFFSET = PDOMNamedNode.RECORD_SIZE + 8;
 	private static final int NESTED_BINDINGS_INDEX = PDOMNamedNode.RECORD_SIZE + 12;
 	private static final int MACRO_BTREE = PDOMNamedNode.RECORD_SIZE + 16;
+	private static final int TYPES_INDEX = PDOMNamedNode.RECORD_SIZE + 20;
 
 	@SuppressWarnings("hiding")
-	protected static final int RECORD_SIZE = PDOMNamedNode.RECORD_SIZE + 20;
+	protected static final int RECORD_SIZE = PDOMNamedNode.RECORD_SIZE + 24;
 	protected static final long[] FILE_LOCAL_REC_DUMMY = new long[] { 0 };
 
 	private BTree fMacroIndex= null;  // No need for volatile, all fields of BTree are final.
@@ -144,6 +147,14 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 		return new BTree(fDatabase, record + NESTED_BINDINGS_INDEX, getNestedBindingsComparator());
 	}
 
+	/**
+	 * Returns the BTree for the types declared in the linkage, regardless of their nesting.
+	 * @see #isIndexedType(PDOMBinding)
+	 */
+	public BTree getTypesIndex() throws CoreException {
+		return new BTree(fDatabase, record + TYPES_INDEX, getNestedBindingsComparator());
+	}
+
 	@Override
 	public void accept(final IPDOMVisitor visitor) throws CoreException {
 		if (visitor instanceof IBTreeVisitor) {
@@ -323,6 +334,25 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 		}
 	}
 
+	/**
+	 * Callback informing the linkage that a binding has been added. Used to index types.
+	 */
+	protected final void insertIntoTypesIndex(PDOMBinding pdomBinding) throws CoreException {
+		if (isIndexedType(pdomBinding)) {
+			getTypesIndex().insert(pdomBinding.getRecord());
+		}
+	}
+
+	/**
+	 * Returns whether the binding is stored in the index of types, which contains classes,
+	 * structs, unions, enumerations, typedefs and namespaces, but no specializations.
+	 */
+	public static boolean isIndexedType(PDOMBinding pdomBinding) {
+		return (pdomBinding instanceof ICompositeType || pdomBinding instanceof IEnumeration
+				|| pdomBinding instanceof ITypedef || pdomBinding instanceof ICPPNamespace)
+				&& !(pdomBinding instanceof ICPPSpecialization);
+	}
+
 	/**
 	 * Call-back informing the linkage that a binding is about to be removed. Used to index nested bindings.
 	 * @param pdomBinding
@@ -333,6 +363,9 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 		if (pdomBinding.getParentNodeRec() != record) {
 			getNestedBindingsIndex().delete(pdomBinding.getRecord());
 		}
+		if (isIndexedType(pdomBinding)) {
+			getTypesIndex().delete(pdomBinding.getRecord());
+		}
 	}
 
 	public ICPPUsingDirective[] getUsingDirectives(PDOMFile file) throws CoreException {
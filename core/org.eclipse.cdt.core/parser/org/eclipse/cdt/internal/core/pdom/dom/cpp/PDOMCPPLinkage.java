@@ -574,6 +574,7 @@ class PDOMCPPLinkage extends PDOMLinkage implements IIndexCPPBindingConstants {
 			if (parent != this && parent2 != this) {
 				insertIntoNestedBindingsIndex(pdomBinding);
 			}
+			insertIntoTypesIndex(pdomBinding);
 		}
 
 		return pdomBinding;
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.export;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.ibm.icu.text.MessageFormat;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.index.IIndexLocationConverter;
+import org.eclipse.cdt.core.index.URIRelativeLocationConverter;
+import org.eclipse.cdt.core.model.LanguageManager;
+import org.eclipse.cdt.internal.core.index.IIndexFragment;
+import org.eclipse.cdt.internal.core.index.IIndexFragmentFile;
+import org.eclipse.cdt.internal.core.index.IndexFileLocation;
+import org.eclipse.cdt.internal.core.index.WritableCIndex;
+import org.eclipse.cdt.internal.core.indexer.CompilationDatabase;
+import org.eclipse.cdt.internal.core.indexer.FileEncodingRegistry;
+import org.eclipse.cdt.internal.core.indexer.StandaloneFastIndexer;
+import org.eclipse.cdt.internal.core.indexer.StdoutLogService;
+import org.eclipse.cdt.internal.core.pdom.Checksums;
+import org.eclipse.cdt.internal.core.pdom.IndexerProgress;
+import org.eclipse.cdt.internal.core.pdom.TeamPDOMImportOperation;
+import org.eclipse.cdt.internal.core.pdom.WritablePDOM;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * An eclipse application for generating a team shared index from a compilation database
+ * (<code>compile_commands.json</code>) without a workspace project. The translation units are
+ * parsed in parallel. The result is an archive that can be imported by
+ * {@link TeamPDOMImportOperation} into a project located at the root directory, files outside
+ * of the root directory are not part of it.
+ * <p>
+ * The macros and include paths built into the compilers are queried by running each compiler
+ * once with the options of GCC (<code>-E -dM -v</code>), unless <code>-nobuiltins</code> is given.
+ * For other compilers only the options of the command lines are used.
+ */
+public class CompilationDatabaseIndexerApplication implements IApplication {
+	public static final String OPT_COMPDB= "-compdb"; //$NON-NLS-1$
+	public static final String OPT_TARGET= "-target"; //$NON-NLS-1$
+	public static final String OPT_ROOT= "-root"; //$NON-NLS-1$
+	public static final String OPT_THREADS= "-threads"; //$NON-NLS-1$
+	public static final String OPT_QUIET= "-quiet"; //$NON-NLS-1$
+	public static final String OPT_NO_BUILTINS= "-nobuiltins"; //$NON-NLS-1$
+
+	/** Exit code of the application when it was interrupted. */
+	private static final Integer EXIT_INTERRUPTED= 1;
+
+	/**
+	 * Starts this application
+	 * @throws CoreException on an unexpected failure
+	 */
+	@Override
+	public Object start(IApplicationContext context) throws CoreException {
+		Object result= IApplication.EXIT_OK;
+		try {
+			result= startImpl(context);
+		} catch (CoreException ce) {
+			if (ce.getStatus().getCode() == GeneratePDOMApplication.ECODE_EXPECTED_FAILURE) {
+				output(ce.getStatus().getMessage());
+			} else {
+				throw ce;
+			}
+		}
+		return result;
+	}
+
+	private Object startImpl(IApplicationContext context) throws CoreException {
+		String[] appArgs= (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		Map<String, List<String>> arguments= CLIUtil.parseToMap(appArgs);
+		output(Messages.GeneratePDOMApplication_Initializing);
+
+		File compdb= new File(CLIUtil.getArg(arguments, OPT_COMPDB, 1).get(0)).getAbsoluteFile();
+		File target= new File(CLIUtil.getArg(arguments, OPT_TARGET, 1).get(0)).getAbsoluteFile();
+		File root= arguments.containsKey(OPT_ROOT) ?
+				new File(CLIUtil.getArg(arguments, OPT_ROOT, 1).get(0)).getAbsoluteFile() : compdb.getParentFile();
+		int threads= Runtime.getRuntime().availableProcessors();
+		if (arguments.containsKey(OPT_THREADS)) {
+			String value= CLIUtil.getArg(arguments, OPT_THREADS, 1).get(0);
+			try {
+				threads= Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				threads= 0;
+			}
+			if (threads < 1) {
+				GeneratePDOMApplication.fail(MessageFormat.format(
+						Messages.CompilationDatabaseIndexerApplication_InvalidThreads, new Object[] {OPT_THREADS, value}));
+			}
+		}
+		boolean quiet= arguments.get(OPT_QUIET) != null;
+		boolean queryBuiltins= arguments.get(OPT_NO_BUILTINS) == null;
+
+		CompilationDatabase database= null;
+		try {
+			database= CompilationDatabase.read(compdb, queryBuiltins);
+		} catch (IOException e) {
+			GeneratePDOMApplication.fail(MessageFormat.format(
+					Messages.CompilationDatabaseIndexerApplication_CannotReadDatabase, new Object[] {compdb, e.getMessage()}));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return EXIT_INTERRUPTED;
+		}
+
+		File tmpPDOM= null;
+		File tmpChecksums= null;
+		try {
+			tmpPDOM= File.createTempFile("cdt-index", ".pdom"); //$NON-NLS-1$ //$NON-NLS-2$
+			tmpChecksums= File.createTempFile("checksums", ".dat"); //$NON-NLS-1$ //$NON-NLS-2$
+
+			output(Messages.GeneratePDOMApplication_GenerationStarts);
+			List<String> tus= database.getTranslationUnits();
+			long start= System.currentTimeMillis();
+			StandaloneFastIndexer indexer= new StandaloneFastIndexer(tmpPDOM, new AbsoluteLocationConverter(),
+					LanguageManager.getInstance().getPDOMLinkageFactoryMappings(), database,
+					new FileEncodingRegistry(System.getProperty("file.encoding")), database, new StdoutLogService()); //$NON-NLS-1$
+			indexer.setParallelism(threads);
+			indexer.setTraceStatistics(!quiet);
+			indexer.setShowProblems(!quiet);
+			indexer.rebuild(tus, new NullProgressMonitor());
+			long indexTime= System.currentTimeMillis() - start;
+
+			WritablePDOM pdom= (WritablePDOM) ((WritableCIndex) indexer.getIndex()).getWritableFragment();
+			export(pdom, root, tmpChecksums);
+			createArchive(target, tmpPDOM, tmpChecksums);
+			long totalTime= System.currentTimeMillis() - start;
+
+			IndexerProgress progress= indexer.getProgressInformation();
+			int sources= progress != null ? progress.fCompletedSources : tus.size();
+			int headers= progress != null ? progress.fCompletedHeaders : 0;
+			double seconds= Math.max(indexTime, 1) / 1000.0;
+			output(MessageFormat.format(Messages.CompilationDatabaseIndexerApplication_Report,
+					new Object[] {sources, headers, threads, indexTime, totalTime,
+					String.format("%.1f", (sources + headers) / seconds)})); //$NON-NLS-1$
+			output(Messages.GeneratePDOMApplication_GenerationEnds);
+		} catch (IOException e) {
+			throw new CoreException(CCorePlugin.createStatus(e.getMessage(), e));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return EXIT_INTERRUPTED;
+		} finally {
+			if (tmpPDOM != null) {
+				tmpPDOM.delete();
+			}
+			if (tmpChecksums != null) {
+				tmpChecksums.delete();
+			}
+		}
+		return IApplication.EXIT_OK;
+	}
+
+	/**
+	 * Rewrites the locations of the index relative to the root directory and stores the checksums
+	 * of the files, in the format used by {@link TeamPDOMImportOperation}. Files outside of the
+	 * root directory are removed from the index.
+	 */
+	private void export(WritablePDOM pdom, File root, File checksumsFile)
+			throws CoreException, InterruptedException, IOException {
+		IIndexLocationConverter converter= new URIRelativeLocationConverter(URIUtil.toURI(root.getPath() + '/'));
+		MessageDigest md;
+		try {
+			md= Checksums.getDefaultAlgorithm();
+		} catch (NoSuchAlgorithmException e) {
+			throw new CoreException(CCorePlugin.createStatus(e.getMessage(), e));
+		}
+		Map<String, Object> checksums= new HashMap<>();
+		Checksums.putAlgorithm(checksums, md);
+
+		pdom.acquireWriteLock(null);
+		try {
+			for (IIndexFragmentFile file : pdom.getAllFiles()) {
+				IIndexFileLocation location= file.getLocation();
+				String relativePath= converter.toInternalFormat(location);
+				if (relativePath != null && !checksums.containsKey(relativePath)) {
+					File f= URIUtil.toPath(location.getURI()).toFile();
+					if (f.isFile()) {
+						checksums.put(relativePath, Checksums.computeChecksum(md, f));
+					}
+				}
+			}
+			pdom.rewriteLocations(converter);
+			pdom.setProperty(IIndexFragment.PROPERTY_FRAGMENT_ID, "exported." + root.getName()); //$NON-NLS-1$
+			pdom.close();
+		} finally {
+			pdom.releaseWriteLock();
+		}
+
+		ObjectOutputStream out= new ObjectOutputStream(new FileOutputStream(checksumsFile));
+		try {
+			out.writeObject(checksums);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void createArchive(File target, File tmpPDOM, File tmpChecksums) throws IOException {
+		target.delete();
+		File parent= target.getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		ZipOutputStream out= new ZipOutputStream(new FileOutputStream(target));
+		try {
+			out.setLevel(Deflater.BEST_COMPRESSION);
+			writeEntry(out, TeamPDOMImportOperation.INDEX_NAME, tmpPDOM);
+			writeEntry(out, TeamPDOMImportOperation.CHECKSUMS_NAME, tmpChecksums);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeEntry(ZipOutputStream out, String name, File input) throws IOException {
+		ZipEntry e= new ZipEntry(name);
+		out.putNextEntry(e);
+		InputStream in= new FileInputStream(input);
+		try {
+			byte[] buffer= new byte[2048];
+			int read;
+			while ((read= in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		out.closeEntry();
+	}
+
+	protected void output(String s) {
+		System.out.println(s);
+	}
+
+	@Override
+	public void stop() {
+		// do nothing
+	}
+
+	/**
+	 * Stores the absolute locations of the files while indexing, such that headers outside
+	 * of the root directory can be indexed as well.
+	 */
+	private static class AbsoluteLocationConverter implements IIndexLocationConverter {
+		@Override
+		public IIndexFileLocation fromInternalFormat(String raw) {
+			try {
+				return new IndexFileLocation(new URI(raw), null);
+			} catch (URISyntaxException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public String toInternalFormat(IIndexFileLocation location) {
+			return location.getURI().toString();
+		}
+	}
+}
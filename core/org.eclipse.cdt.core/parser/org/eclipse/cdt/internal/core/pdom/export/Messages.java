@@ -13,6 +13,9 @@ package org.eclipse.cdt.internal.core.pdom.export;
 import org.eclipse.osgi.util.NLS;
 
 public class Messages extends NLS {
+	public static String CompilationDatabaseIndexerApplication_CannotReadDatabase;
+	public static String CompilationDatabaseIndexerApplication_InvalidThreads;
+	public static String CompilationDatabaseIndexerApplication_Report;
 	public static String GeneratePDOM_GenericGenerationFailed;
 	public static String GeneratePDOM_Incomplete;
 	public static String GeneratePDOM_NullLocationConverter;
@@ -51,7 +51,7 @@ public final class FileExistsCache {
 		fCache= new SoftReference<Map<String, Content>>(new HashMap<String, Content>());	// before running out of memory the entire map will be thrown away.
 	}
 	
-	public boolean isFile(String path) {
+	public synchronized boolean isFile(String path) {
 		String parent;
 		String name;
 		File file = null;
@@ -60,6 +60,7 @@ public class IndexerPreferences {
 	public static final String KEY_UPDATE_POLICY= "updatePolicy"; //$NON-NLS-1$
 	public static final String KEY_SKIP_FILES_LARGER_THAN_MB = "skipFilesLargerThanMB"; //$NON-NLS-1$
 	public static final String KEY_SKIP_INCLUDED_FILES_LARGER_THAN_MB = "skipIncludedFilesLargerThanMB"; //$NON-NLS-1$
+	public static final String KEY_INDEXER_THREADS= "indexerThreads"; //$NON-NLS-1$
 
 	private static final String KEY_INDEXER_PREFS_SCOPE = "preferenceScope"; //$NON-NLS-1$
 	private static final String KEY_INDEX_IMPORT_LOCATION = "indexImportLocation"; //$NON-NLS-1$
@@ -73,6 +74,7 @@ public class IndexerPreferences {
 	private static final int DEFAULT_UPDATE_POLICY= 0;
 	public static final int DEFAULT_FILE_SIZE_LIMIT_MB = 8;
 	public static final int DEFAULT_INCLUDED_FILE_SIZE_LIMIT_MB = 16;
+	public static final int DEFAULT_INDEXER_THREADS = 1;
 
 	private static final String QUALIFIER = CCorePlugin.PLUGIN_ID;
 	private static final String INDEXER_NODE = "indexer"; //$NON-NLS-1$
@@ -336,6 +338,7 @@ public class IndexerPreferences {
 		prefs.putBoolean(KEY_SKIP_MACRO_REFERENCES, false);
 		prefs.put(KEY_INDEX_IMPORT_LOCATION, DEFAULT_INDEX_IMPORT_LOCATION);
 		prefs.putBoolean(KEY_INDEX_ALL_HEADER_VERSIONS, false);
+		prefs.putInt(KEY_INDEXER_THREADS, DEFAULT_INDEXER_THREADS);
 	}
 
 	public static void setDefaultIndexerId(String defaultId) {
@@ -424,6 +427,29 @@ public class IndexerPreferences {
 		return DEFAULT_UPDATE_POLICY;
 	}
 
+	/**
+	 * Returns the number of threads the indexer uses for parsing source files. A value
+	 * of zero or less in the preferences selects one thread per available processor.
+	 */
+	public static int getIndexerThreads() {
+		// No support for project specific settings.
+		Preferences[] prefs= getInstancePreferencesArray();
+		String val= Platform.getPreferencesService().get(KEY_INDEXER_THREADS, null, prefs);
+		if (val != null) {
+			try {
+				int result= Integer.parseInt(val);
+				return result > 0 ? result : Runtime.getRuntime().availableProcessors();
+			} catch (NumberFormatException e) {
+				CCorePlugin.log(e);
+			}
+		}
+		return DEFAULT_INDEXER_THREADS;
+	}
+
+	public static void setIndexerThreads(int threads) {
+		getInstancePreferences().put(KEY_INDEXER_THREADS, String.valueOf(threads));
+	}
+
 	public static boolean preferDefaultLanguage(IProject project) {
 		IPreferencesService prefService = Platform.getPreferencesService();
 		Preferences[] prefs= IndexerPreferences.getPreferences(project);
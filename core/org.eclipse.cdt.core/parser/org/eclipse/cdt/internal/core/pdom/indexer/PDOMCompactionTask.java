@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.indexer;
+
+import java.util.List;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.IPDOMIndexer;
+import org.eclipse.cdt.core.dom.IPDOMIndexerTask;
+import org.eclipse.cdt.internal.core.pdom.IndexerProgress;
+import org.eclipse.cdt.internal.core.pdom.WritablePDOM;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Compacts the databases of indexes after a considerable part of their records has been freed.
+ * Scheduled by the indexer when it has no other work to do.
+ * @see Database#compact()
+ */
+public class PDOMCompactionTask implements IPDOMIndexerTask {
+	/** Minimum number of free bytes that compaction may reclaim before a database is compacted. */
+	private static final long MIN_BYTES_FREED= 4 * 1024 * 1024;
+	/** Minimum ratio of these bytes to the size of the database before it is compacted. */
+	private static final double MIN_FREED_RATIO= 0.25;
+	/** Number of chunks compacted before the write lock is yielded to waiting readers. */
+	private static final int CHUNKS_PER_BATCH= 1024;
+
+	private final List<WritablePDOM> fPDOMs;
+
+	public PDOMCompactionTask(List<WritablePDOM> pdoms) {
+		fPDOMs= pdoms;
+	}
+
+	/**
+	 * Returns whether enough of the records of the index have been freed for a compaction
+	 * to be worthwhile. Must be called while holding a lock on the index.
+	 */
+	public static boolean needsCompaction(WritablePDOM pdom) throws CoreException {
+		Database db= pdom.getDB();
+		if (db.isClosed())
+			return false;
+		// Blocks that remained free after compacting in this session are not counted again.
+		long freed= db.getBytesFree() - db.getBytesFreeAfterCompaction();
+		return freed >= MIN_BYTES_FREED && freed >= MIN_FREED_RATIO * db.getSizeBytes();
+	}
+
+	@Override
+	public IPDOMIndexer getIndexer() {
+		return null;
+	}
+
+	@Override
+	public IndexerProgress getProgressInformation() {
+		return new IndexerProgress();
+	}
+
+	@Override
+	public void run(IProgressMonitor monitor) throws InterruptedException {
+		for (WritablePDOM pdom : fPDOMs) {
+			if (monitor.isCanceled())
+				return;
+			compact(pdom, monitor);
+		}
+	}
+
+	/**
+	 * Compacts the database of the index in batches of chunks. Like the indexer, the write lock
+	 * is yielded between the batches when readers are waiting for it.
+	 */
+	private void compact(WritablePDOM pdom, IProgressMonitor monitor) throws InterruptedException {
+		pdom.acquireWriteLock(monitor);
+		boolean locked= true;
+		try {
+			final Database db= pdom.getDB();
+			if (!isOpen(pdom, db) || !needsCompaction(pdom))
+				return;
+
+			for (int chunk= 1; db.mergeFreeBlocks(chunk, CHUNKS_PER_BATCH); chunk += CHUNKS_PER_BATCH) {
+				if (pdom.hasWaitingReaders()) {
+					locked= false;
+					pdom.releaseWriteLock(0, false);
+					pdom.acquireWriteLock(monitor);
+					locked= true;
+					if (!isOpen(pdom, db))
+						return;
+				}
+			}
+			db.releaseFreeChunks();
+		} catch (CoreException e) {
+			CCorePlugin.log(e);
+		} finally {
+			if (locked) {
+				pdom.releaseWriteLock();
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the index still uses the database. The index may have been closed, deleted
+	 * or reloaded while the task was queued or had yielded the lock.
+	 */
+	private static boolean isOpen(WritablePDOM pdom, Database db) {
+		return pdom.getDB() == db && !db.isClosed() && db.getLocation().exists();
+	}
+
+	@Override
+	public boolean acceptUrgentTask(IPDOMIndexerTask task) {
+		return false;
+	}
+}
@@ -29,8 +29,10 @@ import org.eclipse.cdt.core.index.IIndexManager;
 import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 import org.eclipse.cdt.core.parser.IncludeExportPatterns;
+import org.eclipse.cdt.internal.core.index.ITemplateInstanceCacheProvider;
 import org.eclipse.cdt.internal.core.index.IWritableIndex;
 import org.eclipse.cdt.internal.core.index.IWritableIndexManager;
+import org.eclipse.cdt.internal.core.index.TemplateInstanceCache;
 import org.eclipse.cdt.internal.core.model.CProject;
 import org.eclipse.cdt.internal.core.pdom.AbstractIndexerTask;
 import org.eclipse.cdt.internal.core.pdom.ITodoTaskUpdater;
@@ -70,6 +72,7 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 		setFileSizeLimits(fileLimit * 1024 * 1024, includedFileLimit * 1024 * 1024);
 		setIndexAllHeaderVersions(checkProperty(IndexerPreferences.KEY_INDEX_ALL_HEADER_VERSIONS));
 		setHeadersToIndexAllVersions(getStringSet(IndexerPreferences.KEY_INDEX_ALL_VERSIONS_SPECIFIC_HEADERS));
+		setParallelism(IndexerPreferences.getIndexerThreads());
 		if (checkProperty(IndexerPreferences.KEY_SKIP_ALL_REFERENCES)) {
 			setSkipReferences(SKIP_ALL_REFERENCES);
 		} else {
@@ -311,6 +314,19 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 					+ fStatistics.fReferenceCount + " references, "    //$NON-NLS-1$
 					+ fStatistics.fProblemBindingCount + "(" + nfPercent.format(problemPct) + ") unresolved.");     //$NON-NLS-1$ //$NON-NLS-2$
 
+			int lookups= fStatistics.fLookupCacheHits + fStatistics.fLookupCacheMisses;
+			double lookupHitPct= lookups == 0 ? 0.0 : (double) fStatistics.fLookupCacheHits / (double) lookups;
+			System.out.println(indent + " Lookup cache: "    //$NON-NLS-1$
+					+ fStatistics.fLookupCacheHits + "(" + nfPercent.format(lookupHitPct) + ") hits, "    //$NON-NLS-1$ //$NON-NLS-2$
+					+ fStatistics.fLookupCacheMisses + " misses.");    //$NON-NLS-1$
+			if (index instanceof ITemplateInstanceCacheProvider &&
+					((ITemplateInstanceCacheProvider) index).getTemplateInstanceCache() != null) {
+				TemplateInstanceCache instanceCache= ((ITemplateInstanceCacheProvider) index).getTemplateInstanceCache();
+				System.out.println(indent + " Template instance cache: "    //$NON-NLS-1$
+						+ instanceCache.getHitCount() + " hits, "    //$NON-NLS-1$
+						+ instanceCache.getMissCount() + " misses.");    //$NON-NLS-1$
+			}
+
 			long misses= index.getCacheMisses();
 			long hits= index.getCacheHits();
 			long tries= misses + hits;
@@ -319,6 +335,13 @@ public abstract class PDOMIndexerTask extends AbstractIndexerTask implements IPD
 					+ ChunkCache.getSharedInstance().getMaxSize() / 1024 / 1024 + "MB]: " +    //$NON-NLS-1$
 					+ hits + " hits, "      //$NON-NLS-1$
 					+ misses + "(" + nfPercent.format(missPct) + ") misses.");      //$NON-NLS-1$ //$NON-NLS-2$
+			final ChunkCache cache= ChunkCache.getSharedInstance();
+			long locks= cache.getLockCount();
+			long contentions= cache.getContentionCount();
+			double contentionPct= locks == 0 ? 0.0 : (double) contentions / (double) locks;
+			System.out.println(indent + " Cache locks: "    //$NON-NLS-1$
+					+ locks + " acquired, "      //$NON-NLS-1$
+					+ contentions + "(" + nfPercent.format(contentionPct) + ") contended.");      //$NON-NLS-1$ //$NON-NLS-2$
 
 			if ("true".equals(System.getProperty("SHOW_COMPRESSED_INDEXER_INFO"))) {    //$NON-NLS-1$ //$NON-NLS-2$
 				Calendar cal = Calendar.getInstance();
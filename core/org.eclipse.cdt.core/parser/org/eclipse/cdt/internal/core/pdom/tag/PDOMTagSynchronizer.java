@@ -54,17 +54,27 @@ public class PDOMTagSynchronizer implements IBTreeVisitor {
 			}
 		toRemove.clear();
 
+		long[] records = new long[toInsert.size()];
+		int i = 0;
 		for (Long insert : toInsert)
-			try {
-				tree.insert(insert.longValue());
-			} catch (CoreException e) {
-				CCorePlugin.log(e);
+			records[i++] = insert.longValue();
+		try {
+			tree.insertAll(records);
+		} catch (CoreException e) {
+			CCorePlugin.log(e);
+			// Insert the records one by one, the ones inserted already are found in the tree.
+			for (long record : records)
 				try {
-					db.free(insert.longValue());
+					tree.insert(record);
 				} catch (CoreException e1) {
 					CCorePlugin.log(e1);
+					try {
+						db.free(record);
+					} catch (CoreException e2) {
+						CCorePlugin.log(e2);
+					}
 				}
-			}
+		}
 		toInsert.clear();
 
 		return true;
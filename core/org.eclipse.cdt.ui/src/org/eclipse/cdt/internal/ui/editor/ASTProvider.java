@@ -27,6 +27,7 @@ import org.eclipse.ui.IWorkbenchPart;
 import org.eclipse.ui.IWorkbenchPartReference;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.texteditor.IDocumentProvider;
 import org.eclipse.ui.texteditor.ITextEditor;
 
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
@@ -242,9 +243,11 @@ public final class ASTProvider {
 				tu = provider.getTranslationUnit();
 		}
 
+		// The AST of a recently active editor may be reused as long as the document is not modified.
+		long timeStamp= getModificationStamp(editor);
 		synchronized (this) {
 			fActiveEditor= editor;
-			fTimeStamp= IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+			fTimeStamp= timeStamp;
 			fCache.setActiveElement(tu);
 		}
 
@@ -252,6 +255,19 @@ public final class ASTProvider {
 		fIndexUpdateRequestor.updateIndexInclusion(tu);
 	}
 
+	private static long getModificationStamp(IWorkbenchPart editor) {
+		if (editor instanceof ITextEditor) {
+			ITextEditor textEditor= (ITextEditor) editor;
+			IDocumentProvider documentProvider= textEditor.getDocumentProvider();
+			if (documentProvider != null) {
+				IDocument document= documentProvider.getDocument(textEditor.getEditorInput());
+				if (document instanceof IDocumentExtension4)
+					return ((IDocumentExtension4) document).getModificationStamp();
+			}
+		}
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
 	/**
 	 * Informs that reconciling for the given element is about to be started.
 	 *
@@ -304,6 +320,7 @@ public final class ASTProvider {
 			fActivationListener= null;
 		}
 		fCache.setActiveElement(null);
+		fCache.disposeInactiveASTs();
 	}
 
 	/**
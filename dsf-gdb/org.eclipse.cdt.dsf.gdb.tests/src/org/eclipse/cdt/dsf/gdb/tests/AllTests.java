@@ -10,8 +10,10 @@
  *******************************************************************************/
 package org.eclipse.cdt.dsf.gdb.tests;
 
+import org.eclipse.cdt.dsf.mi.service.command.CommandWindowTest;
 import org.eclipse.cdt.dsf.mi.service.command.commands.TestMIBreakInsertCommand;
 import org.eclipse.cdt.dsf.mi.service.command.commands.TestMICommandConstructCommand;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIParserTests;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIStringHandlerTests;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIThreadTests;
 import org.junit.runner.RunWith;
@@ -26,6 +28,8 @@ import org.junit.runners.Suite.SuiteClasses;
     TestMICommandConstructCommand.class,
     LaunchUtilsTest.class,
     MIStringHandlerTests.class,
+    MIParserTests.class,
+    CommandWindowTest.class,
     ProcStatParserTest.class,
     VisualizerVirtualBoundsGraphicObjectTest.class,
 })	
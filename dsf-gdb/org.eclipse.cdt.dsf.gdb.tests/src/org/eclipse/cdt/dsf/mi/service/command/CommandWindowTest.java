@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the pipelining window of {@link AbstractMIControl}.
+ */
+public class CommandWindowTest {
+    private static final long MS = 1000000;
+
+    @Test
+    public void testWindowBeforeMeasurement() {
+        assertEquals(3, AbstractMIControl.computeCommandWindow(0, 0, 16));
+        assertEquals(3, AbstractMIControl.computeCommandWindow(50 * MS, 0, 16));
+    }
+
+    @Test
+    public void testLocalBackend() {
+        // The backend answers about as fast as it processes the commands.
+        assertEquals(3, AbstractMIControl.computeCommandWindow(MS, MS, 16));
+        assertEquals(3, AbstractMIControl.computeCommandWindow(2 * MS, MS, 16));
+    }
+
+    @Test
+    public void testRemoteBackend() {
+        // A round trip of 40ms at 5ms per command needs nine commands on the wire.
+        assertEquals(9, AbstractMIControl.computeCommandWindow(40 * MS, 5 * MS, 16));
+        assertEquals(16, AbstractMIControl.computeCommandWindow(400 * MS, 5 * MS, 16));
+    }
+
+    @Test
+    public void testSmallMaximum() {
+        assertEquals(1, AbstractMIControl.computeCommandWindow(0, 0, 1));
+        assertEquals(2, AbstractMIControl.computeCommandWindow(40 * MS, 5 * MS, 2));
+    }
+
+    @Test
+    public void testSmoothResultInterval() {
+        assertEquals(8 * MS, AbstractMIControl.smoothResultInterval(0, 8 * MS));
+        assertEquals(9 * MS, AbstractMIControl.smoothResultInterval(8 * MS, 16 * MS));
+        assertEquals(7 * MS, AbstractMIControl.smoothResultInterval(8 * MS, 0));
+    }
+
+    @Test
+    public void testCommandsWithThreadAndFrame() {
+        assertTrue(AbstractMIControl.canSendCommand(2, 3, true));
+        assertFalse(AbstractMIControl.canSendCommand(3, 3, true));
+        assertTrue(AbstractMIControl.canSendCommand(8, 9, true));
+    }
+
+    @Test
+    public void testCommandsWithoutThreadAndFrame() {
+        // Within the initial window these are pipelined like the other commands.
+        assertTrue(AbstractMIControl.canSendCommand(2, 3, false));
+        assertFalse(AbstractMIControl.canSendCommand(3, 3, false));
+        // With a larger window they wait until nothing is on the wire.
+        assertFalse(AbstractMIControl.canSendCommand(1, 9, false));
+        assertTrue(AbstractMIControl.canSendCommand(0, 9, false));
+    }
+}
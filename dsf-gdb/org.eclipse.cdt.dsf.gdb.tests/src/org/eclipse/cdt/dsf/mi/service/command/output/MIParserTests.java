@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service.command.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MIParserTests {
+    private final MIParser fParser = new MIParser();
+
+    @Test
+    public void testResultRecord() {
+        String line = "12^done,stack=[frame={level=\"0\",func=\"main\"},frame={level=\"1\"}],msg=\"a \\\"b\\\" \\\\c\""; //$NON-NLS-1$
+        assertEquals(MIParser.RecordType.ResultRecord, fParser.getRecordType(line));
+        MIResultRecord rr = fParser.parseMIResultRecord(line);
+        assertEquals(12, rr.getToken());
+        assertEquals(MIResultRecord.DONE, rr.getResultClass());
+        MIResult[] results = rr.getMIResults();
+        assertEquals(2, results.length);
+        assertEquals("stack", results[0].getVariable()); //$NON-NLS-1$
+        MIList stack = (MIList) results[0].getMIValue();
+        assertEquals(2, stack.getMIResults().length);
+        MITuple frame = (MITuple) stack.getMIResults()[0].getMIValue();
+        assertEquals("main", ((MIConst) frame.getMIResults()[1].getMIValue()).getCString()); //$NON-NLS-1$
+        assertEquals("a \"b\" \\c", ((MIConst) results[1].getMIValue()).getCString()); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testOOBRecords() {
+        MIOOBRecord oob = fParser.parseMIOOBRecord("*stopped,reason=\"end-stepping-range\",thread-id=\"1\""); //$NON-NLS-1$
+        assertTrue(oob instanceof MIExecAsyncOutput);
+        assertEquals("stopped", ((MIAsyncRecord) oob).getAsyncClass()); //$NON-NLS-1$
+        assertEquals(2, ((MIAsyncRecord) oob).getMIResults().length);
+
+        // Backslashes within stream records aren't escaped.
+        oob = fParser.parseMIOOBRecord("~\"C:\\\\dir\\n\""); //$NON-NLS-1$
+        assertTrue(oob instanceof MIConsoleStreamOutput);
+        assertEquals("C:\\\\dir\\n", ((MIStreamRecord) oob).getCString()); //$NON-NLS-1$
+
+        oob = fParser.parseMIOOBRecord("not an MI record"); //$NON-NLS-1$
+        assertTrue(oob instanceof MITargetStreamOutput);
+        assertEquals("not an MI record\n", ((MIStreamRecord) oob).getCString()); //$NON-NLS-1$
+    }
+
+    @Test
+    public void testRangeOfBuffer() {
+        char[] buf = "~\"x\"\n3^error,msg=\"failed\"\n(gdb) \n".toCharArray(); //$NON-NLS-1$
+        assertEquals(MIParser.RecordType.OOBRecord, fParser.getRecordType(buf, 0, 4));
+        assertEquals(MIParser.RecordType.ResultRecord, fParser.getRecordType(buf, 5, 25));
+        assertEquals(MIParser.RecordType.PrimaryPrompt, fParser.getRecordType(buf, 26, 32));
+
+        MIResultRecord rr = fParser.parseMIResultRecord(buf, 5, 25);
+        assertEquals(3, rr.getToken());
+        assertEquals(MIResultRecord.ERROR, rr.getResultClass());
+        assertEquals("failed", ((MIConst) rr.getMIResults()[0].getMIValue()).getCString()); //$NON-NLS-1$
+    }
+}
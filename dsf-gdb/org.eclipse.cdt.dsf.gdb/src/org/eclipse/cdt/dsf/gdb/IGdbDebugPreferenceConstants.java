@@ -146,5 +146,11 @@ public interface IGdbDebugPreferenceConstants {
 	 * @since 4.2
 	 */
 	public static final String PREF_AGGRESSIVE_BP_FILTER = PREFIX + "aggressiveBpFilter"; //$NON-NLS-1$
-}
 
+	/**
+	 * The value is an integer specifying the largest number of commands that are sent
+	 * to GDB before their results are received.
+	 * @since 4.7
+	 */
+	public static final String PREF_MAX_CONCURRENT_COMMANDS = PREFIX + "maxConcurrentCommands"; //$NON-NLS-1$
+}
@@ -35,9 +35,11 @@ public class GdbDebugOptions implements DebugOptionsListener {
 
 	private static final String DEBUG_FLAG = "org.eclipse.cdt.dsf.gdb/debug"; //$NON-NLS-1$
 	private static final String DEBUG_TIMEOUTS_FLAG = "org.eclipse.cdt.dsf.gdb/debug/timeouts"; //$NON-NLS-1$
+	private static final String DEBUG_COMMAND_PIPELINE_FLAG = "org.eclipse.cdt.dsf.gdb/debug/pipeline"; //$NON-NLS-1$
 
 	public static boolean DEBUG = false;
 	public static boolean DEBUG_COMMAND_TIMEOUTS = false;
+	public static boolean DEBUG_COMMAND_PIPELINE = false;
 
 	/**
 	 * The {@link DebugTrace} object to print to OSGi tracing
@@ -59,6 +61,7 @@ public class GdbDebugOptions implements DebugOptionsListener {
 		fgDebugTrace = options.newDebugTrace(GdbPlugin.getUniqueIdentifier());
 		DEBUG = options.getBooleanOption(DEBUG_FLAG, false);
 		DEBUG_COMMAND_TIMEOUTS = options.getBooleanOption(DEBUG_TIMEOUTS_FLAG, false);
+		DEBUG_COMMAND_PIPELINE = options.getBooleanOption(DEBUG_COMMAND_PIPELINE_FLAG, false);
 	}
 
 	/**
@@ -18,6 +18,7 @@ package org.eclipse.cdt.dsf.gdb.internal;
 import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
 import org.eclipse.cdt.dsf.gdb.IGDBLaunchConfigurationConstants;
 import org.eclipse.cdt.dsf.gdb.IGdbDebugPreferenceConstants;
+import org.eclipse.cdt.dsf.mi.service.command.AbstractMIControl;
 import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
 import org.eclipse.core.runtime.preferences.DefaultScope;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
@@ -45,5 +46,6 @@ public class GdbPreferenceInitializer extends AbstractPreferenceInitializer {
 		node.putInt(IGdbDebugPreferenceConstants.PREF_COMMAND_TIMEOUT_VALUE, IGdbDebugPreferenceConstants.COMMAND_TIMEOUT_VALUE_DEFAULT);
 		node.putBoolean(IGdbDebugPreferenceConstants.PREF_HIDE_RUNNING_THREADS, false);
 		node.putBoolean(IGdbDebugPreferenceConstants.PREF_AGGRESSIVE_BP_FILTER, true);
+		node.putInt(IGdbDebugPreferenceConstants.PREF_MAX_CONCURRENT_COMMANDS, AbstractMIControl.MAX_CONCURRENT_COMMANDS_DEFAULT);
 	}
 }
@@ -18,12 +18,17 @@
  *******************************************************************************/
 package org.eclipse.cdt.dsf.mi.service;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.eclipse.cdt.core.IAddress;
 import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
@@ -72,6 +77,15 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	private static final String READ_MEMORY_BYTES_FEATURE = "data-read-memory-bytes"; //$NON-NLS-1$
 	//data-read-memory write is deprecated, its description could be ambiguous for e.g. 16 bit addressable systems
 	private static final String DATA_WRITE_MEMORY_16_NOT_SUPPORTED = "data-write-memory with word-size != 1 not supported"; //$NON-NLS-1$
+
+	// Default limit of the memory cached per memory context, in octets
+	private static final long MEMORY_CACHE_SIZE_DEFAULT = 16 * 1024 * 1024;
+	// Contiguous cached blocks are merged up to this size, in octets
+	private static final int MAX_MERGED_BLOCK_SIZE = 64 * 1024;
+	// Default number of requests worth of memory read ahead while scrolling
+	private static final int READ_AHEAD_PAGES_DEFAULT = 2;
+	// Larger requests are not followed by a read-ahead, in octets
+	private static final int MAX_READ_AHEAD_REQUEST_SIZE = 64 * 1024;
 	
     public class MemoryChangedEvent extends AbstractDMEvent<IMemoryDMContext> 
         implements IMemoryChangedEvent 
@@ -213,7 +227,12 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
     		return;
     	}
 
-    	getMemoryCache(memoryDMC).getMemory(memoryDMC, address.add(offset), word_size, word_count, drm);
+    	MIMemoryCache cache = getMemoryCache(memoryDMC);
+    	cache.getMemory(memoryDMC, address.add(offset), word_size, word_count, drm);
+    	int pages = getReadAheadPages();
+    	if (pages > 0) {
+    		cache.readAhead(memoryDMC, address.add(offset), word_size, word_count, pages);
+    	}
 	}
 
     /* (non-Javadoc)
@@ -518,112 +537,197 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	protected int getAddressableSize(IMemoryDMContext context) {
 		return 1;
 	}
+
+	/**
+	 * Returns the limit, in octets, of the memory cached per memory context. The least
+	 * recently used blocks are evicted from the cache beyond this size. To be overridden
+	 * by sub-classes for targets with a lot of memory to be shown.
+	 * @since 4.7
+	 */
+	protected long getMemoryCacheSize() {
+		return MEMORY_CACHE_SIZE_DEFAULT;
+	}
+
+	/**
+	 * Returns the amount of memory read ahead while a rendering is scrolled, as a multiple
+	 * of the size of the request that is followed. To be overridden by sub-classes, e.g. for
+	 * targets where reading memory has side effects. Zero disables reading ahead.
+	 * @since 4.7
+	 */
+	protected int getReadAheadPages() {
+		return READ_AHEAD_PAGES_DEFAULT;
+	}
    	
 	///////////////////////////////////////////////////////////////////////////
-	// SortedLinkedlist
+	// MemoryBlockMap
 	///////////////////////////////////////////////////////////////////////////
 
 	// This class is really the equivalent of a C struct (old habits die hard...)
    	// For simplicity, everything is public.
+	// The contents of a cached block are kept as values and flags rather than as
+	// MemoryByte objects, which take several times the memory. Blocks that still
+	// have to be read from the target have no contents.
    	private class MemoryBlock {
 		public IAddress fAddress;
+		public BigInteger fStart;
 		public long fLengthInAddressableUnits;
 		public long fLengthInOctets;
-		public MemoryByte[] fBlock;
-		public MemoryBlock(IAddress address, long lengthInOctets, long lengthInAddressableUnits, MemoryByte[] block) {
+		public byte[] fValues;
+		public byte[] fFlags;
+		public MemoryBlock(IAddress address, long lengthInOctets, long lengthInAddressableUnits) {
 			// A memory block is expected to be populated with the contents of a defined range of addresses
 			// therefore the number of octets shall be divisible by the number of addresses
-			assert (lengthInOctets % lengthInAddressableUnits == 0);
+			assert lengthInAddressableUnits == 0 || lengthInOctets % lengthInAddressableUnits == 0;
 			fAddress = address;
+			fStart = address.getValue();
 			fLengthInAddressableUnits = lengthInAddressableUnits;
 			fLengthInOctets = lengthInOctets;
-			fBlock = block;
+		}
+		public MemoryBlock(IAddress address, long lengthInAddressableUnits, byte[] values, byte[] flags) {
+			this(address, values.length, lengthInAddressableUnits);
+			fValues = values;
+			fFlags = flags;
+		}
+		public MemoryBlock(IAddress address, MemoryByte[] block, int word_size) {
+			this(address, block.length, block.length / word_size);
+			fValues = new byte[block.length];
+			fFlags = new byte[block.length];
+			for (int i = 0; i < block.length; i++) {
+				// A missing byte is cached as unreadable
+				if (block[i] != null) {
+					fValues[i] = block[i].getValue();
+					fFlags[i] = block[i].getFlags();
+				}
+			}
+		}
+		public BigInteger getEnd() {
+			return fStart.add(BigInteger.valueOf(fLengthInAddressableUnits));
 		}
 	}
 
-   	// Address-ordered data structure to cache the memory blocks.
-   	// Contiguous blocks are merged if possible.
-	@SuppressWarnings("serial")
-	private class SortedMemoryBlockList extends LinkedList<MemoryBlock> {
-
-		public SortedMemoryBlockList() {
-			super();
+	// Address-ordered data structure to cache the memory blocks. The blocks don't overlap,
+	// such that the blocks overlapping a range of addresses are found in O(log n).
+	// Contiguous blocks are merged up to MAX_MERGED_BLOCK_SIZE, beyond that merging would
+	// copy the large block for every block read next to it. The least recently used blocks
+	// are evicted once the cache grows beyond its limit.
+	private class MemoryBlockMap {
+		private final TreeMap<BigInteger, MemoryBlock> fBlocks = new TreeMap<BigInteger, MemoryBlock>();
+		private final LinkedHashSet<MemoryBlock> fAccessOrder = new LinkedHashSet<MemoryBlock>();
+		private long fSizeInOctets;
+
+		public void clear() {
+			fBlocks.clear();
+			fAccessOrder.clear();
+			fSizeInOctets = 0;
 		}
 
-		// Insert the block in the sorted linked list and merge contiguous
-		// blocks if necessary
-		@Override
-		public boolean add(MemoryBlock block) {
-
-			// If the list is empty, just store the block
-			if (isEmpty()) {
-				addFirst(block);
-				return true;
+		// Returns the blocks overlapping the given range of addresses in address order,
+		// the blocks are marked as recently used.
+		public List<MemoryBlock> getBlocks(BigInteger start, BigInteger end) {
+			List<MemoryBlock> result = new ArrayList<MemoryBlock>();
+			Map.Entry<BigInteger, MemoryBlock> before = fBlocks.lowerEntry(start);
+			if (before != null && before.getValue().getEnd().compareTo(start) > 0) {
+				result.add(before.getValue());
 			}
-
-			// Insert the block at the correct location and then
-			// merge the blocks if possible
-			ListIterator<MemoryBlock> it = listIterator();
-			while (it.hasNext()) {
-				int index = it.nextIndex();
-				MemoryBlock item = it.next();
-				if (block.fAddress.compareTo(item.fAddress) < 0) {
-					add(index, block);
-					compact(index);
-					return true;
+			if (start.compareTo(end) < 0) {
+				result.addAll(fBlocks.subMap(start, end).values());
+			}
+			for (MemoryBlock block : result) {
+				if (fAccessOrder.remove(block)) {
+					fAccessOrder.add(block);
 				}
 			}
-
-			// Put at the end of the list and merge if necessary 
-			addLast(block);
-			compact(size() - 1);
-			return true;
+			return result;
 		}
 
-		// Merge this block with its contiguous neighbors (if any)
-		// Note: Merge is not performed if resulting block size would exceed MAXINT
-		private void compact(int index) {
-
-			MemoryBlock newBlock = get(index); 
+		// Inserts the block read from the target, merges contiguous blocks if possible
+		// and evicts blocks if the cache exceeds the given size.
+		public void add(MemoryBlock block, int word_size, long maxSizeInOctets) {
+			BigInteger start = block.fStart;
+			BigInteger end = block.getEnd();
+
+			// The new contents replace the overlapping parts of cached blocks, which may
+			// have been read by a concurrent request.
+			for (MemoryBlock cachedBlock : getBlocks(start, end)) {
+				remove(cachedBlock);
+				if (cachedBlock.fStart.compareTo(start) < 0) {
+					put(slice(cachedBlock, cachedBlock.fStart, start, word_size));
+				}
+				if (cachedBlock.getEnd().compareTo(end) > 0) {
+					put(slice(cachedBlock, end, cachedBlock.getEnd(), word_size));
+				}
+			}
 
 			// Case where the block is to be merged with the previous block
-			if (index > 0) {
-				MemoryBlock prevBlock = get(index - 1);
-				IAddress endOfPreviousBlock = prevBlock.fAddress.add(prevBlock.fLengthInAddressableUnits);
-				if (endOfPreviousBlock.distanceTo(newBlock.fAddress).longValue() == 0) {
-					long newLengthInOctets = prevBlock.fLengthInOctets + newBlock.fLengthInOctets;
-					long newLengthInAddressableUnits = prevBlock.fLengthInAddressableUnits + newBlock.fLengthInAddressableUnits;
-					if (newLengthInOctets <= Integer.MAX_VALUE) {
-						MemoryByte[] block = new MemoryByte[(int) newLengthInOctets] ;
-						System.arraycopy(prevBlock.fBlock, 0, block, 0, (int) prevBlock.fLengthInOctets);
-						System.arraycopy(newBlock.fBlock, 0, block, (int) prevBlock.fLengthInOctets, (int) newBlock.fLengthInOctets);
-						newBlock = new MemoryBlock(prevBlock.fAddress, newLengthInOctets, newLengthInAddressableUnits, block);
-						remove(index);
-						index -= 1;
-						set(index, newBlock);
-					}
-				}
+			Map.Entry<BigInteger, MemoryBlock> prev = fBlocks.lowerEntry(start);
+			if (prev != null && prev.getValue().getEnd().equals(start)
+					&& prev.getValue().fLengthInOctets + block.fLengthInOctets <= MAX_MERGED_BLOCK_SIZE) {
+				remove(prev.getValue());
+				block = merge(prev.getValue(), block);
 			}
 
 			// Case where the block is to be merged with the following block
-			int lastIndex = size() - 1;
-			if (index < lastIndex) {
-				MemoryBlock nextBlock = get(index + 1);
-				IAddress endOfNewBlock = newBlock.fAddress.add(newBlock.fLengthInAddressableUnits);
-				if (endOfNewBlock.distanceTo(nextBlock.fAddress).longValue() == 0) {
-					long newLength = newBlock.fLengthInOctets + nextBlock.fLengthInOctets;
-					long newAddressesLength = newBlock.fLengthInAddressableUnits + nextBlock.fLengthInAddressableUnits;
-					if (newLength <= Integer.MAX_VALUE) {
-						MemoryByte[] block = new MemoryByte[(int) newLength] ;
-						System.arraycopy(newBlock.fBlock, 0, block, 0, (int) newBlock.fLengthInOctets);
-						System.arraycopy(nextBlock.fBlock, 0, block, (int) newBlock.fLengthInOctets, (int) nextBlock.fLengthInOctets);
-						newBlock = new MemoryBlock(newBlock.fAddress, newLength, newAddressesLength, block);
-						set(index, newBlock);
-						remove(index + 1);
-					}
-				}
+			MemoryBlock next = fBlocks.get(end);
+			if (next != null && block.fLengthInOctets + next.fLengthInOctets <= MAX_MERGED_BLOCK_SIZE) {
+				remove(next);
+				block = merge(block, next);
+			}
+			put(block);
+
+			Iterator<MemoryBlock> leastRecentlyUsed = fAccessOrder.iterator();
+			while (fSizeInOctets > maxSizeInOctets && leastRecentlyUsed.hasNext()) {
+				MemoryBlock evicted = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				fBlocks.remove(evicted.fStart);
+				fSizeInOctets -= evicted.fLengthInOctets;
 			}
 		}
+
+		private void put(MemoryBlock block) {
+			fBlocks.put(block.fStart, block);
+			fAccessOrder.add(block);
+			fSizeInOctets += block.fLengthInOctets;
+		}
+
+		private void remove(MemoryBlock block) {
+			fBlocks.remove(block.fStart);
+			fAccessOrder.remove(block);
+			fSizeInOctets -= block.fLengthInOctets;
+		}
+
+		private MemoryBlock slice(MemoryBlock block, BigInteger start, BigInteger end, int word_size) {
+			long offset = start.subtract(block.fStart).longValue();
+			long length = end.subtract(start).longValue();
+			int from = (int) offset * word_size;
+			int to = from + (int) length * word_size;
+			return new MemoryBlock(block.fAddress.add(offset), length,
+					Arrays.copyOfRange(block.fValues, from, to), Arrays.copyOfRange(block.fFlags, from, to));
+		}
+
+		private MemoryBlock merge(MemoryBlock first, MemoryBlock second) {
+			int firstLength = (int) first.fLengthInOctets;
+			byte[] values = Arrays.copyOf(first.fValues, firstLength + (int) second.fLengthInOctets);
+			byte[] flags = Arrays.copyOf(first.fFlags, values.length);
+			System.arraycopy(second.fValues, 0, values, firstLength, (int) second.fLengthInOctets);
+			System.arraycopy(second.fFlags, 0, flags, firstLength, (int) second.fLengthInOctets);
+			return new MemoryBlock(first.fAddress,
+					first.fLengthInAddressableUnits + second.fLengthInAddressableUnits, values, flags);
+		}
+	}
+
+	// A range of memory being read ahead, and the requests for this memory that
+	// wait for it rather than reading the memory a second time.
+	private class ReadAhead {
+		public BigInteger fStart;
+		public BigInteger fEnd;
+		public List<Runnable> fWaiting = new ArrayList<Runnable>();
+		public ReadAhead(BigInteger start, BigInteger end) {
+			fStart = start;
+			fEnd = end;
+		}
+		public boolean overlaps(BigInteger start, BigInteger end) {
+			return fStart.compareTo(end) < 0 && start.compareTo(fEnd) < 0;
+		}
 	}
 
 	///////////////////////////////////////////////////////////////////////////
@@ -633,20 +737,31 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	/** @since 4.2 */
 	protected class MIMemoryCache {
 		// The memory cache data structure
-		private SortedMemoryBlockList fMemoryBlockList;
+		private MemoryBlockMap fMemoryBlockMap;
+
+		// Incremented on reset, blocks read before are not cached anymore
+		private int fGeneration;
+
+		// The previous request and the pending read-aheads, see readAhead()
+		private BigInteger fLastRequestStart;
+		private BigInteger fLastRequestEnd;
+		private List<ReadAhead> fReadAheads = new ArrayList<ReadAhead>();
 
 		public MIMemoryCache() {
 	    	// Create the memory block cache
-	    	fMemoryBlockList = new SortedMemoryBlockList();
+	    	fMemoryBlockMap = new MemoryBlockMap();
 		}
 
 		public void reset() {
 	    	// Clear the memory cache
-	    	fMemoryBlockList.clear();
+	    	fMemoryBlockMap.clear();
+	    	fGeneration++;
+	    	fLastRequestStart = null;
+	    	fLastRequestEnd = null;
 		}
 
 	    /**
- 	     *  This function walks the address-sorted memory block list to identify
+	     *  This function walks the cached blocks overlapping the request to identify
 	     *  the 'missing' blocks (i.e. the holes) that need to be fetched on the target.
 	     * 
 	     *  The idea is fairly simple but an illustration could perhaps help.
@@ -703,10 +818,17 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	     * to service the request
 	     */
 	    private LinkedList<MemoryBlock> getListOfMissingBlocks(IAddress reqBlockStart, int word_count, int word_size) {
+	    	BigInteger start = reqBlockStart.getValue();
+	    	List<MemoryBlock> cachedBlocks = fMemoryBlockMap.getBlocks(start, start.add(BigInteger.valueOf(word_count)));
+	    	return getListOfMissingBlocks(reqBlockStart, word_count, word_size, cachedBlocks);
+	    }
+
+	    private LinkedList<MemoryBlock> getListOfMissingBlocks(IAddress reqBlockStart, int word_count, int word_size,
+	    		List<MemoryBlock> cachedBlocks) {
 	    	int octetCount = word_count * word_size;
 
 			LinkedList<MemoryBlock> list = new LinkedList<MemoryBlock>();
-			ListIterator<MemoryBlock> it = fMemoryBlockList.listIterator();
+			Iterator<MemoryBlock> it = cachedBlocks.iterator();
 
 			// Look for holes in the list of memory blocks
 			while (it.hasNext() && octetCount > 0) {
@@ -720,7 +842,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 					// If both blocks start at the same location, no need to create a new cached block
 					if (lengthInOctets > 0) {
 						int lengthInAddressableUnits = lengthInOctets / word_size;
-						MemoryBlock newBlock = new MemoryBlock(reqBlockStart, lengthInOctets, lengthInAddressableUnits, new MemoryByte[0]);
+						MemoryBlock newBlock = new MemoryBlock(reqBlockStart, lengthInOctets, lengthInAddressableUnits);
 						list.add(newBlock);
 					}
 					// Adjust request block start and length for the next iteration
@@ -742,7 +864,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 			// Case where we miss a block at the end of the cache
 			if (octetCount > 0) {
 				int addressesLength = octetCount / word_size;
-				MemoryBlock newBlock = new MemoryBlock(reqBlockStart, octetCount, addressesLength, new MemoryByte[0]);
+				MemoryBlock newBlock = new MemoryBlock(reqBlockStart, octetCount, addressesLength);
 				list.add(newBlock);
 			}
 			
@@ -750,18 +872,13 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		}
 
 	    /**
-	     *  This function walks the address-sorted memory block list to get the
-	     *  cached memory bytes (possibly from multiple contiguous blocks).
+	     *  This function gets the cached memory bytes (possibly from multiple
+	     *  contiguous blocks) of the blocks overlapping the requested block.
 	     *  This function is called *after* the missing blocks have been read from
 	     *  the back end i.e. the requested memory is all cached. 
 	     *
-	     *  Again, this is fairly simple. As we loop over the address-ordered list,
-	     *  There are really only 2 cases:
-	     *
-	     *  [1] The requested block fits entirely in the cached block ([a] or [b])
-	     *  [2] The requested block starts in a cached block and ends in the
-	     *      following (contiguous) one ([c]) in which case it is treated
-	     *      as 2 contiguous requests ([c'] and [c"])
+	     *  Each block contributes the part that overlaps the requested block,
+	     *  e.g. [c] is treated as 2 contiguous requests ([c'] and [c"]):
 	     *
 	     *       +--------------+--------------+
 	     *       +       A      +      B       +
@@ -773,52 +890,38 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		 *
 	     * @param reqBlockStart The address of the requested block
 	     * @param count Its length
-	     * @return The cached memory content
+	     * @return The cached memory content, <code>null</code> for the bytes
+	     * that are not cached
 	     */
 	    private MemoryByte[] getMemoryBlockFromCache(IAddress reqBlockStart, int word_count, int word_size) {
-	    	int count = word_count * word_size;
-	    	
-			IAddress reqBlockEnd = reqBlockStart.add(word_count);
-			MemoryByte[] resultBlock = new MemoryByte[count];
-			ListIterator<MemoryBlock> iter = fMemoryBlockList.listIterator();
-
-			while (iter.hasNext()) {
-				MemoryBlock cachedBlock = iter.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLengthInAddressableUnits);
+	    	BigInteger start = reqBlockStart.getValue();
+	    	List<MemoryBlock> cachedBlocks = fMemoryBlockMap.getBlocks(start, start.add(BigInteger.valueOf(word_count)));
+	    	return getMemoryBlock(cachedBlocks, reqBlockStart, word_count, word_size);
+	    }
 
-				// Case where the cached block overlaps completely the requested memory block  
-				if (cachedBlockStart.distanceTo(reqBlockStart).longValue() >= 0
-					&& reqBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(reqBlockStart).longValue() * word_size;
-					System.arraycopy(cachedBlock.fBlock, pos, resultBlock, 0, count);
-				}
-				
-				// Case where the beginning of the cached block is within the requested memory block  
-				else if (reqBlockStart.distanceTo(cachedBlockStart).longValue() >= 0
-					&& cachedBlockStart.distanceTo(reqBlockEnd).longValue() > 0)
-				{
-					int pos = (int) reqBlockStart.distanceTo(cachedBlockStart).longValue() * word_size;
-					int length = (int) Math.min(cachedBlock.fLengthInOctets, count - pos);
-					System.arraycopy(cachedBlock.fBlock, 0, resultBlock, pos, length);
-				}
-				
-				// Case where the end of the cached block is within the requested memory block  
-				else if (cachedBlockStart.distanceTo(reqBlockStart).longValue() >= 0
-					&& reqBlockStart.distanceTo(cachedBlockEnd).longValue() > 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(reqBlockStart).longValue() * word_size;
-					int length = (int) Math.min(cachedBlock.fLengthInOctets - pos, count);
-					System.arraycopy(cachedBlock.fBlock, pos, resultBlock, 0, length);
+	    private MemoryByte[] getMemoryBlock(List<MemoryBlock> blocks, IAddress reqBlockStart, int word_count, int word_size) {
+	    	BigInteger reqStart = reqBlockStart.getValue();
+	    	BigInteger reqEnd = reqStart.add(BigInteger.valueOf(word_count));
+			MemoryByte[] resultBlock = new MemoryByte[word_count * word_size];
+
+			for (MemoryBlock cachedBlock : blocks) {
+				BigInteger from = cachedBlock.fStart.max(reqStart);
+				BigInteger to = cachedBlock.getEnd().min(reqEnd);
+				if (from.compareTo(to) < 0) {
+					int pos = (int) from.subtract(cachedBlock.fStart).longValue() * word_size;
+					int resultPos = (int) from.subtract(reqStart).longValue() * word_size;
+					int length = (int) to.subtract(from).longValue() * word_size;
+					for (int i = 0; i < length; i++) {
+						resultBlock[resultPos + i] = new MemoryByte(cachedBlock.fValues[pos + i], cachedBlock.fFlags[pos + i]);
+					}
 				}
  			}
 			return resultBlock;
 		}
 
 		/**
-	     *  This function walks the address-sorted memory block list and updates
-	     *  the content with the actual memory just read from the target.
+	     *  This function updates the content of the cached blocks overlapping
+	     *  the modified block with the actual memory just read from the target.
 	     * 
 		 * @param modBlockStart
 		 * @param word_count - Number of addressable units
@@ -826,84 +929,49 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		 * @param word_size - Number of octets per addressable unit
 		 */
 		private void updateMemoryCache(IAddress modBlockStart, int word_count, MemoryByte[] modBlock, int word_size) {
-			IAddress modBlockEnd = modBlockStart.add(word_count);
-			ListIterator<MemoryBlock> iter = fMemoryBlockList.listIterator();
-			int count = word_count * word_size;
-
-			while (iter.hasNext()) {
-				MemoryBlock cachedBlock = iter.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLengthInAddressableUnits);
-				
-				// For now, we only bother to update bytes already cached.
-				// Note: In a better implementation (v1.1), we would augment
-				// the cache with the missing memory blocks since we went 
-				// through the pains of reading them in the first place.
-				// (this is left as an exercise to the reader :-)
-
-				// Case where the modified block is completely included in the cached block  
-				if (cachedBlockStart.distanceTo(modBlockStart).longValue() >= 0
-					&& modBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(modBlockStart).longValue() * word_size;
-					System.arraycopy(modBlock, 0, cachedBlock.fBlock, pos, count);
-				}
-				
-				// Case where the cached block is completely included in the modified block
-				else if (modBlockStart.distanceTo(cachedBlockStart).longValue() >= 0
-					&& cachedBlockEnd.distanceTo(modBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) modBlockStart.distanceTo(cachedBlockStart).longValue() * word_size;
-					System.arraycopy(modBlock, pos, cachedBlock.fBlock, 0, (int) cachedBlock.fLengthInOctets);
-				}
-
-				// Case where the beginning of the modified block is within the cached block  
-				else if (cachedBlockStart.distanceTo(modBlockStart).longValue() >= 0
-					&& modBlockStart.distanceTo(cachedBlockEnd).longValue() > 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(modBlockStart).longValue() * word_size;
-					int length = (int) modBlockStart.distanceTo(cachedBlockEnd).longValue() * word_size;
-					System.arraycopy(modBlock, 0, cachedBlock.fBlock, pos, length);
-				}
-				
-				// Case where the end of the modified block is within the cached block  
-				else if (cachedBlockStart.distanceTo(modBlockEnd).longValue() > 0
-					&& modBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) modBlockStart.distanceTo(cachedBlockStart).longValue() * word_size;
-					int length = (int) cachedBlockStart.distanceTo(modBlockEnd).longValue() * word_size;
-					System.arraycopy(modBlock, pos, cachedBlock.fBlock, 0, length);
+	    	BigInteger modStart = modBlockStart.getValue();
+	    	BigInteger modEnd = modStart.add(BigInteger.valueOf(word_count));
+
+			// For now, we only bother to update bytes already cached.
+			for (MemoryBlock cachedBlock : fMemoryBlockMap.getBlocks(modStart, modEnd)) {
+				BigInteger from = cachedBlock.fStart.max(modStart);
+				BigInteger to = cachedBlock.getEnd().min(modEnd);
+				int pos = (int) from.subtract(cachedBlock.fStart).longValue() * word_size;
+				int modPos = (int) from.subtract(modStart).longValue() * word_size;
+				int length = (int) to.subtract(from).longValue() * word_size;
+				for (int i = 0; i < length; i++) {
+					MemoryByte b = modBlock[modPos + i];
+					cachedBlock.fValues[pos + i] = b.getValue();
+					cachedBlock.fFlags[pos + i] = b.getFlags();
 				}
  			}
-			return;
 		}
 
 	    /**
-		 * @param memoryDMC
-	     * @param address	the memory block address (on the target)
-	     * @param word_size	the size, in bytes, of an addressable item
-	     * @param word_count the number of addressable units to read
-	     * @param drm		the asynchronous data request monitor
+	     * Reads the parts of the given range that are not cached from the target and adds
+	     * them to the cache and to the given list of blocks.
 	     */
-	    public void getMemory(IMemoryDMContext memoryDMC, final IAddress address, final int word_size, 
-	    		final int word_count, final DataRequestMonitor<MemoryByte[]> drm)
+	    private void readMissingBlocks(IMemoryDMContext memoryDMC, IAddress address, int word_size,
+	    		int word_count, List<MemoryBlock> blocks, RequestMonitor rm)
+	    {
+	    	readBlocks(memoryDMC, getListOfMissingBlocks(address, word_count, word_size, blocks), word_size, blocks, rm);
+	    }
+
+	    /**
+	     * Reads the given blocks from the target and adds them to the cache and to the
+	     * given list of blocks.
+	     */
+	    private void readBlocks(IMemoryDMContext memoryDMC, List<MemoryBlock> missingBlocks, final int word_size,
+	    		final List<MemoryBlock> blocks, RequestMonitor rm)
 	    {
 	    	// Determine the number of read requests to issue 
-	    	LinkedList<MemoryBlock> missingBlocks = getListOfMissingBlocks(address, word_count, word_size);
 	    	int numberOfRequests = missingBlocks.size();
 
 	    	// A read request will be issued for each block needed
 	    	// so we need to keep track of the count
-	        final CountingRequestMonitor countingRM =
-	        	new CountingRequestMonitor(getExecutor(), drm) { 
-	                @Override
-	                protected void handleSuccess() {
-	                	// We received everything so read the result from the memory cache
-	                	drm.setData(getMemoryBlockFromCache(address, word_count, word_size));
-	                    drm.done();
-	                }
-	            };
+	        final CountingRequestMonitor countingRM = new CountingRequestMonitor(getExecutor(), rm);
 	       	countingRM.setDoneCount(numberOfRequests);
+	       	final int generation = fGeneration;
 
 	        // Issue the read requests
 	        for (int i = 0; i < numberOfRequests; i++) {
@@ -911,19 +979,188 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	        	final IAddress startAddress = block.fAddress;
 	        	final int length = (int) block.fLengthInAddressableUnits;
 		        readMemoryBlock(memoryDMC, startAddress, 0, word_size, length,
-					    new DataRequestMonitor<MemoryByte[]>(getSession().getExecutor(), drm) {
+					    new DataRequestMonitor<MemoryByte[]>(getSession().getExecutor(), countingRM) {
 					    	@Override
 					    	protected void handleSuccess() {
 					    		MemoryByte[] block = getData();
-					    		int lenghtInaddressableUnits = block.length / word_size;
-					    		MemoryBlock memoryBlock = new MemoryBlock(startAddress, block.length, lenghtInaddressableUnits, block);
-					    		fMemoryBlockList.add(memoryBlock);
+					    		if (block.length > 0) {
+					    			MemoryBlock memoryBlock = new MemoryBlock(startAddress, block, word_size);
+					    			blocks.add(memoryBlock);
+					    			// The memory may have changed if the cache was reset meanwhile
+					    			if (generation == fGeneration) {
+					    				fMemoryBlockMap.add(memoryBlock, word_size, getMemoryCacheSize());
+					    			}
+					    		}
 					    		countingRM.done();
 					    	}
 					    });
 	        }
 	    }
 
+	    /**
+		 * @param memoryDMC
+	     * @param address	the memory block address (on the target)
+	     * @param word_size	the size, in bytes, of an addressable item
+	     * @param word_count the number of addressable units to read
+	     * @param drm		the asynchronous data request monitor
+	     */
+	    public void getMemory(final IMemoryDMContext memoryDMC, final IAddress address, final int word_size, 
+	    		final int word_count, final DataRequestMonitor<MemoryByte[]> drm)
+	    {
+	    	BigInteger start = address.getValue();
+	    	BigInteger end = start.add(BigInteger.valueOf(word_count));
+
+	    	// The result is assembled from the blocks found in the cache now and the blocks
+	    	// read from the target, none of these can be evicted in the meantime.
+	    	final List<MemoryBlock> blocks = fMemoryBlockMap.getBlocks(start, end);
+	    	final CountingRequestMonitor countingRM = new CountingRequestMonitor(getExecutor(), drm) { 
+	    		@Override
+	    		protected void handleSuccess() {
+	    			// We received everything so assemble the result
+	    			drm.setData(getMemoryBlock(blocks, address, word_count, word_size));
+	    			drm.done();
+	    		}
+	    	};
+
+	    	// The missing memory that is being read ahead is taken from the cache once the
+	    	// read-ahead completes, the rest is read right away.
+	    	List<MemoryBlock> blocksToRead = new ArrayList<MemoryBlock>();
+	    	int numberOfWaits = 0;
+	    	for (MemoryBlock missingBlock : getListOfMissingBlocks(address, word_count, word_size, blocks)) {
+	    		blocksToRead.addAll(getBlocksNotReadAhead(missingBlock, word_size));
+	    		for (ReadAhead readAhead : fReadAheads) {
+	    			if (readAhead.overlaps(missingBlock.fStart, missingBlock.getEnd())) {
+	    				final MemoryBlock part = getPart(missingBlock, readAhead.fStart.max(missingBlock.fStart),
+	    						readAhead.fEnd.min(missingBlock.getEnd()), word_size);
+	    				readAhead.fWaiting.add(new Runnable() {
+	    					@Override
+	    					public void run() {
+	    						// What the read-ahead didn't cache, e.g. because it failed, is read now
+	    						final List<MemoryBlock> partBlocks = fMemoryBlockMap.getBlocks(part.fStart, part.getEnd());
+	    						readMissingBlocks(memoryDMC, part.fAddress, word_size, (int) part.fLengthInAddressableUnits,
+	    							partBlocks, new RequestMonitor(getExecutor(), countingRM) {
+	    								@Override
+	    								protected void handleSuccess() {
+	    									blocks.addAll(partBlocks);
+	    									countingRM.done();
+	    								}
+	    							});
+	    					}
+	    				});
+	    				numberOfWaits++;
+	    			}
+	    		}
+	    	}
+	    	countingRM.setDoneCount(numberOfWaits + 1);
+	    	readBlocks(memoryDMC, blocksToRead, word_size, blocks, countingRM);
+	    }
+
+	    /**
+	     * Returns the parts of the given block that no pending read-ahead covers.
+	     */
+	    private List<MemoryBlock> getBlocksNotReadAhead(MemoryBlock block, int word_size) {
+	    	List<MemoryBlock> parts = new ArrayList<MemoryBlock>();
+	    	parts.add(block);
+	    	for (ReadAhead readAhead : fReadAheads) {
+	    		List<MemoryBlock> remainingParts = new ArrayList<MemoryBlock>();
+	    		for (MemoryBlock part : parts) {
+	    			if (!readAhead.overlaps(part.fStart, part.getEnd())) {
+	    				remainingParts.add(part);
+	    				continue;
+	    			}
+	    			if (part.fStart.compareTo(readAhead.fStart) < 0) {
+	    				remainingParts.add(getPart(part, part.fStart, readAhead.fStart, word_size));
+	    			}
+	    			if (readAhead.fEnd.compareTo(part.getEnd()) < 0) {
+	    				remainingParts.add(getPart(part, readAhead.fEnd, part.getEnd(), word_size));
+	    			}
+	    		}
+	    		parts = remainingParts;
+	    	}
+	    	return parts;
+	    }
+
+	    // Returns a block without contents for the given range of a block
+	    private MemoryBlock getPart(MemoryBlock block, BigInteger start, BigInteger end, int word_size) {
+	    	long length = end.subtract(start).longValue();
+	    	return new MemoryBlock(block.fAddress.add(start.subtract(block.fStart)), length * word_size, length);
+	    }
+
+	    /**
+	     * Reads the parts of the given range of memory that are not cached, yet, such
+	     * that a later {@link #getMemory} is served from the cache.
+	     * 
+		 * @param memoryDMC
+	     * @param address	the memory block address (on the target)
+	     * @param word_size	the size, in bytes, of an addressable item
+	     * @param word_count the number of addressable units to read
+	     * @param rm		the asynchronous request monitor
+	     * @since 4.7
+	     */
+	    public void prefetchMemory(IMemoryDMContext memoryDMC, IAddress address, int word_size,
+	    		int word_count, RequestMonitor rm)
+	    {
+	    	BigInteger start = address.getValue();
+	    	List<MemoryBlock> blocks = fMemoryBlockMap.getBlocks(start, start.add(BigInteger.valueOf(word_count)));
+	    	readMissingBlocks(memoryDMC, address, word_size, word_count, blocks, rm);
+	    }
+
+	    /**
+	     * Reads ahead of a request in the direction in which the requests move. A rendering
+	     * requests the visible rows, when it is scrolled the next rows are then served from
+	     * the cache. Nothing is read ahead for the first request, for large requests and
+	     * for requests that don't follow the previous one, e.g. after going to an address.
+	     * @param pages the amount read ahead, as a multiple of the request
+	     */
+	    private void readAhead(IMemoryDMContext memoryDMC, IAddress address, int word_size, int word_count, int pages) {
+	    	BigInteger start = address.getValue();
+	    	BigInteger end = start.add(BigInteger.valueOf(word_count));
+	    	BigInteger lastStart = fLastRequestStart;
+	    	BigInteger lastEnd = fLastRequestEnd;
+	    	fLastRequestStart = start;
+	    	fLastRequestEnd = end;
+	    	if (lastStart == null || word_count == 0 || (long) word_count * word_size > MAX_READ_AHEAD_REQUEST_SIZE) {
+	    		return;
+	    	}
+
+	    	BigInteger length = BigInteger.valueOf((long) word_count * pages);
+	    	BigInteger from;
+	    	BigInteger to;
+	    	if (start.compareTo(lastStart) > 0 && start.compareTo(lastEnd.add(length)) <= 0) {
+	    		// Scrolling down
+	    		from = end;
+	    		to = end.add(length).min(address.getMaxOffset().add(BigInteger.ONE));
+	    	} else if (start.compareTo(lastStart) < 0 && end.compareTo(lastStart.subtract(length)) >= 0) {
+	    		// Scrolling up
+	    		from = start.subtract(length).max(BigInteger.ZERO);
+	    		to = start;
+	    	} else {
+	    		return;
+	    	}
+	    	if (from.compareTo(to) >= 0) {
+	    		return;
+	    	}
+
+	    	// The memory being read ahead for the previous requests isn't read a second time
+	    	long count = to.subtract(from).longValue();
+	    	MemoryBlock block = new MemoryBlock(address.add(from.subtract(start)), count * word_size, count);
+	    	for (MemoryBlock part : getBlocksNotReadAhead(block, word_size)) {
+	    		final ReadAhead readAhead = new ReadAhead(part.fStart, part.getEnd());
+	    		fReadAheads.add(readAhead);
+	    		prefetchMemory(memoryDMC, part.fAddress, word_size, (int) part.fLengthInAddressableUnits,
+	    			new RequestMonitor(getExecutor(), null) {
+	    				@Override
+	    				protected void handleCompleted() {
+	    					// Failures are of no interest, the memory is read again when requested
+	    					fReadAheads.remove(readAhead);
+	    					for (Runnable waiting : readAhead.fWaiting) {
+	    						waiting.run();
+	    					}
+	    				}
+	    			});
+	    	}
+	    }
+
 	    /**
 		 * @param memoryDMC
 	     * @param address	the memory block address (on the target)
@@ -1002,7 +1239,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 						   MemoryByte[] newBlock = getData();
 						   boolean blocksDiffer = false;
 						   for (int i = 0; i < oldBlock.length; i++) {
-						       if (oldBlock[i].getValue() != newBlock[i].getValue()) {
+						       if (oldBlock[i] == null || oldBlock[i].getValue() != newBlock[i].getValue()) {
 						          blocksDiffer = true;
 						          break;
 						       }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -78,6 +79,19 @@ public abstract class AbstractMIControl extends AbstractDsfService
 {
 	private static final String MI_TRACE_IDENTIFIER = "[MI]"; //$NON-NLS-1$
 	private static final int NUMBER_CONCURRENT_COMMANDS = 3;
+
+	/**
+	 * Default for the largest number of commands on the wire to the backend, see
+	 * {@link #setMaxConcurrentCommands(int)}.
+	 * @since 4.7
+	 */
+	public static final int MAX_CONCURRENT_COMMANDS_DEFAULT = 16;
+
+	/**
+	 * Number of round trip times measured before the minimum is measured anew, such
+	 * that the window follows a change of the link to the backend.
+	 */
+	private static final int ROUND_TRIP_SAMPLES = 256;
 	
     /*
 	 *  Thread control variables for the transmit and receive threads.
@@ -102,6 +116,22 @@ public abstract class AbstractMIControl extends AbstractDsfService
     private final BlockingQueue<CommandHandle> fTxCommands = new LinkedBlockingQueue<CommandHandle>();
     private final Map<Integer, CommandHandle>  fRxCommands = Collections.synchronizedMap(new HashMap<Integer, CommandHandle>());
 
+    /*
+     *   Pipelining window, the number of commands that may be on the wire to the backend at
+     *   the same time. It is adjusted by the RX thread from the measured response times, and
+     *   read by the DSF thread when sending commands.
+     */
+    private volatile int fMaxConcurrentCommands = MAX_CONCURRENT_COMMANDS_DEFAULT;
+    private volatile int fCommandWindow = NUMBER_CONCURRENT_COMMANDS;
+    private volatile long fMinRoundTripTime;
+    private volatile long fResultInterval;
+
+    /**
+     * The command that is on the wire on its own, because it depends on the thread and frame
+     * selected in the backend, or <code>null</code>. Only accessed on the DSF thread.
+     */
+    private CommandHandle fSerializedCommand;
+
     /**
      * Handle that's inserted into the TX commands queue to signal 
      * that the TX thread should shut down.
@@ -183,6 +213,56 @@ public abstract class AbstractMIControl extends AbstractDsfService
     private synchronized OutputStream getMITracingStream() {
     	return fTracingStream;
     }
+
+    /**
+     * Sets the largest number of commands that are sent to the backend before their
+     * results are received. The actual number grows from three up to this value with
+     * the response time of the backend, such that slow links to remote targets are
+     * kept busy. A value of one sends the commands one by one.
+     * 
+     * @param max The largest number of concurrent commands, at least one.
+     * @since 4.7
+     */
+    protected void setMaxConcurrentCommands(int max) {
+    	fMaxConcurrentCommands = Math.max(1, max);
+    	fCommandWindow = Math.min(fCommandWindow, fMaxConcurrentCommands);
+    }
+
+    /**
+     * Returns the number of commands that may currently be on the wire to the backend.
+     * @since 4.7
+     */
+    public int getCommandWindow() {
+    	return fCommandWindow;
+    }
+
+    /**
+     * Returns the number of commands that have been queued, but not sent to the backend.
+     * Must be called on the DSF thread.
+     * @since 4.7
+     */
+    public int getQueuedCommandCount() {
+    	return fCommandQueue.size();
+    }
+
+    /**
+     * Returns the shortest time in milliseconds that the backend recently took to answer
+     * a command, or zero if it has not been measured, yet.
+     * @since 4.7
+     */
+    public double getRoundTripTime() {
+    	return fMinRoundTripTime / 1e6;
+    }
+
+    /**
+     * Returns the number of results the backend delivers per second while commands are
+     * waiting on the wire, or zero if it has not been measured, yet.
+     * @since 4.7
+     */
+    public double getCommandThroughput() {
+    	long interval = fResultInterval;
+    	return interval == 0 ? 0 : 1e9 / interval;
+    }
     
     /**
 	 * @since 3.0
@@ -336,34 +416,98 @@ public abstract class AbstractMIControl extends AbstractDsfService
             rm.done();
         } else {
         	/*
-        	 *  We only allow three outstanding commands to be on the wire to the backend
-        	 *  at any one time. This allows for coalescing as well as canceling
-        	 *  existing commands on a state change. So we add it to the waiting list and let
-        	 *  the user know they can now work with this item if need be.
+        	 *  We only allow a few outstanding commands to be on the wire to the backend
+        	 *  at any one time, see fCommandWindow. This allows for coalescing as well as
+        	 *  canceling existing commands on a state change. So we add it to the waiting
+        	 *  list and let the user know they can now work with this item if need be.
         	 */
         	fCommandQueue.add(handle);
             processCommandQueued(handle);
             
-            if (fRxCommands.size() < NUMBER_CONCURRENT_COMMANDS) {
-                // In a separate dispatch cycle.  This allows command listeners 
-            	// to respond to the command queued event.  
-                getExecutor().execute(new DsfRunnable() {
-                	@Override
-                    public void run() {
-                        processNextQueuedCommand();
-                    }
-                });
-            }
+            // In a separate dispatch cycle.  This allows command listeners 
+            // to respond to the command queued event.  
+            getExecutor().execute(new DsfRunnable() {
+            	@Override
+                public void run() {
+                    processNextQueuedCommand();
+                }
+            });
         }
         
         return handle;
     }
 
+    /**
+     * Returns the number of commands handed to the TX thread, for which no result has been
+     * received. A command being moved from the TX to the RX queue may be missed, such that
+     * the window is exceeded by one at most.
+     */
+    private int getCommandsInFlight() {
+    	return fTxCommands.size() + fRxCommands.size();
+    }
+
+    /**
+     * Checks whether the given command can be sent now.
+     * RawCommands are input to a command in progress and are never held back.
+     */
+    private boolean canSendCommand(CommandHandle handle) {
+    	if (handle.getCommand() instanceof RawCommand) {
+    		return true;
+    	}
+    	if (fSerializedCommand != null) {
+    		if (fTxCommands.contains(fSerializedCommand) || fRxCommands.containsKey(fSerializedCommand.getTokenId())) {
+    			return false;
+    		}
+    		fSerializedCommand = null;
+    	}
+    	return canSendCommand(getCommandsInFlight(), fCommandWindow, handle.getCommand().supportsThreadAndFrameOptions());
+    }
+
+    /**
+     * Checks whether a command can be sent with the given number of commands on the wire.
+     * Commands that don't take the --thread/--frame options depend on, or change the thread
+     * and frame selected in the backend. Up to the initial window of three they are pipelined
+     * like any other command, as they always were. With a larger window they are sent on their
+     * own, such that they keep their order with respect to the other commands.
+     */
+    static boolean canSendCommand(int inFlight, int window, boolean supportsThreadAndFrameOptions) {
+    	if (!supportsThreadAndFrameOptions && window > NUMBER_CONCURRENT_COMMANDS) {
+    		return inFlight == 0;
+    	}
+    	return inFlight < window;
+    }
+
+    /**
+     * Returns the pipelining window for the given response times in nanoseconds: the shortest
+     * round trip time at the rate the backend delivers results while it is busy. The window is
+     * at least three, unless the maximum is smaller, and at most the given maximum.
+     */
+    static int computeCommandWindow(long minRoundTripTime, long resultInterval, int max) {
+    	int window = Math.min(NUMBER_CONCURRENT_COMMANDS, max);
+    	if (resultInterval > 0) {
+    		long needed = minRoundTripTime / resultInterval + 1;
+    		window = (int) Math.max(window, Math.min(max, needed));
+    	}
+    	return window;
+    }
+
+    /**
+     * Adds a measured interval between two results to the smoothed interval, or returns the
+     * measurement if there is no smoothed interval, yet.
+     */
+    static long smoothResultInterval(long smoothed, long interval) {
+    	return smoothed == 0 ? interval : smoothed + (interval - smoothed) / 8;
+    }
+
     private void processNextQueuedCommand() {
-		if (!fCommandQueue.isEmpty()) {
+		while (!fCommandQueue.isEmpty() && canSendCommand(fCommandQueue.get(0))) {
 			final CommandHandle handle = fCommandQueue.remove(0);
 			if (handle != null) {
 				processCommandSent(handle);
+				if (!handle.getCommand().supportsThreadAndFrameOptions() && !(handle.getCommand() instanceof RawCommand)
+						&& fCommandWindow > NUMBER_CONCURRENT_COMMANDS) {
+					fSerializedCommand = handle;
+				}
 
 				// Older debuggers didn't support the --thread/--frame options
 				// Also, not all commands support those options (e.g., CLI commands)
@@ -551,6 +695,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
         private MICommand<MIInfo> fCommand;
         private DataRequestMonitor<MIInfo> fRequestMonitor;
         private int fTokenId ;
+        private long fSentTime;
         
         CommandHandle(MICommand<MIInfo> c, DataRequestMonitor<MIInfo> d) {
             fCommand = c; 
@@ -636,6 +781,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
                      */
                     if (!(commandHandle.getCommand() instanceof RawCommand)) {
                     	// RawCommands will not get an answer, so we cannot put them in the receive queue.
+                    	commandHandle.fSentTime = System.nanoTime();
                     	fRxCommands.put(commandHandle.getTokenId(), commandHandle);
                     }
                 }
@@ -717,6 +863,13 @@ public abstract class AbstractMIControl extends AbstractDsfService
 		 */
         private final List<MIStreamRecord> fAccumulatedStreamRecords = new LinkedList<MIStreamRecord>();
 
+        /*
+         *  State of the response time measurement, see updateCommandWindow().
+         */
+        private long fLastResultTime;
+        private long fRecentMinRoundTripTime;
+        private int fRoundTripSamples;
+
         public RxThread(InputStream inputStream) {
             super("MI RX Thread"); //$NON-NLS-1$
             fInputStream = inputStream;
@@ -724,37 +877,55 @@ public abstract class AbstractMIControl extends AbstractDsfService
 
         @Override
         public void run() {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(fInputStream));
+            Reader reader = new InputStreamReader(fInputStream);
+            // The lines are parsed straight out of this buffer, it grows to
+            // hold the longest line seen so far.
+            char[] buf = new char[8192];
+            int filled = 0;
+            int lineStart = 0;
+            int scanned = 0;
+            boolean skipLF = false;
             try {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.length() != 0) {
-                    	//Write Gdb response to sysout or file
-                    	if(GdbDebugOptions.DEBUG) {
-                    		GdbDebugOptions.trace(String.format( "%s %s  %s\n", GdbPlugin.getDebugTime(), MI_TRACE_IDENTIFIER, line)); //$NON-NLS-1$
-                    	}
-                        
-                        final String finalLine = line;
-                        if (getMITracingStream() != null) {
-                        	try {
-                        		String message = GdbPlugin.getDebugTime() + " " + finalLine + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
-                        		while (message.length() > 100) {
-                        			String partial = message.substring(0, 100) + "\\\n"; //$NON-NLS-1$
-                        			message = message.substring(100);
-                        			getMITracingStream().write(partial.getBytes());
-                        		}
-                        		getMITracingStream().write(message.getBytes());
-                        	} catch (IOException e) {
-                        		// The tracing stream could be closed at any time
-                        		// since the user can set a preference to turn off
-                        		// this tracing.
-                        		setMITracingStream(null);
-                        	}
+                while (true) {
+                    if (scanned == filled) {
+                        if (lineStart > 0) {
+                            // Move the incomplete line to the front.
+                            System.arraycopy(buf, lineStart, buf, 0, filled - lineStart);
+                            filled -= lineStart;
+                            scanned -= lineStart;
+                            lineStart = 0;
+                        } else if (filled == buf.length) {
+                            buf = Arrays.copyOf(buf, buf.length * 2);
+                        }
+                        int n = reader.read(buf, filled, buf.length - filled);
+                        if (n < 0) {
+                            break;
+                        }
+                        filled += n;
+                        continue;
+                    }
+
+                    // Lines end with LF, CR or CR-LF, like for BufferedReader.readLine()
+                    char c = buf[scanned++];
+                    if (skipLF) {
+                        skipLF = false;
+                        if (c == '\n') {
+                            lineStart = scanned;
+                            continue;
                         }
-                        
-                    	processMIOutput(line);
+                    }
+                    if (c == '\n' || c == '\r') {
+                        skipLF = c == '\r';
+                        int lineEnd = scanned - 1;
+                        if (lineEnd > lineStart) {
+                            processLine(buf, lineStart, lineEnd);
+                        }
+                        lineStart = scanned;
                     }
                 }
+                if (filled > lineStart) {
+                    processLine(buf, lineStart, filled);
+                }
             } catch (IOException e) {
                 // Socket is shut down.
             } catch (RejectedExecutionException e) {
@@ -768,7 +939,77 @@ public abstract class AbstractMIControl extends AbstractDsfService
 			} catch (IOException e) {
 			}
         }
+
+        /**
+         * Traces and processes the non-empty line in the given range of the
+         * buffer. A string of the line is created for tracing only.
+         */
+        private void processLine(char[] buf, int start, int end) {
+            if (GdbDebugOptions.DEBUG || getMITracingStream() != null) {
+                String line = new String(buf, start, end - start);
+                //Write Gdb response to sysout or file
+                if(GdbDebugOptions.DEBUG) {
+                    GdbDebugOptions.trace(String.format( "%s %s  %s\n", GdbPlugin.getDebugTime(), MI_TRACE_IDENTIFIER, line)); //$NON-NLS-1$
+                }
+
+                if (getMITracingStream() != null) {
+                    try {
+                        String message = GdbPlugin.getDebugTime() + " " + line + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+                        while (message.length() > 100) {
+                            String partial = message.substring(0, 100) + "\\\n"; //$NON-NLS-1$
+                            message = message.substring(100);
+                            getMITracingStream().write(partial.getBytes());
+                        }
+                        getMITracingStream().write(message.getBytes());
+                    } catch (IOException e) {
+                        // The tracing stream could be closed at any time
+                        // since the user can set a preference to turn off
+                        // this tracing.
+                        setMITracingStream(null);
+                    }
+                }
+            }
+
+            processMIOutput(buf, start, end);
+        }
         
+        /**
+         * Adjusts the pipelining window to the time the backend took for the given command.
+         * The window covers the shortest round trip time at the rate the backend delivers
+         * results while it is busy: a local GDB answers about as fast as it processes the
+         * commands, whereas a slow link to a remote target needs more commands on the wire.
+         */
+        private void updateCommandWindow(CommandHandle commandHandle) {
+        	long now = System.nanoTime();
+        	long rtt = now - commandHandle.fSentTime;
+        	if (fRecentMinRoundTripTime == 0 || rtt < fRecentMinRoundTripTime) {
+        		fRecentMinRoundTripTime = rtt;
+        	}
+        	if (fMinRoundTripTime == 0 || rtt < fMinRoundTripTime) {
+        		fMinRoundTripTime = rtt;
+        	}
+        	if (++fRoundTripSamples == ROUND_TRIP_SAMPLES) {
+        		fMinRoundTripTime = fRecentMinRoundTripTime;
+        		fRecentMinRoundTripTime = 0;
+        		fRoundTripSamples = 0;
+        	}
+        	if (fLastResultTime != 0 && commandHandle.fSentTime < fLastResultTime) {
+        		// The command was waiting while the previous result was received, the time
+        		// in between is what the backend needed for this one.
+        		fResultInterval = smoothResultInterval(fResultInterval, now - fLastResultTime);
+        	}
+        	fLastResultTime = now;
+
+        	int window = computeCommandWindow(fMinRoundTripTime, fResultInterval, fMaxConcurrentCommands);
+        	if (window != fCommandWindow) {
+        		fCommandWindow = window;
+        		if (GdbDebugOptions.DEBUG_COMMAND_PIPELINE) {
+        			GdbDebugOptions.trace(String.format("%s %s  window=%d, in flight=%d, round trip=%.3fms, throughput=%.1f/s\n", //$NON-NLS-1$
+        					GdbPlugin.getDebugTime(), MI_TRACE_IDENTIFIER, window, getCommandsInFlight(), getRoundTripTime(), getCommandThroughput()));
+        		}
+        	}
+        }
+
         private MIResult findResultRecord(MIResult[] results, String variable) {
             for (int i = 0; i < results.length; i++) {
                 if (variable.equals(results[i].getVariable())) {
@@ -883,12 +1124,12 @@ public abstract class AbstractMIControl extends AbstractDsfService
         	return clientMsg.toString();
         }
 
-        void processMIOutput(String line) {
+        void processMIOutput(char[] buf, int start, int end) {
 
-            MIParser.RecordType recordType = fMiParser.getRecordType(line);
+            MIParser.RecordType recordType = fMiParser.getRecordType(buf, start, end);
             
             if (recordType == MIParser.RecordType.ResultRecord) {
-                final MIResultRecord rr = fMiParser.parseMIResultRecord(line);
+                final MIResultRecord rr = fMiParser.parseMIResultRecord(buf, start, end);
            
             	
             	/*
@@ -900,6 +1141,8 @@ public abstract class AbstractMIControl extends AbstractDsfService
                 final CommandHandle commandHandle = fRxCommands.remove(id);
 
                 if (commandHandle != null) {
+                	updateCommandWindow(commandHandle);
+
                     final MIOutput response = new MIOutput(
                         rr, fAccumulatedOOBRecords.toArray(new MIOOBRecord[fAccumulatedOOBRecords.size()]) );
                     fAccumulatedOOBRecords.clear();
@@ -992,7 +1235,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
                 }
         	} else if (recordType == MIParser.RecordType.OOBRecord) {
 				// Process OOBs
-        		final MIOOBRecord oob = fMiParser.parseMIOOBRecord(line);
+        		final MIOOBRecord oob = fMiParser.parseMIOOBRecord(buf, start, end);
 
         		fAccumulatedOOBRecords.add(oob);
         		// limit growth, but only if these are not responses to CLI commands
@@ -98,59 +98,68 @@ public class MIParser {
     public String secondaryPrompt = ">"; //$NON-NLS-1$
 
     public RecordType getRecordType(String line) {
-        int i = 0;
-        if (Character.isDigit(line.charAt(0))) {
-            i = 1;
-            while (i < line.length() && Character.isDigit(line.charAt(i))) {
-                i++;
-            }
+        return getRecordType(line.toCharArray(), 0, line.length());
+    }
+
+    /**
+     * Determines the type of the record in the given range of characters, which
+     * must not be empty.
+     * @since 4.7
+     */
+    public RecordType getRecordType(char[] buf, int start, int end) {
+        int i = start;
+        while (i < end && Character.isDigit(buf[i])) {
+            i++;
         }
-        
-        if (i < line.length() && line.charAt(i) == '^') {
+
+        if (i < end && buf[i] == '^') {
             return RecordType.ResultRecord;
-        } else if (line.startsWith(primaryPrompt, i)) {
+        } else if (regionMatches(buf, i, end, primaryPrompt)) {
             return RecordType.PrimaryPrompt;
-            //break; // Do nothing.
         } else {
             return RecordType.OOBRecord;
         }
-    }    
+    }
 
     /**
      * 
      */
     public MIResultRecord parseMIResultRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
+        return parseMIResultRecord(line.toCharArray(), 0, line.length());
+    }
+
+    /**
+     * Parses the result record in the given range of characters. The characters
+     * are read in a single pass, the array is not modified and not referenced by
+     * the returned record.
+     * @since 4.7
+     */
+    public MIResultRecord parseMIResultRecord(char[] buf, int start, int end) {
+        Cursor cursor = new Cursor(buf, start, end);
         // Fetch the Token/Id
-        int id = parseToken(buffer);
+        int id = parseToken(cursor);
         // Consume the '^'
-        buffer.deleteCharAt(0);
-        
+        cursor.pos++;
+
         MIResultRecord rr = new MIResultRecord();
         rr.setToken(id);
-        if (buffer.toString().startsWith(MIResultRecord.DONE)) {
+        if (cursor.consume(MIResultRecord.DONE)) {
             rr.setResultClass(MIResultRecord.DONE);
-            buffer.delete(0, MIResultRecord.DONE.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.ERROR)) {
+        } else if (cursor.consume(MIResultRecord.ERROR)) {
             rr.setResultClass(MIResultRecord.ERROR);
-            buffer.delete(0, MIResultRecord.ERROR.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.EXIT)) {
+        } else if (cursor.consume(MIResultRecord.EXIT)) {
             rr.setResultClass(MIResultRecord.EXIT);
-            buffer.delete(0, MIResultRecord.EXIT.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.RUNNING)) {
+        } else if (cursor.consume(MIResultRecord.RUNNING)) {
             rr.setResultClass(MIResultRecord.RUNNING);
-            buffer.delete(0, MIResultRecord.RUNNING.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.CONNECTED)) {
+        } else if (cursor.consume(MIResultRecord.CONNECTED)) {
             rr.setResultClass(MIResultRecord.CONNECTED);
-            buffer.delete(0, MIResultRecord.CONNECTED.length());
         } else {
             // Error throw an exception?
         }
 
         // Results are separated by commas.
-        if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-            buffer.deleteCharAt(0);
-            MIResult[] res = processMIResults(new FSB(buffer));
+        if (cursor.consume(',')) {
+            MIResult[] res = processMIResults(cursor);
             rr.setMIResults(res);
         }
         return rr;
@@ -160,13 +169,23 @@ public class MIParser {
      * Find OutOfBand Records depending on the starting token.
      */
     public MIOOBRecord parseMIOOBRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
-        int id = parseToken(buffer);
+        return parseMIOOBRecord(line.toCharArray(), 0, line.length());
+    }
+
+    /**
+     * Parses the out of band record in the given range of characters. The
+     * characters are read in a single pass, the array is not modified and not
+     * referenced by the returned record.
+     * @since 4.7
+     */
+    public MIOOBRecord parseMIOOBRecord(char[] buf, int start, int end) {
+        Cursor cursor = new Cursor(buf, start, end);
+        int id = parseToken(cursor);
         MIOOBRecord oob = null;
-        char c = buffer.length() != 0 ? buffer.charAt(0) : 0;
+        char c = cursor.hasMore() ? cursor.peek() : 0;
         if (c == '*' || c == '+' || c == '=') {
             // Consume the first char
-            buffer.deleteCharAt(0);
+            cursor.pos++;
             MIAsyncRecord async = null;
             switch (c) {
                 case '*' :
@@ -186,22 +205,21 @@ public class MIParser {
             }
             async.setToken(id);
             // Extract the Async-Class
-            int i = buffer.toString().indexOf(',');
+            int i = cursor.indexOf(',');
             if (i != -1) {
-                String asyncClass = buffer.substring(0, i);
-                async.setAsyncClass(asyncClass);
+                async.setAsyncClass(cursor.substring(i));
                 // Consume the async-class and the comma
-                buffer.delete(0, i + 1);
+                cursor.pos = i + 1;
             } else {
-                async.setAsyncClass(buffer.toString().trim());
-                buffer.setLength(0);
+                async.setAsyncClass(cursor.substring(cursor.end).trim());
+                cursor.pos = cursor.end;
             }
-            MIResult[] res = processMIResults(new FSB(buffer));
+            MIResult[] res = processMIResults(cursor);
             async.setMIResults(res);
             oob = async;
         } else if (c == '~' || c == '@' || c == '&') {
             // Consume the first char
-            buffer.deleteCharAt(0);
+            cursor.pos++;
             MIStreamRecord stream = null;
             switch (c) {
                 case '~' :
@@ -219,38 +237,36 @@ public class MIParser {
                 	assert false;
                 	stream = new MIConsoleStreamOutput();
             }
-            // translateCString() assumes that the leading " is deleted
-            if (buffer.length() > 0 && buffer.charAt(0) == '"') {
-                buffer.deleteCharAt(0);
-            }
+            // translateCString() assumes that the leading " is consumed
+            cursor.consume('"');
             // Don't parse any backslashes - backslashes within stream records
             // aren't escaped.
-            stream.setCString(translateCString(new FSB(buffer), false));
+            stream.setCString(translateCString(cursor, false));
             oob = stream;
         } else {
             // Badly format MI line, just pass it to the user as target stream
             MIStreamRecord stream = new MITargetStreamOutput();
-            stream.setCString(line + "\n"); //$NON-NLS-1$
+            stream.setCString(new String(buf, start, end - start) + "\n"); //$NON-NLS-1$
             oob = stream;
         }
         return oob;
     }
-    
-    private int parseToken(StringBuffer buffer) {
+
+    private int parseToken(Cursor cursor) {
         int id = -1;
         // Fetch the Token/Id
-        if (Character.isDigit(buffer.charAt(0))) {
-            int i = 1;
-            while (i < buffer.length() && Character.isDigit(buffer.charAt(i))) {
-                i++;
+        if (cursor.hasMore() && Character.isDigit(cursor.peek())) {
+            long value = 0;
+            while (cursor.hasMore() && Character.isDigit(cursor.peek())) {
+                if (value <= Integer.MAX_VALUE) {
+                    value = value * 10 + Character.digit(cursor.peek(), 10);
+                }
+                // Consume the token.
+                cursor.pos++;
             }
-            String numbers = buffer.substring(0, i);
-            try {
-                id = Integer.parseInt(numbers);
-            } catch (NumberFormatException e) {
+            if (value <= Integer.MAX_VALUE) {
+                id = (int) value;
             }
-            // Consume the token.
-            buffer.delete(0, i);
         }
         return id;
     }
@@ -259,15 +275,14 @@ public class MIParser {
      * Assuming that the usual leading comma was consumed.
      * Extract the MI Result comma seperated responses.
      */
-    private MIResult[] processMIResults(FSB buffer) {
+    private MIResult[] processMIResults(Cursor cursor) {
         List<MIResult> aList = new ArrayList<MIResult>();
-        MIResult result = processMIResult(buffer);
+        MIResult result = processMIResult(cursor);
         if (result != null) {
             aList.add(result);
         }
-        while (buffer.length() > 0 && buffer.charAt(0) == ',') {
-            buffer.deleteCharAt(0);
-            result = processMIResult(buffer);
+        while (cursor.consume(',')) {
+            result = processMIResult(cursor);
             if (result != null) {
                 aList.add(result);
             }
@@ -276,26 +291,26 @@ public class MIParser {
     }
 
     /**
-     * Construct the DsfMIResult.  Characters will be consume/delete
+     * Construct the DsfMIResult.  Characters will be consumed
      * moving forward constructing the AST.
      */
-    private MIResult processMIResult(FSB buffer) {
+    private MIResult processMIResult(Cursor cursor) {
         MIResult result = new MIResult();
         int equal;
-        if (buffer.length() > 0 && Character.isLetter(buffer.charAt(0)) && (equal = buffer.indexOf('=')) != -1) {
-            String variable = buffer.substring(0, equal);
+        if (cursor.hasMore() && Character.isLetter(cursor.peek()) && (equal = cursor.indexOf('=')) != -1) {
+            String variable = cursor.substring(equal);
             result.setVariable(variable);
-            buffer.delete(0, equal + 1);
-            MIValue value = processMIValue(buffer);
+            cursor.pos = equal + 1;
+            MIValue value = processMIValue(cursor);
             result.setMIValue(value);
-        } else if(buffer.length()>0 && buffer.charAt(0)=='"') {
+        } else if (cursor.hasMore() && cursor.peek() == '"') {
             // This an error but we just swallow it and move on.
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue(cursor);
             result.setMIValue(value);
         } else {
-            result.setVariable(buffer.toString());
+            result.setVariable(cursor.substring(cursor.end));
             result.setMIValue(new MIConst()); // Empty string:???
-            buffer.setLength(0);
+            cursor.pos = cursor.end;
         }
         return result;
     }
@@ -303,55 +318,46 @@ public class MIParser {
     /**
      * Find a DsfMIValue implementation or return null.
      */
-    private MIValue processMIValue(FSB buffer) {
+    private MIValue processMIValue(Cursor cursor) {
         MIValue value = null;
-        if (buffer.length() > 0) {
-            if (buffer.charAt(0) == '{') {
-                buffer.deleteCharAt(0);
-                value = processMITuple(buffer);
-            } else if (buffer.charAt(0) == '[') {
-                buffer.deleteCharAt(0);
-                value = processMIList(buffer);
-            } else if (buffer.charAt(0) == '"') {
-                buffer.deleteCharAt(0);
-                MIConst cnst = new MIConst();
-                // Parse backslashes - backslashes within result
-                // and out of band records are escaped.
-                cnst.setCString(translateCString(buffer, true));
-                value = cnst;
-            }
+        if (cursor.consume('{')) {
+            value = processMITuple(cursor);
+        } else if (cursor.consume('[')) {
+            value = processMIList(cursor);
+        } else if (cursor.consume('"')) {
+            MIConst cnst = new MIConst();
+            // Parse backslashes - backslashes within result
+            // and out of band records are escaped.
+            cnst.setCString(translateCString(cursor, true));
+            value = cnst;
         }
         return value;
     }
 
     /**
-     * Assuming the starting '{' was deleted form the StringBuffer,
-     * go to the closing '}' consuming/deleting all the characters.
+     * Assuming the starting '{' was consumed, go to the closing '}'
+     * consuming all the characters.
      * This is usually call by processMIvalue();
      */
-    private MIValue processMITuple(FSB buffer) {
+    private MIValue processMITuple(Cursor cursor) {
         MITuple tuple = new MITuple();
         List<MIValue> valueList = new ArrayList<MIValue>();
         List<MIResult> resultList = new ArrayList<MIResult>();
         // Catch closing '}'
-        while (buffer.length() > 0 && buffer.charAt(0) != '}') {
+        while (cursor.hasMore() && cursor.peek() != '}') {
             // Try for the DsfMIValue first
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue(cursor);
             if (value != null) {
                 valueList.add(value);
             } else {
-                MIResult result = processMIResult(buffer);
+                MIResult result = processMIResult(cursor);
                 if (result != null) {
                     resultList.add(result);
                 }
             }
-            if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-                buffer.deleteCharAt(0);
-            }
-        }
-        if (buffer.length() > 0 && buffer.charAt(0) == '}') {
-            buffer.deleteCharAt(0);
+            cursor.consume(',');
         }
+        cursor.consume('}');
         MIValue[] values = valueList.toArray(new MIValue[valueList.size()]);
         MIResult[] res = resultList.toArray(new MIResult[resultList.size()]);
         tuple.setMIValues(values);
@@ -360,32 +366,28 @@ public class MIParser {
     }
 
     /**
-     * Assuming the leading '[' was deleted, find the closing
-     * ']' consuming/delete chars from the StringBuffer.
+     * Assuming the leading '[' was consumed, find the closing
+     * ']' consuming all the characters.
      */
-    private MIValue processMIList(FSB buffer) {
+    private MIValue processMIList(Cursor cursor) {
         MIList list = new MIList();
         List<MIValue> valueList = new ArrayList<MIValue>();
         List<MIResult> resultList = new ArrayList<MIResult>();
         // catch closing ']'
-        while (buffer.length() > 0 && buffer.charAt(0) != ']') {
+        while (cursor.hasMore() && cursor.peek() != ']') {
             // Try for the DsfMIValue first
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue(cursor);
             if (value != null) {
                 valueList.add(value);
             } else {
-                MIResult result = processMIResult(buffer);
+                MIResult result = processMIResult(cursor);
                 if (result != null) {
                     resultList.add(result);
                 }
             }
-            if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-                buffer.deleteCharAt(0);
-            }
-        }
-        if (buffer.length() > 0 && buffer.charAt(0) == ']') {
-            buffer.deleteCharAt(0);
+            cursor.consume(',');
         }
+        cursor.consume(']');
         MIValue[] values = valueList.toArray(new MIValue[valueList.size()]);
         MIResult[] res = resultList.toArray(new MIResult[resultList.size()]);
         list.setMIValues(values);
@@ -396,25 +398,38 @@ public class MIParser {
     /**
      * MI C-String rather MIConst values are enclosed in double quotes
      * and any double quotes or backslashes in the string are escaped.
-     * Assuming the starting double quote was removed. This method will
+     * Assuming the starting double quote was consumed. This method will
      * stop at the closing double quote, remove the extra backslash escaping
      * and return the string __without__ the enclosing double quotes. The
-     * original string buffer will move forward.
-     * @param buffer The string buffer to read from.
+     * cursor will move forward.
+     * @param cursor The cursor to read from.
      * @param parseBackslashes Defines whether backslashes should be parsed.
      * This parameter is necessary to differentiate between records which
      * contain escaped backslashes and records which do not.
      * @return The translated C string.
      */
-    private String translateCString(FSB buffer, boolean parseBackslashes) {
+    private String translateCString(Cursor cursor, boolean parseBackslashes) {
+        final char[] buf = cursor.buf;
+        final int end = cursor.end;
+        final int start = cursor.pos;
+
+        // Most strings contain no escapes, these are copied in one go.
+        int index = start;
+        while (index < end && buf[index] != '"' && buf[index] != '\\') {
+            index++;
+        }
+        if (index == end || buf[index] == '"') {
+            cursor.pos = index < end ? index + 1 : end;
+            return new String(buf, start, index - start);
+        }
+
         boolean escape = false;
         boolean closingQuotes = false;
 
-        StringBuffer sb = new StringBuffer();
-
-        int index = 0;
-        for (; index < buffer.length() && !closingQuotes; index++) {
-            char c = buffer.charAt(index);
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(buf, start, index - start);
+        for (; index < end && !closingQuotes; index++) {
+            char c = buf[index];
             if (c == '\\') {
                 if (escape) {
                     sb.append(c);
@@ -441,10 +456,89 @@ public class MIParser {
                 escape = false;
             }
         }
-        buffer.delete(0, index);
+        cursor.pos = index;
         return sb.toString();
     }
 
+    private static boolean regionMatches(char[] buf, int pos, int end, String prefix) {
+        int plen = prefix.length();
+        if (end - pos < plen) {
+            return false;
+        }
+        for (int i = 0; i < plen; i++) {
+            if (buf[pos + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Position of the parser within a range of characters. The characters are
+     * consumed by moving the position forward, nothing is copied or deleted.
+     */
+    private static final class Cursor {
+        final char[] buf;
+        final int end;
+        int pos;
+
+        Cursor(char[] buf, int start, int end) {
+            this.buf = buf;
+            this.pos = start;
+            this.end = end;
+        }
+
+        boolean hasMore() {
+            return pos < end;
+        }
+
+        char peek() {
+            return buf[pos];
+        }
+
+        /**
+         * Consumes the given character if it is the next one.
+         */
+        boolean consume(char c) {
+            if (pos < end && buf[pos] == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Consumes the given string if the remaining characters start with it.
+         */
+        boolean consume(String s) {
+            if (regionMatches(buf, pos, end, s)) {
+                pos += s.length();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns the absolute index of the next occurrence of the given
+         * character, or -1.
+         */
+        int indexOf(char c) {
+            for (int i = pos; i < end; i++) {
+                if (buf[i] == c)
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the characters from the current position up to the given
+         * absolute index, without consuming them.
+         */
+        String substring(int to) {
+            return new String(buf, pos, to - pos);
+        }
+    }
+
     /**
      * Tests if this string starts with the specified prefix beginning
      * a specified index.
@@ -476,7 +570,10 @@ public class MIParser {
      * with this for large arrays. Use of FSB rather than String
      * Buffer makes MIParser N rather than N^2 because FSB can 
      * delete from the front in constant time.
+     * @deprecated The parser moves a position over the characters of the
+     * record rather than deleting them, see {@link MIParser#parseMIResultRecord(char[], int, int)}.
      */
+    @Deprecated
     public class FSB {
         StringBuffer buf;
         int pos;
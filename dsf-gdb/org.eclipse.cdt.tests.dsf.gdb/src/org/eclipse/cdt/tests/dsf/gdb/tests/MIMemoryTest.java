@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.cdt.core.IAddress;
 import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
@@ -37,7 +38,14 @@ import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryChangedEvent;
 import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryDMContext;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.StepType;
 import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
 import org.eclipse.cdt.dsf.mi.service.MIRunControl;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MIDataReadMemory;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MIDataReadMemoryBytes;
 import org.eclipse.cdt.dsf.mi.service.command.events.MIStoppedEvent;
 import org.eclipse.cdt.dsf.service.DsfServiceEventHandler;
 import org.eclipse.cdt.dsf.service.DsfServicesTracker;
@@ -80,6 +88,7 @@ public class MIMemoryTest extends BaseTestCase {
 	private MIRunControl        fRunControl;
 	private IMemory             fMemoryService;
 	private IExpressions        fExpressionService;
+	private ICommandControlService fCommandControl;
 	private int 				fWordSize = 1 /* Default */;
 	private ByteOrder 			fByteOrder;
 
@@ -89,6 +98,30 @@ public class MIMemoryTest extends BaseTestCase {
 	private Integer fMemoryChangedEventCount = new Integer(0);
 	private boolean[] fMemoryAddressesChanged = new boolean[BLOCK_SIZE];
 
+	// The default limit of the memory cached by the memory service, in octets
+	private static final int MEMORY_CACHE_SIZE = 16 * 1024 * 1024;
+
+	// Counts the memory read commands sent to GDB
+	private final AtomicInteger fReadCommandCount = new AtomicInteger();
+	private final ICommandListener fReadCommandCounter = new ICommandListener() {
+		@Override
+		public void commandQueued(ICommandToken token) {
+		}
+		@Override
+		public void commandSent(ICommandToken token) {
+			ICommand<?> command = token.getCommand();
+			if (command instanceof MIDataReadMemoryBytes || command instanceof MIDataReadMemory) {
+				fReadCommandCount.incrementAndGet();
+			}
+		}
+		@Override
+		public void commandRemoved(ICommandToken token) {
+		}
+		@Override
+		public void commandDone(ICommandToken token, ICommandResult result) {
+		}
+	};
+
 	@Rule
 	final public ExpectedException expectedException = ExpectedException.none();
 
@@ -122,6 +155,11 @@ public class MIMemoryTest extends BaseTestCase {
         		fExpressionService = fServicesTracker.getService(IExpressions.class);
         		assert(fExpressionService != null);
 
+        		fCommandControl = fServicesTracker.getService(ICommandControlService.class);
+        		assert(fCommandControl != null);
+        		fCommandControl.addCommandListener(fReadCommandCounter);
+        		fReadCommandCount.set(0);
+
         		fSession.addServiceEventListener(MIMemoryTest.this, null);
         		fBaseAddress = null;
         		clearEventCounters();
@@ -150,12 +188,14 @@ public class MIMemoryTest extends BaseTestCase {
             @Override
 			public void run() {
             	fSession.removeServiceEventListener(MIMemoryTest.this);
+            	fCommandControl.removeCommandListener(fReadCommandCounter);
             }
         };
         fSession.getExecutor().submit(runnable).get();
         
         fBaseAddress = null;
 		fExpressionService = null;
+		fCommandControl = null;
 		fMemoryService = null;
 		fRunControl = null;
         fServicesTracker.dispose();
@@ -1318,6 +1358,11 @@ public class MIMemoryTest extends BaseTestCase {
 	private void memoryCacheReadHelper(long offset, int count, int wordSize)
 			throws InterruptedException, ExecutionException {
 		MemoryByte[] buffer = SyncUtil.readMemory(fMemoryDmc, fBaseAddress, offset, wordSize, count);
+		checkBlockContents(buffer, offset, count);
+	}
+
+	// Verifies that the words read from the given offset hold their offset, as set by setBlocks
+	private void checkBlockContents(MemoryByte[] buffer, long offset, int count) {
 		MemoryByteBuffer memBuf = new MemoryByteBuffer(buffer, fByteOrder, fWordSize);
 
 		// Verify that all bytes are correctly set
@@ -1374,4 +1419,191 @@ public class MIMemoryTest extends BaseTestCase {
 		// Ensure no MemoryChangedEvent event was received
 		assertEquals("Incorrect count of MemoryChangedEvent", 0, getEventCount());
 	}
+
+	/* ------------------------------------------------------------------------
+	 * readMemoryConcurrently
+	 * ------------------------------------------------------------------------
+	 * Issues the memory read requests from a single executor runnable, such
+	 * that all of them are pending before the first one completes.
+	 * ------------------------------------------------------------------------
+	 * @param offsets	the offsets from fBaseAddress
+	 * @param counts	the number of words to read at each offset
+	 * @return The memory read for each request
+	 * ------------------------------------------------------------------------
+	 */
+	private MemoryByte[][] readMemoryConcurrently(final long[] offsets, final int[] counts)
+	throws InterruptedException
+	{
+		final MemoryByte[][] results = new MemoryByte[offsets.length][];
+		fWait.waitReset();
+		for (int i = 0; i < offsets.length; i++) {
+			fWait.increment();
+		}
+
+		fSession.getExecutor().submit(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < offsets.length; i++) {
+					final int request = i;
+					fMemoryService.getMemory(fMemoryDmc, fBaseAddress, offsets[i], fWordSize, counts[i],
+						new DataRequestMonitor<MemoryByte[]>(fSession.getExecutor(), null) {
+							@Override
+							protected void handleCompleted() {
+								if (isSuccess()) {
+									results[request] = getData();
+								}
+								fWait.waitFinished(getStatus());
+							}
+						});
+				}
+			}
+		});
+
+		fWait.waitUntilDone(AsyncCompletionWaitor.WAIT_FOREVER);
+		assertTrue(fWait.getMessage(), fWait.isOK());
+		return results;
+	}
+
+	// ------------------------------------------------------------------------
+	// memoryCacheReadSpanningBlocks
+	// Get a block that spans merged blocks and blocks sliced by a concurrent
+	// read
+	// ------------------------------------------------------------------------
+	@Test
+	public void memoryCacheReadSpanningBlocks() throws Throwable {
+
+		// Run to the point where the variable is initialized
+		SyncUtil.runToLocation("MemoryTestApp.cc:setBlocks");
+		MIStoppedEvent stoppedEvent = SyncUtil.step(StepType.STEP_RETURN);
+		IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+		// Setup call parameters
+		fBaseAddress = evaluateExpression(frameDmc, "&charBlock");
+
+		// Get contiguous blocks, these are merged in the cache
+		memoryCacheReadHelper(0, 32, fWordSize);
+		memoryCacheReadHelper(32, 32, fWordSize);
+
+		// Get overlapping blocks at once, the block read last replaces the
+		// overlapping part of the other one
+		MemoryByte[][] results = readMemoryConcurrently(new long[] { 160, 192 }, new int[] { 64, 64 });
+		checkBlockContents(results[0], 160, 64);
+		checkBlockContents(results[1], 192, 64);
+
+		// Get the whole block, which spans the blocks above and the gap between them
+		memoryCacheReadHelper(0, BLOCK_SIZE, fWordSize);
+
+		// The whole block is cached now
+		int readCommands = fReadCommandCount.get();
+		memoryCacheReadHelper(0, BLOCK_SIZE, fWordSize);
+		assertEquals("Incorrect count of memory read commands", readCommands, fReadCommandCount.get());
+
+		// Ensure no MemoryChangedEvent event was received
+		assertEquals("Incorrect count of MemoryChangedEvent", 0, getEventCount());
+	}
+
+	// ------------------------------------------------------------------------
+	// memoryCacheConcurrentRead
+	// Get overlapping blocks at once and verify that the cached result of each
+	// read is used afterwards
+	// ------------------------------------------------------------------------
+	@Test
+	public void memoryCacheConcurrentRead() throws Throwable {
+
+		// Run to the point where the variable is initialized
+		SyncUtil.runToLocation("MemoryTestApp.cc:setBlocks");
+		MIStoppedEvent stoppedEvent = SyncUtil.step(StepType.STEP_RETURN);
+		IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+		// Setup call parameters
+		fBaseAddress = evaluateExpression(frameDmc, "&charBlock");
+		int readCommands = fReadCommandCount.get();
+
+		// Both blocks are read from the target as neither is cached when they are
+		// requested, the second read replaces the overlapping part of the first one
+		// in the cache. The second request is also read ahead of, as it follows the
+		// first one.
+		MemoryByte[][] results = readMemoryConcurrently(new long[] { 0, 32 }, new int[] { 64, 64 });
+		checkBlockContents(results[0], 0, 64);
+		checkBlockContents(results[1], 32, 64);
+
+		// Get the cached memory, starting where the last request started such that
+		// it isn't read ahead of
+		memoryCacheReadHelper(32, 192, fWordSize);
+		assertEquals("Incorrect count of memory read commands", readCommands + 3, fReadCommandCount.get());
+
+		// Ensure no MemoryChangedEvent event was received
+		assertEquals("Incorrect count of MemoryChangedEvent", 0, getEventCount());
+	}
+
+	// ------------------------------------------------------------------------
+	// memoryCacheEviction
+	// Verify that the least recently used blocks are evicted once more memory
+	// is read than the cache holds
+	// ------------------------------------------------------------------------
+	@Test
+	public void memoryCacheEviction() throws Throwable {
+
+		// Run to the point where the variable is initialized
+		SyncUtil.runToLocation("MemoryTestApp.cc:setBlocks");
+		MIStoppedEvent stoppedEvent = SyncUtil.step(StepType.STEP_RETURN);
+		IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+		// Setup call parameters
+		fBaseAddress = evaluateExpression(frameDmc, "&charBlock");
+
+		// Get a block, which is then served from the cache
+		memoryCacheReadHelper(0, 64, fWordSize);
+		int readCommands = fReadCommandCount.get();
+		memoryCacheReadHelper(0, 32, fWordSize);
+		assertEquals("Incorrect count of memory read commands", readCommands, fReadCommandCount.get());
+
+		// Get more memory than the cache holds after the block, the contents don't
+		// matter. Requests this large are not read ahead of.
+		int chunkCount = 1024 * 1024 / fWordSize;
+		for (long offset = BLOCK_SIZE; offset <= BLOCK_SIZE + MEMORY_CACHE_SIZE / fWordSize; offset += chunkCount) {
+			SyncUtil.readMemory(fMemoryDmc, fBaseAddress, offset, fWordSize, chunkCount);
+		}
+
+		// The block was evicted and is read again
+		readCommands = fReadCommandCount.get();
+		memoryCacheReadHelper(0, 32, fWordSize);
+		assertEquals("Incorrect count of memory read commands", readCommands + 1, fReadCommandCount.get());
+
+		// Ensure no MemoryChangedEvent event was received
+		assertEquals("Incorrect count of MemoryChangedEvent", 0, getEventCount());
+	}
+
+	// ------------------------------------------------------------------------
+	// memoryReadAheadWhileScrolling
+	// Get rows of memory the way a rendering does while it is scrolled down and
+	// verify that the memory read ahead of a request is not read a second time
+	// ------------------------------------------------------------------------
+	@Test
+	public void memoryReadAheadWhileScrolling() throws Throwable {
+
+		// Run to the point where the variable is initialized
+		SyncUtil.runToLocation("MemoryTestApp.cc:setBlocks");
+		MIStoppedEvent stoppedEvent = SyncUtil.step(StepType.STEP_RETURN);
+		IFrameDMContext frameDmc = SyncUtil.getStackFrame(stoppedEvent.getDMContext(), 0);
+
+		// Setup call parameters
+		fBaseAddress = evaluateExpression(frameDmc, "&charBlock");
+		int readCommands = fReadCommandCount.get();
+		int rowSize = 16;
+		int rows = 4;
+		int steps = 8;
+
+		// The first request is read and not read ahead of. The second one reads its
+		// last row and the next two requests worth of memory ahead of it. From then
+		// on, each request is served from the read-ahead memory and only the row
+		// following the memory read ahead so far is read.
+		for (int step = 0; step < steps; step++) {
+			memoryCacheReadHelper(step * rowSize, rows * rowSize, fWordSize);
+		}
+		assertEquals("Incorrect count of memory read commands", readCommands + steps + 1, fReadCommandCount.get());
+
+		// Ensure no MemoryChangedEvent event was received
+		assertEquals("Incorrect count of MemoryChangedEvent", 0, getEventCount());
+	}
 }
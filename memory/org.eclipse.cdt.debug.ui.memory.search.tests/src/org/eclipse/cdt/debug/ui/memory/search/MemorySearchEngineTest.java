@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.cdt.debug.ui.memory.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.cdt.debug.ui.memory.search.FindReplaceDialog.SearchPhrase;
+import org.eclipse.cdt.debug.ui.memory.search.MemorySearchEngine.IMatchCollector;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IMemoryBlockExtension;
+import org.eclipse.debug.core.model.MemoryByte;
+import org.junit.Test;
+
+/**
+ * Tests the search of memory in chunks much smaller than the memory searched, such
+ * that matches span chunks.
+ */
+public class MemorySearchEngineTest
+{
+	private static final int CHUNK_SIZE = 4;
+	private static final String PHRASE = "abc";
+
+	@Test
+	public void testMatchesSpanningChunks() throws DebugException
+	{
+		IMemoryBlockExtension memoryBlock = createMemoryBlock(createContents(20, 2, 7, 10, 17), Integer.MAX_VALUE);
+
+		assertEquals(Arrays.asList(2, 7, 10, 17), search(memoryBlock, 0, 19, true));
+		assertEquals(Arrays.asList(17, 10, 7, 2), search(memoryBlock, 0, 19, false));
+	}
+
+	@Test
+	public void testMatchesWithinRange() throws DebugException
+	{
+		IMemoryBlockExtension memoryBlock = createMemoryBlock(createContents(20, 2, 7, 10, 17), Integer.MAX_VALUE);
+
+		assertEquals(Arrays.asList(7, 10), search(memoryBlock, 3, 12, true));
+		assertEquals(Arrays.asList(10, 7), search(memoryBlock, 3, 12, false));
+	}
+
+	@Test
+	public void testShortReads() throws DebugException
+	{
+		// Each read misses the last byte of the chunk, the bytes around it must not
+		// be taken for a match
+		byte[] contents = createContents(16, 0, 4);
+		contents[9] = 'a';
+		contents[10] = 'b';
+		contents[12] = 'c';
+		IMemoryBlockExtension memoryBlock = createMemoryBlock(contents, CHUNK_SIZE - 1);
+
+		assertEquals(Arrays.asList(0, 4), search(memoryBlock, 0, 15, true));
+		assertEquals(Arrays.asList(4, 0), search(memoryBlock, 0, 15, false));
+	}
+
+	@Test
+	public void testWholeAddressSpace() throws DebugException
+	{
+		// The memory beyond the contents cannot be read, the search is stopped at the
+		// second match
+		IMemoryBlockExtension memoryBlock = createMemoryBlock(createContents(20, 2, 7, 10, 17), Integer.MAX_VALUE);
+		BigInteger end = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+		assertEquals(Arrays.asList(2, 7), search(memoryBlock, createPhrase(PHRASE, PHRASE, false),
+			BigInteger.ZERO, end, true, 2));
+	}
+
+	@Test
+	public void testLittleEndian() throws DebugException
+	{
+		// An integer phrase has its bytes reversed in little-endian memory
+		byte[] contents = createContents(20, 2, 10);
+		contents[7] = 'c';
+		contents[8] = 'b';
+		contents[9] = 'a';
+		IMemoryBlockExtension bigEndian = createMemoryBlock(contents, Integer.MAX_VALUE,
+			(byte) (MemoryByte.ENDIANESS_KNOWN | MemoryByte.BIG_ENDIAN));
+		IMemoryBlockExtension littleEndian = createMemoryBlock(contents, Integer.MAX_VALUE,
+			MemoryByte.ENDIANESS_KNOWN);
+		SearchPhrase phrase = createPhrase(PHRASE, "cba", false);
+
+		assertEquals(Arrays.asList(2, 10), search(bigEndian, phrase, BigInteger.ZERO, BigInteger.valueOf(19), true, -1));
+		assertEquals(Arrays.asList(7), search(littleEndian, phrase, BigInteger.ZERO, BigInteger.valueOf(19), true, -1));
+		assertEquals(Arrays.asList(7), search(littleEndian, phrase, BigInteger.ZERO, BigInteger.valueOf(19), false, -1));
+	}
+
+	@Test
+	public void testCaseInsensitive() throws DebugException
+	{
+		byte[] contents = createContents(20, 2);
+		contents[7] = 'A';
+		contents[8] = 'b';
+		contents[9] = 'C';
+		IMemoryBlockExtension memoryBlock = createMemoryBlock(contents, Integer.MAX_VALUE);
+
+		assertEquals(Arrays.asList(2, 7), search(memoryBlock, createPhrase(PHRASE, PHRASE, true),
+			BigInteger.ZERO, BigInteger.valueOf(19), true, -1));
+		assertEquals(Arrays.asList(7, 2), search(memoryBlock, createPhrase("ABC", "ABC", true),
+			BigInteger.ZERO, BigInteger.valueOf(19), false, -1));
+		assertEquals(Arrays.asList(2), search(memoryBlock, createPhrase(PHRASE, PHRASE, false),
+			BigInteger.ZERO, BigInteger.valueOf(19), true, -1));
+	}
+
+	@Test
+	public void testPhraseWithoutBytes() throws DebugException
+	{
+		// A negative number has no unsigned representation, the phrase matches nothing
+		IMemoryBlockExtension memoryBlock = createMemoryBlock(createContents(20, 2, 7), Integer.MAX_VALUE);
+		SearchPhrase phrase = createPhrase(null, null, false);
+
+		assertEquals(Arrays.asList(), search(memoryBlock, phrase, BigInteger.ZERO, BigInteger.valueOf(19), true, -1));
+		assertEquals(Arrays.asList(), search(memoryBlock, phrase, BigInteger.ZERO, BigInteger.valueOf(19), false, -1));
+	}
+
+	private List<Integer> search(IMemoryBlockExtension memoryBlock, int start, int end, boolean forward)
+		throws DebugException
+	{
+		return search(memoryBlock, createPhrase(PHRASE, PHRASE, false), BigInteger.valueOf(start),
+			BigInteger.valueOf(end), forward, -1);
+	}
+
+	// Returns the addresses of the matches, stops the search at the given number of
+	// matches unless it is negative
+	private List<Integer> search(IMemoryBlockExtension memoryBlock, SearchPhrase phrase, BigInteger start,
+		BigInteger end, boolean forward, final int maxMatches) throws DebugException
+	{
+		final List<Integer> matches = new ArrayList<Integer>();
+		IMatchCollector collector = new IMatchCollector()
+		{
+			public boolean matchFound(BigInteger address, boolean littleEndian)
+			{
+				matches.add(address.intValue());
+				return matches.size() != maxMatches;
+			}
+		};
+		MemorySearchEngine engine = new MemorySearchEngine(memoryBlock, phrase, CHUNK_SIZE);
+		boolean completed = engine.search(start, end, forward, collector, new NullProgressMonitor());
+		assertEquals(matches.size() != maxMatches, completed);
+		return matches;
+	}
+
+	// Returns memory of the given length with the phrase at the given offsets
+	private static byte[] createContents(int length, int... offsets)
+	{
+		byte[] contents = new byte[length];
+		Arrays.fill(contents, (byte) 'x');
+		for(int offset : offsets)
+		{
+			for(int i = 0; i < PHRASE.length(); i++)
+				contents[offset + i] = (byte) PHRASE.charAt(i);
+		}
+		return contents;
+	}
+
+	private static IMemoryBlockExtension createMemoryBlock(byte[] contents, int maxBytesPerRead)
+	{
+		return createMemoryBlock(contents, maxBytesPerRead, (byte) 0);
+	}
+
+	// Returns a memory block of the given contents at address 0, which returns at
+	// most the given number of bytes per read and nothing beyond the contents
+	private static IMemoryBlockExtension createMemoryBlock(final byte[] contents, final int maxBytesPerRead,
+		final byte flags)
+	{
+		InvocationHandler handler = new InvocationHandler()
+		{
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if(!method.getName().equals("getBytesFromAddress"))
+					throw new UnsupportedOperationException(method.getName());
+
+				BigInteger address = (BigInteger) args[0];
+				long count = Math.min(((Long) args[1]).longValue(), maxBytesPerRead);
+				if(address.compareTo(BigInteger.valueOf(contents.length)) >= 0)
+					count = 0;
+				else
+					count = Math.min(count, contents.length - address.intValue());
+				MemoryByte[] bytes = new MemoryByte[(int) count];
+				for(int i = 0; i < bytes.length; i++)
+					bytes[i] = new MemoryByte(contents[address.intValue() + i], flags);
+				return bytes;
+			}
+		};
+		return (IMemoryBlockExtension) Proxy.newProxyInstance(MemorySearchEngineTest.class.getClassLoader(),
+			new Class[] { IMemoryBlockExtension.class }, handler);
+	}
+
+	// Returns a phrase of the length of PHRASE with the given bytes for big-endian and
+	// little-endian memory, null for no bytes
+	private static SearchPhrase createPhrase(final String bigEndianPhrase, final String littleEndianPhrase,
+		final boolean caseInsensitive)
+	{
+		return new SearchPhrase()
+		{
+			public byte[] getBytes(boolean bigEndian)
+			{
+				String phrase = bigEndian ? bigEndianPhrase : littleEndianPhrase;
+				if(phrase == null)
+					return null;
+				byte[] bytes = new byte[phrase.length()];
+				for(int i = 0; i < bytes.length; i++)
+					bytes[i] = (byte) phrase.charAt(i);
+				return bytes;
+			}
+
+			public boolean isCaseInsensitive()
+			{
+				return caseInsensitive;
+			}
+
+			public int getByteLength()
+			{
+				return PHRASE.length();
+			}
+
+			@Override
+			public String toString()
+			{
+				return String.valueOf(bigEndianPhrase);
+			}
+		};
+	}
+}
@@ -0,0 +1,22 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.cdt.debug.ui.memory.search.tests;
+
+import org.eclipse.cdt.debug.ui.memory.search.MemorySearchEngineTest;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+
+// Add additional test case classes below
+@SuiteClasses({MemorySearchEngineTest.class,
+})
+public class AllTests {
+}
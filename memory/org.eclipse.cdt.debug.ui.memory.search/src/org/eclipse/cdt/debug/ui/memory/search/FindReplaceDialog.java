@@ -24,7 +24,6 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.model.IMemoryBlockExtension;
-import org.eclipse.debug.core.model.MemoryByte;
 import org.eclipse.debug.ui.memory.IMemoryRendering;
 import org.eclipse.debug.ui.memory.IMemoryRenderingContainer;
 import org.eclipse.debug.ui.memory.IMemoryRenderingSite;
@@ -63,8 +62,6 @@ public class FindReplaceDialog extends SelectionDialog
 
 	private IMemoryBlockExtension fMemoryBlock;
 	
-	final static int preFetchSize = 20 * 1024;
-	
 	private Text fFindText;
 	private Text fReplaceText;
 	
@@ -807,221 +804,6 @@ public class FindReplaceDialog extends SelectionDialog
 	}
 	
 
-	class FindReplaceMemoryCache
-	{
-		BigInteger memoryCacheStartAddress = BigInteger.ZERO;
-		MemoryByte memoryCacheData[] = new MemoryByte[0];
-	}
-	
-	/**
-	 * Function : getSearchableBytes
-	 * 
-	 * This function returns to the user an array of memory 
-	 * @param start Address ( inclusive ) of the beginning byte of the memory region to be searched
-	 * @param end Address ( inclusive ) of the ending 
-	 * @param forwardSearch direction of the search ( true == searching forward , false = searching backwards
-	 * @param address Address ( inclusive ) of the byte set being requested/returned
-	 * @param length Number of bytes of data to be returned
-	 * @param cache Cached memory byte data ( this routine fetches additional bytes of memory to try and reduce interaction with the debug engine )
-	 * @return MemoryByte[] array which contains the requested bytes
-	 * @throws DebugException
-	 */
-	private MemoryByte[] getSearchableBytes(BigInteger start, BigInteger end, boolean forwardSearch, BigInteger address, int length, FindReplaceMemoryCache cache) throws DebugException
-	{
-		BigInteger endCacheAddress = cache.memoryCacheStartAddress.add(BigInteger.valueOf(cache.memoryCacheData.length));
-
-		/*
-		 * Determine if the requested data is already within the cache.
-		 */
-
-		if( ! ( ( address.compareTo(cache.memoryCacheStartAddress) >= 0                  ) &&
-				( address.add(BigInteger.valueOf(length)).compareTo(endCacheAddress) < 0 )    ) )
-		{
-			BigInteger prefetchSize = BigInteger.valueOf(preFetchSize);
-			BigInteger len          = BigInteger.valueOf(length);
-			BigInteger fetchAddress = address;
-			BigInteger fetchSize;
-
-			/*
-			 *  Determine which way we are searching. Whichever way we are searching we need to make sure
-			 *  we capture the minimum requested amount of data in the forward direction.
-			 */
-
-			if ( forwardSearch ) {
-				/*
-				 *  Legend : "#" == minimum requested data , "*" == additional data we want to prefetch/cache
-				 *
-				 *  This is the best case where everything cleanly fits within the starting/ending ranges
-				 *  to be searched.  What we cannot do is to fetch data outside of these ranges. The user 
-				 *  has specified them, if they are in error that is OK, but we must respect the boundaries 
-				 *  they specified.
-				 *
-				 *  +-- address
-				 *  |
-				 *  +--length--+--prefetch--+------------------------------------+
-				 *  |##########|************|                                    |
-				 *  |##########|************|                                    |
-				 *  |##########|************|                                    |
-				 *  +----------+------------+------------------------------------+
-				 *  |                                                            |
-				 *  +-- start                                              end --+
-				 *
-				 *  This is the worst case scenario. We cannot even get the requested minimum ( no matter
-				 *  the desired prefetch ) before we run out of the specified range.
-				 *
-				 *                                                       +-- address
-				 *                                                       |
-				 *  +----------------------------------------------------+--length--+--prefetch--+
-				 *  |                                                    |##########|************|
-				 *  |                                                    |##########|************|
-				 *  |                                                    |##########|************|
-				 *  +----------------------------------------------------+-------+--+------------+
-				 *  |                                                            |
-				 *  +-- start                                              end --+
-				 *
-				 *  See if the desired size ( minimum length + desired prefetch ) fits in to the current range.
-				 *  If so there is nothing to adjust.
-				 */
-
-				if ( prefetchSize.compareTo(len) >= 0 ) {
-					fetchSize = prefetchSize;
-				}
-				else {
-					fetchSize = len;
-				}
-				
-				if ( address.add( fetchSize ).compareTo(end) > 0 ) {
-					/*
-					 *  It does not all fit. Get as much as we can ( end - current ) + 1.
-					 */
-					fetchSize = end.subtract(address).add(BigInteger.ONE);
-
-					/*
-					 *  If the amount of data we can get does not even meet the minimum request. In this case
-					 *  we have to readjust how much we copy to match what we can actually read. If we do not
-					 *  do this then we will run past the actual data fetched and generate an exception.
-					 */
-					if ( fetchSize.compareTo(len) < 0 ) {
-						length = fetchSize.intValue();
-					}
-				}
-
-				/*
-				 *  The fetch address just starts at the current requested location since we are searching in
-				 *  the forward direction and thus prefetching in the forward direction.
-				 */
-				fetchAddress = address;
-			}
-			else {
-
-				/*
-				 *  Legend : "#" == minimum requested data , "*" == additional data we want to prefetch/cache
-				 *
-				 *  This is the best case where everything cleanly fits within the starting/ending ranges
-				 *  to be searched.  What we cannot do is to fetch data outside of these ranges. The user 
-				 *  has specified them, if they are in error that is OK, but we must respect the boundaries 
-				 *  they specified.
-				 *
-				 *               +-- address
-				 *               |
-				 *  +--prefetch--+--length--+------------------------------------+
-				 *  |************|##########|                                    |
-				 *  |************|##########|                                    |
-				 *  |************|##########|                                    |
-				 *  +------------+----------+------------------------------------+
-				 *  |                                                            |
-				 *  +-- start                                              end --+
-				 *
-				 *  This is the second worst case scenario. We cannot even get the requested minimum ( no matter
-				 *  the desired prefetch ) before we run out of the specified range.
-				 *
-				 *                                                            +-- address
-				 *                                                            |
-				 *  +--------------------------------------------+--prefetch--+--length--+
-				 *  |                                            |************|##########|
-				 *  |                                            |************|##########|
-				 *  |                                            |************|##########|
-				 *  +--------------------------------------------+------------+--+-------+
-				 *  |                                                            |
-				 *  +-- start                                              end --+
-				 *
-				 *  This is the worst case scenario. The minimum length moves us off the end of the high range
-				 *  end and the prefetch before this minimum data request ( remember we are fetching backwards
-				 *  since we are searching backwards ) runs us off the start of the data.
-				 *
-				 *                                                                +-- address
-				 *                                                                |
-				 *  +---+-----------------------------------------------prefetch--+--length--+
-				 *  |*************************************************************|##########|
-				 *  |*************************************************************|##########|
-				 *  |*************************************************************|##########|
-				 *  +---+---------------------------------------------------------+--+-------+
-				 *      |                                                            |
-				 *      +-- start                                              end --+
-				 *
-				 *  See if the desired size ( minimum length + desired prefetch ) fits in to the current range.
-				 *  Without running off the end. 
-				 */
-				if ( address.add(len).compareTo(end) > 0 ) {
-					/*
-					 *  We need to reduce the amount we can ask for to whats left. Also make sure to reduce the
-					 *  amount to copy, otherwise we will overrun the buffer and generate an exception.
-					 */
-					len    = end.subtract(address).add(BigInteger.ONE);
-					length = len.intValue();
-				}
-
-				/*
-				 *  Now determine  if the prefetch is going to run backwards past the "start" of where we are allowed
-				 *  to access the memory. We will normalize the prefetch size so it takes in to account the amount of
-				 *  data being gathered as part of the length requested portion.  This should insure that  in the end
-				 *  we will request the prefetch amount of data unless there is not enough to service this request.
-				 */
-				if ( len.compareTo(prefetchSize) > 0 ) {
-					prefetchSize = BigInteger.ZERO;
-				}
-				else {
-					prefetchSize = prefetchSize.subtract(len);
-				}
-				
-				if ( address.subtract(prefetchSize).compareTo(start) < 0) {
-					/*
-					 *  Just get what we can from the beginning up to the current required address.
-					 */
-					prefetchSize = address.subtract(start);
-					fetchAddress = start;
-				}
-				else {
-					/*
-					 *  It fits so just start reading from the calculated position prior to the requested point.
-					 */
-					fetchAddress = address.subtract(prefetchSize);
-				}
-
-				fetchSize = len.add(prefetchSize);
-			}
-
-			/*
-			 *  OK, we have determined where to start reading the data and how much. Just get the data
-			 *  and store it in the cache.
-			 */
-			MemoryByte bytes[] = fMemoryBlock.getBytesFromAddress(fetchAddress, fetchSize.longValue());
-
-			cache.memoryCacheStartAddress = fetchAddress;
-			cache.memoryCacheData = bytes;
-		}
-
-		/*
-		 * Either it was already cached or just has been, either way we have the data so copy what we can
-		 * back to the user buffer.
-		 */
-
-		MemoryByte bytes[] = new MemoryByte[length];
-		System.arraycopy(cache.memoryCacheData, address.subtract(cache.memoryCacheStartAddress).intValue(), bytes, 0, length);
-
-		return bytes;
-	}
-	
 	private BigInteger parseHexBigInteger(String s)
 	{
 		if(s.toUpperCase().startsWith("0X")) //$NON-NLS-1$
@@ -1092,146 +874,62 @@ public class FindReplaceDialog extends SelectionDialog
 					throws OperationCanceledException {
 
 				final BigInteger searchPhraseLength = BigInteger.valueOf(searchPhrase.getByteLength());
-				BigInteger range = end.subtract(start).add(BigInteger.ONE);
-				BigInteger currentPosition = searchForward ? start : end.subtract(searchPhraseLength);
 
-				if ( searchPhraseLength.compareTo(range) >= 0 ) {
-					return Status.OK_STATUS;
-				}
-				
-				boolean isReplace = replaceData != null;
-				
-				BigInteger jobs = range;
-				BigInteger factor = BigInteger.ONE;
-				if(jobs.compareTo(BigInteger.valueOf(0x07FFFFFF)) > 0)
-				{
-					factor = jobs.divide(BigInteger.valueOf(0x07FFFFFF));
-					jobs = jobs.divide(factor);
-				}
-				
-				BigInteger jobCount = BigInteger.ZERO;
-				
-				BigInteger replaceCount = BigInteger.ZERO;
-				
-				FindReplaceMemoryCache cache = new FindReplaceMemoryCache();
-				
-				monitor.beginTask(Messages.getString("FindReplaceDialog.SearchingMemoryFor") + searchPhrase, jobs.intValue()); //$NON-NLS-1$
-		
-				boolean matched = false;
-				while(((searchForward && currentPosition.compareTo(end.subtract(searchPhraseLength)) < 0) 
-					|| (!searchForward && currentPosition.compareTo(start) > 0)) && !monitor.isCanceled()) 
+				MemorySearchEngine.IMatchCollector collector = new MemorySearchEngine.IMatchCollector()
 				{
-					try
+					private boolean isReplace = replaceData != null;
+					private int replaceCount = 0;
+
+					public boolean matchFound(BigInteger address, boolean littleEndian)
 					{
-						MemoryByte bytes[] = getSearchableBytes(start, end, searchForward, currentPosition, searchPhraseLength.intValue(), cache);
-						matched = searchPhrase.isMatch(bytes);
-						if(matched)
+						if(all && !isReplace)
+							((MemorySearchResult) getSearchResult()).addMatch(new MemoryMatch(address, searchPhraseLength));
+
+						if(isReplace)
 						{
-							if(all && !isReplace)
-								((MemorySearchResult) getSearchResult()).addMatch(new MemoryMatch(currentPosition, searchPhraseLength));
-						
-							if(isReplace)
+							try
 							{
-								try
+								if ((searchPhrase instanceof BigIntegerSearchPhrase) && littleEndian)
 								{
-									if ((searchPhrase instanceof BigIntegerSearchPhrase) && (bytes.length > 0) && bytes[0].isEndianessKnown() && !bytes[0].isBigEndian())
-									{
-										// swap the bytes when replacing an integer on little-endian targets
-										fMemoryBlock.setValue(currentPosition.subtract(fMemoryBlock.getBigBaseAddress()), swapBytes(replaceData));
-									}
-									else
-									{
-										fMemoryBlock.setValue(currentPosition.subtract(fMemoryBlock.getBigBaseAddress()), replaceData);
-									}
+									// swap the bytes when replacing an integer on little-endian targets
+									fMemoryBlock.setValue(address.subtract(fMemoryBlock.getBigBaseAddress()), swapBytes(replaceData));
 								}
-								catch(DebugException de)
+								else
 								{
-									MemorySearchPlugin.logError(Messages.getString("FindReplaceDialog.MemoryReadFailed"), de); //$NON-NLS-1$
+									fMemoryBlock.setValue(address.subtract(fMemoryBlock.getBigBaseAddress()), replaceData);
 								}
-
-								replaceCount = replaceCount.add(BigInteger.ONE);
 							}
-							
-							if(isReplace && replaceThenFind && replaceCount.compareTo(BigInteger.ONE) == 0)
+							catch(DebugException de)
 							{
-								isReplace = false;
-								matched = false;
+								MemorySearchPlugin.logError(Messages.getString("FindReplaceDialog.MemoryReadFailed"), de); //$NON-NLS-1$
 							}
-							
-							if(matched && !all)
-							{
-								final BigInteger finalCurrentPosition = currentPosition;
-								final BigInteger finalStart = start ;
-								final BigInteger finalEnd = end;
-								Display.getDefault().asyncExec(new Runnable(){
 
-									public void run() {
-										IMemoryRenderingContainer containers[] = getMemoryView().getMemoryRenderingContainers();
-										for(int i = 0; i < containers.length; i++)
-										{
-											IMemoryRendering rendering = containers[i].getActiveRendering();
-											if(rendering instanceof IRepositionableMemoryRendering)
-											{
-												try {
-													((IRepositionableMemoryRendering) rendering).goToAddress(finalCurrentPosition);
-												} catch (DebugException e) {
-													MemorySearchPlugin.logError(Messages.getString("FindReplaceDialog.RepositioningMemoryViewFailed"), e); //$NON-NLS-1$
-												}
-											}
-											if(rendering != null)
-											{
-												// Temporary, until platform accepts/adds new interface for setting the selection
-												try {
-													Method m = rendering.getClass().getMethod("setSelection", new Class[] { BigInteger.class, BigInteger.class } ); //$NON-NLS-1$
-													if(m != null)
-														m.invoke(rendering, finalCurrentPosition, finalCurrentPosition.add(searchPhraseLength));
-												} catch (Exception e) {
-													// do nothing
-												}
-											}
-										}
-									}
-									
-								});
-								
-								fProperties.setProperty(SEARCH_ENABLE_FIND_NEXT, Boolean.TRUE.toString());
-								if ( searchForward ) {
-									BigInteger newFinalStart = finalCurrentPosition.add(BigInteger.ONE);
-									fProperties.setProperty(SEARCH_LAST_START, "0x" + newFinalStart.toString(16)); //$NON-NLS-1$
-									fProperties.setProperty(SEARCH_LAST_END, "0x" + finalEnd.toString(16)); //$NON-NLS-1$
-								}
-								else {
-									BigInteger newFinalEnd = finalCurrentPosition.subtract(BigInteger.ONE);
-									fProperties.setProperty(SEARCH_LAST_START, "0x" + finalStart.toString(16)); //$NON-NLS-1$
-									fProperties.setProperty(SEARCH_LAST_END, "0x" + newFinalEnd.toString(16)); //$NON-NLS-1$
-								}
-								if ( fFindAction != null ) {
-									fFindAction.setEnabled(true);
-								}
-								return Status.OK_STATUS;
+							replaceCount++;
+
+							if(replaceThenFind && replaceCount == 1)
+							{
+								isReplace = false;
+								return true;
 							}
 						}
-						
-						matched = false;
-						
-						if(searchForward)
-							currentPosition = currentPosition.add(BigInteger.ONE);
-						else
-							currentPosition = currentPosition.subtract(BigInteger.ONE);
-						
-					}
-					catch(DebugException e)
-					{
-						MemorySearchPlugin.logError(Messages.getString("FindReplaceDialog.MemorySearchFailure"), e); //$NON-NLS-1$
-						return Status.CANCEL_STATUS;
+
+						if(!all)
+						{
+							showMatch(address, searchPhraseLength, start, end, searchForward);
+							return false;
+						}
+						return true;
 					}
-					
-					jobCount = jobCount.add(BigInteger.ONE);
-					if(jobCount.compareTo(factor) == 0)
-					{
-						jobCount = BigInteger.ZERO;
-						monitor.worked(1);
-					}	
+				};
+
+				try
+				{
+					new MemorySearchEngine(fMemoryBlock, searchPhrase).search(start, end, searchForward, collector, monitor);
+				}
+				catch(DebugException e)
+				{
+					MemorySearchPlugin.logError(Messages.getString("FindReplaceDialog.MemorySearchFailure"), e); //$NON-NLS-1$
+					return Status.CANCEL_STATUS;
 				}
 				
 				if(monitor.isCanceled())
@@ -1268,9 +966,64 @@ public class FindReplaceDialog extends SelectionDialog
 			
 	}
 
+	private void showMatch(final BigInteger address, final BigInteger length, BigInteger start, BigInteger end,
+		boolean searchForward)
+	{
+		Display.getDefault().asyncExec(new Runnable(){
+
+			public void run() {
+				IMemoryRenderingContainer containers[] = fMemoryView.getMemoryRenderingContainers();
+				for(int i = 0; i < containers.length; i++)
+				{
+					IMemoryRendering rendering = containers[i].getActiveRendering();
+					if(rendering instanceof IRepositionableMemoryRendering)
+					{
+						try {
+							((IRepositionableMemoryRendering) rendering).goToAddress(address);
+						} catch (DebugException e) {
+							MemorySearchPlugin.logError(Messages.getString("FindReplaceDialog.RepositioningMemoryViewFailed"), e); //$NON-NLS-1$
+						}
+					}
+					if(rendering != null)
+					{
+						// Temporary, until platform accepts/adds new interface for setting the selection
+						try {
+							Method m = rendering.getClass().getMethod("setSelection", new Class[] { BigInteger.class, BigInteger.class } ); //$NON-NLS-1$
+							if(m != null)
+								m.invoke(rendering, address, address.add(length));
+						} catch (Exception e) {
+							// do nothing
+						}
+					}
+				}
+			}
+			
+		});
+		
+		fProperties.setProperty(SEARCH_ENABLE_FIND_NEXT, Boolean.TRUE.toString());
+		if ( searchForward ) {
+			BigInteger newStart = address.add(BigInteger.ONE);
+			fProperties.setProperty(SEARCH_LAST_START, "0x" + newStart.toString(16)); //$NON-NLS-1$
+			fProperties.setProperty(SEARCH_LAST_END, "0x" + end.toString(16)); //$NON-NLS-1$
+		}
+		else {
+			BigInteger newEnd = address.subtract(BigInteger.ONE);
+			fProperties.setProperty(SEARCH_LAST_START, "0x" + start.toString(16)); //$NON-NLS-1$
+			fProperties.setProperty(SEARCH_LAST_END, "0x" + newEnd.toString(16)); //$NON-NLS-1$
+		}
+		if ( fFindAction != null ) {
+			fFindAction.setEnabled(true);
+		}
+	}
+
 	interface SearchPhrase
 	{
-		boolean isMatch(MemoryByte[] bytes);
+		/**
+		 * Returns the bytes to search for in memory of the given byte order, or
+		 * {@code null} if the phrase cannot be found in memory.
+		 */
+		byte[] getBytes(boolean bigEndian);
+		boolean isCaseInsensitive();
 		int getByteLength();
 		String toString();
 	}
@@ -1297,22 +1050,17 @@ public class FindReplaceDialog extends SelectionDialog
 			return fPhrase;
 		}
 		
-		public boolean isMatch(MemoryByte[] bytes)
+		public byte[] getBytes(boolean bigEndian)
 		{
-			byte[] targetBytes = new byte[bytes.length];
+			byte[] bytes = new byte[fPhrase.length()];
 			for(int i = 0; i < bytes.length; i++)
-				targetBytes[i] = bytes[i].getValue();
-			
-			String searchString = fPhrase;
-			String targetString = new String(targetBytes);
-			
-			if(fIsCaseInsensitive)
-			{
-				searchString = searchString.toUpperCase();
-				targetString = targetString.toUpperCase();
-			}
-	
-			return searchString.equals(targetString);
+				bytes[i] = (byte) fPhrase.charAt(i);
+			return bytes;
+		}
+		
+		public boolean isCaseInsensitive()
+		{
+			return fIsCaseInsensitive;
 		}
 	}
 	
@@ -1346,14 +1094,14 @@ public class FindReplaceDialog extends SelectionDialog
 			return buf.toString();
 		}
 		
-		public boolean isMatch(MemoryByte[] bytes)
+		public byte[] getBytes(boolean bigEndian)
 		{
-			if ( fBytes == null )
-				return false;
-			for(int i = 0; i < bytes.length; i++)
-				if(bytes[i].getValue() != fBytes[i])
-					return false;
-			return true;
+			return fBytes;
+		}
+		
+		public boolean isCaseInsensitive()
+		{
+			return false;
 		}
 	}
 	
@@ -1379,26 +1127,19 @@ public class FindReplaceDialog extends SelectionDialog
 			return fPhrase.toString(fRadix);
 		}
 		
-		public boolean isMatch(MemoryByte[] bytes)
+		public byte[] getBytes(boolean bigEndian)
 		{
-			byte[] targetBytes = new byte[bytes.length + 1];
-			targetBytes[0] = 0;
-			for(int i = 0; i < bytes.length; i++)
-			{
-				if (bytes[i].isEndianessKnown() && !bytes[i].isBigEndian())
-				{
-					// swap the bytes when matching an integer on little-endian targets
-					targetBytes[i + 1] = bytes[bytes.length - i - 1].getValue(); 
-				}
-				else
-				{
-					targetBytes[i + 1] = bytes[i].getValue();
-				}
-			}
-			
-			BigInteger targetBigInteger = new BigInteger(targetBytes);
-
-			return fPhrase.equals(targetBigInteger);
+			// memory is read as an unsigned value
+			if(fPhrase.signum() < 0)
+				return null;
+			byte[] bytes = removeZeroPrefixByte(fPhrase.toByteArray());
+			// swap the bytes when matching an integer on little-endian targets
+			return bigEndian ? bytes : swapBytes(bytes);
+		}
+		
+		public boolean isCaseInsensitive()
+		{
+			return false;
 		}
 	}
 	
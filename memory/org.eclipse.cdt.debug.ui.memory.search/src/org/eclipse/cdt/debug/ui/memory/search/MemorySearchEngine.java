@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2015 CDT contributors and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.cdt.debug.ui.memory.search;
+
+import java.math.BigInteger;
+
+import org.eclipse.cdt.debug.ui.memory.search.FindReplaceDialog.SearchPhrase;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IMemoryBlockExtension;
+import org.eclipse.debug.core.model.MemoryByte;
+
+/**
+ * Searches a range of a memory block for a search phrase. The memory is read in
+ * large chunks that are searched with the Boyer-Moore-Horspool algorithm, the end
+ * of a chunk is kept such that matches spanning two chunks are found.
+ */
+class MemorySearchEngine
+{
+	/**
+	 * Receives the matches in the order of the search.
+	 */
+	interface IMatchCollector
+	{
+		/**
+		 * Called for each match, returns whether the search continues.
+		 * @param address the address of the first byte of the match
+		 * @param littleEndian whether the memory of the match is known to be little-endian
+		 */
+		boolean matchFound(BigInteger address, boolean littleEndian);
+	}
+
+	final static int CHUNK_SIZE = 1024 * 1024;
+
+	private IMemoryBlockExtension fMemoryBlock;
+	private SearchPhrase fPhrase;
+	private int fChunkSize;
+	private int fLength;
+	private byte[] fFold;
+
+	// The matchers for big-endian and little-endian memory, created on demand
+	private Matcher fBigEndianMatcher;
+	private Matcher fLittleEndianMatcher;
+
+	public MemorySearchEngine(IMemoryBlockExtension memoryBlock, SearchPhrase phrase)
+	{
+		this(memoryBlock, phrase, CHUNK_SIZE);
+	}
+
+	MemorySearchEngine(IMemoryBlockExtension memoryBlock, SearchPhrase phrase, int chunkSize)
+	{
+		fMemoryBlock = memoryBlock;
+		fPhrase = phrase;
+		fChunkSize = chunkSize;
+		fLength = phrase.getByteLength();
+		fFold = new byte[256];
+		for(int i = 0; i < fFold.length; i++)
+		{
+			char upper = Character.toUpperCase((char) i);
+			fFold[i] = (byte) (phrase.isCaseInsensitive() && upper < 256 ? upper : i);
+		}
+	}
+
+	/**
+	 * Searches the memory from {@code start} to {@code end}, both inclusive.
+	 * @return {@code false} if the collector stopped the search or the monitor was canceled
+	 */
+	public boolean search(BigInteger start, BigInteger end, boolean forward, IMatchCollector collector,
+		IProgressMonitor monitor) throws DebugException
+	{
+		BigInteger range = end.subtract(start).add(BigInteger.ONE);
+		if(fLength == 0 || range.compareTo(BigInteger.valueOf(fLength)) < 0)
+			return true;
+
+		BigInteger chunks = range.add(BigInteger.valueOf(fChunkSize - 1)).divide(BigInteger.valueOf(fChunkSize));
+		monitor.beginTask(Messages.getString("FindReplaceDialog.SearchingMemoryFor") + fPhrase, //$NON-NLS-1$
+			chunks.min(BigInteger.valueOf(Integer.MAX_VALUE)).intValue());
+
+		// The buffer holds the chunk read last and the bytes of the previous chunk
+		// that a match starting in the new chunk can extend to, forward searches keep
+		// these bytes in front of the chunk, backward searches behind it.
+		byte[] buffer = new byte[range.min(BigInteger.valueOf(fChunkSize)).intValue() + fLength];
+		int carry = 0;
+		BigInteger remaining = range;
+
+		while(remaining.signum() > 0)
+		{
+			if(monitor.isCanceled())
+				return false;
+
+			int count = remaining.min(BigInteger.valueOf(fChunkSize)).intValue();
+			remaining = remaining.subtract(BigInteger.valueOf(count));
+			BigInteger address = forward ? end.add(BigInteger.ONE).subtract(remaining).subtract(BigInteger.valueOf(count))
+				: start.add(remaining);
+
+			// The bytes missing from a short read separate the chunk from the next one,
+			// no match can span them
+			MemoryByte bytes[] = fMemoryBlock.getBytesFromAddress(address, count);
+			boolean shortRead = bytes.length < count;
+			count = Math.min(count, bytes.length);
+			boolean littleEndian = count > 0 && bytes[0].isEndianessKnown() && !bytes[0].isBigEndian();
+			Matcher matcher = getMatcher(!littleEndian);
+
+			if(forward)
+			{
+				for(int i = 0; i < count; i++)
+					buffer[carry + i] = bytes[i].getValue();
+
+				BigInteger bufferAddress = address.subtract(BigInteger.valueOf(carry));
+				int length = carry + count;
+				for(int i = matcher.next(buffer, 0, length); i >= 0; i = matcher.next(buffer, i + 1, length))
+				{
+					if(!collector.matchFound(bufferAddress.add(BigInteger.valueOf(i)), littleEndian))
+						return false;
+				}
+
+				carry = shortRead ? 0 : Math.min(fLength - 1, length);
+				System.arraycopy(buffer, length - carry, buffer, 0, carry);
+			}
+			else
+			{
+				if(shortRead)
+					carry = 0;
+				System.arraycopy(buffer, 0, buffer, count, carry);
+				for(int i = 0; i < count; i++)
+					buffer[i] = bytes[i].getValue();
+
+				int length = count + carry;
+				for(int i = matcher.previous(buffer, length - fLength, length); i >= 0; i = matcher.previous(buffer, i - 1, length))
+				{
+					if(!collector.matchFound(address.add(BigInteger.valueOf(i)), littleEndian))
+						return false;
+				}
+
+				carry = Math.min(fLength - 1, length);
+			}
+
+			monitor.worked(1);
+		}
+
+		return !monitor.isCanceled();
+	}
+
+	private Matcher getMatcher(boolean bigEndian)
+	{
+		if(bigEndian)
+		{
+			if(fBigEndianMatcher == null)
+				fBigEndianMatcher = new Matcher(fPhrase.getBytes(true));
+			return fBigEndianMatcher;
+		}
+
+		if(fLittleEndianMatcher == null)
+			fLittleEndianMatcher = new Matcher(fPhrase.getBytes(false));
+		return fLittleEndianMatcher;
+	}
+
+	/**
+	 * Boyer-Moore-Horspool search for a pattern in both directions.
+	 */
+	private class Matcher
+	{
+		private byte[] fPattern;
+		private int[] fForwardSkip = new int[256];
+		private int[] fBackwardSkip = new int[256];
+
+		Matcher(byte[] pattern)
+		{
+			if(pattern == null)
+				return;
+
+			int length = pattern.length;
+			fPattern = new byte[length];
+			for(int i = 0; i < length; i++)
+				fPattern[i] = fFold[pattern[i] & 0xff];
+
+			for(int i = 0; i < 256; i++)
+			{
+				fForwardSkip[i] = length;
+				fBackwardSkip[i] = length;
+			}
+			for(int i = 0; i < length - 1; i++)
+				fForwardSkip[fPattern[i] & 0xff] = length - 1 - i;
+			for(int i = length - 1; i > 0; i--)
+				fBackwardSkip[fPattern[i] & 0xff] = i;
+		}
+
+		private boolean isMatch(byte[] buffer, int offset)
+		{
+			for(int j = fPattern.length - 1; j >= 0; j--)
+			{
+				if(fFold[buffer[offset + j] & 0xff] != fPattern[j])
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the first match at or after {@code from}, or -1.
+		 */
+		int next(byte[] buffer, int from, int length)
+		{
+			if(fPattern == null)
+				return -1;
+			int last = fPattern.length - 1;
+			for(int i = from; i + last < length; i += fForwardSkip[fFold[buffer[i + last] & 0xff] & 0xff])
+			{
+				if(isMatch(buffer, i))
+					return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns the last match at or before {@code from}, or -1.
+		 */
+		int previous(byte[] buffer, int from, int length)
+		{
+			if(fPattern == null)
+				return -1;
+			for(int i = Math.min(from, length - fPattern.length); i >= 0; i -= fBackwardSkip[fFold[buffer[i] & 0xff] & 0xff])
+			{
+				if(isMatch(buffer, i))
+					return i;
+			}
+			return -1;
+		}
+	}
+}